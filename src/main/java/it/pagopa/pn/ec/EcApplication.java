@@ -13,10 +13,26 @@ import org.springframework.context.annotation.PropertySource;
 @PropertySource("classpath:commons/aws-configuration.properties")
 // INTERNAL ENDPOINTS
 @PropertySource("classpath:commons/internal-endpoint.properties")
+// HTTP CLIENT PROFILES
+@PropertySource("classpath:commons/http-client-profiles.properties")
 // NOTIFICATION TRACKER QUEUE
 @PropertySource("classpath:commons/notification-tracker-sqs-queue.properties")
 // TRANSACTION PROCESS
 @PropertySource("classpath:commons/transaction-process.properties")
+// SQS CLIENT
+@PropertySource("classpath:commons/sqs-client.properties")
+// ADAPTIVE CONCURRENCY
+@PropertySource("classpath:commons/adaptive-concurrency.properties")
+// RETRY ENGINE
+@PropertySource("classpath:commons/retry-engine.properties")
+// RETRY POLICY
+@PropertySource("classpath:commons/retry-policy.properties")
+// CLIENT CONFIGURATION CACHE
+@PropertySource("classpath:commons/client-configuration-cache.properties")
+// STATE MACHINE CACHE
+@PropertySource("classpath:commons/state-machine-cache.properties")
+// STATE MACHINE EMBEDDED
+@PropertySource("classpath:commons/state-machine-embedded.properties")
 
 //  <-- REPOSITORY MANAGER -->
 // DYNAMO TABLES
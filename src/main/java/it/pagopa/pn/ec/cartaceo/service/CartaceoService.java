@@ -1,18 +1,20 @@
 package it.pagopa.pn.ec.cartaceo.service;
 
 
+import io.awspring.cloud.messaging.listener.Acknowledgment;
 import it.pagopa.pn.commons.utils.MDCUtils;
 import it.pagopa.pn.ec.cartaceo.configurationproperties.CartaceoSqsQueueName;
 import it.pagopa.pn.ec.cartaceo.mapper.CartaceoMapper;
 import it.pagopa.pn.ec.cartaceo.model.pojo.CartaceoPresaInCaricoInfo;
 import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchDrainProperties;
 import it.pagopa.pn.ec.commons.exception.StatusToDeleteException;
 import it.pagopa.pn.ec.commons.exception.cartaceo.CartaceoSendException;
 import it.pagopa.pn.ec.commons.exception.sqs.SqsClientException;
 import it.pagopa.pn.ec.commons.model.pojo.MonoResultWrapper;
 import it.pagopa.pn.ec.commons.model.pojo.request.PresaInCaricoInfo;
 import it.pagopa.pn.ec.commons.model.pojo.request.StepError;
-import it.pagopa.pn.ec.commons.policy.Policy;
+import it.pagopa.pn.ec.commons.policy.RetryPolicyRegistry;
 import it.pagopa.pn.ec.commons.rest.call.consolidatore.papermessage.PaperMessageCall;
 import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
 import it.pagopa.pn.ec.commons.service.AuthService;
@@ -20,11 +22,17 @@ import it.pagopa.pn.ec.commons.service.PresaInCaricoService;
 import it.pagopa.pn.ec.commons.service.QueueOperationsService;
 import it.pagopa.pn.ec.commons.service.SqsService;
 import it.pagopa.pn.ec.commons.service.impl.AttachmentServiceImpl;
+import it.pagopa.pn.ec.commons.service.retry.RetryEngine;
+import it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
+import it.pagopa.pn.ec.commons.service.sqs.SqsVisibilityExtender;
 import it.pagopa.pn.ec.rest.v1.dto.*;
 import lombok.CustomLog;
 import lombok.CustomLog;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
@@ -39,7 +47,6 @@ import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.Semaphore;
 
 import static it.pagopa.pn.ec.commons.constant.Status.*;
 import static it.pagopa.pn.ec.commons.model.dto.NotificationTrackerQueueDto.createNotificationTrackerQueueDtoPaper;
@@ -63,11 +70,20 @@ public class CartaceoService extends PresaInCaricoService implements QueueOperat
     private final PaperMessageCall paperMessageCall;
     private final CartaceoMapper cartaceoMapper;
     private String idSaved;
-    private final Semaphore semaphore;
+    private final SqsReactiveConsumer sqsReactiveConsumer;
+    private final SqsVisibilityExtender sqsVisibilityExtender;
+    private final SqsConsumerMetrics sqsConsumerMetrics;
+    private final SqsBatchDrainProperties sqsBatchDrainProperties;
+    private final RetryEngine retryEngine;
+    private final RetryPolicyRegistry retryPolicyRegistry;
+    private final Integer maxThreadPoolSize;
 
     protected CartaceoService(AuthService authService, SqsService sqsService, GestoreRepositoryCall gestoreRepositoryCall,
                               AttachmentServiceImpl attachmentService, NotificationTrackerSqsName notificationTrackerSqsName,
-                              CartaceoSqsQueueName cartaceoSqsQueueName, PaperMessageCall paperMessageCall, CartaceoMapper cartaceoMapper, @Value("${lavorazione-cartaceo.max-thread-pool-size}") Integer maxThreadPoolSize) {
+                              CartaceoSqsQueueName cartaceoSqsQueueName, PaperMessageCall paperMessageCall, CartaceoMapper cartaceoMapper,
+                              SqsReactiveConsumer sqsReactiveConsumer, SqsVisibilityExtender sqsVisibilityExtender, SqsConsumerMetrics sqsConsumerMetrics,
+                              SqsBatchDrainProperties sqsBatchDrainProperties, RetryEngine retryEngine,
+                              RetryPolicyRegistry retryPolicyRegistry, @Value("${lavorazione-cartaceo.max-thread-pool-size}") Integer maxThreadPoolSize) {
         super(authService);
         this.sqsService = sqsService;
         this.gestoreRepositoryCall = gestoreRepositoryCall;
@@ -76,7 +92,13 @@ public class CartaceoService extends PresaInCaricoService implements QueueOperat
         this.cartaceoSqsQueueName = cartaceoSqsQueueName;
         this.paperMessageCall = paperMessageCall;
         this.cartaceoMapper = cartaceoMapper;
-        this.semaphore = new Semaphore(maxThreadPoolSize);
+        this.sqsReactiveConsumer = sqsReactiveConsumer;
+        this.sqsVisibilityExtender = sqsVisibilityExtender;
+        this.sqsConsumerMetrics = sqsConsumerMetrics;
+        this.sqsBatchDrainProperties = sqsBatchDrainProperties;
+        this.retryEngine = retryEngine;
+        this.retryPolicyRegistry = retryPolicyRegistry;
+        this.maxThreadPoolSize = maxThreadPoolSize;
     }
 
     private final Retry PRESA_IN_CARICO_RETRY_STRATEGY = Retry.backoff(3, Duration.ofMillis(500))
@@ -184,15 +206,39 @@ public class CartaceoService extends PresaInCaricoService implements QueueOperat
         .doOnSuccess(result -> log.info(SUCCESSFUL_OPERATION_LABEL, INSERT_REQUEST_FROM_CARTACEO, result));
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBatchConsumer() {
+        var batchDrain = sqsBatchDrainProperties.channel(SqsBatchDrainProperties.CARTACEO);
+        if (batchDrain.isContinuous()) {
+            sqsReactiveConsumer.consume(cartaceoSqsQueueName.batchName(),
+                                        CartaceoPresaInCaricoInfo.class,
+                                        this::lavorazioneRichiestaBatchMessage,
+                                        maxThreadPoolSize,
+                                        batchDrain.messagesPerSecond());
+        }
+    }
+
+    public Mono<SendMessageResponse> lavorazioneRichiestaBatchMessage(final CartaceoPresaInCaricoInfo cartaceoPresaInCaricoInfo, final Acknowledgment acknowledgment) {
+        MDC.clear();
+        logIncomingMessage(cartaceoSqsQueueName.batchName(), cartaceoPresaInCaricoInfo);
+        return lavorazioneRichiesta(cartaceoPresaInCaricoInfo).doOnNext(result -> acknowledgment.acknowledge());
+    }
+
     @Scheduled(cron = "${PnEcCronLavorazioneBatchPec ?:0 */5 * * * *}")
     public void lavorazioneRichiestaBatch() {
         MDC.clear();
+//      The continuous consumer replaces the cron drain
+        if (sqsBatchDrainProperties.channel(SqsBatchDrainProperties.CARTACEO).isContinuous()) {
+            return;
+        }
         sqsService.getMessages(cartaceoSqsQueueName.batchName(), CartaceoPresaInCaricoInfo.class)//
                 .doOnNext(cartaceoPresaInCaricoInfoSqsMessageWrapper -> logIncomingMessage(cartaceoSqsQueueName.batchName()//
                         , cartaceoPresaInCaricoInfoSqsMessageWrapper.getMessageContent()))
                 .flatMap(cartaceoPresaInCaricoInfoSqsMessageWrapper -> Mono.zip(Mono.just(cartaceoPresaInCaricoInfoSqsMessageWrapper.getMessage())
 //
-                        , lavorazioneRichiesta(cartaceoPresaInCaricoInfoSqsMessageWrapper.getMessageContent())))
+                        , sqsVisibilityExtender.extendWhileProcessing(cartaceoSqsQueueName.batchName(),
+                                cartaceoPresaInCaricoInfoSqsMessageWrapper.getMessage(),
+                                sqsConsumerMetrics.timeProcessing(cartaceoSqsQueueName.batchName(), lavorazioneRichiesta(cartaceoPresaInCaricoInfoSqsMessageWrapper.getMessageContent())))), maxThreadPoolSize)
                 .flatMap(cartaceoPresaInCaricoInfoSqsMessageWrapper -> sqsService.deleteMessageFromQueue(
                         cartaceoPresaInCaricoInfoSqsMessageWrapper.getT1()
 //
@@ -212,12 +258,6 @@ public class CartaceoService extends PresaInCaricoService implements QueueOperat
         MDC.put(MDC_CORR_ID_KEY, concatRequestId(cartaceoPresaInCaricoInfo.getXPagopaExtchCxId(), cartaceoPresaInCaricoInfo.getRequestIdx()));
         log.logStartingProcess(LAVORAZIONE_RICHIESTA_CARTACEO);
 
-        try {
-            semaphore.acquire();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
         var paperEngageRequestSrc = cartaceoPresaInCaricoInfo.getPaperEngageRequest();
         var paperEngageRequestDst = cartaceoMapper.convert(paperEngageRequestSrc);
 
@@ -286,13 +326,21 @@ public class CartaceoService extends PresaInCaricoService implements QueueOperat
                                         // Publish to ERRORI PAPER queue
                                         .then(sendNotificationOnErrorQueue(cartaceoPresaInCaricoInfo)))
                 .doOnError(exception -> log.logEndingProcess(LAVORAZIONE_RICHIESTA_CARTACEO, false, exception.getMessage()))
-                .doOnSuccess(result -> log.logEndingProcess(LAVORAZIONE_RICHIESTA_CARTACEO))
-                .doFinally(signalType -> semaphore.release()));
+                .doOnSuccess(result -> log.logEndingProcess(LAVORAZIONE_RICHIESTA_CARTACEO)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRetryConsumer() {
+        retryEngine.consume(cartaceoSqsQueueName.errorName(), RetryPolicyRegistry.PAPER, CartaceoPresaInCaricoInfo.class, this::gestioneRetryCartaceo);
     }
 
     @Scheduled(cron = "${PnEcCronGestioneRetryCartaceo ?:0 */5 * * * *}")
     void gestioneRetryCartaceoScheduler() {
         MDC.clear();
+//      The retry engine replaces the cron
+        if (retryEngine.isEnabled()) {
+            return;
+        }
         idSaved = null;
         sqsService.getOneMessage(cartaceoSqsQueueName.errorName(), CartaceoPresaInCaricoInfo.class)
                 .doOnNext(cartaceoPresaInCaricoInfoSqsMessageWrapper -> logIncomingMessage(cartaceoSqsQueueName.errorName(),
@@ -306,14 +354,18 @@ public class CartaceoService extends PresaInCaricoService implements QueueOperat
                 .subscribe();
     }
 
-    private Mono<RequestDto> filterRequestCartaceo(final CartaceoPresaInCaricoInfo cartaceoPresaInCaricoInfo) {
+    private Mono<RequestDto> filterRequestCartaceo(final CartaceoPresaInCaricoInfo cartaceoPresaInCaricoInfo, Message message) {
         String toDelete = "toDelete";
         var requestId = cartaceoPresaInCaricoInfo.getRequestIdx();
         var clientId = cartaceoPresaInCaricoInfo.getXPagopaExtchCxId();
-        Policy retryPolicies = new Policy();
 
         log.debug(INVOKING_OPERATION_LABEL_WITH_ARGS, FILTER_REQUEST_CARTACEO, cartaceoPresaInCaricoInfo);
 
+        if (retryEngine.isStatelessBookkeeping()) {
+            return retryEngine.attemptRetry(RetryPolicyRegistry.PAPER, clientId, requestId, message)
+                              .switchIfEmpty(Mono.error(new StatusToDeleteException(requestId)));
+        }
+
         return gestoreRepositoryCall.getRichiesta(clientId, requestId)
 //              check status toDelete
                 .filter(requestDto -> !Objects.equals(requestDto.getStatusRequest(), toDelete))
@@ -326,7 +378,7 @@ public class CartaceoService extends PresaInCaricoService implements QueueOperat
                     if (requestDto.getRequestMetadata().getRetry() == null) {
                         log.debug(RETRY_ATTEMPT, FILTER_REQUEST_CARTACEO, 0);
                         RetryDto retryDto = new RetryDto();
-                        retryDto.setRetryPolicy(retryPolicies.getPolicy().get("PAPER"));
+                        retryDto.setRetryPolicy(retryPolicyRegistry.getRetryPolicy(RetryPolicyRegistry.PAPER, clientId));
                         retryDto.setRetryStep(BigDecimal.ZERO);
                         retryDto.setLastRetryTimestamp(OffsetDateTime.now());
                         requestDto.getRequestMetadata().setRetry(retryDto);
@@ -371,7 +423,7 @@ public class CartaceoService extends PresaInCaricoService implements QueueOperat
     private Mono<DeleteMessageResponse> checkTentativiEccessiviCartaceo(String requestId, RequestDto requestDto,
                                                                         final CartaceoPresaInCaricoInfo cartaceoPresaInCaricoInfo,
                                                                         Message message) {
-        if (idSaved == null) {
+        if (idSaved == null && !retryEngine.isEnabled()) {
             idSaved = requestId;
         }
         var retry = requestDto.getRequestMetadata().getRetry();
@@ -395,7 +447,7 @@ public class CartaceoService extends PresaInCaricoService implements QueueOperat
 
         var paperEngageRequestSrc = cartaceoPresaInCaricoInfo.getPaperEngageRequest();
         var paperEngageRequestDst = cartaceoMapper.convert(paperEngageRequestSrc);
-        return MDCUtils.addMDCToContextAndExecute(filterRequestCartaceo(cartaceoPresaInCaricoInfo)
+        return MDCUtils.addMDCToContextAndExecute(filterRequestCartaceo(cartaceoPresaInCaricoInfo, message)
 //              Tentativo invio cartaceo
                 .flatMap(requestDto -> {
 //           check step error per evitare null pointer
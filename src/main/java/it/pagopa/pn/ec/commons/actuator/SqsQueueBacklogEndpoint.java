@@ -0,0 +1,36 @@
+package it.pagopa.pn.ec.commons.actuator;
+
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsQueueBacklog;
+import it.pagopa.pn.ec.commons.service.sqs.SqsQueueBacklogMonitor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Management operations returning the cached backlog of the configured queues, {@code GET /actuator/sqsbacklog}, or of one
+ * of them, {@code GET /actuator/sqsbacklog/pn-ec-pec-batch-queue.fifo}. An unknown queue is answered with 404.
+ */
+@Component
+@Endpoint(id = "sqsbacklog")
+public class SqsQueueBacklogEndpoint {
+
+    private final SqsQueueBacklogMonitor sqsQueueBacklogMonitor;
+
+    public SqsQueueBacklogEndpoint(SqsQueueBacklogMonitor sqsQueueBacklogMonitor) {
+        this.sqsQueueBacklogMonitor = sqsQueueBacklogMonitor;
+    }
+
+    @ReadOperation
+    public Mono<List<SqsQueueBacklog>> backlogs() {
+        return sqsQueueBacklogMonitor.getBacklogs();
+    }
+
+    @ReadOperation
+    public Mono<SqsQueueBacklog> backlog(@Selector String queueName) {
+        return sqsQueueBacklogMonitor.getBacklog(queueName);
+    }
+}
@@ -0,0 +1,47 @@
+package it.pagopa.pn.ec.commons.actuator;
+
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsRedriveResult;
+import it.pagopa.pn.ec.commons.service.sqs.SqsRedriveService;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Management operation redriving the messages between two of the queues listed in {@code sqs.redrive.queue-names}, e.g.
+ * {@code POST /actuator/sqsredrive} with body
+ * {@code {"sourceQueueName": "pn-ec-pec-errori-queue-DLQ.fifo", "targetQueueName": "pn-ec-pec-errori-queue.fifo"}}.
+ * Not exposed by default, since it has no authentication of its own: add it to {@code management.endpoints.web.exposure.include}
+ * only along with a {@code management.server.port} not reachable by the clients of the API.
+ */
+@Component
+@Endpoint(id = "sqsredrive")
+public class SqsRedriveEndpoint {
+
+    private final SqsRedriveService sqsRedriveService;
+
+    public SqsRedriveEndpoint(SqsRedriveService sqsRedriveService) {
+        this.sqsRedriveService = sqsRedriveService;
+    }
+
+    @WriteOperation
+    public Mono<SqsRedriveResult> redrive(String sourceQueueName, String targetQueueName, @Nullable Integer maxMessages,
+                                          @Nullable Double messagesPerSecond, @Nullable String xPagopaExtchCxId,
+                                          @Nullable String requestIdxPrefix) {
+        checkRedrivable(sourceQueueName);
+        checkRedrivable(targetQueueName);
+        if (sourceQueueName.equals(targetQueueName)) {
+            throw new InvalidEndpointRequestException("Source and target queues must differ", "Source and target queues must differ");
+        }
+        return sqsRedriveService.redrive(sourceQueueName, targetQueueName, maxMessages, messagesPerSecond, xPagopaExtchCxId, requestIdxPrefix);
+    }
+
+    private void checkRedrivable(final String queueName) {
+        if (!sqsRedriveService.isRedrivable(queueName)) {
+            var reason = String.format("Queue %s is not configured for redrive", queueName);
+            throw new InvalidEndpointRequestException(reason, reason);
+        }
+    }
+}
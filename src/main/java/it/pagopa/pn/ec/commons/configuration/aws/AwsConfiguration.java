@@ -4,6 +4,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.awspring.cloud.messaging.config.QueueMessageHandlerFactory;
 import io.awspring.cloud.messaging.listener.support.AcknowledgmentHandlerMethodArgumentResolver;
 import it.pagopa.pn.ec.commons.configurationproperties.AwsConfigurationProperties;
+import it.pagopa.pn.ec.commons.service.sqs.SqsPayloadCodec;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -72,7 +73,8 @@ public class AwsConfiguration {
 //  <-- spring-cloud-starter-aws-messaging -->
 
     @Bean
-    public QueueMessageHandlerFactory queueMessageHandlerFactory(ObjectMapper objectMapper, LocalValidatorFactoryBean validator) {
+    public QueueMessageHandlerFactory queueMessageHandlerFactory(ObjectMapper objectMapper, LocalValidatorFactoryBean validator,
+                                                                 SqsPayloadCodec sqsPayloadCodec) {
 
         final var queueMessageHandlerFactory = new QueueMessageHandlerFactory();
         final var converter = new MappingJackson2MessageConverter();
@@ -83,7 +85,9 @@ public class AwsConfiguration {
         final var acknowledgmentResolver = new AcknowledgmentHandlerMethodArgumentResolver("Acknowledgment");
 
         queueMessageHandlerFactory.setArgumentResolvers(List.of(acknowledgmentResolver,
-                                                                new PayloadMethodArgumentResolver(converter, validator)));
+                                                                new PayloadMethodArgumentResolver(new SqsPayloadMessageConverter(
+                                                                        sqsPayloadCodec,
+                                                                        converter), validator)));
 
         return queueMessageHandlerFactory;
     }
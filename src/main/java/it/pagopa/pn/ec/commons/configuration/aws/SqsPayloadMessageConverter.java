@@ -0,0 +1,63 @@
+package it.pagopa.pn.ec.commons.configuration.aws;
+
+import it.pagopa.pn.ec.commons.service.sqs.SqsPayloadCodec;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MessageConversionException;
+import org.springframework.messaging.converter.MessageConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Payload converter of the {@code @SqsListener} methods: the messages encoded by the {@link SqsPayloadCodec}, whose
+ * attributes are mapped to headers by the listener container, are decoded by the codec, the others are converted by the
+ * JSON converter.
+ */
+public class SqsPayloadMessageConverter implements MessageConverter {
+
+    private final SqsPayloadCodec sqsPayloadCodec;
+    private final MessageConverter jsonMessageConverter;
+
+    public SqsPayloadMessageConverter(SqsPayloadCodec sqsPayloadCodec, MessageConverter jsonMessageConverter) {
+        this.sqsPayloadCodec = sqsPayloadCodec;
+        this.jsonMessageConverter = jsonMessageConverter;
+    }
+
+    @Override
+    public Object fromMessage(Message<?> message, Class<?> targetClass) {
+        var encodedPayload = message.getHeaders().get(SqsPayloadCodec.ENCODED_PAYLOAD);
+        if (encodedPayload == null) {
+            return jsonMessageConverter.fromMessage(message, targetClass);
+        }
+        // The listener container maps the contentType attribute to a MimeType header
+        var contentType = message.getHeaders().get(MessageHeaders.CONTENT_TYPE);
+        try {
+            return sqsPayloadCodec.decode(contentType == null ? null : contentType.toString(),
+                                          message.getHeaders().get(SqsPayloadCodec.CONTENT_ENCODING, String.class),
+                                          inputStream(encodedPayload),
+                                          targetClass);
+        } catch (IOException e) {
+            throw new MessageConversionException(message, "Unable to decode the encoded payload", e);
+        }
+    }
+
+    @Override
+    public Message<?> toMessage(Object payload, MessageHeaders headers) {
+        return jsonMessageConverter.toMessage(payload, headers);
+    }
+
+    private static InputStream inputStream(final Object encodedPayload) {
+        if (encodedPayload instanceof ByteBuffer byteBuffer) {
+            var bytes = new byte[byteBuffer.remaining()];
+            byteBuffer.duplicate().get(bytes);
+            return new ByteArrayInputStream(bytes);
+        }
+        if (encodedPayload instanceof byte[] bytes) {
+            return new ByteArrayInputStream(bytes);
+        }
+        throw new IllegalArgumentException(String.format("Unexpected encoded payload of type %s", encodedPayload.getClass()));
+    }
+}
@@ -4,21 +4,30 @@ import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.util.InsecureTrustManagerFactory;
 import it.pagopa.pn.commons.utils.MDCUtils;
+import it.pagopa.pn.ec.commons.configurationproperties.http.HttpClientProfilesProperties.HttpClientProfile;
 import lombok.CustomLog;
 import lombok.CustomLog;
 import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.HttpClientTransport;
 import org.eclipse.jetty.client.api.Request;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
 import org.eclipse.jetty.http.HttpField;
+import org.eclipse.jetty.http2.client.HTTP2Client;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 import static it.pagopa.pn.ec.commons.utils.LogUtils.MDC_CORR_ID_KEY;
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
@@ -35,6 +44,7 @@ public class JettyHttpClientConf {
     private String corrIdHeaderName;
 
     private final SslContextFactory.Client sslContextFactory = new SslContextFactory.Client();
+    private final List<HttpClient> profileHttpClients = new CopyOnWriteArrayList<>();
 
     @Bean
     public HttpClient getJettyHttpClient() {
@@ -65,6 +75,46 @@ public class JettyHttpClientConf {
 
     }
 
+    /**
+     * Creates a client of its own for a WebClient, tuned by the given profile. The client is started by the connector on
+     * its first request and stopped on shutdown. With http2 the client speaks HTTP/2 only, without any HTTP/1.1 fallback.
+     */
+    public HttpClient newJettyHttpClient(HttpClientProfile profile, boolean trustAll) {
+        HttpClientTransport transport = Boolean.TRUE.equals(profile.http2())
+                                        ? new HttpClientTransportOverHTTP2(new HTTP2Client())
+                                        : new HttpClientTransportOverHTTP();
+        var readTimeoutMillis = profile.readTimeoutMillis();
+        HttpClient profileHC = new HttpClient(transport, new SslContextFactory.Client(trustAll)) {
+            @Override
+            public Request newRequest(URI uri) {
+                Request request = enhance(super.newRequest(uri), MDCUtils.retrieveMDCContextMap());
+                return readTimeoutMillis != null ? request.idleTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS) : request;
+            }
+        };
+        if (profile.maxConnectionsPerDestination() != null) {
+            profileHC.setMaxConnectionsPerDestination(profile.maxConnectionsPerDestination());
+        }
+        if (profile.idleTimeoutMillis() != null) {
+            profileHC.setIdleTimeout(profile.idleTimeoutMillis());
+        }
+        if (profile.connectTimeoutMillis() != null) {
+            profileHC.setConnectTimeout(profile.connectTimeoutMillis());
+        }
+        profileHttpClients.add(profileHC);
+        return profileHC;
+    }
+
+    @PreDestroy
+    public void stopProfileHttpClients() {
+        for (HttpClient profileHC : profileHttpClients) {
+            try {
+                profileHC.stop();
+            } catch (Exception e) {
+                log.warn("Unable to stop http client : {}", e.getMessage());
+            }
+        }
+    }
+
     private Request enhance(Request request, Map<String, String> mdcContextMap) {
 
         return request.onRequestBegin(theRequest -> {
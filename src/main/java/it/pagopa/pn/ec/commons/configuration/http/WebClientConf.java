@@ -4,6 +4,7 @@ import it.pagopa.pn.ec.commons.configurationproperties.endpoint.internal.consoli
 import it.pagopa.pn.ec.commons.configurationproperties.endpoint.internal.ec.ExternalChannelEndpointProperties;
 import it.pagopa.pn.ec.commons.configurationproperties.endpoint.internal.ss.SafeStorageEndpointProperties;
 import it.pagopa.pn.ec.commons.configurationproperties.endpoint.internal.statemachine.StateMachineEndpointProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.http.HttpClientProfilesProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.reactive.JettyClientHttpConnector;
@@ -15,10 +16,18 @@ import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 @Configuration
 public class WebClientConf {
 
+    private static final String SS_PROFILE = "ss";
+    private static final String DOWNLOAD_PROFILE = "download";
+    private static final String UPLOAD_PROFILE = "upload";
+    private static final String STATE_MACHINE_PROFILE = "state-machine";
+    private static final String CONSOLIDATORE_PROFILE = "consolidatore";
+
     private final JettyHttpClientConf jettyHttpClientConf;
+    private final HttpClientProfilesProperties httpClientProfilesProperties;
 
-    public WebClientConf(JettyHttpClientConf jettyHttpClientConf) {
+    public WebClientConf(JettyHttpClientConf jettyHttpClientConf, HttpClientProfilesProperties httpClientProfilesProperties) {
         this.jettyHttpClientConf = jettyHttpClientConf;
+        this.httpClientProfilesProperties = httpClientProfilesProperties;
     }
 
     private WebClient.Builder defaultWebClientBuilder() {
@@ -33,8 +42,23 @@ public class WebClientConf {
         return defaultWebClientBuilder().defaultHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE);
     }
 
-    private WebClient.Builder trustAllJsonWebClientBuilder() {
-        return trustAllWebClientBuilder().defaultHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE);
+    /**
+     * Builder with an http client of its own, tuned by the named profile. Without a profile, the shared http client is used.
+     */
+    private WebClient.Builder profileWebClientBuilder(String profileName, boolean trustAll) {
+        var profile = httpClientProfilesProperties.profile(profileName);
+        if (profile == null) {
+            return trustAll ? trustAllWebClientBuilder() : defaultWebClientBuilder();
+        }
+        var builder = WebClient.builder().clientConnector(new JettyClientHttpConnector(jettyHttpClientConf.newJettyHttpClient(profile, trustAll)));
+        if (profile.maxInMemorySizeBytes() != null) {
+            builder.codecs(clientCodecConfigurer -> clientCodecConfigurer.defaultCodecs().maxInMemorySize(profile.maxInMemorySizeBytes()));
+        }
+        return builder;
+    }
+
+    private WebClient.Builder profileJsonWebClientBuilder(String profileName, boolean trustAll) {
+        return profileWebClientBuilder(profileName, trustAll).defaultHeader(CONTENT_TYPE, APPLICATION_JSON_VALUE);
     }
 
     @Bean
@@ -44,7 +68,7 @@ public class WebClientConf {
 
     @Bean
     public WebClient ssWebClient(SafeStorageEndpointProperties safeStorageEndpointProperties) {
-        return defaultJsonWebClientBuilder().baseUrl(safeStorageEndpointProperties.containerBaseUrl()).defaultHeaders(httpHeaders -> {
+        return profileJsonWebClientBuilder(SS_PROFILE, false).baseUrl(safeStorageEndpointProperties.containerBaseUrl()).defaultHeaders(httpHeaders -> {
             httpHeaders.set(safeStorageEndpointProperties.clientHeaderName(), safeStorageEndpointProperties.clientHeaderValue());
             httpHeaders.set(safeStorageEndpointProperties.apiKeyHeaderName(), safeStorageEndpointProperties.apiKeyHeaderValue());
         }).build();
@@ -52,38 +76,25 @@ public class WebClientConf {
 
     @Bean
     public WebClient downloadWebClient() {
-        return defaultWebClientBuilder().build();
+        return profileWebClientBuilder(DOWNLOAD_PROFILE, false).build();
     }
 
     @Bean
     public WebClient uploadWebClient() {
-        return defaultWebClientBuilder().build();
+        return profileWebClientBuilder(UPLOAD_PROFILE, false).build();
     }
 
     @Bean
     public WebClient stateMachineWebClient(StateMachineEndpointProperties stateMachineEndpointProperties) {
-        return defaultJsonWebClientBuilder().baseUrl(stateMachineEndpointProperties.containerBaseUrl()).build();
+        return profileJsonWebClientBuilder(STATE_MACHINE_PROFILE, false).baseUrl(stateMachineEndpointProperties.containerBaseUrl()).build();
     }
 
     @Bean
     public WebClient consolidatoreWebClient(ConsolidatoreEndpointProperties consolidatoreEndpointProperties) {
         String consolidatoreBaseUrl = consolidatoreEndpointProperties.baseUrl();
+        boolean trustAll = consolidatoreBaseUrl.startsWith(HTTPS) && consolidatoreEndpointProperties.trustAll();
 
-        if (consolidatoreBaseUrl.startsWith(HTTPS) && consolidatoreEndpointProperties.trustAll()) {
-            return trustAllConsolidatoreWebClient(consolidatoreEndpointProperties);
-        } else return defaultConsolidatoreWebClient(consolidatoreEndpointProperties);
-    }
-
-    private WebClient defaultConsolidatoreWebClient(ConsolidatoreEndpointProperties consolidatoreEndpointProperties)
-    {
-        return defaultJsonWebClientBuilder().baseUrl(consolidatoreEndpointProperties.baseUrl()).defaultHeaders(httpHeaders -> {
-            httpHeaders.set(consolidatoreEndpointProperties.clientHeaderName(), consolidatoreEndpointProperties.clientHeaderValue());
-            httpHeaders.set(consolidatoreEndpointProperties.apiKeyHeaderName(), consolidatoreEndpointProperties.apiKeyHeaderValue());
-        }).build();
-    }
-
-    private WebClient trustAllConsolidatoreWebClient(ConsolidatoreEndpointProperties consolidatoreEndpointProperties) {
-        return trustAllJsonWebClientBuilder().baseUrl(consolidatoreEndpointProperties.baseUrl()).defaultHeaders(httpHeaders -> {
+        return profileJsonWebClientBuilder(CONSOLIDATORE_PROFILE, trustAll).baseUrl(consolidatoreBaseUrl).defaultHeaders(httpHeaders -> {
             httpHeaders.set(consolidatoreEndpointProperties.clientHeaderName(), consolidatoreEndpointProperties.clientHeaderValue());
             httpHeaders.set(consolidatoreEndpointProperties.apiKeyHeaderName(), consolidatoreEndpointProperties.apiKeyHeaderValue());
         }).build();
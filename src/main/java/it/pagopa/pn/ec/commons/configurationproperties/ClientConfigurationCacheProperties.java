@@ -0,0 +1,7 @@
+package it.pagopa.pn.ec.commons.configurationproperties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "client-configuration-cache")
+public record ClientConfigurationCacheProperties(Boolean enabled, Long maximumSize, Long expireAfterWriteSeconds,
+                                                 Long refreshAfterWriteSeconds, Long notFoundExpireAfterWriteSeconds) {}
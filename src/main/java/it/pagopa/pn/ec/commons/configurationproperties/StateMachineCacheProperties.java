@@ -0,0 +1,6 @@
+package it.pagopa.pn.ec.commons.configurationproperties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "state-machine-cache")
+public record StateMachineCacheProperties(Boolean enabled, Long maximumSize, Long expireAfterWriteSeconds) {}
@@ -0,0 +1,6 @@
+package it.pagopa.pn.ec.commons.configurationproperties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "state-machine-embedded")
+public record StateMachineEmbeddedProperties(Boolean enabled, String location) {}
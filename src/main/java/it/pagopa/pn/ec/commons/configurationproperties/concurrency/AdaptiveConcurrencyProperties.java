@@ -0,0 +1,12 @@
+package it.pagopa.pn.ec.commons.configurationproperties.concurrency;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "adaptive-concurrency")
+public record AdaptiveConcurrencyProperties(Map<String, LimiterProperties> limiters) {
+
+    public record LimiterProperties(Integer initialLimit, Integer minLimit, Integer maxLimit, Long latencyThresholdMillis,
+                                    Double backoffRatio) {}
+}
@@ -0,0 +1,16 @@
+package it.pagopa.pn.ec.commons.configurationproperties.http;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "http-client")
+public record HttpClientProfilesProperties(Map<String, HttpClientProfile> profiles) {
+
+    public record HttpClientProfile(Integer maxConnectionsPerDestination, Long idleTimeoutMillis, Long connectTimeoutMillis,
+                                    Long readTimeoutMillis, Integer maxInMemorySizeBytes, Boolean http2) {}
+
+    public HttpClientProfile profile(final String profileName) {
+        return profiles == null ? null : profiles.get(profileName);
+    }
+}
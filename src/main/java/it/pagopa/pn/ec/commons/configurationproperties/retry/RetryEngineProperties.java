@@ -0,0 +1,8 @@
+package it.pagopa.pn.ec.commons.configurationproperties.retry;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "retry-engine")
+public record RetryEngineProperties(Boolean enabled, Integer maxInFlight, Integer maxParkSeconds, Integer maxReceiveCount,
+                                    Boolean statelessBookkeeping) {
+}
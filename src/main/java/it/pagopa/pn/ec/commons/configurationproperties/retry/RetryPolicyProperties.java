@@ -0,0 +1,7 @@
+package it.pagopa.pn.ec.commons.configurationproperties.retry;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "retry-policy")
+public record RetryPolicyProperties(String location, String ssmParameterName, Long reloadIntervalSeconds) {
+}
@@ -0,0 +1,7 @@
+package it.pagopa.pn.ec.commons.configurationproperties.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "sqs.ack-coalescer")
+public record SqsAckCoalescerProperties(Boolean enabled, Long flushTimeoutMillis, Integer maxBatchEntries, Integer maxConcurrentBatches) {
+}
@@ -0,0 +1,25 @@
+package it.pagopa.pn.ec.commons.configurationproperties.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "sqs.batch-drain")
+public record SqsBatchDrainProperties(Map<String, ChannelDrain> channels) {
+
+    public static final String EMAIL = "email";
+    public static final String PEC = "pec";
+    public static final String SMS = "sms";
+    public static final String CARTACEO = "cartaceo";
+
+    public record ChannelDrain(Boolean continuous, Double messagesPerSecond) {
+
+        public boolean isContinuous() {
+            return Boolean.TRUE.equals(continuous);
+        }
+    }
+
+    public ChannelDrain channel(String channel) {
+        return channels == null ? new ChannelDrain(false, null) : channels.getOrDefault(channel, new ChannelDrain(false, null));
+    }
+}
@@ -0,0 +1,10 @@
+package it.pagopa.pn.ec.commons.configurationproperties.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "sqs.batch-publisher")
+public record SqsBatchPublisherProperties(Boolean enabled, List<String> queueNames, Long lingerMillis, Integer maxBatchEntries,
+                                          Integer maxBatchBytes, Integer maxConcurrentBatches) {
+}
@@ -0,0 +1,10 @@
+package it.pagopa.pn.ec.commons.configurationproperties.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "sqs.claim-check")
+public record SqsClaimCheckProperties(List<String> queueNames, String bucketName, Integer maxMessageSize, Integer deleteBatchSize,
+                                      Long deleteLingerMillis) {
+}
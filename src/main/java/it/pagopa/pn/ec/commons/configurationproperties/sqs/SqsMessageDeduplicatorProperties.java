@@ -0,0 +1,10 @@
+package it.pagopa.pn.ec.commons.configurationproperties.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "sqs.deduplicator")
+public record SqsMessageDeduplicatorProperties(Boolean enabled, Long maxEntriesPerQueue, Long windowSeconds,
+                                               List<String> contentHashQueueNames) {
+}
@@ -0,0 +1,9 @@
+package it.pagopa.pn.ec.commons.configurationproperties.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "sqs.message-group")
+public record SqsMessageGroupProperties(Boolean requestKeyed, Integer shards, List<String> unshardedQueueNames) {
+}
@@ -0,0 +1,10 @@
+package it.pagopa.pn.ec.commons.configurationproperties.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "sqs.payload-codec")
+public record SqsPayloadCodecProperties(List<String> gzipQueueNames, List<String> zstdQueueNames, List<String> smileQueueNames,
+                                        Integer minSize, Integer zstdLevel) {
+}
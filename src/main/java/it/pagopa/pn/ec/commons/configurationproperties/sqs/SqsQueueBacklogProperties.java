@@ -0,0 +1,7 @@
+package it.pagopa.pn.ec.commons.configurationproperties.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "sqs.queue-backlog")
+public record SqsQueueBacklogProperties(Long refreshIntervalMillis, Integer maxConcurrency) {
+}
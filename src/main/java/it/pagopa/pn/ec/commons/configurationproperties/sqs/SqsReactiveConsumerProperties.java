@@ -0,0 +1,7 @@
+package it.pagopa.pn.ec.commons.configurationproperties.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "sqs.reactive-consumer")
+public record SqsReactiveConsumerProperties(Long idleBackoffMillis, Long errorBackoffMillis) {
+}
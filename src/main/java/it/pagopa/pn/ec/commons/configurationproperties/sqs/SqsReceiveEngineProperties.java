@@ -0,0 +1,7 @@
+package it.pagopa.pn.ec.commons.configurationproperties.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "sqs.receive-engine")
+public record SqsReceiveEngineProperties(Integer maxNumberOfMessages, Integer waitTimeSeconds, Integer pollersPerQueue, Integer bufferSize) {
+}
@@ -0,0 +1,9 @@
+package it.pagopa.pn.ec.commons.configurationproperties.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.List;
+
+@ConfigurationProperties(prefix = "sqs.redrive")
+public record SqsRedriveProperties(List<String> queueNames, Integer maxMessages, Double messagesPerSecond, Integer maxInFlight) {
+}
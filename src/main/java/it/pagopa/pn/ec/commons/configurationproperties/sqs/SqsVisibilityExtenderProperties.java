@@ -0,0 +1,8 @@
+package it.pagopa.pn.ec.commons.configurationproperties.sqs;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@ConfigurationProperties(prefix = "sqs.visibility-extender")
+public record SqsVisibilityExtenderProperties(Boolean enabled, Long heartbeatIntervalSeconds, Integer visibilityTimeoutSeconds,
+                                              Long maxExtensionSeconds) {
+}
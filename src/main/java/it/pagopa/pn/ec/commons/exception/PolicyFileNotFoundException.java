@@ -5,4 +5,8 @@ public class PolicyFileNotFoundException extends RuntimeException {
     public PolicyFileNotFoundException(String message) {
         super(String.format("Errore nella lettura del file JSON '%s' ", message));
     }
+
+    public PolicyFileNotFoundException(String message, Throwable cause) {
+        super(String.format("Errore nella lettura del file JSON '%s' ", message), cause);
+    }
 }
@@ -0,0 +1,14 @@
+package it.pagopa.pn.ec.commons.exception.sqs;
+
+import lombok.Getter;
+
+@Getter
+public class SqsBatchEntryFailedException extends RuntimeException {
+
+    private final String code;
+
+    public SqsBatchEntryFailedException(String queueName, String code, String message) {
+        super(String.format("The batch entry sent to '%s' queue failed with code %s : %s", queueName, code, message));
+        this.code = code;
+    }
+}
@@ -0,0 +1,33 @@
+package it.pagopa.pn.ec.commons.model.pojo.sqs;
+
+import it.pagopa.pn.ec.commons.service.sqs.SqsPayloadSerializer;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.util.Map;
+
+/**
+ * Body and attributes of the message carrying a payload, either as it is, encoded or as a pointer to the stored payload.
+ */
+public record SqsMessageContent(String messageBody, Map<String, MessageAttributeValue> messageAttributes) {
+
+    /**
+     * Size of the message as counted against the maximum message size.
+     */
+    public long sizeInBytes() {
+        long size = SqsPayloadSerializer.utf8Length(messageBody);
+        for (Map.Entry<String, MessageAttributeValue> attribute : messageAttributes.entrySet()) {
+            size += SqsPayloadSerializer.utf8Length(attribute.getKey());
+            var value = attribute.getValue();
+            if (value.dataType() != null) {
+                size += SqsPayloadSerializer.utf8Length(value.dataType());
+            }
+            if (value.stringValue() != null) {
+                size += SqsPayloadSerializer.utf8Length(value.stringValue());
+            }
+            if (value.binaryValue() != null) {
+                size += value.binaryValue().asByteBuffer().remaining();
+            }
+        }
+        return size;
+    }
+}
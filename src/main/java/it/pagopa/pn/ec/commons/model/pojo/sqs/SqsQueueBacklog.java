@@ -0,0 +1,6 @@
+package it.pagopa.pn.ec.commons.model.pojo.sqs;
+
+import java.time.Instant;
+
+public record SqsQueueBacklog(String queueName, long visible, long inFlight, long delayed, Instant refreshedAt) {
+}
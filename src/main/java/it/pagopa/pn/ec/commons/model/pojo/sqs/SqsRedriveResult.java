@@ -0,0 +1,4 @@
+package it.pagopa.pn.ec.commons.model.pojo.sqs;
+
+public record SqsRedriveResult(String sourceQueueName, String targetQueueName, long received, long redriven, long skipped, long failed) {
+}
@@ -0,0 +1,171 @@
+package it.pagopa.pn.ec.commons.policy;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.pagopa.pn.ec.commons.configurationproperties.retry.RetryPolicyProperties;
+import it.pagopa.pn.ec.commons.exception.PolicyFileNotFoundException;
+import lombok.CustomLog;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.ssm.SsmClient;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retry policies of the channels, parsed once and kept as an immutable snapshot with the delays of every step already
+ * converted to {@link Duration}. The policies are read from a Spring resource or an SSM parameter holding the same
+ * JSON as {@code commons/retryPolicy.json}, plus an optional {@code clients} object overriding the policies of the given
+ * client ids. When a reload interval is configured the snapshot is rebuilt periodically, keeping the previous one if the
+ * new policies can't be read.
+ */
+@Component
+@CustomLog
+public class RetryPolicyRegistry {
+
+    public static final String SMS = "SMS";
+    public static final String EMAIL = "EMAIL";
+    public static final String PEC = "PEC";
+    public static final String PAPER = "PAPER";
+    private static final String CLIENTS = "clients";
+
+    private record ChannelPolicy(List<BigDecimal> minutes, Duration[] delays) {}
+
+    private record Snapshot(Map<String, ChannelPolicy> channels, Map<String, Map<String, ChannelPolicy>> clients) {}
+
+    private final ResourceLoader resourceLoader;
+    private final SsmClient ssmClient;
+    private final ObjectMapper objectMapper;
+    private final RetryPolicyProperties retryPolicyProperties;
+    private final Disposable.Composite reloader = Disposables.composite();
+    private volatile Snapshot snapshot;
+
+    public RetryPolicyRegistry(ResourceLoader resourceLoader, SsmClient ssmClient, ObjectMapper objectMapper,
+                               RetryPolicyProperties retryPolicyProperties) {
+        this.resourceLoader = resourceLoader;
+        this.ssmClient = ssmClient;
+        this.objectMapper = objectMapper;
+        this.retryPolicyProperties = retryPolicyProperties;
+        this.snapshot = load();
+    }
+
+    @PostConstruct
+    public void startReload() {
+        var reloadIntervalSeconds = retryPolicyProperties.reloadIntervalSeconds();
+        if (reloadIntervalSeconds == null || reloadIntervalSeconds <= 0) {
+            return;
+        }
+        var reloadInterval = Duration.ofSeconds(reloadIntervalSeconds);
+        reloader.add(Flux.interval(reloadInterval, reloadInterval)
+                         .concatMap(tick -> Mono.fromCallable(this::load)
+                                                .subscribeOn(Schedulers.boundedElastic())
+                                                .onErrorResume(throwable -> {
+                                                    log.warn("Unable to reload the retry policies, keeping the current ones : {}",
+                                                             throwable.getMessage());
+                                                    return Mono.empty();
+                                                }))
+                         .subscribe(reloadedSnapshot -> snapshot = reloadedSnapshot));
+    }
+
+    @PreDestroy
+    public void stopReload() {
+        reloader.dispose();
+    }
+
+    /**
+     * Steps of the retry policy in minutes, as stored in the retry data of the requests.
+     */
+    public List<BigDecimal> getRetryPolicy(final String channel, final String clientId) {
+        return new ArrayList<>(channelPolicy(channel, clientId).minutes());
+    }
+
+    public Duration[] getDelays(final String channel, final String clientId) {
+        return channelPolicy(channel, clientId).delays().clone();
+    }
+
+    public Instant nextAttemptAt(final String channel, final int attempt, final Instant lastAttemptTime) {
+        return nextAttemptAt(channel, null, attempt, lastAttemptTime);
+    }
+
+    /**
+     * Returns when the given attempt is due, i.e. the last attempt plus the delay of the step. Once the policy is exhausted
+     * the attempt is due immediately, so that the caller can close the request.
+     */
+    public Instant nextAttemptAt(final String channel, final String clientId, final int attempt, final Instant lastAttemptTime) {
+        var delays = channelPolicy(channel, clientId).delays();
+        return attempt >= 0 && attempt < delays.length ? lastAttemptTime.plus(delays[attempt]) : lastAttemptTime;
+    }
+
+    private ChannelPolicy channelPolicy(final String channel, final String clientId) {
+        var currentSnapshot = snapshot;
+        var clientPolicy = clientId == null ? null : currentSnapshot.clients().getOrDefault(clientId, Map.of()).get(channel);
+        var channelPolicy = clientPolicy != null ? clientPolicy : currentSnapshot.channels().get(channel);
+        if (channelPolicy == null) {
+            throw new IllegalArgumentException(String.format("No retry policy configured for channel %s", channel));
+        }
+        return channelPolicy;
+    }
+
+    private Snapshot load() {
+        try {
+            var root = objectMapper.readTree(readPolicies());
+            Map<String, Map<String, ChannelPolicy>> clients = new HashMap<>();
+            root.path(CLIENTS).fields().forEachRemaining(client -> clients.put(client.getKey(), channelPolicies(client.getValue())));
+            var loadedSnapshot = new Snapshot(channelPolicies(root), Map.copyOf(clients));
+            log.info("Loaded the retry policies of channels {} and of {} clients", loadedSnapshot.channels().keySet(), clients.size());
+            return loadedSnapshot;
+        } catch (IOException | SdkException e) {
+            throw new PolicyFileNotFoundException(policySource(), e);
+        }
+    }
+
+    private String readPolicies() throws IOException {
+        if (isFromSsm()) {
+            return ssmClient.getParameter(builder -> builder.name(retryPolicyProperties.ssmParameterName())).parameter().value();
+        }
+        try (InputStream inputStream = resourceLoader.getResource(retryPolicyProperties.location()).getInputStream()) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private boolean isFromSsm() {
+        var ssmParameterName = retryPolicyProperties.ssmParameterName();
+        return ssmParameterName != null && !ssmParameterName.isBlank();
+    }
+
+    /**
+     * The SSM parameter or the resource the policies are read from, as reported when they can't be read.
+     */
+    private String policySource() {
+        return isFromSsm() ? "ssm:" + retryPolicyProperties.ssmParameterName() : retryPolicyProperties.location();
+    }
+
+    private Map<String, ChannelPolicy> channelPolicies(final JsonNode policies) {
+        Map<String, ChannelPolicy> channelPolicies = new HashMap<>();
+        policies.fields().forEachRemaining(policy -> {
+            if (!CLIENTS.equals(policy.getKey())) {
+                List<BigDecimal> minutes = List.copyOf(objectMapper.convertValue(policy.getValue(), new TypeReference<List<BigDecimal>>() {}));
+                var delays = minutes.stream().map(step -> Duration.ofSeconds(step.multiply(BigDecimal.valueOf(60)).longValue())).toArray(Duration[]::new);
+                channelPolicies.put(policy.getKey(), new ChannelPolicy(minutes, delays));
+            }
+        });
+        return Map.copyOf(channelPolicies);
+    }
+}
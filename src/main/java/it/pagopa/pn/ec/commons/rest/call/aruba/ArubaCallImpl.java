@@ -4,6 +4,8 @@ import it.pagopa.pn.ec.commons.exception.aruba.ArubaCallException;
 import it.pagopa.pn.ec.commons.exception.aruba.ArubaCallMaxRetriesExceededException;
 import it.pagopa.pn.ec.commons.exception.aruba.GetMessageIdException;
 import it.pagopa.pn.ec.commons.exception.aruba.GetMessagesException;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiter;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiters;
 import it.pagopa.pn.ec.pec.model.pojo.ArubaSecretValue;
 import it.pec.bridgews.*;
 import lombok.CustomLog;
@@ -26,12 +28,15 @@ public class ArubaCallImpl implements ArubaCall {
     private final PecImapBridge pecImapBridge;
     private final ArubaSecretValue arubaSecretValue;
 	private final ArubaCallProperties arubaCallProperties;
+    private final AdaptiveConcurrencyLimiter arubaConcurrencyLimiter;
 
 	@Autowired
-    public ArubaCallImpl(PecImapBridge pecImapBridge, ArubaSecretValue arubaSecretValue, ArubaCallProperties arubaCallProperties) {
+    public ArubaCallImpl(PecImapBridge pecImapBridge, ArubaSecretValue arubaSecretValue, ArubaCallProperties arubaCallProperties,
+                         AdaptiveConcurrencyLimiters adaptiveConcurrencyLimiters) {
         this.pecImapBridge = pecImapBridge;
         this.arubaSecretValue = arubaSecretValue;
         this.arubaCallProperties = arubaCallProperties;
+        this.arubaConcurrencyLimiter = adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.ARUBA);
     }
 
     private RetryBackoffSpec getArubaCallRetryStrategy () {
@@ -51,7 +56,7 @@ public class ArubaCallImpl implements ArubaCall {
             } catch (Exception throwable) {
                 endSoapRequest(sink, throwable);
             }
-        })).cast(GetMessagesResponse.class).retryWhen(getArubaCallRetryStrategy()
+        })).transform(this::limitConcurrency).cast(GetMessagesResponse.class).retryWhen(getArubaCallRetryStrategy()
                .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
                     throw new GetMessagesException();
             }))
@@ -71,7 +76,7 @@ public class ArubaCallImpl implements ArubaCall {
             } catch (Exception throwable) {
                 endSoapRequest(sink, throwable);
             }
-        })).cast(GetMessageIDResponse.class).retryWhen(getArubaCallRetryStrategy().onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
+        })).transform(this::limitConcurrency).cast(GetMessageIDResponse.class).retryWhen(getArubaCallRetryStrategy().onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
               throw new GetMessageIdException(getMessageID.getMailid());
         }))
            .doOnSuccess(result -> log.info(CLIENT_METHOD_RETURN, ARUBA_GET_MESSAGE_ID, result));
@@ -90,7 +95,7 @@ public class ArubaCallImpl implements ArubaCall {
             } catch (Exception throwable) {
                 endSoapRequest(sink, throwable);
             }
-        })).cast(SendMailResponse.class).retryWhen(getArubaCallRetryStrategy().onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
+        })).transform(this::limitConcurrency).cast(SendMailResponse.class).retryWhen(getArubaCallRetryStrategy().onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
             throw new ArubaCallMaxRetriesExceededException();
         })).doOnSuccess(result -> log.info(CLIENT_METHOD_RETURN, ARUBA_SEND_MAIL, result));
     }
@@ -108,10 +113,15 @@ public class ArubaCallImpl implements ArubaCall {
             } catch (Exception throwable) {
                 endSoapRequest(sink, throwable);
             }
-        })).cast(GetAttachResponse.class).retryWhen(getArubaCallRetryStrategy())
+        })).transform(this::limitConcurrency).cast(GetAttachResponse.class).retryWhen(getArubaCallRetryStrategy())
            .doOnSuccess(result -> log.info(CLIENT_METHOD_RETURN, ARUBA_GET_ATTACH, result));
     }
 
+    // Every attempt goes through the limiter, the error codes returned by Aruba don't lower the limit
+    private <T> Mono<T> limitConcurrency(Mono<T> soapCall) {
+        return arubaConcurrencyLimiter.execute(soapCall, AdaptiveConcurrencyLimiters::isArubaOverload);
+    }
+
     private void checkErrors(Integer errorCode, String errorStr) {
         if (!errorCode.equals(0))
             throw new ArubaCallException(errorStr);
@@ -7,6 +7,8 @@ import it.pagopa.pn.ec.rest.v1.consolidatore.dto.PaperEngageRequest;
 import it.pagopa.pn.ec.rest.v1.consolidatore.dto.PaperReplicaRequest;
 import it.pagopa.pn.ec.rest.v1.consolidatore.dto.PaperReplicasProgressesResponse;
 import it.pagopa.pn.ec.rest.v1.dto.OperationResultCodeResponse;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiter;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiters;
 import lombok.CustomLog;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -22,10 +24,13 @@ public class PaperMessageCallImpl implements PaperMessageCall {
 
     private final WebClient consolidatoreWebClient;
     private final PaperMessagesEndpointProperties paperMessagesEndpointProperties;
+    private final AdaptiveConcurrencyLimiter consolidatoreConcurrencyLimiter;
 
-    public PaperMessageCallImpl(WebClient consolidatoreWebClient, PaperMessagesEndpointProperties paperMessagesEndpointProperties) {
+    public PaperMessageCallImpl(WebClient consolidatoreWebClient, PaperMessagesEndpointProperties paperMessagesEndpointProperties,
+                                AdaptiveConcurrencyLimiters adaptiveConcurrencyLimiters) {
         this.consolidatoreWebClient = consolidatoreWebClient;
         this.paperMessagesEndpointProperties = paperMessagesEndpointProperties;
+        this.consolidatoreConcurrencyLimiter = adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.CONSOLIDATORE);
     }
 
     @Override
@@ -36,7 +41,8 @@ public class PaperMessageCallImpl implements PaperMessageCall {
                                      .uri(paperMessagesEndpointProperties.putRequest())
                                      .bodyValue(paperEngageRequest)
                                      .retrieve()
-                                     .bodyToMono(OperationResultCodeResponse.class);
+                                     .bodyToMono(OperationResultCodeResponse.class)
+                                     .transform(this::limitConcurrency);
     }
 
     @Override
@@ -49,7 +55,8 @@ public class PaperMessageCallImpl implements PaperMessageCall {
                                      .retrieve()
                                      .onStatus(FORBIDDEN::equals,
                                                clientResponse -> Mono.error(new RestCallException.ResourceAlreadyInProgressException()))
-                                     .bodyToMono(OperationResultCodeResponse.class);
+                                     .bodyToMono(OperationResultCodeResponse.class)
+                                     .transform(this::limitConcurrency);
     }
 
     @Override
@@ -60,7 +67,8 @@ public class PaperMessageCallImpl implements PaperMessageCall {
                                      .retrieve()
                                      .onStatus(NOT_FOUND::equals,
                                                clientResponse -> Mono.error(new RestCallException.ResourceNotFoundException()))
-                                     .bodyToMono(PaperDeliveryProgressesResponse.class);
+                                     .bodyToMono(PaperDeliveryProgressesResponse.class)
+                                     .transform(this::limitConcurrency);
     }
 
     @Override
@@ -71,6 +79,11 @@ public class PaperMessageCallImpl implements PaperMessageCall {
                                      .retrieve()
                                      .onStatus(NOT_FOUND::equals,
                                                clientResponse -> Mono.error(new RestCallException.ResourceNotFoundException()))
-                                     .bodyToMono(PaperReplicasProgressesResponse.class);
+                                     .bodyToMono(PaperReplicasProgressesResponse.class)
+                                     .transform(this::limitConcurrency);
+    }
+
+    private <T> Mono<T> limitConcurrency(Mono<T> call) {
+        return consolidatoreConcurrencyLimiter.execute(call, AdaptiveConcurrencyLimiters::isDownstreamOverload);
     }
 }
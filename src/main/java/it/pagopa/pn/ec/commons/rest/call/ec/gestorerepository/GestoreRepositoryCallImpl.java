@@ -5,6 +5,7 @@ import it.pagopa.pn.ec.commons.exception.RepositoryManagerException;
 import it.pagopa.pn.ec.commons.rest.call.RestCallException;
 import it.pagopa.pn.ec.rest.v1.dto.*;
 import lombok.CustomLog;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
@@ -15,6 +16,7 @@ import static org.springframework.http.HttpStatus.*;
 
 @Component
 @CustomLog
+@ConditionalOnProperty(name = "internal-endpoint.ec.gestore-repository.in-process", havingValue = "false", matchIfMissing = true)
 public class GestoreRepositoryCallImpl implements GestoreRepositoryCall {
 
     private final WebClient ecWebClient;
@@ -127,7 +129,7 @@ public class GestoreRepositoryCallImpl implements GestoreRepositoryCall {
                           .bodyToMono(RequestDto.class);
     }
 
-    private static class BadMessageIdProvidedException extends RestCallException {
+    static class BadMessageIdProvidedException extends RestCallException {
 
         public BadMessageIdProvidedException() {
             super("Bad messageId provided");
@@ -149,7 +151,7 @@ public class GestoreRepositoryCallImpl implements GestoreRepositoryCall {
                           .bodyToMono(RequestDto.class);
     }
 
-    private static class ISEForMessageIdCreationException extends RestCallException {
+    static class ISEForMessageIdCreationException extends RestCallException {
 
         public ISEForMessageIdCreationException() {
             super("Internal server error for messageId creation");
@@ -0,0 +1,205 @@
+package it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository;
+
+import it.pagopa.pn.ec.commons.exception.RepositoryManagerException;
+import it.pagopa.pn.ec.commons.rest.call.RestCallException;
+import it.pagopa.pn.ec.commons.utils.RestUtils;
+import it.pagopa.pn.ec.pec.exception.MessageIdException;
+import it.pagopa.pn.ec.repositorymanager.model.entity.ClientConfigurationInternal;
+import it.pagopa.pn.ec.repositorymanager.model.pojo.Patch;
+import it.pagopa.pn.ec.repositorymanager.model.pojo.Request;
+import it.pagopa.pn.ec.repositorymanager.service.ClientConfigurationService;
+import it.pagopa.pn.ec.repositorymanager.service.RequestService;
+import it.pagopa.pn.ec.rest.v1.dto.*;
+import lombok.CustomLog;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+
+import static it.pagopa.pn.ec.commons.utils.LogUtils.*;
+import static it.pagopa.pn.ec.commons.utils.RequestUtils.concatRequestId;
+import static org.springframework.http.HttpStatus.*;
+
+/**
+ * {@link GestoreRepositoryCall} invoking the repository services of this instance directly, without the HTTP round trip,
+ * for the deployments where the repository manager runs in the same container. The errors of the services are mapped to
+ * the status the repository manager would answer with and then to the same exceptions raised by
+ * {@link GestoreRepositoryCallImpl}, a status not handled by a call becoming a {@link WebClientResponseException}.
+ */
+@Component
+@CustomLog
+@ConditionalOnProperty(name = "internal-endpoint.ec.gestore-repository.in-process", havingValue = "true")
+public class GestoreRepositoryInProcessCallImpl implements GestoreRepositoryCall {
+
+    private final RequestService requestService;
+    private final ClientConfigurationService clientConfigurationService;
+    private final RestUtils restUtils;
+
+    public GestoreRepositoryInProcessCallImpl(RequestService requestService, ClientConfigurationService clientConfigurationService,
+                                              RestUtils restUtils) {
+        this.requestService = requestService;
+        this.clientConfigurationService = clientConfigurationService;
+        this.restUtils = restUtils;
+    }
+
+    //  <-- CLIENT CONFIGURATION -->
+    @Override
+    public Mono<ClientConfigurationInternalDto> getClientConfiguration(String xPagopaExtchCxId) {
+        return clientConfigurationService.getClient(xPagopaExtchCxId)
+                                         .map(client -> restUtils.entityToDto(client, ClientConfigurationInternalDto.class))
+                                         .onErrorResume(throwable -> switch (responseStatus(throwable)) {
+                                             case NOT_FOUND -> Mono.error(new RestCallException.ResourceNotFoundException());
+                                             default -> responseError(throwable);
+                                         });
+    }
+
+    @Override
+    public Mono<ClientConfigurationDto> insertClientConfiguration(ClientConfigurationDto clientConfigurationDto) {
+        return Mono.fromSupplier(() -> restUtils.startCreateRequest(clientConfigurationDto, ClientConfigurationInternal.class))
+                   .flatMap(clientConfigurationService::insertClient)
+                   .map(client -> restUtils.entityToDto(client, ClientConfigurationDto.class))
+                   .onErrorResume(GestoreRepositoryInProcessCallImpl::responseError);
+    }
+
+    @Override
+    public Mono<ClientConfigurationDto> updateClientConfiguration(String xPagopaExtchCxId, ClientConfigurationDto clientConfigurationDto) {
+        return Mono.fromSupplier(() -> restUtils.startUpdateRequest(clientConfigurationDto, ClientConfigurationInternal.class))
+                   .flatMap(client -> clientConfigurationService.updateClient(xPagopaExtchCxId, client))
+                   .map(client -> restUtils.entityToDto(client, ClientConfigurationDto.class))
+                   .onErrorResume(GestoreRepositoryInProcessCallImpl::responseError);
+    }
+
+    @Override
+    public Mono<Void> deleteClientConfiguration(String xPagopaExtchCxId) {
+        return clientConfigurationService.deleteClient(xPagopaExtchCxId)
+                                         .onErrorResume(GestoreRepositoryInProcessCallImpl::responseError)
+                                         .then();
+    }
+
+    //  <-- REQUEST -->
+    @Override
+    public Mono<RequestDto> getRichiesta(String clientId, String requestIdx) throws RestCallException.ResourceNotFoundException {
+        String id = concatRequestId(clientId, requestIdx);
+        log.info(INVOKING_INTERNAL_SERVICE, GESTORE_REPOSITORY_SERVICE, GET_REQUEST, id);
+        return requestService.getRequest(clientId, requestIdx)
+                             .map(request -> restUtils.entityToDto(request, RequestDto.class))
+                             .onErrorResume(throwable -> switch (responseStatus(throwable)) {
+                                 case NOT_FOUND -> Mono.error(new RestCallException.ResourceNotFoundException());
+                                 default -> responseError(throwable);
+                             });
+    }
+
+    @Override
+    public Mono<RequestDto> insertRichiesta(RequestDto requestDto) throws RestCallException.ResourceAlreadyExistsException {
+        log.info(INVOKING_INTERNAL_SERVICE, GESTORE_REPOSITORY_SERVICE, INSERT_REQUEST, requestDto);
+        return Mono.fromSupplier(() -> restUtils.startCreateRequest(requestDto, Request.class))
+                   .flatMap(requestService::insertRequest)
+                   .map(request -> restUtils.entityToDto(request, RequestDto.class))
+                   .onErrorResume(throwable -> switch (responseStatus(throwable)) {
+                       case BAD_REQUEST -> Mono.error(new RepositoryManagerException.RequestMalformedException());
+                       case CONFLICT -> Mono.error(new RestCallException.ResourceAlreadyExistsException(throwable.getMessage()));
+                       default -> responseError(throwable);
+                   });
+    }
+
+    @Override
+    public Mono<RequestDto> patchRichiestaEvent(String clientId, String requestIdx, EventsDto eventsDto)
+            throws RestCallException.ResourceNotFoundException {
+        return patchRichiesta(clientId, requestIdx, new PatchDto().event(eventsDto));
+    }
+
+    @Override
+    public Mono<RequestDto> patchRichiestaRetry(String clientId, String requestIdx, RetryDto retryDto)
+            throws RestCallException.ResourceNotFoundException {
+        return patchRichiesta(clientId, requestIdx, new PatchDto().retry(retryDto));
+    }
+
+    @Override
+    public Mono<RequestDto> patchRichiesta(String clientId, String requestIdx, PatchDto patchDto)
+            throws RestCallException.ResourceNotFoundException {
+        String id = concatRequestId(clientId, requestIdx);
+        log.info(INVOKING_INTERNAL_SERVICE, GESTORE_REPOSITORY_SERVICE, PATCH_REQUEST, id);
+        return Mono.fromSupplier(() -> restUtils.startUpdateRequest(patchDto, Patch.class))
+                   .flatMap(patch -> requestService.patchRequest(clientId, requestIdx, patch))
+                   .map(request -> restUtils.entityToDto(request, RequestDto.class))
+                   .onErrorResume(throwable -> switch (responseStatus(throwable)) {
+                       case BAD_REQUEST -> Mono.error(new RepositoryManagerException.RequestMalformedException());
+                       case NOT_FOUND -> Mono.error(new RestCallException.ResourceNotFoundException());
+                       default -> responseError(throwable);
+                   });
+    }
+
+    @Override
+    public Mono<Void> deleteRichiesta(String clientId, String requestIdx) {
+        return requestService.deleteRequest(clientId, requestIdx).onErrorResume(GestoreRepositoryInProcessCallImpl::responseError).then();
+    }
+
+    @Override
+    public Mono<RequestDto> getRequestByMessageId(String messageId)
+            throws RestCallException.ResourceNotFoundException, GestoreRepositoryCallImpl.BadMessageIdProvidedException {
+        log.info(INVOKING_INTERNAL_SERVICE, GESTORE_REPOSITORY_SERVICE, GET_REQUEST_BY_MESSAGE_ID, messageId);
+        return requestService.getRequestByMessageId(messageId)
+                             .map(request -> restUtils.entityToDto(request, RequestDto.class))
+                             .onErrorResume(throwable -> switch (responseStatus(throwable)) {
+                                 case NOT_FOUND -> Mono.error(new RestCallException.ResourceNotFoundException());
+                                 case BAD_REQUEST -> Mono.error(new GestoreRepositoryCallImpl.BadMessageIdProvidedException());
+                                 default -> responseError(throwable);
+                             });
+    }
+
+    @Override
+    public Mono<RequestDto> setMessageIdInRequestMetadata(String clientId, String requestIdx)
+            throws RestCallException.ResourceNotFoundException, GestoreRepositoryCallImpl.ISEForMessageIdCreationException {
+        String id = concatRequestId(clientId, requestIdx);
+        log.info(INVOKING_INTERNAL_SERVICE, GESTORE_REPOSITORY_SERVICE, SET_MESSAGE_ID_IN_REQUEST_METADATA, id);
+        return requestService.setMessageIdInRequestMetadata(clientId, requestIdx)
+                             .map(request -> restUtils.entityToDto(request, RequestDto.class))
+                             .onErrorResume(throwable -> switch (responseStatus(throwable)) {
+                                 case NOT_FOUND -> Mono.error(new RestCallException.ResourceNotFoundException());
+                                 case INTERNAL_SERVER_ERROR -> Mono.error(new GestoreRepositoryCallImpl.ISEForMessageIdCreationException());
+                                 default -> responseError(throwable);
+                             });
+    }
+
+    /**
+     * Status the repository manager answers with when its services fail with the given error, as mapped by its error
+     * handlers.
+     */
+    static HttpStatus responseStatus(final Throwable throwable) {
+        if (throwable instanceof RepositoryManagerException.IdClientAlreadyPresent ||
+            throwable instanceof RepositoryManagerException.IdRequestAlreadyPresent) {
+            return CONFLICT;
+        } else if (throwable instanceof RepositoryManagerException.IdClientNotFoundException ||
+                   throwable instanceof RepositoryManagerException.RequestByMessageIdNotFoundException ||
+                   throwable instanceof RepositoryManagerException.RequestNotFoundException) {
+            return NOT_FOUND;
+        } else if (throwable instanceof RepositoryManagerException.RequestMalformedException ||
+                   throwable instanceof MessageIdException.DecodeMessageIdException) {
+            return BAD_REQUEST;
+        } else if (throwable instanceof RepositoryManagerException.EventAlreadyExistsException) {
+            return FORBIDDEN;
+        } else if (throwable instanceof RepositoryManagerException.RequestWithSameHash) {
+            return NO_CONTENT;
+        } else {
+            return INTERNAL_SERVER_ERROR;
+        }
+    }
+
+    /**
+     * Same outcome of a response with the status of the given error not handled by the call, i.e. an empty body for 204
+     * and a {@link WebClientResponseException} otherwise.
+     */
+    private static <T> Mono<T> responseError(final Throwable throwable) {
+        var status = responseStatus(throwable);
+        if (status == NO_CONTENT) {
+            return Mono.empty();
+        }
+        var body = throwable.getMessage() == null ? new byte[0] : throwable.getMessage().getBytes(StandardCharsets.UTF_8);
+        return Mono.error(WebClientResponseException.create(status.value(), status.getReasonPhrase(), HttpHeaders.EMPTY, body,
+                                                            StandardCharsets.UTF_8));
+    }
+}
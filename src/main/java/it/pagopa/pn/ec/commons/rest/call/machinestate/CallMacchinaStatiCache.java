@@ -0,0 +1,113 @@
+package it.pagopa.pn.ec.commons.rest.call.machinestate;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.StateMachineCacheProperties;
+import it.pagopa.pn.ec.commons.exception.InvalidNextStatusException;
+import it.pagopa.pn.ec.commons.exception.StatusNotFoundException;
+import it.pagopa.pn.ec.commons.model.dto.MacchinaStatiDecodeResponseDto;
+import it.pagopa.pn.ec.commons.model.dto.MacchinaStatiValidateStatoResponseDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Memoizes the answers of the state machine, that depend only on the arguments of the call. Concurrent lookups of the
+ * same key share a single call, and the refused transitions and the unknown statuses are cached as well, while the
+ * failed calls are not. The lookups are counted by {@code state.machine.cache.lookups}, tagged by operation and result.
+ * Not used with the {@link CallMacchinaStatiEmbeddedImpl}, that answers from memory already.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(name = "state-machine-embedded.enabled", havingValue = "false", matchIfMissing = true)
+public class CallMacchinaStatiCache implements CallMacchinaStati {
+
+    private static final String VALIDATION = "validation";
+    private static final String DECODE = "decode";
+    private static final String HIT = "hit";
+    private static final String MISS = "miss";
+
+    private record ValidationKey(String processId, String xPagopaExtchCxId, String currentStatus, String nextStatus) {}
+
+    private record DecodeKey(String processId, String xPagopaExtchCxId, String statusToDecode) {}
+
+    private final CallMacchinaStatiImpl callMacchinaStatiImpl;
+    private final Counter validationHits;
+    private final Counter validationMisses;
+    private final Counter decodeHits;
+    private final Counter decodeMisses;
+    private final AsyncCache<ValidationKey, Optional<MacchinaStatiValidateStatoResponseDto>> validations;
+    private final AsyncCache<DecodeKey, Optional<MacchinaStatiDecodeResponseDto>> decodes;
+
+    public CallMacchinaStatiCache(CallMacchinaStatiImpl callMacchinaStatiImpl, StateMachineCacheProperties stateMachineCacheProperties,
+                                  MeterRegistry meterRegistry) {
+        this.callMacchinaStatiImpl = callMacchinaStatiImpl;
+        this.validationHits = lookupCounter(meterRegistry, VALIDATION, HIT);
+        this.validationMisses = lookupCounter(meterRegistry, VALIDATION, MISS);
+        this.decodeHits = lookupCounter(meterRegistry, DECODE, HIT);
+        this.decodeMisses = lookupCounter(meterRegistry, DECODE, MISS);
+        boolean enabled = Boolean.TRUE.equals(stateMachineCacheProperties.enabled());
+        this.validations = enabled ? buildCache(stateMachineCacheProperties) : null;
+        this.decodes = enabled ? buildCache(stateMachineCacheProperties) : null;
+    }
+
+    @Override
+    public Mono<MacchinaStatiValidateStatoResponseDto> statusValidation(String xPagopaExtchCxId, String processId, String currentStatus,
+                                                                        String nextStatus) throws InvalidNextStatusException {
+        if (validations == null) {
+            return callMacchinaStatiImpl.statusValidation(xPagopaExtchCxId, processId, currentStatus, nextStatus);
+        }
+        var key = new ValidationKey(processId, xPagopaExtchCxId, currentStatus, nextStatus);
+        return lookup(validations, key, validationHits, validationMisses,
+                      () -> callMacchinaStatiImpl.statusValidation(xPagopaExtchCxId, processId, currentStatus, nextStatus)
+                                                 .map(Optional::of)
+                                                 .onErrorResume(InvalidNextStatusException.class, throwable -> Mono.just(Optional.empty())))
+                .flatMap(validation -> validation.map(Mono::just)
+                                                 .orElseGet(() -> Mono.error(new InvalidNextStatusException(currentStatus,
+                                                                                                            nextStatus,
+                                                                                                            xPagopaExtchCxId,
+                                                                                                            processId))));
+    }
+
+    @Override
+    public Mono<MacchinaStatiDecodeResponseDto> statusDecode(String xPagopaExtchCxId, String processId, String statusToDecode) {
+        if (decodes == null) {
+            return callMacchinaStatiImpl.statusDecode(xPagopaExtchCxId, processId, statusToDecode);
+        }
+        var key = new DecodeKey(processId, xPagopaExtchCxId, statusToDecode);
+        return lookup(decodes, key, decodeHits, decodeMisses,
+                      () -> callMacchinaStatiImpl.statusDecode(xPagopaExtchCxId, processId, statusToDecode)
+                                                 .map(Optional::of)
+                                                 .onErrorResume(StatusNotFoundException.class, throwable -> Mono.just(Optional.empty())))
+                .flatMap(decode -> decode.map(Mono::just).orElseGet(() -> Mono.error(new StatusNotFoundException(statusToDecode))));
+    }
+
+    private <K, V> Mono<Optional<V>> lookup(final AsyncCache<K, Optional<V>> cache, final K key, final Counter hits,
+                                            final Counter misses, final Supplier<Mono<Optional<V>>> call) {
+        return Mono.defer(() -> {
+            var cached = cache.getIfPresent(key);
+            (cached != null ? hits : misses).increment();
+            var future = cached != null ? cached : cache.get(key, (k, executor) -> call.get().toFuture());
+            // A copy, so that a cancelled subscriber does not cancel the call shared with the other ones
+            return Mono.fromFuture(future.copy());
+        });
+    }
+
+    private static Counter lookupCounter(final MeterRegistry meterRegistry, final String operation, final String result) {
+        return Counter.builder("state.machine.cache.lookups").tag("operation", operation).tag("result", result).register(meterRegistry);
+    }
+
+    private static <K, V> AsyncCache<K, V> buildCache(final StateMachineCacheProperties stateMachineCacheProperties) {
+        return Caffeine.newBuilder()
+                       .maximumSize(stateMachineCacheProperties.maximumSize())
+                       .expireAfterWrite(Duration.ofSeconds(stateMachineCacheProperties.expireAfterWriteSeconds()))
+                       .buildAsync();
+    }
+}
@@ -0,0 +1,130 @@
+package it.pagopa.pn.ec.commons.rest.call.machinestate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.pagopa.pn.ec.commons.configurationproperties.StateMachineEmbeddedProperties;
+import it.pagopa.pn.ec.commons.exception.InvalidNextStatusException;
+import it.pagopa.pn.ec.commons.exception.StatusNotFoundException;
+import it.pagopa.pn.ec.commons.model.dto.MacchinaStatiDecodeResponseDto;
+import it.pagopa.pn.ec.commons.model.dto.MacchinaStatiValidateStatoResponseDto;
+import lombok.CustomLog;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link CallMacchinaStati} answering in process from the state machine definitions of the StateMachines.json file, one
+ * DynamoDB JSON item per line, loaded once at startup from {@code state-machine-embedded.location} into a transition table
+ * per process. The definitions whose processClientId is {@code processId#clientId} override, for that client, the ones of
+ * the process. A transition is allowed when the target statuses of the current status, or of the {@value #ANY} one,
+ * include the next status or {@value #ANY}. A status is decoded only from its own definition, like the state machine
+ * manager does. The application doesn't start when the file is missing.
+ */
+@Primary
+@Component
+@CustomLog
+@ConditionalOnProperty(name = "state-machine-embedded.enabled", havingValue = "true")
+public class CallMacchinaStatiEmbeddedImpl implements CallMacchinaStati {
+
+    private static final String ANY = "_any_";
+    private static final String CLIENT_SEPARATOR = "#";
+
+    private record StatusDefinition(Set<String> targetStatuses, String externalStatus, String logicStatus) {
+
+        private boolean allows(final String nextStatus) {
+            return targetStatuses.contains(nextStatus) || targetStatuses.contains(ANY);
+        }
+    }
+
+    private final Map<String, Map<String, StatusDefinition>> transitionTables;
+
+    public CallMacchinaStatiEmbeddedImpl(StateMachineEmbeddedProperties stateMachineEmbeddedProperties, ResourceLoader resourceLoader,
+                                         ObjectMapper objectMapper) {
+        var location = stateMachineEmbeddedProperties.location();
+        if (location == null || location.isBlank()) {
+            throw new IllegalStateException("The location of the state machines is missing, set state-machine-embedded.location");
+        }
+        var resource = resourceLoader.getResource(location);
+        if (!resource.exists()) {
+            throw new IllegalStateException("The state machines file " + location + " doesn't exist");
+        }
+        try (var reader = new BufferedReader(new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            this.transitionTables = compile(reader, objectMapper);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load the state machines from " + location, e);
+        }
+        log.info("Loaded the state machines of {} from {}", transitionTables.keySet(), location);
+    }
+
+    @Override
+    public Mono<MacchinaStatiValidateStatoResponseDto> statusValidation(String xPagopaExtchCxId, String processId, String currentStatus,
+                                                                        String nextStatus) throws InvalidNextStatusException {
+        if (processId == null || currentStatus == null || nextStatus == null) {
+            return Mono.error(new StatusValidationBadRequestException());
+        }
+        var currentStatusDefinition = definition(xPagopaExtchCxId, processId, currentStatus);
+        var anyStatusDefinition = definition(xPagopaExtchCxId, processId, ANY);
+        if ((currentStatusDefinition != null && currentStatusDefinition.allows(nextStatus)) ||
+            (anyStatusDefinition != null && anyStatusDefinition.allows(nextStatus))) {
+            return Mono.just(MacchinaStatiValidateStatoResponseDto.builder().allowed(true).build());
+        }
+        return Mono.error(new InvalidNextStatusException(currentStatus, nextStatus, xPagopaExtchCxId, processId));
+    }
+
+    @Override
+    public Mono<MacchinaStatiDecodeResponseDto> statusDecode(String xPagopaExtchCxId, String processId, String statusToDecode) {
+        var statusDefinition = definition(xPagopaExtchCxId, processId, statusToDecode);
+        if (statusDefinition == null || statusDefinition.externalStatus() == null) {
+            return Mono.error(new StatusNotFoundException(statusToDecode));
+        }
+        return Mono.just(new MacchinaStatiDecodeResponseDto(statusDefinition.logicStatus(), statusDefinition.externalStatus()));
+    }
+
+    private StatusDefinition definition(final String xPagopaExtchCxId, final String processId, final String status) {
+        var clientTable = transitionTables.get(processId + CLIENT_SEPARATOR + xPagopaExtchCxId);
+        if (clientTable != null && clientTable.containsKey(status)) {
+            return clientTable.get(status);
+        }
+        var processTable = transitionTables.get(processId);
+        return processTable == null ? null : processTable.get(status);
+    }
+
+    private static Map<String, Map<String, StatusDefinition>> compile(final BufferedReader reader, final ObjectMapper objectMapper)
+            throws IOException {
+        Map<String, Map<String, StatusDefinition>> tables = new HashMap<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            var item = objectMapper.readTree(line);
+            Set<String> targetStatuses = new HashSet<>();
+            item.path("targetStatus").path("L").forEach(targetStatus -> targetStatuses.add(targetStatus.path("S").asText()));
+            tables.computeIfAbsent(stringAttribute(item, "processClientId"), processClientId -> new HashMap<>())
+                  .put(stringAttribute(item, "currStatus"),
+                       new StatusDefinition(Set.copyOf(targetStatuses),
+                                            stringAttribute(item, "externalStatus"),
+                                            stringAttribute(item, "logicStatus")));
+        }
+        Map<String, Map<String, StatusDefinition>> compiledTables = new HashMap<>();
+        tables.forEach((processClientId, table) -> compiledTables.put(processClientId, Map.copyOf(table)));
+        return Map.copyOf(compiledTables);
+    }
+
+    private static String stringAttribute(final JsonNode item, final String attributeName) {
+        var attribute = item.path(attributeName).path("S");
+        return attribute.isMissingNode() ? null : attribute.asText();
+    }
+}
@@ -8,6 +8,8 @@ import it.pagopa.pn.ec.consolidatore.exception.ClientNotAuthorizedOrFoundExcepti
 import it.pagopa.pn.ec.rest.v1.dto.FileCreationRequest;
 import it.pagopa.pn.ec.rest.v1.dto.FileCreationResponse;
 import it.pagopa.pn.ec.rest.v1.dto.FileDownloadResponse;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiter;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiters;
 import lombok.CustomLog;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
@@ -26,13 +28,16 @@ public class FileCallImpl implements FileCall {
     private final SafeStorageEndpointProperties safeStorageEndpointProperties;
 
     private final FilesEndpointProperties filesEndpointProperties;
+    private final AdaptiveConcurrencyLimiter safeStorageConcurrencyLimiter;
 
     private static final String GET_FILE_ERROR_TITLE = "Chiamata a SafeStorage non valida";
 
-    public FileCallImpl(WebClient ssWebClient, SafeStorageEndpointProperties safeStorageEndpointProperties, FilesEndpointProperties filesEndpointProperties) {
+    public FileCallImpl(WebClient ssWebClient, SafeStorageEndpointProperties safeStorageEndpointProperties, FilesEndpointProperties filesEndpointProperties,
+                        AdaptiveConcurrencyLimiters adaptiveConcurrencyLimiters) {
         this.ssWebClient = ssWebClient;
         this.safeStorageEndpointProperties = safeStorageEndpointProperties;
         this.filesEndpointProperties = filesEndpointProperties;
+        this.safeStorageConcurrencyLimiter = adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.SAFE_STORAGE);
     }
 
     private static String getFileErrorDetails(String fileKey, String xPagopaExtchCxId) {
@@ -55,7 +60,8 @@ public class FileCallImpl implements FileCall {
                         clientResponse -> Mono.error(new AttachmentNotAvailableException(fileKey)))
                 .onStatus(status-> status.equals(HttpStatus.GONE),
                         clientResponse -> Mono.error(new Generic400ErrorException(GET_FILE_ERROR_TITLE, "Resource is no longer available. It may have been removed or deleted.")))
-                .bodyToMono(FileDownloadResponse.class);
+                .bodyToMono(FileDownloadResponse.class)
+                .transform(this::limitConcurrency);
     }
 
 
@@ -72,7 +78,8 @@ public class FileCallImpl implements FileCall {
                 .onStatus(HttpStatus.FORBIDDEN::equals, clientResponse -> Mono.error(new ClientNotAuthorizedOrFoundException(xPagopaExtchServiceId)))
                 .onStatus(status-> status.equals(HttpStatus.GONE),
                         clientResponse -> Mono.error(new Generic400ErrorException(GET_FILE_ERROR_TITLE, "Resource is no longer available. It may have been removed or deleted.")))
-                .bodyToMono(FileDownloadResponse.class);
+                .bodyToMono(FileDownloadResponse.class)
+                .transform(this::limitConcurrency);
     }
 
     @Override
@@ -85,8 +92,11 @@ public class FileCallImpl implements FileCall {
                 .header(safeStorageEndpointProperties.traceIdHeaderName(), xTraceId)
                 .body(BodyInserters.fromValue(fileCreationRequest))
                 .retrieve()
-                .bodyToMono(FileCreationResponse.class);
+                .bodyToMono(FileCreationResponse.class)
+                .transform(this::limitConcurrency);
     }
 
-
+    private <T> Mono<T> limitConcurrency(Mono<T> call) {
+        return safeStorageConcurrencyLimiter.execute(call, AdaptiveConcurrencyLimiters::isDownstreamOverload);
+    }
 }
@@ -19,4 +19,11 @@ public interface AuthService {
     Mono<ClientConfigurationInternalDto> clientAuth(final String idClient);
 
     Mono<ClientConfigurationInternalDto> validateApiKey(final String idClient, final String xApiKey);
+
+    /**
+     * Metodo per rimuovere dalla cache la configurazione del client, da invocare quando questa viene modificata
+     *
+     * @param idClient Client id la cui configurazione è stata inserita, aggiornata o cancellata
+     */
+    void evictClientConfiguration(final String idClient);
 }
@@ -1,15 +1,35 @@
 package it.pagopa.pn.ec.commons.service;
 
-import it.pagopa.pn.ec.commons.model.pojo.s3.S3Pointer;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+
+import java.util.Collection;
 
 public interface S3Service {
 
     <T> Mono<T> getObjectAndConvert(String key, String bucketName, Class<T> classToConvert);
 
+    /**
+     * Same as {@link #getObjectAndConvert(String, String, Class)}, but the object is parsed while it is downloaded instead
+     * of being buffered in memory first.
+     */
+    <T> Mono<T> getObjectStreamAndConvert(String key, String bucketName, Class<T> classToConvert);
+
     <T> Mono<String> convertAndPutObject(String bucketName, T object);
 
+    /**
+     * Stores the content with its base64 MD5 as key and returns the key.
+     */
+    Mono<String> putObject(String bucketName, byte[] content);
+
+    Mono<String> putObject(String key, String bucketName, byte[] content);
+
     Mono<DeleteObjectResponse> deleteObject(String key, String bucketName);
 
+    /**
+     * Deletes the given keys with a single DeleteObjects request, so at most 1000 keys at a time.
+     */
+    Mono<DeleteObjectsResponse> deleteObjects(Collection<String> keys, String bucketName);
+
 }
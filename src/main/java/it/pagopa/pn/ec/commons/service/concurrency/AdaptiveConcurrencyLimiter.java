@@ -0,0 +1,175 @@
+package it.pagopa.pn.ec.commons.service.concurrency;
+
+import it.pagopa.pn.ec.commons.configurationproperties.concurrency.AdaptiveConcurrencyProperties.LimiterProperties;
+import lombok.CustomLog;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.function.Predicate;
+
+/**
+ * AIMD concurrency limiter for a single downstream. Every call that completes within the latency threshold while the
+ * limit is saturated raises the limit by {@code 1/limit}, roughly one unit per window of calls, while every failed or
+ * slow call multiplies it by the backoff ratio. The successes of an unsaturated limiter tell nothing about the capacity
+ * of the downstream and leave the limit alone, so that a quiet period doesn't let the first burst through unbounded;
+ * the calls cancelled after their start tell nothing either. The limit never leaves the configured min/max bounds.
+ * Calls exceeding the current limit wait for a free slot without blocking any thread.
+ */
+@CustomLog
+public class AdaptiveConcurrencyLimiter {
+
+    private enum WaiterState {WAITING, GRANTED, STARTED, CANCELLED}
+
+    private static final class Waiter {
+
+        private final MonoSink<Void> sink;
+        private WaiterState state = WaiterState.WAITING;
+
+        private Waiter(MonoSink<Void> sink) {
+            this.sink = sink;
+        }
+    }
+
+    private final String downstream;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final Queue<Waiter> waiters = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimiter(String downstream, LimiterProperties limiterProperties) {
+        this.downstream = downstream;
+        this.minLimit = limiterProperties.minLimit();
+        this.maxLimit = limiterProperties.maxLimit();
+        this.latencyThresholdNanos = limiterProperties.latencyThresholdMillis() * 1_000_000;
+        this.backoffRatio = limiterProperties.backoffRatio();
+        this.limit = Math.max(minLimit, Math.min(maxLimit, limiterProperties.initialLimit()));
+    }
+
+    public <T> Mono<T> execute(final Mono<T> call) {
+        return execute(call, throwable -> true);
+    }
+
+    /**
+     * Runs the call within the limit. Only the errors matching {@code isDrop} lower the limit, so that the errors
+     * returned by a healthy downstream (e.g. a resource not found) are not mistaken for overload.
+     */
+    public <T> Mono<T> execute(final Mono<T> call, final Predicate<Throwable> isDrop) {
+        return Mono.defer(() -> {
+            var waiter = new Waiter[1];
+            return Mono.<Void>create(sink -> {
+                           waiter[0] = new Waiter(sink);
+                           acquire(waiter[0]);
+                       })
+                       .then(Mono.defer(() -> {
+                           if (!start(waiter[0])) {
+                               return Mono.<T>empty();
+                           }
+                           long startTime = System.nanoTime();
+                           var failed = new boolean[1];
+                           return call.doOnError(throwable -> failed[0] = isDrop.test(throwable))
+                                      .doFinally(signalType -> release(signalType, failed[0], System.nanoTime() - startTime));
+                       }))
+                       // Gives back the slot of a call cancelled while waiting or before starting
+                       .doFinally(signalType -> {
+                           if (waiter[0] != null) {
+                               cancel(waiter[0]);
+                           }
+                       });
+        });
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public String getDownstream() {
+        return downstream;
+    }
+
+    private void acquire(final Waiter waiter) {
+        boolean granted;
+        synchronized (this) {
+            granted = inFlight < (int) limit;
+            if (granted) {
+                inFlight++;
+                waiter.state = WaiterState.GRANTED;
+            } else {
+                waiters.add(waiter);
+            }
+        }
+        if (granted) {
+            waiter.sink.success();
+        }
+    }
+
+    private synchronized boolean start(final Waiter waiter) {
+        if (waiter.state != WaiterState.GRANTED) {
+            return false;
+        }
+        waiter.state = WaiterState.STARTED;
+        return true;
+    }
+
+    private void cancel(final Waiter waiter) {
+        boolean grantedButNotStarted;
+        synchronized (this) {
+            grantedButNotStarted = waiter.state == WaiterState.GRANTED;
+            if (waiter.state == WaiterState.WAITING) {
+                waiters.remove(waiter);
+            }
+            if (waiter.state != WaiterState.STARTED) {
+                waiter.state = WaiterState.CANCELLED;
+            }
+        }
+        if (grantedButNotStarted) {
+            grantWaiting(freeSlot());
+        }
+    }
+
+    private void release(final SignalType signalType, final boolean failed, final long latencyNanos) {
+        List<Waiter> granted;
+        synchronized (this) {
+            double previousLimit = limit;
+            if (signalType == SignalType.CANCEL) {
+                log.debug("Call to {} cancelled, concurrency limit left at {}", downstream, (int) limit);
+            } else if (failed || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (inFlight >= (int) limit) {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            if ((int) previousLimit != (int) limit) {
+                log.debug("Concurrency limit of {} changed from {} to {}", downstream, (int) previousLimit, (int) limit);
+            }
+            granted = freeSlot();
+        }
+        grantWaiting(granted);
+    }
+
+    private synchronized List<Waiter> freeSlot() {
+        inFlight--;
+        List<Waiter> granted = new ArrayList<>();
+        while (inFlight < (int) limit && !waiters.isEmpty()) {
+            var waiter = waiters.poll();
+            waiter.state = WaiterState.GRANTED;
+            inFlight++;
+            granted.add(waiter);
+        }
+        return granted;
+    }
+
+    private static void grantWaiting(final List<Waiter> granted) {
+        granted.forEach(waiter -> waiter.sink.success());
+    }
+}
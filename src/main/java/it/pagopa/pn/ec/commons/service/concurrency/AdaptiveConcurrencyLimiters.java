@@ -0,0 +1,90 @@
+package it.pagopa.pn.ec.commons.service.concurrency;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.concurrency.AdaptiveConcurrencyProperties;
+import it.pagopa.pn.ec.commons.exception.aruba.ArubaCallException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+/**
+ * Holds one {@link AdaptiveConcurrencyLimiter} for every downstream configured under {@code adaptive-concurrency.limiters}
+ * and publishes their current limit and in flight calls as gauges tagged with the downstream name.
+ */
+@Component
+public class AdaptiveConcurrencyLimiters {
+
+    public static final String ARUBA = "aruba";
+    public static final String SES = "ses";
+    public static final String SNS = "sns";
+    public static final String CONSOLIDATORE = "consolidatore";
+    public static final String SAFE_STORAGE = "safe-storage";
+
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters;
+
+    public AdaptiveConcurrencyLimiters(AdaptiveConcurrencyProperties adaptiveConcurrencyProperties, MeterRegistry meterRegistry) {
+        this.limiters = adaptiveConcurrencyProperties.limiters()
+                                                     .entrySet()
+                                                     .stream()
+                                                     .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey,
+                                                                                           entry -> new AdaptiveConcurrencyLimiter(
+                                                                                                   entry.getKey(),
+                                                                                                   entry.getValue())));
+        limiters.values().forEach(limiter -> {
+            Gauge.builder("adaptive.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                 .tag("downstream", limiter.getDownstream())
+                 .register(meterRegistry);
+            Gauge.builder("adaptive.concurrency.in.flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                 .tag("downstream", limiter.getDownstream())
+                 .register(meterRegistry);
+        });
+    }
+
+    /**
+     * Tells whether an error of a WebClient call means that the downstream is struggling: connection errors, timeouts
+     * and 5xx responses. The 4xx responses are answers of a healthy service and don't lower the limit.
+     */
+    public static boolean isDownstreamOverload(final Throwable throwable) {
+        if (throwable instanceof WebClientResponseException webClientResponseException) {
+            return webClientResponseException.getStatusCode().is5xxServerError();
+        }
+        return throwable instanceof WebClientRequestException || throwable instanceof TimeoutException;
+    }
+
+    /**
+     * Tells whether an error of an AWS SDK call means that the service is struggling: throttling, 5xx responses and
+     * client side failures such as connection errors and timeouts. The other 4xx responses, e.g. a rejected message,
+     * don't lower the limit.
+     */
+    public static boolean isAwsServiceOverload(final Throwable throwable) {
+        var cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        if (cause instanceof AwsServiceException awsServiceException) {
+            return awsServiceException.isThrottlingException() || awsServiceException.statusCode() >= 500;
+        }
+        return cause instanceof SdkClientException;
+    }
+
+    /**
+     * Tells whether an error of an Aruba call means that the service is struggling. The error codes returned by Aruba,
+     * carried by {@link ArubaCallException}, are answers of a healthy service and don't lower the limit.
+     */
+    public static boolean isArubaOverload(final Throwable throwable) {
+        return !(throwable instanceof ArubaCallException);
+    }
+
+    public AdaptiveConcurrencyLimiter get(final String downstream) {
+        var limiter = limiters.get(downstream);
+        if (limiter == null) {
+            throw new IllegalStateException(String.format("No concurrency limiter configured for downstream %s", downstream));
+        }
+        return limiter;
+    }
+}
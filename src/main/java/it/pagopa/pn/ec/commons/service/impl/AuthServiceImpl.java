@@ -1,5 +1,9 @@
 package it.pagopa.pn.ec.commons.service.impl;
 
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import it.pagopa.pn.ec.commons.configurationproperties.ClientConfigurationCacheProperties;
 import it.pagopa.pn.ec.commons.exception.ClientNotFoundException;
 import it.pagopa.pn.ec.commons.exception.InvalidApiKeyException;
 import it.pagopa.pn.ec.commons.rest.call.RestCallException;
@@ -10,23 +14,36 @@ import lombok.CustomLog;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Optional;
+
 import static it.pagopa.pn.ec.commons.utils.LogUtils.*;
 
+/**
+ * Authenticates the clients against their configuration, kept in a bounded cache when
+ * {@code client-configuration-cache.enabled} is set. A configuration is reloaded in the background once it is older than
+ * the refresh interval, while the cached one keeps being returned, and it expires after a longer TTL. Unknown clients are
+ * cached as well, for a shorter TTL, and the failed loads are not cached at all.
+ */
 @Service
 @CustomLog
 public class AuthServiceImpl implements AuthService {
 
     private final GestoreRepositoryCall gestoreRepositoryCall;
+    private final AsyncLoadingCache<String, Optional<ClientConfigurationInternalDto>> clientConfigurations;
 
-    public AuthServiceImpl(GestoreRepositoryCall gestoreRepositoryCall) {
+    public AuthServiceImpl(GestoreRepositoryCall gestoreRepositoryCall, ClientConfigurationCacheProperties clientConfigurationCacheProperties) {
         this.gestoreRepositoryCall = gestoreRepositoryCall;
+        this.clientConfigurations = Boolean.TRUE.equals(clientConfigurationCacheProperties.enabled()) ? buildCache(
+                clientConfigurationCacheProperties) : null;
     }
 
     @Override
     public Mono<ClientConfigurationInternalDto> clientAuth(final String xPagopaExtchCxId) {
         log.logChecking(CLIENT_AUTHENTICATION);
-        return gestoreRepositoryCall.getClientConfiguration(xPagopaExtchCxId)
-                .onErrorResume(RestCallException.ResourceNotFoundException.class, throwable -> Mono.error(new ClientNotFoundException(xPagopaExtchCxId)))
+        return getClientConfiguration(xPagopaExtchCxId)
+                .flatMap(clientConfiguration -> clientConfiguration.map(Mono::just)
+                                                                   .orElseGet(() -> Mono.error(new ClientNotFoundException(xPagopaExtchCxId))))
                 .doOnError(throwable -> log.logCheckingOutcome(CLIENT_AUTHENTICATION, false, throwable.getMessage()))
                 .doOnNext(result->log.logCheckingOutcome(CLIENT_AUTHENTICATION, true));
     }
@@ -43,4 +60,54 @@ public class AuthServiceImpl implements AuthService {
             return Mono.just(clientConfiguration);
         });
     }
+
+    @Override
+    public void evictClientConfiguration(final String xPagopaExtchCxId) {
+        if (clientConfigurations != null) {
+            log.debug("Client configuration of {} evicted from the cache", xPagopaExtchCxId);
+            clientConfigurations.synchronous().invalidate(xPagopaExtchCxId);
+        }
+    }
+
+    private Mono<Optional<ClientConfigurationInternalDto>> getClientConfiguration(final String xPagopaExtchCxId) {
+        if (clientConfigurations == null) {
+            return loadClientConfiguration(xPagopaExtchCxId);
+        }
+        // A copy, so that a cancelled subscriber does not cancel the load shared with the other ones
+        return Mono.defer(() -> Mono.fromFuture(clientConfigurations.get(xPagopaExtchCxId).copy()));
+    }
+
+    private Mono<Optional<ClientConfigurationInternalDto>> loadClientConfiguration(final String xPagopaExtchCxId) {
+        return gestoreRepositoryCall.getClientConfiguration(xPagopaExtchCxId)
+                                    .map(Optional::of)
+                                    .onErrorResume(RestCallException.ResourceNotFoundException.class, throwable -> Mono.just(Optional.empty()));
+    }
+
+    private AsyncLoadingCache<String, Optional<ClientConfigurationInternalDto>> buildCache(
+            final ClientConfigurationCacheProperties clientConfigurationCacheProperties) {
+        long foundTtl = Duration.ofSeconds(clientConfigurationCacheProperties.expireAfterWriteSeconds()).toNanos();
+        long notFoundTtl = Duration.ofSeconds(clientConfigurationCacheProperties.notFoundExpireAfterWriteSeconds()).toNanos();
+        return Caffeine.newBuilder()
+                       .maximumSize(clientConfigurationCacheProperties.maximumSize())
+                       .refreshAfterWrite(Duration.ofSeconds(clientConfigurationCacheProperties.refreshAfterWriteSeconds()))
+                       .expireAfter(new Expiry<String, Optional<ClientConfigurationInternalDto>>() {
+                           @Override
+                           public long expireAfterCreate(String key, Optional<ClientConfigurationInternalDto> value, long currentTime) {
+                               return value.isPresent() ? foundTtl : notFoundTtl;
+                           }
+
+                           @Override
+                           public long expireAfterUpdate(String key, Optional<ClientConfigurationInternalDto> value, long currentTime,
+                                                         long currentDuration) {
+                               return expireAfterCreate(key, value, currentTime);
+                           }
+
+                           @Override
+                           public long expireAfterRead(String key, Optional<ClientConfigurationInternalDto> value, long currentTime,
+                                                       long currentDuration) {
+                               return currentDuration;
+                           }
+                       })
+                       .buildAsync((key, executor) -> loadClientConfiguration(key).toFuture());
+    }
 }
@@ -9,18 +9,20 @@ import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
 import reactor.util.retry.RetryBackoffSpec;
 import software.amazon.awssdk.core.BytesWrapper;
+import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.core.async.AsyncResponseTransformer;
 import software.amazon.awssdk.services.s3.S3AsyncClient;
-import software.amazon.awssdk.services.s3.model.DeleteObjectResponse;
-import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.*;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.time.Duration;
+import java.util.Collection;
 import java.util.stream.Stream;
 
 import static it.pagopa.pn.ec.commons.utils.LogUtils.*;
@@ -55,24 +57,46 @@ public class S3ServiceImpl implements S3Service {
                 .retryWhen(s3RetryStrategy);
     }
 
+    @Override
+    public <T> Mono<T> getObjectStreamAndConvert(String key, String bucketName, Class<T> classToConvert) {
+        log.debug(CLIENT_METHOD_INVOCATION_WITH_ARGS, GET_OBJECT_STREAM_AND_CONVERT, Stream.of(key, bucketName, classToConvert).toList());
+        return Mono.fromCompletionStage(() -> s3AsyncClient.getObject(builder -> builder.key(key).bucket(bucketName),
+                        AsyncResponseTransformer.toBlockingInputStream()))
+                // Reading the stream blocks until the next part of the object is downloaded
+                .publishOn(Schedulers.boundedElastic())
+                .map(responseInputStream -> convertAndClose(responseInputStream, classToConvert))
+                .doOnNext(convertedObject -> log.info(CLIENT_METHOD_RETURN, GET_OBJECT_STREAM_AND_CONVERT, key))
+                .retryWhen(s3RetryStrategy);
+    }
+
     @Override
     public <T> Mono<String> convertAndPutObject(String bucketName, T object) {
         log.debug(CLIENT_METHOD_INVOCATION_WITH_ARGS, CONVERT_AND_PUT_OBJECT, Stream.of(bucketName, object).toList());
         return Mono.fromCallable(() -> objectMapper.writeValueAsBytes(object))
-                .zipWhen(fileBytes -> Mono.just(new String(Base64.encodeBase64(DigestUtils.md5(fileBytes)))))
-                .flatMap(tuple -> {
-                    String contentMD5 = tuple.getT2();
-                    return Mono.fromCompletionStage(s3AsyncClient.putObject(builder -> builder.key(contentMD5)
-                                            .contentMD5(contentMD5)
-                                            .bucket(bucketName),
-                                    AsyncRequestBody.fromBytes(tuple.getT1())))
-                            .thenReturn(contentMD5);
-                })
+                .flatMap(fileBytes -> putObject(bucketName, fileBytes))
                 .doOnNext(fileKey -> log.info(CLIENT_METHOD_RETURN, CONVERT_AND_PUT_OBJECT, fileKey))
-                .retryWhen(s3RetryStrategy)
                 .doOnError(throwable -> log.warn(CLIENT_METHOD_RETURN_WITH_ERROR, CONVERT_AND_PUT_OBJECT, throwable, throwable.getMessage()));
     }
 
+    @Override
+    public Mono<String> putObject(String bucketName, byte[] content) {
+        return putObject(new String(Base64.encodeBase64(DigestUtils.md5(content))), bucketName, content);
+    }
+
+    @Override
+    public Mono<String> putObject(String key, String bucketName, byte[] content) {
+        log.debug(CLIENT_METHOD_INVOCATION_WITH_ARGS, PUT_OBJECT, Stream.of(key, bucketName).toList());
+        String contentMD5 = new String(Base64.encodeBase64(DigestUtils.md5(content)));
+        return Mono.fromCompletionStage(() -> s3AsyncClient.putObject(builder -> builder.key(key)
+                                .contentMD5(contentMD5)
+                                .bucket(bucketName),
+                        AsyncRequestBody.fromBytes(content)))
+                .thenReturn(key)
+                .doOnNext(fileKey -> log.info(CLIENT_METHOD_RETURN, PUT_OBJECT, fileKey))
+                .retryWhen(s3RetryStrategy)
+                .doOnError(throwable -> log.warn(CLIENT_METHOD_RETURN_WITH_ERROR, PUT_OBJECT, throwable, throwable.getMessage()));
+    }
+
     @Override
     public Mono<DeleteObjectResponse> deleteObject(String key, String bucketName) {
         log.debug(CLIENT_METHOD_INVOCATION_WITH_ARGS, DELETE_OBJECT, Stream.of(key, bucketName).toList());
@@ -82,6 +106,29 @@ public class S3ServiceImpl implements S3Service {
                 .doOnError(throwable -> log.warn(CLIENT_METHOD_RETURN_WITH_ERROR, DELETE_OBJECT, throwable, throwable.getMessage()));
     }
 
+    @Override
+    public Mono<DeleteObjectsResponse> deleteObjects(Collection<String> keys, String bucketName) {
+        log.debug(CLIENT_METHOD_INVOCATION_WITH_ARGS, DELETE_OBJECTS, Stream.of(keys.size(), bucketName).toList());
+        var objectIdentifiers = keys.stream().map(key -> ObjectIdentifier.builder().key(key).build()).toList();
+        return Mono.fromCompletionStage(() -> s3AsyncClient.deleteObjects(builder -> builder.bucket(bucketName)
+                        .delete(delete -> delete.objects(objectIdentifiers).quiet(true))))
+                .doOnNext(deleteObjectsResponse -> deleteObjectsResponse.errors()
+                        .forEach(s3Error -> log.warn("Unable to delete object {} from {} bucket : {}",
+                                s3Error.key(),
+                                bucketName,
+                                s3Error.message())))
+                .doOnNext(deleteObjectsResponse -> log.info(CLIENT_METHOD_RETURN, DELETE_OBJECTS, keys.size()))
+                .retryWhen(s3RetryStrategy)
+                .doOnError(throwable -> log.warn(CLIENT_METHOD_RETURN_WITH_ERROR, DELETE_OBJECTS, throwable, throwable.getMessage()));
+    }
+
+    @SneakyThrows(IOException.class)
+    private <T> T convertAndClose(ResponseInputStream<GetObjectResponse> responseInputStream, Class<T> classToConvert) {
+        try (responseInputStream) {
+            return objectMapper.readValue(responseInputStream, classToConvert);
+        }
+    }
+
     @SneakyThrows(IOException.class)
     private <T> T convertToClass(InputStream inputStream, Class<T> classToConvert) {
         return objectMapper.readValue(inputStream, classToConvert);
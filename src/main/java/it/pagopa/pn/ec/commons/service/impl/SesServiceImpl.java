@@ -24,6 +24,8 @@ import it.pagopa.pn.ec.commons.exception.ses.SesSendException;
 import it.pagopa.pn.ec.commons.model.pojo.email.EmailAttachment;
 import it.pagopa.pn.ec.commons.model.pojo.email.EmailField;
 import it.pagopa.pn.ec.commons.service.SesService;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiter;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiters;
 import lombok.CustomLog;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.core.SdkBytes;
@@ -38,16 +40,19 @@ import static org.apache.commons.codec.CharEncoding.UTF_8;
 public class SesServiceImpl implements SesService {
 
     private final SesAsyncClient sesAsyncClient;
+    private final AdaptiveConcurrencyLimiter sesConcurrencyLimiter;
 
-    public SesServiceImpl(SesAsyncClient sesAsyncClient) {
+    public SesServiceImpl(SesAsyncClient sesAsyncClient, AdaptiveConcurrencyLimiters adaptiveConcurrencyLimiters) {
         this.sesAsyncClient = sesAsyncClient;
+        this.sesConcurrencyLimiter = adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.SES);
     }
 
     @Override
     public Mono<SendRawEmailResponse> send(EmailField field) {
         log.info(CLIENT_METHOD_INVOCATION_WITH_ARGS, SES_SEND_MAIL, field);
         return Mono.fromCallable(() -> composeSendRawEmailRequest(field))
-                   .flatMap(sendRawEmailRequest -> Mono.fromCompletionStage(sesAsyncClient.sendRawEmail(sendRawEmailRequest)))
+                   .flatMap(sendRawEmailRequest -> sesConcurrencyLimiter.execute(Mono.fromCompletionStage(() -> sesAsyncClient.sendRawEmail(
+                           sendRawEmailRequest)), AdaptiveConcurrencyLimiters::isAwsServiceOverload))
                    .onErrorResume(throwable -> {
                        log.error(throwable.getMessage());
                        return Mono.error(new SesSendException());
@@ -3,6 +3,8 @@ package it.pagopa.pn.ec.commons.service.impl;
 import it.pagopa.pn.ec.commons.configurationproperties.sns.SnsTopicProperties;
 import it.pagopa.pn.ec.commons.exception.sns.SnsSendException;
 import it.pagopa.pn.ec.commons.service.SnsService;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiter;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiters;
 import lombok.CustomLog;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -21,15 +23,18 @@ public class SnsServiceImpl implements SnsService {
 
     private final SnsAsyncClient snsAsyncClient;
     private final SnsTopicProperties snsTopicProperties;
+    private final AdaptiveConcurrencyLimiter snsConcurrencyLimiter;
 
     @Value("${SMSStressTestMode:false}")
     private boolean smsStressTestMode;
     @Value("${SMSStressTestTopicArn:}")
     private String smsStressTestTopicArn;
 
-    public SnsServiceImpl(SnsAsyncClient snsAsyncClient, SnsTopicProperties snsTopicProperties) {
+    public SnsServiceImpl(SnsAsyncClient snsAsyncClient, SnsTopicProperties snsTopicProperties,
+                          AdaptiveConcurrencyLimiters adaptiveConcurrencyLimiters) {
         this.snsAsyncClient = snsAsyncClient;
         this.snsTopicProperties = snsTopicProperties;
+        this.snsConcurrencyLimiter = adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.SNS);
     }
 
     @Override
@@ -42,13 +47,16 @@ public class SnsServiceImpl implements SnsService {
         } else
             builder = builder.phoneNumber(phoneNumber);
 
-        return Mono.fromFuture(snsAsyncClient.publish(builder
+        PublishRequest publishRequest = builder
                 .message(message)
                 .messageAttributes(Map.of(snsTopicProperties.defaultSenderIdKey(), MessageAttributeValue
                         .builder()
                         .dataType(snsTopicProperties.defaultSenderIdType())
                         .stringValue(snsTopicProperties.defaultSenderIdValue())
-                        .build())).build()))
+                        .build())).build();
+
+        return snsConcurrencyLimiter.execute(Mono.fromFuture(() -> snsAsyncClient.publish(publishRequest)),
+                                             AdaptiveConcurrencyLimiters::isAwsServiceOverload)
         .onErrorResume(throwable -> {
             log.error(EXCEPTION_IN_PROCESS, SNS_SEND, throwable, throwable.getMessage());
             return Mono.error(new SnsSendException());
@@ -1,38 +1,37 @@
 package it.pagopa.pn.ec.commons.service.impl;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import it.pagopa.pn.ec.commons.exception.sqs.SqsClientException;
 import it.pagopa.pn.ec.commons.model.pojo.s3.S3Pointer;
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsMessageContent;
 import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsMessageWrapper;
 import it.pagopa.pn.ec.commons.service.S3Service;
 import it.pagopa.pn.ec.commons.service.SqsService;
-import it.pagopa.pn.ec.commons.utils.JsonUtils;
+import it.pagopa.pn.ec.commons.service.sqs.SqsAckCoalescer;
+import it.pagopa.pn.ec.commons.service.sqs.SqsBatchPublisher;
+import it.pagopa.pn.ec.commons.service.sqs.SqsClaimCheck;
+import it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics;
+import it.pagopa.pn.ec.commons.service.sqs.SqsMessageDeduplicator;
+import it.pagopa.pn.ec.commons.service.sqs.SqsMessageGroupIdStrategy;
+import it.pagopa.pn.ec.commons.service.sqs.SqsPayloadCodec;
+import it.pagopa.pn.ec.commons.service.sqs.SqsPayloadSerializer;
+import it.pagopa.pn.ec.commons.service.sqs.SqsQueueUrlRegistry;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReceiveEngine;
 import lombok.CustomLog;
 import lombok.SneakyThrows;
-import org.apache.commons.io.output.CountingOutputStream;
-import org.apache.commons.lang3.RandomStringUtils;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import software.amazon.awssdk.core.SdkBytes;
 import software.amazon.awssdk.services.sqs.SqsAsyncClient;
 import software.amazon.awssdk.services.sqs.model.*;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
-import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.BooleanSupplier;
+import java.util.function.Function;
 
 import static it.pagopa.pn.ec.commons.utils.LogUtils.INSERTED_DATA_IN_SQS;
 import static it.pagopa.pn.ec.commons.utils.LogUtils.INSERTING_DATA_IN_SQS;
-import static it.pagopa.pn.ec.commons.utils.OptionalUtils.getFirstListElement;
 
 @Service
 @CustomLog
@@ -40,19 +39,41 @@ public class SqsServiceImpl implements SqsService {
 
     private final SqsAsyncClient sqsAsyncClient;
     private final ObjectMapper objectMapper;
-    private final JsonUtils jsonUtils;
     private final S3Service s3Service;
-    private static final int MESSAGE_GROUP_ID_LENGTH = 64;
+    private final SqsQueueUrlRegistry sqsQueueUrlRegistry;
+    private final SqsBatchPublisher sqsBatchPublisher;
+    private final SqsAckCoalescer sqsAckCoalescer;
+    private final SqsReceiveEngine sqsReceiveEngine;
+    private final SqsMessageGroupIdStrategy sqsMessageGroupIdStrategy;
+    private final SqsMessageDeduplicator sqsMessageDeduplicator;
+    private final SqsClaimCheck sqsClaimCheck;
+    private final SqsPayloadSerializer sqsPayloadSerializer;
+    private final SqsPayloadCodec sqsPayloadCodec;
+    private final SqsConsumerMetrics sqsConsumerMetrics;
     @Value("${sqs.queue.max-message-size}")
     private Integer sqsQueueMaxMessageSize;
     @Value("${SqsQueueMaxMessages:#{1000}}")
     private Integer maxMessages;
 
-    public SqsServiceImpl(SqsAsyncClient sqsAsyncClient, ObjectMapper objectMapper, JsonUtils jsonUtils, S3Service s3Service) {
+    public SqsServiceImpl(SqsAsyncClient sqsAsyncClient, ObjectMapper objectMapper, S3Service s3Service,
+                          SqsQueueUrlRegistry sqsQueueUrlRegistry, SqsBatchPublisher sqsBatchPublisher, SqsAckCoalescer sqsAckCoalescer,
+                          SqsReceiveEngine sqsReceiveEngine, SqsMessageGroupIdStrategy sqsMessageGroupIdStrategy,
+                          SqsMessageDeduplicator sqsMessageDeduplicator, SqsClaimCheck sqsClaimCheck,
+                          SqsPayloadSerializer sqsPayloadSerializer, SqsPayloadCodec sqsPayloadCodec,
+                          SqsConsumerMetrics sqsConsumerMetrics) {
         this.sqsAsyncClient = sqsAsyncClient;
         this.objectMapper = objectMapper;
-        this.jsonUtils = jsonUtils;
         this.s3Service = s3Service;
+        this.sqsQueueUrlRegistry = sqsQueueUrlRegistry;
+        this.sqsBatchPublisher = sqsBatchPublisher;
+        this.sqsAckCoalescer = sqsAckCoalescer;
+        this.sqsReceiveEngine = sqsReceiveEngine;
+        this.sqsMessageGroupIdStrategy = sqsMessageGroupIdStrategy;
+        this.sqsMessageDeduplicator = sqsMessageDeduplicator;
+        this.sqsClaimCheck = sqsClaimCheck;
+        this.sqsPayloadSerializer = sqsPayloadSerializer;
+        this.sqsPayloadCodec = sqsPayloadCodec;
+        this.sqsConsumerMetrics = sqsConsumerMetrics;
     }
 
     @Override
@@ -62,7 +83,7 @@ public class SqsServiceImpl implements SqsService {
 
     @Override
     public <T> Mono<SendMessageResponse> send(String queueName, Integer delaySeconds, T queuePayload) throws SqsClientException {
-        return send(queueName, RandomStringUtils.randomAlphanumeric(MESSAGE_GROUP_ID_LENGTH), delaySeconds, queuePayload);
+        return send(queueName, sqsMessageGroupIdStrategy.messageGroupId(queueName, queuePayload), delaySeconds, queuePayload);
     }
 
     @Override
@@ -73,13 +94,23 @@ public class SqsServiceImpl implements SqsService {
     @Override
     public <T> Mono<SendMessageResponse> send(String queueName, String messageGroupId, Integer delaySeconds, T queuePayload) throws SqsClientException {
         log.debug(INSERTING_DATA_IN_SQS, queuePayload, queueName);
-        return Mono.fromCallable(() -> objectMapper.writeValueAsString(queuePayload))
+        return messageContent(queueName, queuePayload)
                 .doOnSuccess(sendMessageResponse -> log.info("Try to publish on {} with payload {}", queueName, queuePayload))
-                .zipWith(getQueueUrlFromName(queueName))
-                .flatMap(objects -> Mono.fromCompletionStage(sqsAsyncClient.sendMessage(builder -> builder.queueUrl(objects.getT2())
-                        .messageBody(objects.getT1())
-                        .messageGroupId(messageGroupId)
-                        .delaySeconds(delaySeconds))))
+                .flatMap(messageContent -> {
+                    if (sqsBatchPublisher.isBatched(queueName)) {
+                        return sqsBatchPublisher.publish(queueName,
+                                messageContent.messageBody(),
+                                messageGroupId,
+                                delaySeconds,
+                                messageContent.messageAttributes());
+                    }
+                    return sqsQueueUrlRegistry.withQueueUrl(queueName,
+                            queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.sendMessage(builder -> builder.queueUrl(queueUrl)
+                                    .messageBody(messageContent.messageBody())
+                                    .messageAttributes(messageContent.messageAttributes())
+                                    .messageGroupId(messageGroupId)
+                                    .delaySeconds(delaySeconds))));
+                })
                 .onErrorResume(throwable -> {
                     log.error("Error on sqs publish : {}", throwable.getMessage(), throwable);
                     return Mono.error(new SqsClientException(queueName));
@@ -90,19 +121,21 @@ public class SqsServiceImpl implements SqsService {
     @Override
     public <T> Mono<SendMessageResponse> sendWithLargePayload(String queueName, String messageGroupId, String bucketName, T queuePayload) throws SqsClientException {
         log.debug(INSERTING_DATA_IN_SQS, queuePayload, queueName);
-        return Mono.fromCallable(() -> objectMapper.writeValueAsString(queuePayload))
+        return Mono.fromCallable(() -> sqsPayloadSerializer.serialize(queuePayload, sqsPayloadCodec.objectMapper(queueName), (buffer, length) -> {
+                    var messageContent = sqsPayloadCodec.encode(queueName, buffer, length);
+                    if (messageContent.sizeInBytes() > sqsQueueMaxMessageSize) {
+                        return jsonPayload(queueName, queuePayload, buffer, length)
+                                .flatMap(jsonPayload -> s3Service.putObject(bucketName, jsonPayload))
+                                .map(fileKey -> new SqsMessageContent(writeValueAsString(new S3Pointer(fileKey)), Map.of()));
+                    } else return Mono.just(messageContent);
+                }))
+                .flatMap(Function.identity())
                 .doOnSuccess(sendMessageResponse -> log.info("Try to publish on {} with payload {}", queueName, queuePayload))
-                .zipWith(getQueueUrlFromName(queueName))
-                .map(objects -> SendMessageRequest.builder().queueUrl(objects.getT2())
-                        .messageBody(objects.getT1())
-                        .messageGroupId(messageGroupId))
-                .flatMap(sendMessageRequestBuilder -> {
-                    if (isLarge(sendMessageRequestBuilder.build())) {
-                        return s3Service.convertAndPutObject(bucketName, queuePayload)
-                                .map(fileKey -> sendMessageRequestBuilder.messageBody(writeValueAsString(new S3Pointer(fileKey))));
-                    } else return Mono.just(sendMessageRequestBuilder);
-                })
-                .flatMap(sendMessageRequest -> Mono.fromCompletionStage(sqsAsyncClient.sendMessage(sendMessageRequest.build())))
+                .flatMap(messageContent -> sqsQueueUrlRegistry.withQueueUrl(queueName,
+                        queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.sendMessage(builder -> builder.queueUrl(queueUrl)
+                                .messageBody(messageContent.messageBody())
+                                .messageAttributes(messageContent.messageAttributes())
+                                .messageGroupId(messageGroupId)))))
                 .onErrorResume(throwable -> {
                     log.error("Error on sqs publish : {}", throwable.getMessage(), throwable);
                     return Mono.error(new SqsClientException(queueName));
@@ -112,12 +145,10 @@ public class SqsServiceImpl implements SqsService {
 
     @Override
     public <T> Mono<SqsMessageWrapper<T>> getOneMessage(String queueName, Class<T> messageContentClass) {
-        return getQueueUrlFromName(queueName).flatMap(queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.receiveMessage(builder -> builder.queueUrl(
-                        queueUrl))))
-                .flatMap(receiveMessageResponse -> Mono.justOrEmpty(getFirstListElement(receiveMessageResponse.messages())))
-                .map(message -> new SqsMessageWrapper<>(message,
-                        jsonUtils.convertJsonStringToObject(message.body(),
-                                messageContentClass)))
+        return sqsReceiveEngine.receiveOne(queueName)
+                .filterWhen(message -> isToProcess(queueName, message))
+                .flatMap(message -> sqsClaimCheck.checkOut(message, messageContentClass)
+                        .map(messageContent -> new SqsMessageWrapper<>(message, messageContent)))
                 .onErrorResume(throwable -> {
                     log.error(throwable.getMessage(), throwable);
                     return Mono.error(new SqsClientException(queueName));
@@ -126,45 +157,34 @@ public class SqsServiceImpl implements SqsService {
 
     @Override
     public <T> Flux<SqsMessageWrapper<T>> getMessages(String queueName, Class<T> messageContentClass) {
-
-        AtomicInteger actualMessages = new AtomicInteger();
-        AtomicBoolean listIsEmpty = new AtomicBoolean();
-        listIsEmpty.set(false);
-
-        BooleanSupplier condition = () -> (actualMessages.get() <= maxMessages && !listIsEmpty.get());
-
-        return getQueueUrlFromName(queueName).flatMap(queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.receiveMessage(builder -> builder.queueUrl(
-                        queueUrl))))
-                .flatMap(receiveMessageResponse ->
-                        {
-                            var messages = receiveMessageResponse.messages();
-                            if (messages.isEmpty())
-                                listIsEmpty.set(true);
-                            return Mono.justOrEmpty(messages);
-                        }
-                )
-                .flatMapMany(Flux::fromIterable)
-                .map(message ->
-                {
-                    actualMessages.incrementAndGet();
-                    return new SqsMessageWrapper<>(message,
-                            jsonUtils.convertJsonStringToObject(message.body(),
-                                    messageContentClass));
-                })
+        return sqsReceiveEngine.receive(queueName, maxMessages)
+                .filterWhen(message -> isToProcess(queueName, message))
+                .flatMapSequential(message -> sqsClaimCheck.checkOut(message, messageContentClass)
+                        .map(messageContent -> new SqsMessageWrapper<>(message, messageContent)))
                 .onErrorResume(throwable -> {
                     log.error(throwable.getMessage(), throwable);
                     return Mono.error(new SqsClientException(queueName));
-                })
-                .repeat(condition);
+                });
     }
 
     @Override
     public Mono<DeleteMessageResponse> deleteMessageFromQueue(final Message message, final String queueName) {
-        return getQueueUrlFromName(queueName).doOnSuccess(queueUrl -> log.debug("Delete message with id {} from {} queue",
-                        message.messageId(),
-                        queueName))
-                .flatMap(queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.deleteMessage(builder -> builder.queueUrl(
-                        queueUrl).receiptHandle(message.receiptHandle()))))
+        log.debug("Delete message with id {} from {} queue", message.messageId(), queueName);
+        sqsMessageDeduplicator.markCompleted(queueName, message.messageId(), message.body());
+        if (sqsAckCoalescer.isEnabled()) {
+            return sqsConsumerMetrics.timeAcknowledgment(queueName, sqsAckCoalescer.acknowledge(queueName, message.receiptHandle()))
+                    .doOnSuccess(deleteMessageResponse -> sqsClaimCheck.release(message))
+                    .onErrorResume(throwable -> {
+                        log.error(throwable.getMessage(), throwable);
+                        return Mono.error(new SqsClientException(queueName));
+                    });
+        }
+        return sqsConsumerMetrics.timeAcknowledgment(queueName,
+                                                     sqsQueueUrlRegistry.withQueueUrl(queueName,
+                                                                                      queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.deleteMessage(
+                                                                                              builder -> builder.queueUrl(queueUrl)
+                                                                                                                .receiptHandle(message.receiptHandle())))))
+                .doOnSuccess(deleteMessageResponse -> sqsClaimCheck.release(message))
                 .onErrorResume(throwable -> {
                     log.error(throwable.getMessage(), throwable);
                     return Mono.error(new SqsClientException(queueName));
@@ -173,48 +193,38 @@ public class SqsServiceImpl implements SqsService {
 
     @Override
     public Mono<String> getQueueUrlFromName(final String queueName) {
-        return Mono.fromCompletionStage(sqsAsyncClient.getQueueUrl(builder -> builder.queueName(queueName)))
-                .map(GetQueueUrlResponse::queueUrl);
+        return sqsQueueUrlRegistry.getQueueUrl(queueName);
     }
 
-    private boolean isLarge(SendMessageRequest sendMessageRequest) {
-        int msgAttributesSize = getMsgAttributesSize(sendMessageRequest.messageAttributes());
-        long msgBodySize = getStringSizeInBytes(sendMessageRequest.messageBody());
-        long totalMsgSize = msgAttributesSize + msgBodySize;
-        return (totalMsgSize > sqsQueueMaxMessageSize);
+    // The redeliveries of already completed messages are deleted again without being handed to the caller
+    private Mono<Boolean> isToProcess(final String queueName, final Message message) {
+        if (!sqsMessageDeduplicator.isCompleted(queueName, message.messageId(), message.body())) {
+            return Mono.just(true);
+        }
+        return deleteMessageFromQueue(message, queueName).thenReturn(false).onErrorReturn(false);
     }
 
-    private int getMsgAttributesSize(Map<String, MessageAttributeValue> msgAttributes) {
-        int totalMsgAttributesSize = 0;
-        for (Map.Entry<String, MessageAttributeValue> entry : msgAttributes.entrySet()) {
-            totalMsgAttributesSize += getStringSizeInBytes(entry.getKey());
-
-            MessageAttributeValue entryVal = entry.getValue();
-            if (entryVal.dataType() != null) {
-                totalMsgAttributesSize += getStringSizeInBytes(entryVal.dataType());
-            }
-
-            String stringVal = entryVal.stringValue();
-            if (stringVal != null) {
-                totalMsgAttributesSize += getStringSizeInBytes(entryVal.stringValue());
-            }
-
-            SdkBytes binaryVal = entryVal.binaryValue();
-            if (binaryVal != null) {
-                totalMsgAttributesSize += binaryVal.asByteArray().length;
-            }
+    // The payload of the queues with the codec or the claim check is serialized once, to be encoded, measured and stored
+    private <T> Mono<SqsMessageContent> messageContent(final String queueName, final T queuePayload) {
+        if (sqsPayloadCodec.isEnabled(queueName) || sqsClaimCheck.isEnabled(queueName)) {
+            return Mono.fromCallable(() -> sqsPayloadSerializer.serialize(queuePayload, sqsPayloadCodec.objectMapper(queueName), (buffer, length) -> {
+                        var messageContent = sqsPayloadCodec.encode(queueName, buffer, length);
+                        if (sqsClaimCheck.isEnabled(queueName) && messageContent.sizeInBytes() > sqsQueueMaxMessageSize) {
+                            return jsonPayload(queueName, queuePayload, buffer, length)
+                                    .flatMap(jsonPayload -> sqsClaimCheck.checkIn(queueName, jsonPayload, jsonPayload.length));
+                        } else return Mono.just(messageContent);
+                    }))
+                    .flatMap(Function.identity());
         }
-        return totalMsgAttributesSize;
+        return Mono.fromCallable(() -> new SqsMessageContent(objectMapper.writeValueAsString(queuePayload), Map.of()));
     }
 
-    @SneakyThrows(IOException.class)
-    public static long getStringSizeInBytes(String str) {
-        CountingOutputStream counterOutputStream = new CountingOutputStream(new ByteArrayOutputStream());
-        Writer writer = new OutputStreamWriter(counterOutputStream, StandardCharsets.UTF_8);
-        writer.write(str);
-        writer.flush();
-        writer.close();
-        return counterOutputStream.getCount();
+    // The payloads stored in S3 are always JSON, a binary payload is serialized again only in this case
+    private <T> Mono<byte[]> jsonPayload(final String queueName, final T queuePayload, final byte[] buffer, final int length) {
+        if (sqsPayloadCodec.isSmile(queueName)) {
+            return Mono.fromCallable(() -> objectMapper.writeValueAsBytes(queuePayload));
+        }
+        return Mono.just(Arrays.copyOf(buffer, length));
     }
 
     @SneakyThrows
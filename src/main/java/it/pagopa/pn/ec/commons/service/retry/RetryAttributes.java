@@ -0,0 +1,42 @@
+package it.pagopa.pn.ec.commons.service.retry;
+
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Retry bookkeeping carried by the message attributes of an error queue message. A message without them, i.e. just
+ * published on the error queue, is at its first step and its last attempt is the time it was sent.
+ */
+public record RetryAttributes(int retryStep, Instant lastRetryTimestamp, Instant nextRetryTimestamp) {
+
+    public static final String RETRY_STEP = "retryStep";
+    public static final String LAST_RETRY_TIMESTAMP = "lastRetryTimestamp";
+    public static final String NEXT_RETRY_TIMESTAMP = "nextRetryTimestamp";
+    private static final String SENT_TIMESTAMP = "SentTimestamp";
+    private static final String NUMBER = "Number";
+
+    public static RetryAttributes fromMessage(final Message message) {
+        var messageAttributes = message.messageAttributes();
+        if (messageAttributes.containsKey(RETRY_STEP) && messageAttributes.containsKey(LAST_RETRY_TIMESTAMP)) {
+            var nextRetryTimestamp = messageAttributes.get(NEXT_RETRY_TIMESTAMP);
+            return new RetryAttributes(Integer.parseInt(messageAttributes.get(RETRY_STEP).stringValue()),
+                                       Instant.ofEpochMilli(Long.parseLong(messageAttributes.get(LAST_RETRY_TIMESTAMP).stringValue())),
+                                       nextRetryTimestamp == null ? null : Instant.ofEpochMilli(Long.parseLong(nextRetryTimestamp.stringValue())));
+        }
+        var sentTimestamp = message.attributesAsStrings().get(SENT_TIMESTAMP);
+        return new RetryAttributes(0, sentTimestamp == null ? Instant.now() : Instant.ofEpochMilli(Long.parseLong(sentTimestamp)), null);
+    }
+
+    public Map<String, MessageAttributeValue> toMessageAttributes() {
+        return Map.of(RETRY_STEP, number(retryStep),
+                      LAST_RETRY_TIMESTAMP, number(lastRetryTimestamp.toEpochMilli()),
+                      NEXT_RETRY_TIMESTAMP, number(nextRetryTimestamp.toEpochMilli()));
+    }
+
+    private static MessageAttributeValue number(final long value) {
+        return MessageAttributeValue.builder().dataType(NUMBER).stringValue(String.valueOf(value)).build();
+    }
+}
@@ -0,0 +1,316 @@
+package it.pagopa.pn.ec.commons.service.retry;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.retry.RetryEngineProperties;
+import it.pagopa.pn.ec.commons.model.pojo.request.PresaInCaricoInfo;
+import it.pagopa.pn.ec.commons.policy.RetryPolicyRegistry;
+import it.pagopa.pn.ec.commons.rest.call.RestCallException;
+import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
+import it.pagopa.pn.ec.commons.service.sqs.SqsMessageGroupIdStrategy;
+import it.pagopa.pn.ec.commons.service.sqs.SqsQueueUrlRegistry;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
+import it.pagopa.pn.ec.rest.v1.dto.RequestDto;
+import it.pagopa.pn.ec.rest.v1.dto.RetryDto;
+import lombok.CustomLog;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+import static it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics.APPROXIMATE_RECEIVE_COUNT;
+
+/**
+ * Consumes an error queue continuously, processing up to {@code maxInFlight} messages in parallel, and lets every
+ * message show up only when the next retry of its request is due. A message that is not due yet, or whose retry attempt
+ * failed or raised an error, is parked by moving its visibility timeout forward to the due time, so it is not received again by any
+ * instance until then. Being in the queue, a parked message survives restarts and is never lost. Since every park is
+ * followed by a receive counting towards the maxReceiveCount of the queue, a message close to it is requeued as a new
+ * message instead, which would otherwise end up in the DLQ just by waiting.
+ * <p>
+ * A message whose retry data can't be read is left invisible until its visibility timeout expires, instead of being
+ * treated as due.
+ * <p>
+ * With the stateless bookkeeping the retry step and the attempt times travel in the {@link RetryAttributes} of the message
+ * instead of the retry data of the request: a failed attempt publishes a copy of the message with the next step and deletes
+ * the original one, so the request is updated only when its status changes.
+ */
+@Component
+@CustomLog
+public class RetryEngine {
+
+    private static final String TO_DELETE_STATUS = "toDelete";
+
+    private final SqsAsyncClient sqsAsyncClient;
+    private final SqsQueueUrlRegistry sqsQueueUrlRegistry;
+    private final SqsReactiveConsumer sqsReactiveConsumer;
+    private final SqsMessageGroupIdStrategy sqsMessageGroupIdStrategy;
+    private final GestoreRepositoryCall gestoreRepositoryCall;
+    private final RetryPolicyRegistry retryPolicyRegistry;
+    private final RetryEngineProperties retryEngineProperties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, RetryCounters> queueCounters = new ConcurrentHashMap<>();
+
+    public RetryEngine(SqsAsyncClient sqsAsyncClient, SqsQueueUrlRegistry sqsQueueUrlRegistry, SqsReactiveConsumer sqsReactiveConsumer,
+                       SqsMessageGroupIdStrategy sqsMessageGroupIdStrategy, GestoreRepositoryCall gestoreRepositoryCall,
+                       RetryPolicyRegistry retryPolicyRegistry, RetryEngineProperties retryEngineProperties, MeterRegistry meterRegistry) {
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.sqsQueueUrlRegistry = sqsQueueUrlRegistry;
+        this.sqsReactiveConsumer = sqsReactiveConsumer;
+        this.sqsMessageGroupIdStrategy = sqsMessageGroupIdStrategy;
+        this.gestoreRepositoryCall = gestoreRepositoryCall;
+        this.retryPolicyRegistry = retryPolicyRegistry;
+        this.retryEngineProperties = retryEngineProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(retryEngineProperties.enabled());
+    }
+
+    public boolean isStatelessBookkeeping() {
+        return isEnabled() && Boolean.TRUE.equals(retryEngineProperties.statelessBookkeeping());
+    }
+
+    /**
+     * Starts consuming the error queue. The retry handler is invoked only for the messages that are due and must delete
+     * the message when the request doesn't need any further attempt, otherwise the message is parked until the next one.
+     */
+    public <T extends PresaInCaricoInfo> void consume(final String queueName, final String channel, final Class<T> messageContentClass,
+                                                      final BiFunction<T, Message, Mono<?>> retryHandler) {
+        if (!isEnabled()) {
+            return;
+        }
+        var counters = queueCounters.computeIfAbsent(queueName, this::retryCounters);
+
+        sqsReactiveConsumer.consumeMessages(queueName,
+                                            messageContentClass,
+                                            (presaInCaricoInfo, message) -> dueAt(queueName,
+                                                                                  channel,
+                                                                                  presaInCaricoInfo,
+                                                                                  message).flatMap(dueAt -> {
+                                                if (dueAt.isAfter(Instant.now())) {
+                                                    return postpone(queueName, presaInCaricoInfo, message, dueAt);
+                                                }
+                                                counters.retried().increment();
+                                                return retryHandler.apply(presaInCaricoInfo, message)
+                                                                   .hasElement()
+                                                                   // A failing retry handler is a failed attempt too
+                                                                   .onErrorResume(throwable -> {
+                                                                       log.warn("Retry of message {} from {} queue failed : {}",
+                                                                                message.messageId(),
+                                                                                queueName,
+                                                                                throwable.getMessage());
+                                                                       return Mono.just(false);
+                                                                   })
+                                                                   // The message is still in the queue, the attempt failed
+                                                                   .filter(deleted -> !deleted)
+                                                                   .flatMap(notDeleted -> rescheduleFailedAttempt(queueName,
+                                                                                                                  channel,
+                                                                                                                  presaInCaricoInfo,
+                                                                                                                  message));
+                                            }),
+                                            retryEngineProperties.maxInFlight());
+    }
+
+    /**
+     * Returns when the next retry is due: the last attempt plus the delay of the current step of the retry policy. A request
+     * without retry data, or whose policy is exhausted, is due immediately so that the retry handler can take care of it.
+     */
+    public static Instant nextAttemptAt(final RetryDto retryDto) {
+        if (retryDto == null || retryDto.getLastRetryTimestamp() == null || retryDto.getRetryStep() == null) {
+            return Instant.now();
+        }
+        var lastAttempt = retryDto.getLastRetryTimestamp().toInstant();
+        var retryPolicy = retryDto.getRetryPolicy();
+        int step = retryDto.getRetryStep().intValue();
+        if (retryPolicy == null || step >= retryPolicy.size()) {
+            return lastAttempt;
+        }
+        return lastAttempt.plus(retryPolicy.get(step).longValue(), ChronoUnit.MINUTES);
+    }
+
+    /**
+     * With the stateless bookkeeping, reads the request being retried and sets on it the retry data of the attempt being
+     * made on the message, built from its attributes as the retry data of the request would be after being updated for the
+     * attempt. The request itself is not updated. Empty when the request is in the toDelete status.
+     */
+    public Mono<RequestDto> attemptRetry(final String channel, final String clientId, final String requestIdx, final Message message) {
+        return gestoreRepositoryCall.getRichiesta(clientId, requestIdx)
+                                    .filter(requestDto -> !Objects.equals(requestDto.getStatusRequest(), TO_DELETE_STATUS))
+                                    .doOnNext(requestDto -> requestDto.getRequestMetadata().setRetry(attemptRetryDto(channel, clientId, message)));
+    }
+
+    private RetryDto attemptRetryDto(final String channel, final String clientId, final Message message) {
+        var retryAttributes = RetryAttributes.fromMessage(message);
+        var retryDto = new RetryDto();
+        retryDto.setRetryPolicy(retryPolicyRegistry.getRetryPolicy(channel, clientId));
+        retryDto.setRetryStep(BigDecimal.valueOf(retryAttributes.retryStep() + 1L));
+        retryDto.setLastRetryTimestamp(OffsetDateTime.now());
+        return retryDto;
+    }
+
+    private Mono<Instant> dueAt(final String queueName, final String channel, final PresaInCaricoInfo presaInCaricoInfo,
+                                final Message message) {
+        if (!isStatelessBookkeeping()) {
+            return nextAttemptAt(queueName, presaInCaricoInfo, message);
+        }
+        var retryAttributes = RetryAttributes.fromMessage(message);
+        return Mono.just(retryAttributes.nextRetryTimestamp() != null
+                         ? retryAttributes.nextRetryTimestamp()
+                         : retryPolicyRegistry.nextAttemptAt(channel,
+                                                             presaInCaricoInfo.getXPagopaExtchCxId(),
+                                                             retryAttributes.retryStep(),
+                                                             retryAttributes.lastRetryTimestamp()));
+    }
+
+    private Mono<Void> rescheduleFailedAttempt(final String queueName, final String channel, final PresaInCaricoInfo presaInCaricoInfo,
+                                               final Message message) {
+        if (!isStatelessBookkeeping()) {
+            return nextAttemptAt(queueName, presaInCaricoInfo, message).flatMap(nextDueAt -> postpone(queueName,
+                                                                                                        presaInCaricoInfo,
+                                                                                                        message,
+                                                                                                        nextDueAt));
+        }
+        var now = Instant.now();
+        int nextRetryStep = RetryAttributes.fromMessage(message).retryStep() + 1;
+        var nextRetryAttributes = new RetryAttributes(nextRetryStep,
+                                                      now,
+                                                      retryPolicyRegistry.nextAttemptAt(channel,
+                                                                                        presaInCaricoInfo.getXPagopaExtchCxId(),
+                                                                                        nextRetryStep,
+                                                                                        now));
+        return requeue(queueName, presaInCaricoInfo, message, nextRetryAttributes.toMessageAttributes());
+    }
+
+    /**
+     * Hides the message until it is due. The message is parked while its receives stay below the maxReceiveCount of the
+     * queue with a margin of one receive, otherwise it is requeued: the copy starts again from zero receives and is parked
+     * as soon as it shows up.
+     */
+    private Mono<Void> postpone(final String queueName, final PresaInCaricoInfo presaInCaricoInfo, final Message message,
+                                final Instant dueAt) {
+        var counters = queueCounters.get(queueName);
+        if (approximateReceiveCount(message) < retryEngineProperties.maxReceiveCount() - 1) {
+            counters.parked().increment();
+            return park(queueName, message, dueAt);
+        }
+        counters.requeued().increment();
+        Map<String, MessageAttributeValue> retryAttributes = Map.of();
+        if (isStatelessBookkeeping()) {
+            var messageRetryAttributes = RetryAttributes.fromMessage(message);
+            retryAttributes = new RetryAttributes(messageRetryAttributes.retryStep(),
+                                                  messageRetryAttributes.lastRetryTimestamp(),
+                                                  dueAt).toMessageAttributes();
+        }
+        return requeue(queueName, presaInCaricoInfo, message, retryAttributes);
+    }
+
+    /**
+     * Publishes a copy of the message carrying the given retry attributes, along with the other attributes of the original
+     * message, and deletes the original one. The deduplication id is derived from the original message, so that a copy
+     * published twice because the original one couldn't be deleted is discarded by SQS.
+     */
+    private Mono<Void> requeue(final String queueName, final PresaInCaricoInfo presaInCaricoInfo, final Message message,
+                               final Map<String, MessageAttributeValue> retryAttributes) {
+        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>(message.messageAttributes());
+        messageAttributes.putAll(retryAttributes);
+        return sqsQueueUrlRegistry.withQueueUrl(queueName,
+                                                queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.sendMessage(
+                                                        builder -> builder.queueUrl(queueUrl)
+                                                                          .messageBody(message.body())
+                                                                          .messageGroupId(sqsMessageGroupIdStrategy.messageGroupId(
+                                                                                  queueName,
+                                                                                  presaInCaricoInfo))
+                                                                          .messageDeduplicationId(message.messageId())
+                                                                          .messageAttributes(messageAttributes))))
+                                  .doOnSuccess(response -> log.debug("Message {} from {} queue requeued", message.messageId(), queueName))
+                                  .then(Mono.defer(() -> deleteRequeued(queueName, message)));
+    }
+
+    // Deleted without going through the SqsService, so that the payload stored by the claim check, now referenced by the
+    // copy, is not released
+    private Mono<Void> deleteRequeued(final String queueName, final Message message) {
+        return sqsQueueUrlRegistry.withQueueUrl(queueName,
+                                                queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.deleteMessage(
+                                                        builder -> builder.queueUrl(queueUrl).receiptHandle(message.receiptHandle()))))
+                                  .then();
+    }
+
+    /**
+     * Reads the next attempt from the retry data of the request. When the request can't be read the message is left
+     * invisible until its visibility timeout expires, so that an outage of the repository doesn't make every parked
+     * message due at once.
+     */
+    private Mono<Instant> nextAttemptAt(final String queueName, final PresaInCaricoInfo presaInCaricoInfo, final Message message) {
+        return gestoreRepositoryCall.getRichiesta(presaInCaricoInfo.getXPagopaExtchCxId(), presaInCaricoInfo.getRequestIdx())
+                                    .map(requestDto -> nextAttemptAt(requestDto.getRequestMetadata().getRetry()))
+                                    // Let the retry handler deal with the requests that don't exist
+                                    .onErrorResume(RestCallException.ResourceNotFoundException.class, throwable -> Mono.empty())
+                                    .switchIfEmpty(Mono.fromSupplier(Instant::now))
+                                    .doOnError(throwable -> {
+                                        queueCounters.get(queueName).lookupFailed().increment();
+                                        log.warn("Unable to read the retry data of message {} from {} queue, left invisible : {}",
+                                                 message.messageId(),
+                                                 queueName,
+                                                 throwable.getMessage());
+                                    })
+                                    .onErrorResume(throwable -> Mono.empty());
+    }
+
+    private Mono<Void> park(final String queueName, final Message message, final Instant dueAt) {
+        // Rounded up to the second, so that the message never shows up before it is due
+        long delaySeconds = (Duration.between(Instant.now(), dueAt).toMillis() + 999) / 1000;
+        int visibilityTimeout = (int) Math.max(0, Math.min(delaySeconds, retryEngineProperties.maxParkSeconds()));
+        return sqsQueueUrlRegistry.withQueueUrl(queueName,
+                                                queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.changeMessageVisibility(
+                                                        builder -> builder.queueUrl(queueUrl)
+                                                                          .receiptHandle(message.receiptHandle())
+                                                                          .visibilityTimeout(visibilityTimeout))))
+                                  .doOnSuccess(response -> log.debug("Message {} from {} queue parked for {} seconds",
+                                                                     message.messageId(),
+                                                                     queueName,
+                                                                     visibilityTimeout))
+                                  .doOnError(throwable -> {
+                                      queueCounters.get(queueName).parkFailed().increment();
+                                      log.warn("Unable to park message {} from {} queue, left invisible for its current timeout : {}",
+                                               message.messageId(),
+                                               queueName,
+                                               throwable.getMessage());
+                                  })
+                                  .onErrorResume(throwable -> Mono.empty())
+                                  .then();
+    }
+
+    private static int approximateReceiveCount(final Message message) {
+        var approximateReceiveCount = message.attributesAsStrings().get(APPROXIMATE_RECEIVE_COUNT);
+        return approximateReceiveCount == null ? 0 : Integer.parseInt(approximateReceiveCount);
+    }
+
+    private RetryCounters retryCounters(final String queueName) {
+        return new RetryCounters(retryCounter(queueName, "parked"),
+                                 retryCounter(queueName, "requeued"),
+                                 retryCounter(queueName, "retried"),
+                                 retryCounter(queueName, "lookup.failed"),
+                                 retryCounter(queueName, "park.failed"));
+    }
+
+    private Counter retryCounter(final String queueName, final String outcome) {
+        return Counter.builder("retry.engine.messages").tag("queue", queueName).tag("outcome", outcome).register(meterRegistry);
+    }
+
+    private record RetryCounters(Counter parked, Counter requeued, Counter retried, Counter lookupFailed, Counter parkFailed) {
+    }
+}
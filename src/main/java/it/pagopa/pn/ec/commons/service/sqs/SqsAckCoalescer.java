@@ -0,0 +1,112 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsAckCoalescerProperties;
+import lombok.CustomLog;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageBatchRequestEntry;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Buffers the receipt handles deleted from the same queue and removes them with a single DeleteMessageBatch call,
+ * as soon as the maximum number of entries is reached or the flush timeout expires. The entries rejected by SQS are
+ * retried one by one with DeleteMessage, so every caller gets the outcome of its own message.
+ */
+@Component
+@CustomLog
+public class SqsAckCoalescer {
+
+    private final SqsAsyncClient sqsAsyncClient;
+    private final SqsQueueUrlRegistry sqsQueueUrlRegistry;
+    private final SqsAckCoalescerProperties sqsAckCoalescerProperties;
+    private final Map<String, Sinks.Many<PendingAck>> pipelines = new ConcurrentHashMap<>();
+    private final AtomicLong entrySequence = new AtomicLong();
+
+    private record PendingAck(String id, String receiptHandle, Sinks.One<DeleteMessageResponse> result) {}
+
+    public SqsAckCoalescer(SqsAsyncClient sqsAsyncClient, SqsQueueUrlRegistry sqsQueueUrlRegistry,
+                           SqsAckCoalescerProperties sqsAckCoalescerProperties) {
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.sqsQueueUrlRegistry = sqsQueueUrlRegistry;
+        this.sqsAckCoalescerProperties = sqsAckCoalescerProperties;
+    }
+
+    public boolean isEnabled() {
+        return Boolean.TRUE.equals(sqsAckCoalescerProperties.enabled());
+    }
+
+    public Mono<DeleteMessageResponse> acknowledge(final String queueName, final String receiptHandle) {
+        return Mono.defer(() -> {
+            var pendingAck = new PendingAck(String.valueOf(entrySequence.incrementAndGet()), receiptHandle, Sinks.one());
+            pipelines.computeIfAbsent(queueName, this::createPipeline)
+                     .emitNext(pendingAck, (signalType, emitResult) -> emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+            return pendingAck.result().asMono();
+        });
+    }
+
+    private Sinks.Many<PendingAck> createPipeline(final String queueName) {
+        Sinks.Many<PendingAck> sink = Sinks.many().unicast().onBackpressureBuffer();
+        sink.asFlux()
+            .bufferTimeout(sqsAckCoalescerProperties.maxBatchEntries(), Duration.ofMillis(sqsAckCoalescerProperties.flushTimeoutMillis()))
+            .onBackpressureBuffer()
+            .flatMap(batch -> flush(queueName, batch), sqsAckCoalescerProperties.maxConcurrentBatches())
+            .subscribe();
+        return sink;
+    }
+
+    private Mono<Void> flush(final String queueName, final List<PendingAck> batch) {
+        var pendingAcksById = batch.stream().collect(Collectors.toMap(PendingAck::id, Function.identity()));
+        var entries = batch.stream()
+                           .map(pendingAck -> DeleteMessageBatchRequestEntry.builder()
+                                                                            .id(pendingAck.id())
+                                                                            .receiptHandle(pendingAck.receiptHandle())
+                                                                            .build())
+                           .toList();
+        log.debug("Deleting a batch of {} messages from {} queue", entries.size(), queueName);
+        return sqsQueueUrlRegistry.withQueueUrl(queueName,
+                                                queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.deleteMessageBatch(builder -> builder.queueUrl(
+                                                        queueUrl).entries(entries))))
+                                  .flatMapMany(deleteMessageBatchResponse -> {
+                                      deleteMessageBatchResponse.successful()
+                                                                .forEach(resultEntry -> pendingAcksById.remove(resultEntry.id())
+                                                                                                       .result()
+                                                                                                       .tryEmitValue(DeleteMessageResponse.builder()
+                                                                                                                                          .build()));
+                                      deleteMessageBatchResponse.failed()
+                                                                .forEach(errorEntry -> log.warn(
+                                                                        "Batch delete of entry {} from {} queue failed with code {} : {}",
+                                                                        errorEntry.id(),
+                                                                        queueName,
+                                                                        errorEntry.code(),
+                                                                        errorEntry.message()));
+                                      return Flux.fromIterable(List.copyOf(pendingAcksById.values()));
+                                  })
+                                  .onErrorResume(throwable -> {
+                                      log.warn("Error on sqs batch delete, deleting the messages one by one : {}", throwable.getMessage());
+                                      return Flux.fromIterable(List.copyOf(pendingAcksById.values()));
+                                  })
+                                  .flatMap(pendingAck -> deleteSingleMessage(queueName, pendingAck))
+                                  .then();
+    }
+
+    private Mono<Void> deleteSingleMessage(final String queueName, final PendingAck pendingAck) {
+        return sqsQueueUrlRegistry.withQueueUrl(queueName,
+                                                queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.deleteMessage(builder -> builder.queueUrl(
+                                                        queueUrl).receiptHandle(pendingAck.receiptHandle()))))
+                                  .doOnNext(deleteMessageResponse -> pendingAck.result().tryEmitValue(deleteMessageResponse))
+                                  .doOnError(throwable -> pendingAck.result().tryEmitError(throwable))
+                                  .onErrorResume(throwable -> Mono.empty())
+                                  .then();
+    }
+}
@@ -0,0 +1,155 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchPublisherProperties;
+import it.pagopa.pn.ec.commons.exception.sqs.SqsBatchEntryFailedException;
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsMessageContent;
+import lombok.CustomLog;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.*;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Groups the messages published on the same queue within a short linger window into a single SendMessageBatch call.
+ * A batch is closed when it reaches the maximum number of entries or when the linger window expires, and it is
+ * further split so that no request exceeds the maximum batch size in bytes. Every caller gets its own
+ * {@link SendMessageResponse}, or the error of its own entry when the batch is partially rejected.
+ */
+@Component
+@CustomLog
+public class SqsBatchPublisher {
+
+    private final SqsAsyncClient sqsAsyncClient;
+    private final SqsQueueUrlRegistry sqsQueueUrlRegistry;
+    private final SqsBatchPublisherProperties sqsBatchPublisherProperties;
+    private final Set<String> batchedQueueNames;
+    private final Map<String, Sinks.Many<PendingEntry>> pipelines = new ConcurrentHashMap<>();
+    private final AtomicLong entrySequence = new AtomicLong();
+
+    private record PendingEntry(SendMessageBatchRequestEntry entry, long sizeInBytes, Sinks.One<SendMessageResponse> result) {}
+
+    public SqsBatchPublisher(SqsAsyncClient sqsAsyncClient, SqsQueueUrlRegistry sqsQueueUrlRegistry,
+                             SqsBatchPublisherProperties sqsBatchPublisherProperties) {
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.sqsQueueUrlRegistry = sqsQueueUrlRegistry;
+        this.sqsBatchPublisherProperties = sqsBatchPublisherProperties;
+        this.batchedQueueNames = Boolean.TRUE.equals(sqsBatchPublisherProperties.enabled()) && sqsBatchPublisherProperties.queueNames() != null
+                                 ? Set.copyOf(sqsBatchPublisherProperties.queueNames())
+                                 : Set.of();
+    }
+
+    public boolean isBatched(final String queueName) {
+        return batchedQueueNames.contains(queueName);
+    }
+
+    public Mono<SendMessageResponse> publish(final String queueName, final String messageBody, final String messageGroupId,
+                                             final Integer delaySeconds) {
+        return publish(queueName, messageBody, messageGroupId, delaySeconds, Map.of());
+    }
+
+    public Mono<SendMessageResponse> publish(final String queueName, final String messageBody, final String messageGroupId,
+                                             final Integer delaySeconds, final Map<String, MessageAttributeValue> messageAttributes) {
+        return Mono.defer(() -> {
+            var entry = SendMessageBatchRequestEntry.builder()
+                                                    .id(String.valueOf(entrySequence.incrementAndGet()))
+                                                    .messageBody(messageBody)
+                                                    .messageGroupId(messageGroupId)
+                                                    .delaySeconds(delaySeconds)
+                                                    .messageAttributes(messageAttributes)
+                                                    .build();
+            var pendingEntry = new PendingEntry(entry, new SqsMessageContent(messageBody, messageAttributes).sizeInBytes(), Sinks.one());
+            pipelines.computeIfAbsent(queueName, this::createPipeline)
+                     .emitNext(pendingEntry, (signalType, emitResult) -> emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+            return pendingEntry.result().asMono();
+        });
+    }
+
+    private Sinks.Many<PendingEntry> createPipeline(final String queueName) {
+        Sinks.Many<PendingEntry> sink = Sinks.many().unicast().onBackpressureBuffer();
+        sink.asFlux()
+            .bufferTimeout(sqsBatchPublisherProperties.maxBatchEntries(), Duration.ofMillis(sqsBatchPublisherProperties.lingerMillis()))
+            .onBackpressureBuffer()
+            .flatMapIterable(this::splitBySize)
+            .flatMap(batch -> sendBatch(queueName, batch), sqsBatchPublisherProperties.maxConcurrentBatches())
+            .subscribe();
+        return sink;
+    }
+
+    private List<List<PendingEntry>> splitBySize(final List<PendingEntry> pendingEntries) {
+        List<List<PendingEntry>> batches = new ArrayList<>();
+        List<PendingEntry> currentBatch = new ArrayList<>();
+        long currentBatchSize = 0;
+        for (PendingEntry pendingEntry : pendingEntries) {
+            if (!currentBatch.isEmpty() && currentBatchSize + pendingEntry.sizeInBytes() > sqsBatchPublisherProperties.maxBatchBytes()) {
+                batches.add(currentBatch);
+                currentBatch = new ArrayList<>();
+                currentBatchSize = 0;
+            }
+            currentBatch.add(pendingEntry);
+            currentBatchSize += pendingEntry.sizeInBytes();
+        }
+        if (!currentBatch.isEmpty()) {
+            batches.add(currentBatch);
+        }
+        return batches;
+    }
+
+    private Mono<Void> sendBatch(final String queueName, final List<PendingEntry> batch) {
+        var pendingEntriesById = batch.stream().collect(Collectors.toMap(pendingEntry -> pendingEntry.entry().id(), Function.identity()));
+        var entries = batch.stream().map(PendingEntry::entry).toList();
+        log.debug("Sending a batch of {} messages to {} queue", entries.size(), queueName);
+        return sqsQueueUrlRegistry.withQueueUrl(queueName,
+                                                queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.sendMessageBatch(builder -> builder.queueUrl(
+                                                        queueUrl).entries(entries))))
+                                  .doOnNext(sendMessageBatchResponse -> {
+                                      sendMessageBatchResponse.successful()
+                                                              .forEach(resultEntry -> pendingEntriesById.remove(resultEntry.id())
+                                                                                                        .result()
+                                                                                                        .tryEmitValue(toSendMessageResponse(
+                                                                                                                resultEntry)));
+                                      sendMessageBatchResponse.failed().forEach(errorEntry -> {
+                                          log.warn("Batch entry {} rejected by {} queue with code {} : {}",
+                                                   errorEntry.id(),
+                                                   queueName,
+                                                   errorEntry.code(),
+                                                   errorEntry.message());
+                                          pendingEntriesById.remove(errorEntry.id())
+                                                            .result()
+                                                            .tryEmitError(new SqsBatchEntryFailedException(queueName,
+                                                                                                           errorEntry.code(),
+                                                                                                           errorEntry.message()));
+                                      });
+                                  })
+                                  .doOnError(throwable -> log.error("Error on sqs batch publish : {}", throwable.getMessage(), throwable))
+                                  .onErrorResume(throwable -> {
+                                      pendingEntriesById.values().forEach(pendingEntry -> pendingEntry.result().tryEmitError(throwable));
+                                      pendingEntriesById.clear();
+                                      return Mono.empty();
+                                  })
+                                  // Entries neither successful nor failed shouldn't exist, but their callers must not hang
+                                  .doFinally(signalType -> pendingEntriesById.values()
+                                                                             .forEach(pendingEntry -> pendingEntry.result()
+                                                                                                                  .tryEmitError(new SqsBatchEntryFailedException(
+                                                                                                                          queueName,
+                                                                                                                          "MissingResult",
+                                                                                                                          "no result returned for the entry"))))
+                                  .then();
+    }
+
+    private static SendMessageResponse toSendMessageResponse(final SendMessageBatchResultEntry resultEntry) {
+        return SendMessageResponse.builder()
+                                  .messageId(resultEntry.messageId())
+                                  .md5OfMessageBody(resultEntry.md5OfMessageBody())
+                                  .md5OfMessageAttributes(resultEntry.md5OfMessageAttributes())
+                                  .sequenceNumber(resultEntry.sequenceNumber())
+                                  .build();
+    }
+}
@@ -0,0 +1,138 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsClaimCheckProperties;
+import it.pagopa.pn.ec.commons.model.pojo.s3.S3Pointer;
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsMessageContent;
+import it.pagopa.pn.ec.commons.service.S3Service;
+import it.pagopa.pn.ec.commons.utils.JsonUtils;
+import lombok.CustomLog;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Claim check of the queues listed in the configuration: a payload that doesn't fit in a message is stored in the bucket
+ * and the message carries only an {@link S3Pointer} to it, marked by the {@value #CLAIM_CHECK_KEY} attribute. The payload
+ * is serialized once by the {@link SqsPayloadSerializer}, the same bytes being measured and stored, and on the consumer
+ * side it is parsed while it is downloaded. The objects of the deleted messages are removed in the background with batched DeleteObjects calls.
+ */
+@Component
+@CustomLog
+public class SqsClaimCheck {
+
+    public static final String CLAIM_CHECK_KEY = "claimCheckKey";
+    private static final String STRING = "String";
+
+    private final S3Service s3Service;
+    private final ObjectMapper objectMapper;
+    private final JsonUtils jsonUtils;
+    private final SqsPayloadCodec sqsPayloadCodec;
+    private final SqsClaimCheckProperties sqsClaimCheckProperties;
+    private final Sinks.Many<String> releasedKeys = Sinks.many().unicast().onBackpressureBuffer();
+    private Disposable releaser;
+
+    public SqsClaimCheck(S3Service s3Service, ObjectMapper objectMapper, JsonUtils jsonUtils, SqsPayloadCodec sqsPayloadCodec,
+                         SqsClaimCheckProperties sqsClaimCheckProperties) {
+        this.s3Service = s3Service;
+        this.objectMapper = objectMapper;
+        this.jsonUtils = jsonUtils;
+        this.sqsPayloadCodec = sqsPayloadCodec;
+        this.sqsClaimCheckProperties = sqsClaimCheckProperties;
+    }
+
+    @PostConstruct
+    public void startReleaser() {
+        var bucketName = sqsClaimCheckProperties.bucketName();
+        releaser = releasedKeys.asFlux()
+                               .bufferTimeout(sqsClaimCheckProperties.deleteBatchSize(),
+                                              Duration.ofMillis(sqsClaimCheckProperties.deleteLingerMillis()))
+                               .concatMap(keys -> s3Service.deleteObjects(keys, bucketName)
+                                                           // A leftover object is only wasted space, the bucket lifecycle takes care of it
+                                                           .onErrorResume(throwable -> Mono.empty()))
+                               .subscribe();
+    }
+
+    @PreDestroy
+    public void stopReleaser() {
+        releasedKeys.tryEmitComplete();
+        if (releaser != null) {
+            releaser.dispose();
+        }
+    }
+
+    public boolean isEnabled(final String queueName) {
+        return sqsClaimCheckProperties.queueNames() != null && sqsClaimCheckProperties.queueNames().contains(queueName);
+    }
+
+    /**
+     * Returns the content of the message carrying the JSON payload serialized in the first {@code length} bytes of the buffer,
+     * storing the payload in the bucket when it is larger than the maximum message size. The buffer is not referenced
+     * after this method returns.
+     */
+    public Mono<SqsMessageContent> checkIn(final String queueName, final byte[] buffer, final int length) {
+        if (length <= sqsClaimCheckProperties.maxMessageSize()) {
+            return Mono.just(new SqsMessageContent(new String(buffer, 0, length, StandardCharsets.UTF_8), Map.of()));
+        }
+        var key = queueName + "/" + UUID.randomUUID();
+        log.debug("Payload of {} bytes for {} queue stored with key {}", length, queueName, key);
+        return s3Service.putObject(key, sqsClaimCheckProperties.bucketName(), Arrays.copyOf(buffer, length))
+                        .map(fileKey -> new SqsMessageContent(writePointer(fileKey),
+                                                           Map.of(CLAIM_CHECK_KEY,
+                                                                  MessageAttributeValue.builder()
+                                                                                       .dataType(STRING)
+                                                                                       .stringValue(fileKey)
+                                                                                       .build())));
+    }
+
+    /**
+     * Parses the payload of the message, decoding it when it has been encoded by the {@link SqsPayloadCodec} and reading
+     * it from the bucket when the message carries a pointer to it. Nothing is downloaded until the returned Mono is
+     * subscribed.
+     */
+    public <T> Mono<T> checkOut(final Message message, final Class<T> messageContentClass) {
+        var key = claimCheckKey(message);
+        if (key == null && SqsPayloadCodec.isEncoded(message)) {
+            return Mono.fromCallable(() -> sqsPayloadCodec.decode(message, messageContentClass));
+        }
+        if (key == null) {
+            return Mono.fromCallable(() -> jsonUtils.convertJsonStringToObject(message.body(), messageContentClass));
+        }
+        return s3Service.getObjectStreamAndConvert(key, sqsClaimCheckProperties.bucketName(), messageContentClass);
+    }
+
+    /**
+     * Schedules the deletion of the payload stored for the message, to be called once the message has been deleted.
+     */
+    public void release(final Message message) {
+        var key = claimCheckKey(message);
+        if (key != null) {
+            releasedKeys.emitNext(key, (signalType, emitResult) -> emitResult == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+        }
+    }
+
+    public static String claimCheckKey(final Message message) {
+        var attribute = message.messageAttributes().get(CLAIM_CHECK_KEY);
+        return attribute == null ? null : attribute.stringValue();
+    }
+
+    private String writePointer(final String fileKey) {
+        try {
+            return objectMapper.writeValueAsString(new S3Pointer(fileKey));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
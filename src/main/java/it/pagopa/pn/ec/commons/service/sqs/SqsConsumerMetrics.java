@@ -0,0 +1,144 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import io.awspring.cloud.messaging.listener.Acknowledgment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Consumer side metrics of the queues, all tagged by queue:
+ * <ul>
+ *     <li>{@code sqs.consumer.dwell.time}, the time a message waited in the queue, from its SentTimestamp to its receive</li>
+ *     <li>{@code sqs.consumer.receive.count} and {@code sqs.consumer.redeliveries}, the ApproximateReceiveCount of the
+ *     received messages and the number of them received more than once</li>
+ *     <li>{@code sqs.consumer.processing.time}, the processing time of a message, tagged by outcome</li>
+ *     <li>{@code sqs.consumer.ack.latency}, the time taken to delete a processed message, tagged by outcome</li>
+ * </ul>
+ * The timers publish a percentile histogram, so that the quantiles can be aggregated across the instances. The meters
+ * are registered the first time they are recorded and then kept per queue and outcome.
+ */
+@Component
+public class SqsConsumerMetrics {
+
+    public static final String SENT_TIMESTAMP = "SentTimestamp";
+    public static final String APPROXIMATE_RECEIVE_COUNT = "ApproximateReceiveCount";
+    private static final String QUEUE = "queue";
+    private static final String OUTCOME = "outcome";
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+    private static final String CANCELLED = "cancelled";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<TimerKey, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> receiveCounts = new ConcurrentHashMap<>();
+    private final Map<String, Counter> redeliveries = new ConcurrentHashMap<>();
+
+    public SqsConsumerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void received(final String queueName, final Message message) {
+        var attributes = message.attributesAsStrings();
+        received(queueName, attributes.get(SENT_TIMESTAMP), attributes.get(APPROXIMATE_RECEIVE_COUNT));
+    }
+
+    /**
+     * Same as {@link #received(String, Message)}, with the attributes as received by the listeners. Missing attributes
+     * are not recorded.
+     */
+    public void received(final String queueName, final String sentTimestamp, final String approximateReceiveCount) {
+        if (sentTimestamp != null) {
+            long dwellMillis = System.currentTimeMillis() - Long.parseLong(sentTimestamp);
+            // The clocks of SQS and of the instance may differ slightly
+            timer("sqs.consumer.dwell.time", queueName, null).record(Math.max(dwellMillis, 0), TimeUnit.MILLISECONDS);
+        }
+        if (approximateReceiveCount != null) {
+            int receiveCount = Integer.parseInt(approximateReceiveCount);
+            receiveCounts.computeIfAbsent(queueName,
+                                          name -> DistributionSummary.builder("sqs.consumer.receive.count")
+                                                                     .tag(QUEUE, name)
+                                                                     .register(meterRegistry))
+                         .record(receiveCount);
+            if (receiveCount > 1) {
+                redeliveries.computeIfAbsent(queueName,
+                                             name -> Counter.builder("sqs.consumer.redeliveries").tag(QUEUE, name).register(meterRegistry))
+                            .increment();
+            }
+        }
+    }
+
+    public <T> Mono<T> timeProcessing(final String queueName, final Mono<T> processing) {
+        return time("sqs.consumer.processing.time", queueName, processing);
+    }
+
+    public <T> Mono<T> timeAcknowledgment(final String queueName, final Mono<T> acknowledgment) {
+        return time("sqs.consumer.ack.latency", queueName, acknowledgment);
+    }
+
+    /**
+     * Times the deletions issued through the given acknowledgment. The future returned by the acknowledgment of the
+     * listener container can't be observed without blocking, for it only the time taken to issue the deletion is recorded.
+     */
+    public Acknowledgment timeAcknowledgment(final String queueName, final Acknowledgment acknowledgment) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                var future = acknowledgment.acknowledge();
+                if (future instanceof CompletionStage<?> completionStage) {
+                    completionStage.whenComplete((result, throwable) -> record("sqs.consumer.ack.latency",
+                                                                               queueName,
+                                                                               throwable == null ? SUCCESS : FAILURE,
+                                                                               start));
+                } else {
+                    record("sqs.consumer.ack.latency", queueName, SUCCESS, start);
+                }
+                return future;
+            } catch (RuntimeException e) {
+                record("sqs.consumer.ack.latency", queueName, FAILURE, start);
+                throw e;
+            }
+        };
+    }
+
+    private <T> Mono<T> time(final String name, final String queueName, final Mono<T> mono) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return mono.doFinally(signalType -> record(name, queueName, outcome(signalType), start));
+        });
+    }
+
+    private void record(final String name, final String queueName, final String outcome, final long start) {
+        timer(name, queueName, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer timer(final String name, final String queueName, final String outcome) {
+        return timers.computeIfAbsent(new TimerKey(name, queueName, outcome), timerKey -> {
+            var builder = Timer.builder(name).tag(QUEUE, queueName).publishPercentileHistogram();
+            if (outcome != null) {
+                builder.tag(OUTCOME, outcome);
+            }
+            return builder.register(meterRegistry);
+        });
+    }
+
+    private static String outcome(final SignalType signalType) {
+        return switch (signalType) {
+            case ON_ERROR -> FAILURE;
+            case CANCEL -> CANCELLED;
+            default -> SUCCESS;
+        };
+    }
+
+    private record TimerKey(String name, String queueName, String outcome) {
+    }
+}
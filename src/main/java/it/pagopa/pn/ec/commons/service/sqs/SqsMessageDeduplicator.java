@@ -0,0 +1,106 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.awspring.cloud.messaging.listener.Acknowledgment;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsMessageDeduplicatorProperties;
+import lombok.CustomLog;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers, for every queue, the messages whose processing has been completed within a time window. A message is
+ * considered completed as soon as it's acknowledged, so a redelivery caused by a lost or late delete can be
+ * acknowledged again straight away instead of running the whole processing a second time. Messages are identified by
+ * their SQS MessageId and, for the queues listed in {@code sqs.deduplicator.content-hash-queue-names}, also by the
+ * SHA-256 of their body, which catches the same payload published twice.
+ */
+@Component
+@CustomLog
+public class SqsMessageDeduplicator {
+
+    private static final String HIT = "hit";
+    private static final String MISS = "miss";
+
+    private final SqsMessageDeduplicatorProperties sqsMessageDeduplicatorProperties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Cache<String, Boolean>> completedMessages = new ConcurrentHashMap<>();
+    private final Map<String, LookupCounters> lookupCounters = new ConcurrentHashMap<>();
+
+    public SqsMessageDeduplicator(SqsMessageDeduplicatorProperties sqsMessageDeduplicatorProperties, MeterRegistry meterRegistry) {
+        this.sqsMessageDeduplicatorProperties = sqsMessageDeduplicatorProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public boolean isCompleted(final String queueName, final String messageId, final String messageBody) {
+        if (!isEnabled()) {
+            return false;
+        }
+        var cache = completedMessagesOf(queueName);
+        boolean completed = keys(queueName, messageId, messageBody).stream().anyMatch(key -> cache.getIfPresent(key) != null);
+        var counters = lookupCounters.computeIfAbsent(queueName, this::lookupCounters);
+        (completed ? counters.hits() : counters.misses()).increment();
+        if (completed) {
+            log.debug("Message {} from {} queue has already been processed", messageId, queueName);
+        }
+        return completed;
+    }
+
+    public void markCompleted(final String queueName, final String messageId, final String messageBody) {
+        if (isEnabled()) {
+            var cache = completedMessagesOf(queueName);
+            keys(queueName, messageId, messageBody).forEach(key -> cache.put(key, Boolean.TRUE));
+        }
+    }
+
+    public Acknowledgment trackCompletion(final String queueName, final String messageId, final String messageBody,
+                                          final Acknowledgment acknowledgment) {
+        return () -> {
+            markCompleted(queueName, messageId, messageBody);
+            return acknowledgment.acknowledge();
+        };
+    }
+
+    private boolean isEnabled() {
+        return Boolean.TRUE.equals(sqsMessageDeduplicatorProperties.enabled());
+    }
+
+    private List<String> keys(final String queueName, final String messageId, final String messageBody) {
+        List<String> keys = new ArrayList<>(2);
+        if (messageId != null) {
+            keys.add("id:" + messageId);
+        }
+        var contentHashQueueNames = sqsMessageDeduplicatorProperties.contentHashQueueNames();
+        if (messageBody != null && contentHashQueueNames != null && contentHashQueueNames.contains(queueName)) {
+            keys.add("sha256:" + DigestUtils.sha256Hex(messageBody));
+        }
+        return keys;
+    }
+
+    private Cache<String, Boolean> completedMessagesOf(final String queueName) {
+        return completedMessages.computeIfAbsent(queueName,
+                                                 name -> Caffeine.newBuilder()
+                                                                 .maximumSize(sqsMessageDeduplicatorProperties.maxEntriesPerQueue())
+                                                                 .expireAfterWrite(Duration.ofSeconds(sqsMessageDeduplicatorProperties.windowSeconds()))
+                                                                 .build());
+    }
+
+    private LookupCounters lookupCounters(final String queueName) {
+        return new LookupCounters(lookupCounter(queueName, HIT), lookupCounter(queueName, MISS));
+    }
+
+    private Counter lookupCounter(final String queueName, final String result) {
+        return Counter.builder("sqs.deduplicator.lookups").tag("queue", queueName).tag("result", result).register(meterRegistry);
+    }
+
+    private record LookupCounters(Counter hits, Counter misses) {
+    }
+}
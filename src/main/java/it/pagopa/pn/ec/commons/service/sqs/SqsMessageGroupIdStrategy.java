@@ -0,0 +1,62 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsMessageGroupProperties;
+import it.pagopa.pn.ec.commons.model.pojo.request.PresaInCaricoInfo;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.stereotype.Component;
+
+import static it.pagopa.pn.ec.commons.utils.RequestUtils.concatRequestId;
+
+/**
+ * Chooses the FIFO message group of a message. The messages referring to a request share the group
+ * {@code xPagopaExtchCxId~requestIdx}, so SQS delivers them in the order they were sent, while the messages of different
+ * requests keep being processed in parallel. When a number of shards is configured the request keys are hashed into
+ * that many groups, bounding the number of groups at the cost of ordering unrelated requests of the same shard.
+ * The unsharded queues, i.e. the error queues whose messages are parked by the retry engine until their next attempt,
+ * always use the request groups, since a parked message holds its whole group until it shows up again.
+ * Payloads that don't refer to a request get a random group, as before.
+ */
+@Component
+public class SqsMessageGroupIdStrategy {
+
+    private static final int RANDOM_MESSAGE_GROUP_ID_LENGTH = 64;
+    // Maximum length of the MessageGroupId provided by AWS documentation
+    private static final int MAX_MESSAGE_GROUP_ID_LENGTH = 128;
+
+    private final SqsMessageGroupProperties sqsMessageGroupProperties;
+
+    public SqsMessageGroupIdStrategy(SqsMessageGroupProperties sqsMessageGroupProperties) {
+        this.sqsMessageGroupProperties = sqsMessageGroupProperties;
+    }
+
+    public String messageGroupId(final Object queuePayload) {
+        return messageGroupId(null, queuePayload);
+    }
+
+    public String messageGroupId(final String queueName, final Object queuePayload) {
+        if (Boolean.TRUE.equals(sqsMessageGroupProperties.requestKeyed()) && queuePayload instanceof PresaInCaricoInfo presaInCaricoInfo
+            && presaInCaricoInfo.getXPagopaExtchCxId() != null && presaInCaricoInfo.getRequestIdx() != null) {
+            return requestMessageGroupId(queueName, presaInCaricoInfo.getXPagopaExtchCxId(), presaInCaricoInfo.getRequestIdx());
+        }
+        return RandomStringUtils.randomAlphanumeric(RANDOM_MESSAGE_GROUP_ID_LENGTH);
+    }
+
+    public String requestMessageGroupId(final String xPagopaExtchCxId, final String requestIdx) {
+        return requestMessageGroupId(null, xPagopaExtchCxId, requestIdx);
+    }
+
+    public String requestMessageGroupId(final String queueName, final String xPagopaExtchCxId, final String requestIdx) {
+        var requestKey = concatRequestId(xPagopaExtchCxId, requestIdx);
+        Integer shards = sqsMessageGroupProperties.shards();
+        if (shards != null && shards > 0 && !isUnsharded(queueName)) {
+            return "shard-" + Math.floorMod(requestKey.hashCode(), shards);
+        }
+        return requestKey.length() <= MAX_MESSAGE_GROUP_ID_LENGTH ? requestKey : DigestUtils.sha256Hex(requestKey);
+    }
+
+    private boolean isUnsharded(final String queueName) {
+        var unshardedQueueNames = sqsMessageGroupProperties.unshardedQueueNames();
+        return queueName != null && unshardedQueueNames != null && unshardedQueueNames.contains(queueName);
+    }
+}
@@ -0,0 +1,180 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsPayloadCodecProperties;
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsMessageContent;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes the payloads of the queues listed in the configuration, so that more of them fit in a message and they are
+ * cheaper to parse: the payload can be serialized with Jackson Smile instead of JSON and compressed. An encoded payload
+ * travels raw in the {@value #ENCODED_PAYLOAD} binary attribute, avoiding the base64 overhead a text body would require,
+ * with its format in the {@value #CONTENT_TYPE} attribute and its compression in the {@value #CONTENT_ENCODING} one. The
+ * body holds only these and the digest of the payload, keeping the content based deduplication of the FIFO queues working.
+ * Messages without the attributes are plain JSON, so the producers that don't encode stay compatible.
+ */
+@Component
+public class SqsPayloadCodec {
+
+    public static final String CONTENT_TYPE = "contentType";
+    public static final String CONTENT_ENCODING = "contentEncoding";
+    public static final String ENCODED_PAYLOAD = "encodedPayload";
+    public static final String JSON = "application/json";
+    public static final String SMILE = "application/x-jackson-smile";
+    public static final String IDENTITY = "identity";
+    public static final String GZIP = "gzip";
+    public static final String ZSTD = "zstd";
+    private static final String STRING = "String";
+    private static final String BINARY = "Binary";
+
+    private final SqsPayloadCodecProperties sqsPayloadCodecProperties;
+    private final ObjectMapper objectMapper;
+    private final ObjectMapper smileMapper;
+
+    public SqsPayloadCodec(SqsPayloadCodecProperties sqsPayloadCodecProperties, ObjectMapper objectMapper,
+                           Jackson2ObjectMapperBuilder jackson2ObjectMapperBuilder) {
+        this.sqsPayloadCodecProperties = sqsPayloadCodecProperties;
+        this.objectMapper = objectMapper;
+        // Same modules and features of the JSON mapper of the application
+        this.smileMapper = jackson2ObjectMapperBuilder.factory(new SmileFactory()).build();
+    }
+
+    public boolean isEnabled(final String queueName) {
+        return isSmile(queueName) || compressionCodec(queueName) != null;
+    }
+
+    public boolean isSmile(final String queueName) {
+        return contains(sqsPayloadCodecProperties.smileQueueNames(), queueName);
+    }
+
+    /**
+     * Mapper serializing the payloads of the queue, whose output is expected by {@link #encode(String, byte[], int)}.
+     */
+    public ObjectMapper objectMapper(final String queueName) {
+        return isSmile(queueName) ? smileMapper : objectMapper;
+    }
+
+    /**
+     * Returns the content of the message carrying the payload serialized in the first {@code length} bytes of the buffer
+     * by the mapper of the queue, compressed with the codec of the queue if any. A JSON payload that doesn't get smaller is
+     * sent as it is. The buffer is not referenced after this method returns.
+     */
+    public SqsMessageContent encode(final String queueName, final byte[] buffer, final int length) {
+        var contentType = isSmile(queueName) ? SMILE : JSON;
+        var contentEncoding = compressionCodec(queueName);
+        byte[] encodedPayload = null;
+        if (contentEncoding != null && length >= sqsPayloadCodecProperties.minSize()) {
+            var compressed = compress(contentEncoding, buffer, length);
+            encodedPayload = compressed.length < length ? compressed : null;
+        }
+        if (encodedPayload == null) {
+            if (JSON.equals(contentType)) {
+                return new SqsMessageContent(new String(buffer, 0, length, StandardCharsets.UTF_8), Map.of());
+            }
+            contentEncoding = IDENTITY;
+            encodedPayload = Arrays.copyOf(buffer, length);
+        }
+
+        Map<String, MessageAttributeValue> messageAttributes = new HashMap<>();
+        messageAttributes.put(ENCODED_PAYLOAD,
+                              MessageAttributeValue.builder()
+                                                   .dataType(BINARY)
+                                                   .binaryValue(SdkBytes.fromByteArrayUnsafe(encodedPayload))
+                                                   .build());
+        messageAttributes.put(CONTENT_TYPE, MessageAttributeValue.builder().dataType(STRING).stringValue(contentType).build());
+        messageAttributes.put(CONTENT_ENCODING, MessageAttributeValue.builder().dataType(STRING).stringValue(contentEncoding).build());
+        return new SqsMessageContent(String.format("{\"%s\":\"%s\",\"%s\":\"%s\",\"sha256\":\"%s\"}",
+                                                   CONTENT_TYPE,
+                                                   contentType,
+                                                   CONTENT_ENCODING,
+                                                   contentEncoding,
+                                                   DigestUtils.sha256Hex(encodedPayload)),
+                                     Map.copyOf(messageAttributes));
+    }
+
+    public static boolean isEncoded(final Message message) {
+        return message.messageAttributes().containsKey(ENCODED_PAYLOAD);
+    }
+
+    public <T> T decode(final Message message, final Class<T> messageContentClass) throws IOException {
+        var messageAttributes = message.messageAttributes();
+        return decode(stringValue(messageAttributes.get(CONTENT_TYPE)),
+                      stringValue(messageAttributes.get(CONTENT_ENCODING)),
+                      messageAttributes.get(ENCODED_PAYLOAD).binaryValue().asInputStream(),
+                      messageContentClass);
+    }
+
+    /**
+     * Parses an encoded payload while decompressing it, without materializing the decompressed bytes.
+     */
+    public <T> T decode(final String contentType, final String contentEncoding, final InputStream encodedPayload,
+                        final Class<T> messageContentClass) throws IOException {
+        try (var payload = decompress(contentEncoding, encodedPayload)) {
+            return (SMILE.equals(contentType) ? smileMapper : objectMapper).readValue(payload, messageContentClass);
+        }
+    }
+
+    private String compressionCodec(final String queueName) {
+        if (contains(sqsPayloadCodecProperties.zstdQueueNames(), queueName)) {
+            return ZSTD;
+        }
+        return contains(sqsPayloadCodecProperties.gzipQueueNames(), queueName) ? GZIP : null;
+    }
+
+    private byte[] compress(final String codec, final byte[] buffer, final int length) {
+        if (ZSTD.equals(codec)) {
+            var compressed = new byte[(int) Zstd.compressBound(length)];
+            long compressedLength = Zstd.compressByteArray(compressed, 0, compressed.length, buffer, 0, length, sqsPayloadCodecProperties.zstdLevel());
+            if (Zstd.isError(compressedLength)) {
+                throw new IllegalStateException(Zstd.getErrorName(compressedLength));
+            }
+            return Arrays.copyOf(compressed, (int) compressedLength);
+        }
+        var compressed = new ByteArrayOutputStream(length / 2);
+        try (var gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write(buffer, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static InputStream decompress(final String contentEncoding, final InputStream encodedPayload) throws IOException {
+        if (contentEncoding == null || IDENTITY.equals(contentEncoding)) {
+            return encodedPayload;
+        }
+        return switch (contentEncoding) {
+            case GZIP -> new GZIPInputStream(encodedPayload);
+            case ZSTD -> new ZstdInputStream(encodedPayload);
+            default -> throw new IOException(String.format("Unknown content encoding %s", contentEncoding));
+        };
+    }
+
+    private static String stringValue(final MessageAttributeValue messageAttributeValue) {
+        return messageAttributeValue == null ? null : messageAttributeValue.stringValue();
+    }
+
+    private static boolean contains(final List<String> queueNames, final String queueName) {
+        return queueNames != null && queueNames.contains(queueName);
+    }
+}
@@ -0,0 +1,102 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Serializes the payloads of the messages into a buffer reused by the same thread, so that a payload is serialized once
+ * and its size is read from the buffer instead of being measured separately. The same bytes are then used either for the
+ * message body or for the object stored in S3, copying them only when they must outlive the handler.
+ */
+@Component
+public class SqsPayloadSerializer {
+
+    // Larger buffers, grown by an occasional huge payload, are not kept by the thread
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+    private static final class PooledBuffer extends ByteArrayOutputStream {
+
+        private boolean inUse;
+
+        private PooledBuffer() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        private byte[] buffer() {
+            return buf;
+        }
+    }
+
+    @FunctionalInterface
+    public interface SerializedPayloadHandler<R> {
+
+        /**
+         * Receives the serialized payload, i.e. the first {@code length} bytes of the buffer. The buffer is reused as soon
+         * as the handler returns, so it must not be referenced afterwards.
+         */
+        R apply(byte[] buffer, int length);
+    }
+
+    private final ObjectMapper objectMapper;
+    private final ThreadLocal<PooledBuffer> buffers = ThreadLocal.withInitial(PooledBuffer::new);
+
+    public SqsPayloadSerializer(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    public <T, R> R serialize(final T payload, final SerializedPayloadHandler<R> handler) throws IOException {
+        return serialize(payload, objectMapper, handler);
+    }
+
+    /**
+     * Same as {@link #serialize(Object, SerializedPayloadHandler)}, but with the given mapper, e.g. a binary one.
+     */
+    public <T, R> R serialize(final T payload, final ObjectMapper payloadMapper, final SerializedPayloadHandler<R> handler)
+            throws IOException {
+        var pooledBuffer = buffers.get();
+        // A handler serializing another payload on the same thread gets a buffer of its own
+        if (pooledBuffer.inUse) {
+            var buffer = new PooledBuffer();
+            payloadMapper.writeValue(buffer, payload);
+            return handler.apply(buffer.buffer(), buffer.size());
+        }
+        pooledBuffer.inUse = true;
+        try {
+            pooledBuffer.reset();
+            payloadMapper.writeValue(pooledBuffer, payload);
+            return handler.apply(pooledBuffer.buffer(), pooledBuffer.size());
+        } finally {
+            pooledBuffer.inUse = false;
+            if (pooledBuffer.buffer().length > MAX_RETAINED_BUFFER_SIZE) {
+                buffers.remove();
+            }
+        }
+    }
+
+    /**
+     * Number of bytes of the UTF-8 encoding of the given string, computed without encoding it.
+     */
+    public static long utf8Length(final CharSequence charSequence) {
+        long length = 0;
+        int charCount = charSequence.length();
+        for (int i = 0; i < charCount; i++) {
+            char c = charSequence.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < charCount && Character.isLowSurrogate(charSequence.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                // Unpaired surrogates are encoded as '?' by the UTF-8 encoder
+                length += Character.isSurrogate(c) ? 1 : 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,124 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsQueueBacklogProperties;
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsQueueBacklog;
+import lombok.CustomLog;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.ToLongFunction;
+
+/**
+ * Keeps in memory the backlog of every configured queue, i.e. the approximate number of its visible, in flight and
+ * delayed messages, refreshed periodically with GetQueueAttributes. The backlog is exposed as the
+ * {@code sqs.queue.backlog} gauges, tagged by queue and state, so that the autoscaling can follow the work waiting in the
+ * queues instead of the CPU. The gauges of a queue whose attributes have not been read yet are NaN.
+ */
+@Component
+@CustomLog
+public class SqsQueueBacklogMonitor {
+
+    private final SqsAsyncClient sqsAsyncClient;
+    private final SqsQueueUrlRegistry sqsQueueUrlRegistry;
+    private final SqsQueueBacklogProperties sqsQueueBacklogProperties;
+    private final Map<String, SqsQueueBacklog> backlogs = new ConcurrentHashMap<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    public SqsQueueBacklogMonitor(SqsAsyncClient sqsAsyncClient, SqsQueueUrlRegistry sqsQueueUrlRegistry,
+                                  SqsQueueBacklogProperties sqsQueueBacklogProperties, MeterRegistry meterRegistry) {
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.sqsQueueUrlRegistry = sqsQueueUrlRegistry;
+        this.sqsQueueBacklogProperties = sqsQueueBacklogProperties;
+        sqsQueueUrlRegistry.getConfiguredQueueNames().forEach(queueName -> {
+            registerGauge(meterRegistry, queueName, "visible", SqsQueueBacklog::visible);
+            registerGauge(meterRegistry, queueName, "in.flight", SqsQueueBacklog::inFlight);
+            registerGauge(meterRegistry, queueName, "delayed", SqsQueueBacklog::delayed);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${sqs.queue-backlog.refresh-interval-millis}")
+    public void scheduledRefresh() {
+        // A refresh slower than the interval is not overlapped by the next one
+        if (refreshing.compareAndSet(false, true)) {
+            refresh().doFinally(signalType -> refreshing.set(false)).subscribe();
+        }
+    }
+
+    /**
+     * Reads the attributes of all the configured queues. A queue whose attributes can't be read keeps its previous
+     * backlog.
+     */
+    public Mono<Void> refresh() {
+        return Flux.fromIterable(sqsQueueUrlRegistry.getConfiguredQueueNames())
+                   .flatMap(queueName -> readBacklog(queueName).onErrorResume(throwable -> {
+                       log.warn("Unable to read the backlog of {} queue : {}", queueName, throwable.getMessage());
+                       return Mono.empty();
+                   }), sqsQueueBacklogProperties.maxConcurrency())
+                   .doOnNext(backlog -> backlogs.put(backlog.queueName(), backlog))
+                   .then();
+    }
+
+    /**
+     * Returns the cached backlog of the configured queues, reading it first if it has never been read, e.g. because the
+     * scheduling is disabled.
+     */
+    public Mono<List<SqsQueueBacklog>> getBacklogs() {
+        return readIfNeverRead().then(Mono.fromSupplier(() -> backlogs.values()
+                                                                      .stream()
+                                                                      .sorted(Comparator.comparing(SqsQueueBacklog::queueName))
+                                                                      .toList()));
+    }
+
+    public Mono<SqsQueueBacklog> getBacklog(final String queueName) {
+        return readIfNeverRead().then(Mono.fromSupplier(() -> backlogs.get(queueName)));
+    }
+
+    private Mono<Void> readIfNeverRead() {
+        return backlogs.isEmpty() ? refresh() : Mono.empty();
+    }
+
+    private Mono<SqsQueueBacklog> readBacklog(final String queueName) {
+        return sqsQueueUrlRegistry.withQueueUrl(queueName,
+                                                queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.getQueueAttributes(
+                                                        builder -> builder.queueUrl(queueUrl)
+                                                                          .attributeNames(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES,
+                                                                                          QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE,
+                                                                                          QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED))))
+                                  .map(response -> new SqsQueueBacklog(queueName,
+                                                                       attribute(response, QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES),
+                                                                       attribute(response,
+                                                                                 QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE),
+                                                                       attribute(response,
+                                                                                 QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED),
+                                                                       Instant.now()));
+    }
+
+    private void registerGauge(final MeterRegistry meterRegistry, final String queueName, final String state,
+                               final ToLongFunction<SqsQueueBacklog> count) {
+        Gauge.builder("sqs.queue.backlog", backlogs, queueBacklogs -> {
+                 var backlog = queueBacklogs.get(queueName);
+                 return backlog == null ? Double.NaN : count.applyAsLong(backlog);
+             })
+             .tag("queue", queueName)
+             .tag("state", state)
+             .register(meterRegistry);
+    }
+
+    private static long attribute(final GetQueueAttributesResponse response, final QueueAttributeName attributeName) {
+        var value = response.attributes().get(attributeName);
+        return value == null ? 0 : Long.parseLong(value);
+    }
+}
@@ -0,0 +1,139 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.pagopa.pn.ec.cartaceo.configurationproperties.CartaceoSqsQueueName;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
+import it.pagopa.pn.ec.email.configurationproperties.EmailSqsQueueName;
+import it.pagopa.pn.ec.pec.configurationproperties.PecSqsQueueName;
+import it.pagopa.pn.ec.scaricamentoesitipec.configurationproperties.CancellazioneRicevutePecProperties;
+import it.pagopa.pn.ec.scaricamentoesitipec.configurationproperties.ScaricamentoEsitiPecProperties;
+import it.pagopa.pn.ec.sms.configurationproperties.SmsSqsQueueName;
+import lombok.CustomLog;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the url of every configured SQS queue in memory, so that publish, receive and delete operations don't pay a
+ * GetQueueUrl round trip each time. The configured queues are resolved once the application is ready, any other
+ * queue is resolved lazily on its first lookup. An url is evicted and resolved again when SQS answers with
+ * {@link QueueDoesNotExistException}.
+ */
+@Component
+@CustomLog
+public class SqsQueueUrlRegistry {
+
+    private final SqsAsyncClient sqsAsyncClient;
+    private final Set<String> configuredQueueNames;
+    private final Map<String, String> queueUrls = new ConcurrentHashMap<>();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public SqsQueueUrlRegistry(SqsAsyncClient sqsAsyncClient, NotificationTrackerSqsName notificationTrackerSqsName,
+                               EmailSqsQueueName emailSqsQueueName, PecSqsQueueName pecSqsQueueName, SmsSqsQueueName smsSqsQueueName,
+                               CartaceoSqsQueueName cartaceoSqsQueueName, ScaricamentoEsitiPecProperties scaricamentoEsitiPecProperties,
+                               CancellazioneRicevutePecProperties cancellazioneRicevutePecProperties, MeterRegistry meterRegistry) {
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.configuredQueueNames = Stream.of(notificationTrackerSqsName.statoSmsName(),
+                                              notificationTrackerSqsName.statoSmsErratoName(),
+                                              notificationTrackerSqsName.statoSmsDlqName(),
+                                              notificationTrackerSqsName.statoEmailName(),
+                                              notificationTrackerSqsName.statoEmailErratoName(),
+                                              notificationTrackerSqsName.statoEmailDlqName(),
+                                              notificationTrackerSqsName.statoPecName(),
+                                              notificationTrackerSqsName.statoPecErratoName(),
+                                              notificationTrackerSqsName.statoPecDlqName(),
+                                              notificationTrackerSqsName.statoCartaceoName(),
+                                              notificationTrackerSqsName.statoCartaceoErratoName(),
+                                              notificationTrackerSqsName.statoCartaceoDlqName(),
+                                              emailSqsQueueName.batchName(),
+                                              emailSqsQueueName.interactiveName(),
+                                              emailSqsQueueName.errorName(),
+                                              pecSqsQueueName.batchName(),
+                                              pecSqsQueueName.interactiveName(),
+                                              pecSqsQueueName.errorName(),
+                                              smsSqsQueueName.batchName(),
+                                              smsSqsQueueName.interactiveName(),
+                                              smsSqsQueueName.errorName(),
+                                              cartaceoSqsQueueName.batchName(),
+                                              cartaceoSqsQueueName.errorName(),
+                                              scaricamentoEsitiPecProperties.sqsQueueName(),
+                                              cancellazioneRicevutePecProperties.sqsQueueName())
+                                          .filter(Objects::nonNull)
+                                          .collect(Collectors.toUnmodifiableSet());
+        this.hitCounter = Counter.builder("sqs.queue.url.lookups").tag("result", "hit").register(meterRegistry);
+        this.missCounter = Counter.builder("sqs.queue.url.lookups").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * The warm up is best effort: a queue that can't be resolved now will be resolved on its first lookup.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resolveConfiguredQueues() {
+        Flux.fromIterable(configuredQueueNames)
+            .flatMap(queueName -> resolveQueueUrl(queueName).onErrorResume(throwable -> {
+                log.warn("Unable to resolve the url of the {} queue at startup : {}", queueName, throwable.getMessage());
+                return Mono.empty();
+            }))
+            .count()
+            .subscribe(resolved -> log.info("Resolved {} of {} configured SQS queue urls", resolved, configuredQueueNames.size()));
+    }
+
+    public Mono<String> getQueueUrl(final String queueName) {
+        var queueUrl = queueUrls.get(queueName);
+        if (queueUrl != null) {
+            hitCounter.increment();
+            return Mono.just(queueUrl);
+        }
+        missCounter.increment();
+        return resolveQueueUrl(queueName);
+    }
+
+    /**
+     * Runs the given SQS operation with the cached url of the queue. If SQS reports that the queue doesn't exist the
+     * cached url is evicted and the operation is tried once more with a freshly resolved url.
+     */
+    public <T> Mono<T> withQueueUrl(final String queueName, final Function<String, Mono<T>> sqsOperation) {
+        return getQueueUrl(queueName).flatMap(sqsOperation).onErrorResume(QueueDoesNotExistException.class, queueDoesNotExistException -> {
+            log.warn("The cached url of the {} queue is no longer valid, resolving it again", queueName);
+            evict(queueName);
+            return getQueueUrl(queueName).flatMap(sqsOperation);
+        });
+    }
+
+    public Set<String> getConfiguredQueueNames() {
+        return configuredQueueNames;
+    }
+
+    public void evict(final String queueName) {
+        queueUrls.remove(queueName);
+    }
+
+    public long getHitCount() {
+        return (long) hitCounter.count();
+    }
+
+    public long getMissCount() {
+        return (long) missCounter.count();
+    }
+
+    private Mono<String> resolveQueueUrl(final String queueName) {
+        return Mono.fromCompletionStage(() -> sqsAsyncClient.getQueueUrl(builder -> builder.queueName(queueName)))
+                   .map(GetQueueUrlResponse::queueUrl)
+                   .doOnNext(queueUrl -> queueUrls.put(queueName, queueUrl));
+    }
+}
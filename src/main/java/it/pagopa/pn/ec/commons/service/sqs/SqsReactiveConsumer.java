@@ -0,0 +1,137 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import io.awspring.cloud.messaging.listener.Acknowledgment;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsReactiveConsumerProperties;
+import it.pagopa.pn.ec.commons.service.SqsService;
+import lombok.CustomLog;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+
+/**
+ * Continuously pulls a queue and hands every message to a reactive handler, keeping at most {@code maxInFlight}
+ * messages in processing, so the consumer never needs to park a thread to bound its concurrency. The receivers of the
+ * {@link SqsReceiveEngine} prefetch ahead of the free processing slots, up to the configured buffer size plus one
+ * receive for each of them, whatever {@code maxInFlight} is: the visibility timeout of the prefetched messages runs
+ * while they wait, and it is extended only once their processing starts. As with the listeners, the handler receives an
+ * {@link Acknowledgment} and deletes the message only when it has been processed successfully; a message that is not
+ * acknowledged becomes visible again when its visibility timeout expires. The payloads stored by the
+ * {@link SqsClaimCheck} are read from the bucket transparently.
+ */
+@Component
+@CustomLog
+public class SqsReactiveConsumer {
+
+    private final SqsReceiveEngine sqsReceiveEngine;
+    private final SqsVisibilityExtender sqsVisibilityExtender;
+    private final SqsMessageDeduplicator sqsMessageDeduplicator;
+    private final SqsService sqsService;
+    private final SqsClaimCheck sqsClaimCheck;
+    private final SqsConsumerMetrics sqsConsumerMetrics;
+    private final SqsReactiveConsumerProperties sqsReactiveConsumerProperties;
+    private final Disposable.Composite consumers = Disposables.composite();
+
+    public SqsReactiveConsumer(SqsReceiveEngine sqsReceiveEngine, SqsVisibilityExtender sqsVisibilityExtender,
+                               SqsMessageDeduplicator sqsMessageDeduplicator, SqsService sqsService, SqsClaimCheck sqsClaimCheck,
+                               SqsConsumerMetrics sqsConsumerMetrics, SqsReactiveConsumerProperties sqsReactiveConsumerProperties) {
+        this.sqsReceiveEngine = sqsReceiveEngine;
+        this.sqsVisibilityExtender = sqsVisibilityExtender;
+        this.sqsMessageDeduplicator = sqsMessageDeduplicator;
+        this.sqsService = sqsService;
+        this.sqsClaimCheck = sqsClaimCheck;
+        this.sqsConsumerMetrics = sqsConsumerMetrics;
+        this.sqsReactiveConsumerProperties = sqsReactiveConsumerProperties;
+    }
+
+    public <T> void consume(final String queueName, final Class<T> messageContentClass,
+                            final BiFunction<T, Acknowledgment, Mono<?>> messageHandler, final int maxInFlight) {
+        consume(queueName, messageContentClass, messageHandler, maxInFlight, null);
+    }
+
+    /**
+     * Same as {@link #consume(String, Class, BiFunction, int)}, but the messages are handed to the handler evenly spaced
+     * so that no more than {@code messagesPerSecond} are started every second. A null or non positive rate means no limit.
+     */
+    public <T> void consume(final String queueName, final Class<T> messageContentClass,
+                            final BiFunction<T, Acknowledgment, Mono<?>> messageHandler, final int maxInFlight,
+                            final Double messagesPerSecond) {
+        consumeMessages(queueName,
+                        messageContentClass,
+                        (messageContent, message) -> messageHandler.apply(messageContent, acknowledgment(queueName, message)),
+                        maxInFlight,
+                        messagesPerSecond);
+    }
+
+    /**
+     * Same as {@link #consume(String, Class, BiFunction, int)}, but the handler receives the SQS message itself instead of
+     * an {@link Acknowledgment}, for the handlers that need to delete the message or change its visibility on their own.
+     */
+    public <T> void consumeMessages(final String queueName, final Class<T> messageContentClass,
+                                    final BiFunction<T, Message, Mono<?>> messageHandler, final int maxInFlight) {
+        consumeMessages(queueName, messageContentClass, messageHandler, maxInFlight, null);
+    }
+
+    private <T> void consumeMessages(final String queueName, final Class<T> messageContentClass,
+                                     final BiFunction<T, Message, Mono<?>> messageHandler, final int maxInFlight,
+                                     final Double messagesPerSecond) {
+        log.info("Starting the consumer of {} queue with at most {} messages in flight and {} messages per second",
+                 queueName,
+                 maxInFlight,
+                 messagesPerSecond);
+        var messagesReceived = new AtomicBoolean();
+        var idleBackoff = Duration.ofMillis(sqsReactiveConsumerProperties.idleBackoffMillis());
+        var errorBackoff = Duration.ofMillis(sqsReactiveConsumerProperties.errorBackoffMillis());
+
+        consumers.add(Flux.defer(() -> sqsReceiveEngine.receive(queueName, Integer.MAX_VALUE))
+                          .doOnNext(message -> messagesReceived.set(true))
+                          .onErrorResume(throwable -> {
+                              log.error("Error receiving messages from {} queue : {}", queueName, throwable.getMessage(), throwable);
+                              return Mono.delay(errorBackoff).then(Mono.empty());
+                          })
+                          // An empty drain means that the queue is empty, wait a little before polling again
+                          .repeatWhen(drains -> drains.concatMap(drain -> messagesReceived.getAndSet(false)
+                                                                          ? Mono.just(drain)
+                                                                          : Mono.delay(idleBackoff).thenReturn(drain)))
+                          .transform(messages -> messagesPerSecond != null && messagesPerSecond > 0
+                                                 ? messages.delayElements(Duration.ofNanos((long) (1_000_000_000 / messagesPerSecond)))
+                                                 : messages)
+                          .flatMap(message -> handle(queueName, message, messageContentClass, messageHandler), maxInFlight)
+                          .subscribe());
+    }
+
+    private <T> Mono<Void> handle(final String queueName, final Message message, final Class<T> messageContentClass,
+                                  final BiFunction<T, Message, Mono<?>> messageHandler) {
+        if (sqsMessageDeduplicator.isCompleted(queueName, message.messageId(), message.body())) {
+            return sqsService.deleteMessageFromQueue(message, queueName).onErrorResume(throwable -> Mono.empty()).then();
+        }
+        return sqsClaimCheck.checkOut(message, messageContentClass)
+                   .flatMap(messageContent -> sqsVisibilityExtender.extendWhileProcessing(queueName,
+                                                                                          message,
+                                                                                          sqsConsumerMetrics.timeProcessing(queueName,
+                                                                                                                            messageHandler.apply(
+                                                                                                                                    messageContent,
+                                                                                                                                    message))))
+                   .onErrorResume(throwable -> {
+                       log.warn("Message {} from {} queue not processed : {}", message.messageId(), queueName, throwable.getMessage());
+                       return Mono.empty();
+                   })
+                   .then();
+    }
+
+    private Acknowledgment acknowledgment(final String queueName, final Message message) {
+        return () -> sqsService.deleteMessageFromQueue(message, queueName).toFuture();
+    }
+
+    @PreDestroy
+    public void stopConsumers() {
+        consumers.dispose();
+    }
+}
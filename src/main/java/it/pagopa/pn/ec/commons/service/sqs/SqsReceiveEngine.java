@@ -0,0 +1,118 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsReceiveEngineProperties;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Drains a queue with several parallel long polling receivers, each asking for up to ten messages per call. A receiver
+ * stops as soon as one of its receives comes back empty or the requested limit is reached: the receivers reserve the
+ * messages they ask for out of the limit before every call, so together they never receive more than the limit. A
+ * receiver polls again while the messages already received are still waiting downstream, so every receiver holds at
+ * most the configured buffer size plus one receive worth of messages, whose visibility timeout is running meanwhile.
+ * The dwell time and the receive count of every received message are recorded by the {@link SqsConsumerMetrics}.
+ */
+@Component
+public class SqsReceiveEngine {
+
+    private static final String ALL_ATTRIBUTES = "All";
+    private static final String SENT_TIMESTAMP = "SentTimestamp";
+    private static final String MESSAGE_GROUP_ID = "MessageGroupId";
+    private static final String APPROXIMATE_RECEIVE_COUNT = "ApproximateReceiveCount";
+
+    private final SqsAsyncClient sqsAsyncClient;
+    private final SqsQueueUrlRegistry sqsQueueUrlRegistry;
+    private final SqsReceiveEngineProperties sqsReceiveEngineProperties;
+    private final SqsConsumerMetrics sqsConsumerMetrics;
+
+    public SqsReceiveEngine(SqsAsyncClient sqsAsyncClient, SqsQueueUrlRegistry sqsQueueUrlRegistry,
+                            SqsReceiveEngineProperties sqsReceiveEngineProperties, SqsConsumerMetrics sqsConsumerMetrics) {
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.sqsQueueUrlRegistry = sqsQueueUrlRegistry;
+        this.sqsReceiveEngineProperties = sqsReceiveEngineProperties;
+        this.sqsConsumerMetrics = sqsConsumerMetrics;
+    }
+
+    public Flux<Message> receive(final String queueName, final int maxMessages) {
+        var remainingMessages = new AtomicInteger(maxMessages);
+        int pollers = sqsReceiveEngineProperties.pollersPerQueue();
+        return Flux.range(0, pollers)
+                   .flatMap(poller -> poll(queueName, remainingMessages, sqsReceiveEngineProperties.maxNumberOfMessages(), 0),
+                            pollers,
+                            sqsReceiveEngineProperties.bufferSize());
+    }
+
+    /**
+     * Receives up to {@code maxMessages} messages at most at the given rate, with a single receiver that asks for at most
+     * one second worth of messages per call and, before the next call, waits as long as the messages just received take at
+     * that rate. The messages are therefore received when their turn comes, instead of waiting for it downstream while
+     * their visibility timeout is running. A rate that is not positive means no limit.
+     */
+    public Flux<Message> receive(final String queueName, final int maxMessages, final double messagesPerSecond) {
+        if (messagesPerSecond <= 0) {
+            return receive(queueName, maxMessages);
+        }
+        int maxNumberOfMessages = (int) Math.max(1, Math.min(sqsReceiveEngineProperties.maxNumberOfMessages(), messagesPerSecond));
+        return poll(queueName, new AtomicInteger(maxMessages), maxNumberOfMessages, messagesPerSecond);
+    }
+
+    public Mono<Message> receiveOne(final String queueName) {
+        return receiveMessages(queueName, 1).flatMap(messages -> Mono.justOrEmpty(messages.stream().findFirst()));
+    }
+
+    private Flux<Message> poll(final String queueName, final AtomicInteger remainingMessages, final int maxNumberOfMessages,
+                               final double messagesPerSecond) {
+        var stopped = new AtomicBoolean();
+        var pause = new AtomicReference<>(Duration.ZERO);
+        return Mono.defer(() -> {
+                       int reservedMessages = reserve(remainingMessages, maxNumberOfMessages);
+                       if (reservedMessages == 0) {
+                           stopped.set(true);
+                           return Mono.just(List.<Message>of());
+                       }
+                       var receive = receiveMessages(queueName, reservedMessages);
+                       return (pause.get().isZero() ? receive : Mono.delay(pause.get()).then(receive)).doOnNext(messages -> {
+                           if (messages.isEmpty()) {
+                               stopped.set(true);
+                           }
+                           // The messages asked for but not received go back to the other receivers
+                           remainingMessages.addAndGet(reservedMessages - messages.size());
+                           if (messagesPerSecond > 0) {
+                               pause.set(Duration.ofNanos((long) (messages.size() * 1_000_000_000L / messagesPerSecond)));
+                           }
+                       });
+                   })
+                   .flatMapIterable(Function.identity())
+                   .repeat(() -> !stopped.get() && remainingMessages.get() > 0);
+    }
+
+    private int reserve(final AtomicInteger remainingMessages, final int maxNumberOfMessages) {
+        int remaining = remainingMessages.getAndUpdate(current -> Math.max(0, current - maxNumberOfMessages));
+        return Math.min(Math.max(0, remaining), maxNumberOfMessages);
+    }
+
+    private Mono<List<Message>> receiveMessages(final String queueName, final int maxNumberOfMessages) {
+        return Mono.defer(() -> sqsQueueUrlRegistry.withQueueUrl(queueName,
+                                                                 queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.receiveMessage(
+                                                                         builder -> builder.queueUrl(queueUrl)
+                                                                                           .maxNumberOfMessages(maxNumberOfMessages)
+                                                                                           .messageAttributeNames(ALL_ATTRIBUTES)
+                                                                                           .attributeNamesWithStrings(SENT_TIMESTAMP,
+                                                                                                                      MESSAGE_GROUP_ID,
+                                                                                                                      APPROXIMATE_RECEIVE_COUNT)
+                                                                                           .waitTimeSeconds(sqsReceiveEngineProperties.waitTimeSeconds())))))
+                   .map(ReceiveMessageResponse::messages)
+                   .doOnNext(messages -> messages.forEach(message -> sqsConsumerMetrics.received(queueName, message)));
+    }
+}
@@ -0,0 +1,157 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsRedriveProperties;
+import it.pagopa.pn.ec.commons.model.pojo.request.PresaInCaricoInfo;
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsRedriveResult;
+import lombok.CustomLog;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves the messages of a queue to another one, e.g. from a DLQ back to the queue it belongs to. Messages are received
+ * by the receive engine at most at the given rate, sent with SendMessageBatch by the batch publisher and removed from
+ * the source queue with DeleteMessageBatch by the ack coalescer. The messages skipped by the filters are
+ * left in the source queue and show up again when their visibility timeout expires. The filters read the payload as
+ * checked out by the {@link SqsClaimCheck}, so that the encoded payloads and the ones stored in the bucket are matched
+ * too, while the message is moved as is.
+ */
+@Component
+@CustomLog
+public class SqsRedriveService {
+
+    private static final String MESSAGE_GROUP_ID = "MessageGroupId";
+    private static final String X_PAGOPA_EXTCH_CX_ID = "xPagopaExtchCxId";
+    private static final String REQUEST_IDX = "requestIdx";
+
+    private final SqsReceiveEngine sqsReceiveEngine;
+    private final SqsBatchPublisher sqsBatchPublisher;
+    private final SqsAckCoalescer sqsAckCoalescer;
+    private final SqsMessageGroupIdStrategy sqsMessageGroupIdStrategy;
+    private final SqsClaimCheck sqsClaimCheck;
+    private final SqsRedriveProperties sqsRedriveProperties;
+
+    public SqsRedriveService(SqsReceiveEngine sqsReceiveEngine, SqsBatchPublisher sqsBatchPublisher, SqsAckCoalescer sqsAckCoalescer,
+                             SqsMessageGroupIdStrategy sqsMessageGroupIdStrategy, SqsClaimCheck sqsClaimCheck,
+                             SqsRedriveProperties sqsRedriveProperties) {
+        this.sqsReceiveEngine = sqsReceiveEngine;
+        this.sqsBatchPublisher = sqsBatchPublisher;
+        this.sqsAckCoalescer = sqsAckCoalescer;
+        this.sqsMessageGroupIdStrategy = sqsMessageGroupIdStrategy;
+        this.sqsClaimCheck = sqsClaimCheck;
+        this.sqsRedriveProperties = sqsRedriveProperties;
+    }
+
+    public boolean isRedrivable(final String queueName) {
+        return sqsRedriveProperties.queueNames() != null && sqsRedriveProperties.queueNames().contains(queueName);
+    }
+
+    /**
+     * Redrives up to {@code maxMessages} messages, keeping only the ones of the given client and whose request id starts
+     * with the given prefix when these filters are not blank. A null limit or rate means the configured one.
+     */
+    public Mono<SqsRedriveResult> redrive(final String sourceQueueName, final String targetQueueName, final Integer maxMessages,
+                                          final Double messagesPerSecond, final String xPagopaExtchCxId, final String requestIdxPrefix) {
+        int messagesLimit = maxMessages != null ? maxMessages : sqsRedriveProperties.maxMessages();
+        double rate = messagesPerSecond != null ? messagesPerSecond : sqsRedriveProperties.messagesPerSecond();
+        var received = new AtomicLong();
+        var redriven = new AtomicLong();
+        var skipped = new AtomicLong();
+        var failed = new AtomicLong();
+
+        log.info("Redriving up to {} messages from {} queue to {} queue at {} messages per second",
+                 messagesLimit,
+                 sourceQueueName,
+                 targetQueueName,
+                 rate);
+        return sqsReceiveEngine.receive(sourceQueueName, messagesLimit, rate)
+                               .doOnNext(message -> received.incrementAndGet())
+                               .filterWhen(message -> matches(message, xPagopaExtchCxId, requestIdxPrefix).doOnNext(matches -> {
+                                   if (Boolean.FALSE.equals(matches)) {
+                                       skipped.incrementAndGet();
+                                   }
+                               }))
+                               .flatMap(message -> redriveMessage(sourceQueueName, targetQueueName, message)
+                                       .doOnSuccess(result -> redriven.incrementAndGet())
+                                       .onErrorResume(throwable -> {
+                                           failed.incrementAndGet();
+                                           log.warn("Unable to redrive message {} from {} queue : {}",
+                                                    message.messageId(),
+                                                    sourceQueueName,
+                                                    throwable.getMessage());
+                                           return Mono.empty();
+                                       }), sqsRedriveProperties.maxInFlight())
+                               .then(Mono.fromSupplier(() -> new SqsRedriveResult(sourceQueueName,
+                                                                                  targetQueueName,
+                                                                                  received.get(),
+                                                                                  redriven.get(),
+                                                                                  skipped.get(),
+                                                                                  failed.get())))
+                               .doOnSuccess(result -> log.info("Redrive completed : {}", result));
+    }
+
+    private Mono<Void> redriveMessage(final String sourceQueueName, final String targetQueueName, final Message message) {
+        var messageGroupId = message.attributesAsStrings().get(MESSAGE_GROUP_ID);
+        return (messageGroupId != null ? Mono.just(messageGroupId) : requestMessageGroupId(targetQueueName, message))
+                .flatMap(groupId -> sqsBatchPublisher.publish(targetQueueName, message.body(), groupId, null, message.messageAttributes()))
+                .then(Mono.defer(() -> sqsAckCoalescer.acknowledge(sourceQueueName, message.receiptHandle())))
+                .then();
+    }
+
+    /**
+     * The messages of a standard queue carry no group, which is chosen from the request the payload refers to as when the
+     * message was first published. A payload that can't be read, or doesn't refer to a request, gets a random group.
+     */
+    private Mono<String> requestMessageGroupId(final String targetQueueName, final Message message) {
+        return sqsClaimCheck.checkOut(message, JsonNode.class)
+                            .map(body -> sqsMessageGroupIdStrategy.messageGroupId(targetQueueName,
+                                                                                  PresaInCaricoInfo.builder()
+                                                                                                   .xPagopaExtchCxId(textField(body,
+                                                                                                                               X_PAGOPA_EXTCH_CX_ID))
+                                                                                                   .requestIdx(textField(body, REQUEST_IDX))
+                                                                                                   .build()))
+                            .onErrorResume(throwable -> Mono.empty())
+                            .switchIfEmpty(Mono.fromSupplier(() -> sqsMessageGroupIdStrategy.messageGroupId(targetQueueName, null)));
+    }
+
+    /**
+     * A message whose payload can't be read doesn't match any filter.
+     */
+    private Mono<Boolean> matches(final Message message, final String xPagopaExtchCxId, final String requestIdxPrefix) {
+        if (StringUtils.isAllBlank(xPagopaExtchCxId, requestIdxPrefix)) {
+            return Mono.just(true);
+        }
+        return sqsClaimCheck.checkOut(message, JsonNode.class)
+                            .map(body -> matches(body, xPagopaExtchCxId, requestIdxPrefix))
+                            .onErrorResume(throwable -> {
+                                log.debug("Unable to read the payload of message {} : {}", message.messageId(), throwable.getMessage());
+                                return Mono.just(false);
+                            })
+                            .defaultIfEmpty(false);
+    }
+
+    private static boolean matches(final JsonNode body, final String xPagopaExtchCxId, final String requestIdxPrefix) {
+        return (StringUtils.isBlank(xPagopaExtchCxId) || xPagopaExtchCxId.equals(textField(body, X_PAGOPA_EXTCH_CX_ID)))
+               && (StringUtils.isBlank(requestIdxPrefix) || StringUtils.startsWith(textField(body, REQUEST_IDX), requestIdxPrefix));
+    }
+
+    /**
+     * The payloads serialize the client id either as xPagopaExtchCxId or xpagopaExtchCxId, the field name is therefore
+     * matched ignoring its case.
+     */
+    private static String textField(final JsonNode body, final String fieldName) {
+        Iterator<String> fieldNames = body.fieldNames();
+        while (fieldNames.hasNext()) {
+            var name = fieldNames.next();
+            if (name.equalsIgnoreCase(fieldName)) {
+                return body.get(name).asText(null);
+            }
+        }
+        return null;
+    }
+}
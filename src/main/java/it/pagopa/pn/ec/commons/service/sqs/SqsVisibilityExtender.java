@@ -0,0 +1,120 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsVisibilityExtenderProperties;
+import lombok.CustomLog;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.ChangeMessageVisibilityResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps a message invisible to the other consumers for as long as its processing is running, by periodically pushing
+ * its visibility timeout forward with ChangeMessageVisibility. Every heartbeat sets the larger between the configured
+ * visibility timeout and the VisibilityTimeout of the queue itself, read once per queue, so an extension never makes the
+ * message visible earlier than the queue would: a message whose processing fails without an acknowledgment keeps
+ * coming back after the queue timeout, and reaches the dead letter queue no sooner than before. When the timeout of the
+ * queue can't be read the visibility is left unchanged. The heartbeat stops as soon as the processing completes, fails
+ * or is cancelled, and anyway after the configured maximum extension: a message whose processing hangs becomes visible
+ * again one visibility timeout later, and eventually reaches the dead letter queue.
+ */
+@Component
+@CustomLog
+public class SqsVisibilityExtender {
+
+    private final SqsAsyncClient sqsAsyncClient;
+    private final SqsQueueUrlRegistry sqsQueueUrlRegistry;
+    private final SqsVisibilityExtenderProperties sqsVisibilityExtenderProperties;
+    private final Counter successfulExtensions;
+    private final Counter failedExtensions;
+    private final AtomicInteger messagesInFlight;
+    private final Map<String, Integer> queueVisibilityTimeouts = new ConcurrentHashMap<>();
+
+    public SqsVisibilityExtender(SqsAsyncClient sqsAsyncClient, SqsQueueUrlRegistry sqsQueueUrlRegistry,
+                                 SqsVisibilityExtenderProperties sqsVisibilityExtenderProperties, MeterRegistry meterRegistry) {
+        this.sqsAsyncClient = sqsAsyncClient;
+        this.sqsQueueUrlRegistry = sqsQueueUrlRegistry;
+        this.sqsVisibilityExtenderProperties = sqsVisibilityExtenderProperties;
+        this.successfulExtensions = Counter.builder("sqs.visibility.extensions").tag("result", "success").register(meterRegistry);
+        this.failedExtensions = Counter.builder("sqs.visibility.extensions").tag("result", "failure").register(meterRegistry);
+        this.messagesInFlight = meterRegistry.gauge("sqs.visibility.messages.in.flight", new AtomicInteger());
+    }
+
+    public <T> Mono<T> extendWhileProcessing(final String queueName, final Message message, final Mono<T> processing) {
+        if (!Boolean.TRUE.equals(sqsVisibilityExtenderProperties.enabled())) {
+            return processing;
+        }
+        var heartbeatInterval = Duration.ofSeconds(sqsVisibilityExtenderProperties.heartbeatIntervalSeconds());
+        var maxExtension = Duration.ofSeconds(sqsVisibilityExtenderProperties.maxExtensionSeconds());
+        return Mono.defer(() -> {
+            messagesInFlight.incrementAndGet();
+            var heartbeat = Flux.interval(heartbeatInterval, heartbeatInterval)
+                                .take(maxExtension)
+                                .concatMap(tick -> changeMessageVisibility(queueName, message))
+                                .doOnComplete(() -> log.warn("Message {} from {} queue still in processing after {}, its visibility won't be extended anymore",
+                                                             message.messageId(),
+                                                             queueName,
+                                                             maxExtension))
+                                .subscribe();
+            return processing.doFinally(signalType -> {
+                heartbeat.dispose();
+                messagesInFlight.decrementAndGet();
+            });
+        });
+    }
+
+    private Mono<Void> changeMessageVisibility(final String queueName, final Message message) {
+        return visibilityTimeout(queueName).flatMap(visibilityTimeout -> sqsQueueUrlRegistry.withQueueUrl(queueName,
+                                                                                                          queueUrl -> changeMessageVisibility(
+                                                                                                                  queueUrl,
+                                                                                                                  message,
+                                                                                                                  visibilityTimeout)))
+                                           .doOnSuccess(response -> {
+                                               successfulExtensions.increment();
+                                               log.debug("Extended the visibility of message {} from {} queue", message.messageId(), queueName);
+                                           })
+                                           .doOnError(throwable -> {
+                                               failedExtensions.increment();
+                                               log.warn("Unable to extend the visibility of message {} from {} queue : {}",
+                                                        message.messageId(),
+                                                        queueName,
+                                                        throwable.getMessage());
+                                           })
+                                           .onErrorResume(throwable -> Mono.empty())
+                                           .then();
+    }
+
+    private Mono<ChangeMessageVisibilityResponse> changeMessageVisibility(final String queueUrl, final Message message,
+                                                                          final int visibilityTimeout) {
+        return Mono.fromCompletionStage(sqsAsyncClient.changeMessageVisibility(builder -> builder.queueUrl(queueUrl)
+                                                                                                 .receiptHandle(message.receiptHandle())
+                                                                                                 .visibilityTimeout(visibilityTimeout)));
+    }
+
+    /**
+     * The visibility timeout set by a heartbeat, never shorter than the VisibilityTimeout of the queue.
+     */
+    private Mono<Integer> visibilityTimeout(final String queueName) {
+        var queueVisibilityTimeout = queueVisibilityTimeouts.get(queueName);
+        return (queueVisibilityTimeout != null ? Mono.just(queueVisibilityTimeout) : readQueueVisibilityTimeout(queueName))
+                .map(timeout -> Math.max(timeout, sqsVisibilityExtenderProperties.visibilityTimeoutSeconds()));
+    }
+
+    private Mono<Integer> readQueueVisibilityTimeout(final String queueName) {
+        return sqsQueueUrlRegistry.withQueueUrl(queueName,
+                                                queueUrl -> Mono.fromCompletionStage(sqsAsyncClient.getQueueAttributes(builder -> builder.queueUrl(
+                                                        queueUrl).attributeNames(QueueAttributeName.VISIBILITY_TIMEOUT))))
+                                  .map(getQueueAttributesResponse -> Integer.parseInt(getQueueAttributesResponse.attributes()
+                                                                                                                .get(QueueAttributeName.VISIBILITY_TIMEOUT)))
+                                  .doOnNext(timeout -> queueVisibilityTimeouts.put(queueName, timeout));
+    }
+}
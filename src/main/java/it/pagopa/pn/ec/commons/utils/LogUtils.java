@@ -191,6 +191,9 @@ public class LogUtils {
     public static final String GET_OBJECT_AND_CONVERT = "getObjectAndConvert()";
     public static final String CONVERT_AND_PUT_OBJECT = "convertAndPutObject()";
     public static final String DELETE_OBJECT = "deleteObject()";
+    public static final String GET_OBJECT_STREAM_AND_CONVERT = "getObjectStreamAndConvert()";
+    public static final String PUT_OBJECT = "putObject()";
+    public static final String DELETE_OBJECTS = "deleteObjects()";
 
     //DOWNLOAD CALL
     public static final String DOWNLOAD_FILE = "DownloadCall.downloadFile()";
@@ -1,10 +1,9 @@
 package it.pagopa.pn.ec.email.service;
 
 import io.awspring.cloud.messaging.listener.Acknowledgment;
-import io.awspring.cloud.messaging.listener.SqsMessageDeletionPolicy;
-import io.awspring.cloud.messaging.listener.annotation.SqsListener;
 import it.pagopa.pn.commons.utils.MDCUtils;
 import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchDrainProperties;
 import it.pagopa.pn.ec.commons.exception.RetryAttemptsExceededExeption;
 import it.pagopa.pn.ec.commons.exception.sqs.SqsClientException;
 import it.pagopa.pn.ec.commons.exception.ss.attachment.StatusToDeleteException;
@@ -13,11 +12,15 @@ import it.pagopa.pn.ec.commons.model.pojo.email.EmailAttachment;
 import it.pagopa.pn.ec.commons.model.pojo.email.EmailField;
 import it.pagopa.pn.ec.commons.model.pojo.request.PresaInCaricoInfo;
 import it.pagopa.pn.ec.commons.model.pojo.request.StepError;
-import it.pagopa.pn.ec.commons.policy.Policy;
+import it.pagopa.pn.ec.commons.policy.RetryPolicyRegistry;
 import it.pagopa.pn.ec.commons.rest.call.download.DownloadCall;
 import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
 import it.pagopa.pn.ec.commons.service.*;
 import it.pagopa.pn.ec.commons.service.impl.AttachmentServiceImpl;
+import it.pagopa.pn.ec.commons.service.retry.RetryEngine;
+import it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
+import it.pagopa.pn.ec.commons.service.sqs.SqsVisibilityExtender;
 import it.pagopa.pn.ec.email.configurationproperties.EmailDefault;
 import it.pagopa.pn.ec.email.configurationproperties.EmailSqsQueueName;
 import it.pagopa.pn.ec.email.model.pojo.EmailPresaInCaricoInfo;
@@ -26,6 +29,8 @@ import lombok.CustomLog;
 import lombok.CustomLog;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
@@ -40,7 +45,6 @@ import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Objects;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static it.pagopa.pn.ec.commons.constant.Status.*;
@@ -69,7 +73,13 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
     private final EmailSqsQueueName emailSqsQueueName;
     private final EmailDefault emailDefault;
     private final DownloadCall downloadCall;
-    private final Semaphore semaphore;
+    private final SqsReactiveConsumer sqsReactiveConsumer;
+    private final SqsVisibilityExtender sqsVisibilityExtender;
+    private final SqsConsumerMetrics sqsConsumerMetrics;
+    private final SqsBatchDrainProperties sqsBatchDrainProperties;
+    private final RetryEngine retryEngine;
+    private final RetryPolicyRegistry retryPolicyRegistry;
+    private final Integer maxThreadPoolSize;
     private String idSaved;
 
     private static final String GENERIC_ERROR = "Errore generico";
@@ -77,7 +87,10 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
     protected EmailService(AuthService authService, GestoreRepositoryCall gestoreRepositoryCall, SqsService sqsService,
                            SesService sesService, AttachmentServiceImpl attachmentService,
                            NotificationTrackerSqsName notificationTrackerSqsName, EmailSqsQueueName emailSqsQueueName,
-                           DownloadCall downloadCall, EmailDefault emailDefault, @Value("${lavorazione-email.max-thread-pool-size}") Integer maxThreadPoolSize) {
+                           DownloadCall downloadCall, EmailDefault emailDefault, SqsReactiveConsumer sqsReactiveConsumer,
+                           SqsVisibilityExtender sqsVisibilityExtender, SqsConsumerMetrics sqsConsumerMetrics, SqsBatchDrainProperties sqsBatchDrainProperties, RetryEngine retryEngine,
+                           RetryPolicyRegistry retryPolicyRegistry,
+                           @Value("${lavorazione-email.max-thread-pool-size}") Integer maxThreadPoolSize) {
         super(authService);
         this.sqsService = sqsService;
         this.sesService = sesService;
@@ -87,7 +100,13 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
         this.emailSqsQueueName = emailSqsQueueName;
         this.emailDefault = emailDefault;
         this.downloadCall = downloadCall;
-        this.semaphore=new Semaphore(maxThreadPoolSize);
+        this.sqsReactiveConsumer = sqsReactiveConsumer;
+        this.sqsVisibilityExtender = sqsVisibilityExtender;
+        this.sqsConsumerMetrics = sqsConsumerMetrics;
+        this.sqsBatchDrainProperties = sqsBatchDrainProperties;
+        this.retryEngine = retryEngine;
+        this.retryPolicyRegistry = retryPolicyRegistry;
+        this.maxThreadPoolSize = maxThreadPoolSize;
     }
 
     private final Retry PRESA_IN_CARICO_RETRY_STRATEGY = Retry.backoff(3, Duration.ofMillis(500))
@@ -175,20 +194,52 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
         .doOnSuccess(result -> log.info(SUCCESSFUL_OPERATION_LABEL, INSERT_REQUEST_FROM_EMAIL, result));
     }
 
-    @SqsListener(value = "${sqs.queue.email.interactive-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
-    public void lavorazioneRichiestaInteractive(final EmailPresaInCaricoInfo emailPresaInCaricoInfo, final Acknowledgment acknowledgment) {
+    @EventListener(ApplicationReadyEvent.class)
+    public void startInteractiveConsumer() {
+        sqsReactiveConsumer.consume(emailSqsQueueName.interactiveName(),
+                                    EmailPresaInCaricoInfo.class,
+                                    this::lavorazioneRichiestaInteractive,
+                                    maxThreadPoolSize);
+    }
+
+    public Mono<SendMessageResponse> lavorazioneRichiestaInteractive(final EmailPresaInCaricoInfo emailPresaInCaricoInfo,
+                                                                     final Acknowledgment acknowledgment) {
         logIncomingMessage(emailSqsQueueName.interactiveName(), emailPresaInCaricoInfo);
-        lavorazioneRichiesta(emailPresaInCaricoInfo).doOnSuccess(result -> acknowledgment.acknowledge()).subscribe();
+        return lavorazioneRichiesta(emailPresaInCaricoInfo).doOnSuccess(result -> acknowledgment.acknowledge());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBatchConsumer() {
+        var batchDrain = sqsBatchDrainProperties.channel(SqsBatchDrainProperties.EMAIL);
+        if (batchDrain.isContinuous()) {
+            sqsReactiveConsumer.consume(emailSqsQueueName.batchName(),
+                                        EmailPresaInCaricoInfo.class,
+                                        this::lavorazioneRichiestaBatchMessage,
+                                        maxThreadPoolSize,
+                                        batchDrain.messagesPerSecond());
+        }
+    }
+
+    public Mono<SendMessageResponse> lavorazioneRichiestaBatchMessage(final EmailPresaInCaricoInfo emailPresaInCaricoInfo, final Acknowledgment acknowledgment) {
+        MDC.clear();
+        logIncomingMessage(emailSqsQueueName.batchName(), emailPresaInCaricoInfo);
+        return lavorazioneRichiesta(emailPresaInCaricoInfo).doOnNext(result -> acknowledgment.acknowledge());
     }
 
     @Scheduled(cron = "${PnEcCronLavorazioneBatchEmail ?:0 */5 * * * *}")
     public void lavorazioneRichiestaBatch() {
         MDC.clear();
+//      The continuous consumer replaces the cron drain
+        if (sqsBatchDrainProperties.channel(SqsBatchDrainProperties.EMAIL).isContinuous()) {
+            return;
+        }
         sqsService.getMessages(emailSqsQueueName.batchName(), EmailPresaInCaricoInfo.class)
                 .doOnNext(emailPresaInCaricoInfoSqsMessageWrapper -> logIncomingMessage(emailSqsQueueName.batchName(),
                         emailPresaInCaricoInfoSqsMessageWrapper.getMessageContent()))
                 .flatMap(emailPresaInCaricoInfoSqsMessageWrapper -> Mono.zip(Mono.just(emailPresaInCaricoInfoSqsMessageWrapper.getMessage()),
-                        lavorazioneRichiesta(emailPresaInCaricoInfoSqsMessageWrapper.getMessageContent())))
+                        sqsVisibilityExtender.extendWhileProcessing(emailSqsQueueName.batchName(),
+                                emailPresaInCaricoInfoSqsMessageWrapper.getMessage(),
+                                sqsConsumerMetrics.timeProcessing(emailSqsQueueName.batchName(), lavorazioneRichiesta(emailPresaInCaricoInfoSqsMessageWrapper.getMessageContent())))), maxThreadPoolSize)
                 .flatMap(emailPresaInCaricoInfoSqsMessageWrapper -> sqsService.deleteMessageFromQueue(
                         emailPresaInCaricoInfoSqsMessageWrapper.getT1(),
                         emailSqsQueueName.batchName()))
@@ -205,12 +256,6 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
         MDC.put(MDC_CORR_ID_KEY, concatRequestId(clientId, requestIdx));
         log.logStartingProcess(LAVORAZIONE_RICHIESTA_EMAIL);
 
-        try {
-            semaphore.acquire();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
         var digitalCourtesyMailRequest = emailPresaInCaricoInfo.getDigitalCourtesyMailRequest();
         AtomicReference<GeneratedMessageDto> generatedMessageDto = new AtomicReference<>();
 
@@ -265,8 +310,7 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
                                                                // Publish to ERRORI EMAIL queue
                                                                .then(sendNotificationOnErrorQueue(emailPresaInCaricoInfo)))
                                 .doOnError(exception -> log.logEndingProcess(LAVORAZIONE_RICHIESTA_EMAIL, false, exception.getMessage()))
-                                .doOnSuccess(result -> log.logEndingProcess(LAVORAZIONE_RICHIESTA_EMAIL))
-                                .doFinally(signalType -> semaphore.release());
+                                .doOnSuccess(result -> log.logEndingProcess(LAVORAZIONE_RICHIESTA_EMAIL));
     }
 
     private EmailField compilaMail(DigitalCourtesyMailRequest req) {
@@ -285,9 +329,18 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
         return ret;
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRetryConsumer() {
+        retryEngine.consume(emailSqsQueueName.errorName(), RetryPolicyRegistry.EMAIL, EmailPresaInCaricoInfo.class, this::gestioneRetryEmail);
+    }
+
     @Scheduled(cron = "${PnEcCronGestioneRetryEmail ?:0 */5 * * * *}")
     void gestioneRetryEmailScheduler() {
         MDC.clear();
+//      The retry engine replaces the cron
+        if (retryEngine.isEnabled()) {
+            return;
+        }
         idSaved = null;
         sqsService.getOneMessage(emailSqsQueueName.errorName(), EmailPresaInCaricoInfo.class)
                 .doOnNext(emailPresaInCaricoInfoSqsMessageWrapper -> logIncomingMessage(emailSqsQueueName.errorName(),
@@ -321,13 +374,17 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
         }
     }
 
-    private Mono<RequestDto> filterRequestEmail(final EmailPresaInCaricoInfo emailPresaInCaricoInfo) {
+    private Mono<RequestDto> filterRequestEmail(final EmailPresaInCaricoInfo emailPresaInCaricoInfo, Message message) {
         var requestId = emailPresaInCaricoInfo.getRequestIdx();
         log.debug(INVOKING_OPERATION_LABEL_WITH_ARGS, FILTER_REQUEST_EMAIL, requestId);
         var clientId = emailPresaInCaricoInfo.getXPagopaExtchCxId();
-        Policy retryPolicies = new Policy();
         String toDelete = "toDelete";
 
+        if (retryEngine.isStatelessBookkeeping()) {
+            return retryEngine.attemptRetry(RetryPolicyRegistry.EMAIL, clientId, requestId, message)
+                              .switchIfEmpty(Mono.error(new StatusToDeleteException(requestId)));
+        }
+
         return gestoreRepositoryCall.getRichiesta(clientId, requestId)
 //              check status toDelete
                 .filter(requestDto -> !Objects.equals(requestDto.getStatusRequest(), toDelete))
@@ -340,7 +397,7 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
                     if (requestDto.getRequestMetadata().getRetry() == null) {
                         log.debug(RETRY_ATTEMPT, FILTER_REQUEST_EMAIL, 0);
                         RetryDto retryDto = new RetryDto();
-                        return getMono(requestId, retryPolicies, requestDto, retryDto);
+                        return getMono(requestId, requestDto, retryDto);
 
                     } else {
                         var retryNumber = requestDto.getRequestMetadata().getRetry().getRetryStep();
@@ -378,7 +435,7 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
 
     private Mono<DeleteMessageResponse> checkTentativiEccessiviEmail(String requestId, RequestDto requestDto,
                                                                      final EmailPresaInCaricoInfo emailPresaInCaricoInfo, Message message) {
-        if (idSaved == null) {
+        if (idSaved == null && !retryEngine.isEnabled()) {
             idSaved = requestId;
         }
         var retry = requestDto.getRequestMetadata().getRetry();
@@ -403,7 +460,7 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
 
         AtomicReference<GeneratedMessageDto> generatedMessageDto = new AtomicReference<>();
 
-        return filterRequestEmail(emailPresaInCaricoInfo).flatMap(requestDto -> {
+        return filterRequestEmail(emailPresaInCaricoInfo, message).flatMap(requestDto -> {
                     // Try to send EMAIL
 //                                        check step error per evitare null pointer
                     if (emailPresaInCaricoInfo.getStepError() == null) {
@@ -497,8 +554,8 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
                 .doOnError(throwable -> log.error(EXCEPTION_IN_PROCESS, PROCESS_WITH_ATTACH_RETRY, throwable, throwable.getMessage()));
     }
 
-    private Mono<? extends RequestDto> getMono(String requestId, Policy retryPolicies, RequestDto requestDto, RetryDto retryDto) {
-        retryDto.setRetryPolicy(retryPolicies.getPolicy().get("EMAIL"));
+    private Mono<? extends RequestDto> getMono(String requestId, RequestDto requestDto, RetryDto retryDto) {
+        retryDto.setRetryPolicy(retryPolicyRegistry.getRetryPolicy(RetryPolicyRegistry.EMAIL, requestDto.getxPagopaExtchCxId()));
         retryDto.setRetryStep(BigDecimal.ZERO);
         retryDto.setLastRetryTimestamp(OffsetDateTime.now());
         requestDto.getRequestMetadata().setRetry(retryDto);
@@ -518,7 +575,7 @@ public class EmailService extends PresaInCaricoService implements QueueOperation
         AtomicReference<GeneratedMessageDto> generatedMessageDto = new AtomicReference<>();
         // Try to send EMAIL
         EmailField mailFld = compilaMail(digitalCourtesyMailRequest);
-        return filterRequestEmail(emailPresaInCaricoInfo).flatMap(requestDto -> {
+        return filterRequestEmail(emailPresaInCaricoInfo, message).flatMap(requestDto -> {
                     //                                        check step error per evitare null
                     //                                        pointer
                     if (emailPresaInCaricoInfo.getStepError() == null) {
@@ -7,11 +7,22 @@ import it.pagopa.pn.commons.utils.MDCUtils;
 import it.pagopa.pn.ec.commons.configurationproperties.TransactionProcessConfigurationProperties;
 import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
 import it.pagopa.pn.ec.commons.model.dto.NotificationTrackerQueueDto;
+import it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics;
+import it.pagopa.pn.ec.commons.service.sqs.SqsMessageDeduplicator;
 import it.pagopa.pn.ec.notificationtracker.service.NotificationTrackerService;
 import lombok.CustomLog;
 import org.slf4j.MDC;
+import org.springframework.messaging.handler.annotation.Headers;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import static it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics.APPROXIMATE_RECEIVE_COUNT;
+import static it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics.SENT_TIMESTAMP;
 import static it.pagopa.pn.ec.commons.utils.LogUtils.*;
 import static it.pagopa.pn.ec.commons.utils.RequestUtils.concatRequestId;
 import static it.pagopa.pn.ec.commons.utils.SqsUtils.logIncomingMessage;
@@ -24,133 +35,155 @@ public class NotificationTrackerMessageReceiver {
     private final NotificationTrackerService notificationTrackerService;
     private final NotificationTrackerSqsName notificationTrackerSqsName;
     private final TransactionProcessConfigurationProperties transactionProcessConfigurationProperties;
+    private final SqsMessageDeduplicator sqsMessageDeduplicator;
+    private final SqsConsumerMetrics sqsConsumerMetrics;
+
+    private static final String MESSAGE_ID_HEADER = "MessageId";
 
     public NotificationTrackerMessageReceiver(NotificationTrackerService notificationTrackerService,
                                               NotificationTrackerSqsName notificationTrackerSqsName,
-                                              TransactionProcessConfigurationProperties transactionProcessConfigurationProperties) {
+                                              TransactionProcessConfigurationProperties transactionProcessConfigurationProperties,
+                                              SqsMessageDeduplicator sqsMessageDeduplicator, SqsConsumerMetrics sqsConsumerMetrics) {
         this.notificationTrackerService = notificationTrackerService;
         this.notificationTrackerSqsName = notificationTrackerSqsName;
         this.transactionProcessConfigurationProperties = transactionProcessConfigurationProperties;
+        this.sqsMessageDeduplicator = sqsMessageDeduplicator;
+        this.sqsConsumerMetrics = sqsConsumerMetrics;
     }
 
     @SqsListener(value = "${sqs.queue.notification-tracker.stato-sms-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
+    public void receiveSMSObjectMessage(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment,
+                                        @Headers Map<String, Object> headers) {
+        receiveOnce(notificationTrackerSqsName.statoSmsName(), headers, acknowledgment,
+                    trackedAcknowledgment -> receiveSMSObjectMessage(notificationTrackerQueueDto, trackedAcknowledgment));
+    }
+
     public void receiveSMSObjectMessage(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment) {
-        String concatRequestId = concatRequestId(notificationTrackerQueueDto.getXPagopaExtchCxId(), notificationTrackerQueueDto.getRequestIdx());
-        MDC.clear();
-        MDC.put(MDC_CORR_ID_KEY, concatRequestId);
-        log.logStartingProcess(NT_RECEIVE_SMS);
-        logIncomingMessage(notificationTrackerSqsName.statoSmsName(), notificationTrackerQueueDto);
-        MDCUtils.addMDCToContextAndExecute(notificationTrackerService.handleRequestStatusChange(notificationTrackerQueueDto,
-                                                             transactionProcessConfigurationProperties.sms(),
-                                                             notificationTrackerSqsName.statoSmsName(),
-                                                             notificationTrackerSqsName.statoSmsErratoName(),
-                                                             acknowledgment)
-                .doOnSuccess(result -> log.logEndingProcess(NT_RECEIVE_SMS))
-                .doOnError(throwable -> log.logEndingProcess(NT_RECEIVE_SMS, false, throwable.getMessage())))
-                .subscribe();
+        processStatusChange(NT_RECEIVE_SMS, transactionProcessConfigurationProperties.sms(), notificationTrackerSqsName.statoSmsName(),
+                            notificationTrackerSqsName.statoSmsErratoName(), notificationTrackerQueueDto, acknowledgment);
     }
 
     @SqsListener(value = "${sqs.queue.notification-tracker.stato-sms-errato-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
+    public void receiveSMSObjectFromErrorQueue(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment,
+                                               @Headers Map<String, Object> headers) {
+        receiveOnce(notificationTrackerSqsName.statoSmsErratoName(), headers, acknowledgment,
+                    trackedAcknowledgment -> receiveSMSObjectFromErrorQueue(notificationTrackerQueueDto, trackedAcknowledgment));
+    }
+
     public void receiveSMSObjectFromErrorQueue(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment) {
-        String concatRequestId = concatRequestId(notificationTrackerQueueDto.getXPagopaExtchCxId(), notificationTrackerQueueDto.getRequestIdx());
-        MDC.clear();
-        MDC.put(MDC_CORR_ID_KEY, concatRequestId);
-        log.logStartingProcess(NT_RECEIVE_SMS_ERROR);
-        logIncomingMessage(notificationTrackerSqsName.statoSmsErratoName(), notificationTrackerQueueDto);
-        MDCUtils.addMDCToContextAndExecute(notificationTrackerService.handleMessageFromErrorQueue(notificationTrackerQueueDto, notificationTrackerSqsName.statoSmsName(), acknowledgment)
-                .doOnSuccess(result -> log.logEndingProcess(NT_RECEIVE_SMS_ERROR))
-                .doOnError(throwable -> log.logEndingProcess(NT_RECEIVE_SMS_ERROR, false, throwable.getMessage())))
-                .subscribe();
+        processFromErrorQueue(NT_RECEIVE_SMS_ERROR, notificationTrackerSqsName.statoSmsErratoName(), notificationTrackerSqsName.statoSmsName(),
+                              notificationTrackerQueueDto, acknowledgment);
     }
 
     @SqsListener(value = "${sqs.queue.notification-tracker.stato-email-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
+    public void receiveEmailObjectMessage(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment,
+                                          @Headers Map<String, Object> headers) {
+        receiveOnce(notificationTrackerSqsName.statoEmailName(), headers, acknowledgment,
+                    trackedAcknowledgment -> receiveEmailObjectMessage(notificationTrackerQueueDto, trackedAcknowledgment));
+    }
+
     public void receiveEmailObjectMessage(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment) {
-        String concatRequestId = concatRequestId(notificationTrackerQueueDto.getXPagopaExtchCxId(), notificationTrackerQueueDto.getRequestIdx());
-        MDC.clear();
-        MDC.put(MDC_CORR_ID_KEY, concatRequestId);
-        log.logStartingProcess(NT_RECEIVE_EMAIL);
-        logIncomingMessage(notificationTrackerSqsName.statoEmailName(), notificationTrackerQueueDto);
-        MDCUtils.addMDCToContextAndExecute(notificationTrackerService.handleRequestStatusChange(notificationTrackerQueueDto,
-                                                             transactionProcessConfigurationProperties.email(),
-                                                             notificationTrackerSqsName.statoEmailName(),
-                                                             notificationTrackerSqsName.statoEmailErratoName(),
-                                                             acknowledgment)
-                .doOnSuccess(result -> log.logEndingProcess(NT_RECEIVE_EMAIL))
-                .doOnError(throwable -> log.logEndingProcess(NT_RECEIVE_EMAIL, false, throwable.getMessage())))
-                .subscribe();
+        processStatusChange(NT_RECEIVE_EMAIL, transactionProcessConfigurationProperties.email(), notificationTrackerSqsName.statoEmailName(),
+                            notificationTrackerSqsName.statoEmailErratoName(), notificationTrackerQueueDto, acknowledgment);
     }
 
     @SqsListener(value = "${sqs.queue.notification-tracker.stato-email-errato-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
+    public void receiveEmailObjectFromErrorQueue(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment,
+                                                 @Headers Map<String, Object> headers) {
+        receiveOnce(notificationTrackerSqsName.statoEmailErratoName(), headers, acknowledgment,
+                    trackedAcknowledgment -> receiveEmailObjectFromErrorQueue(notificationTrackerQueueDto, trackedAcknowledgment));
+    }
+
     public void receiveEmailObjectFromErrorQueue(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment) {
-        String concatRequestId = concatRequestId(notificationTrackerQueueDto.getXPagopaExtchCxId(), notificationTrackerQueueDto.getRequestIdx());
-        MDC.clear();
-        MDC.put(MDC_CORR_ID_KEY, concatRequestId);
-        log.logStartingProcess(NT_RECEIVE_EMAIL_ERROR);
-        logIncomingMessage(notificationTrackerSqsName.statoEmailErratoName(), notificationTrackerQueueDto);
-        MDCUtils.addMDCToContextAndExecute(notificationTrackerService.handleMessageFromErrorQueue(notificationTrackerQueueDto, notificationTrackerSqsName.statoEmailName(), acknowledgment)
-                .doOnSuccess(result -> log.logEndingProcess(NT_RECEIVE_EMAIL_ERROR))
-                .doOnError(throwable -> log.logEndingProcess(NT_RECEIVE_EMAIL_ERROR, false, throwable.getMessage())))
-                .subscribe();
+        processFromErrorQueue(NT_RECEIVE_EMAIL_ERROR, notificationTrackerSqsName.statoEmailErratoName(), notificationTrackerSqsName.statoEmailName(),
+                              notificationTrackerQueueDto, acknowledgment);
     }
 
     @SqsListener(value = "${sqs.queue.notification-tracker.stato-pec-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
+    public void receivePecObjectMessage(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment,
+                                        @Headers Map<String, Object> headers) {
+        receiveOnce(notificationTrackerSqsName.statoPecName(), headers, acknowledgment,
+                    trackedAcknowledgment -> receivePecObjectMessage(notificationTrackerQueueDto, trackedAcknowledgment));
+    }
+
     public void receivePecObjectMessage(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment) {
-        String concatRequestId = concatRequestId(notificationTrackerQueueDto.getXPagopaExtchCxId(), notificationTrackerQueueDto.getRequestIdx());
-        MDC.clear();
-        MDC.put(MDC_CORR_ID_KEY, concatRequestId);
-        log.logStartingProcess(NT_RECEIVE_PEC);
-        logIncomingMessage(notificationTrackerSqsName.statoPecName(), notificationTrackerQueueDto);
-        MDCUtils.addMDCToContextAndExecute(notificationTrackerService.handleRequestStatusChange(notificationTrackerQueueDto,
-                                                             transactionProcessConfigurationProperties.pec(),
-                                                             notificationTrackerSqsName.statoPecName(),
-                                                             notificationTrackerSqsName.statoPecErratoName(),
-                                                             acknowledgment)
-                .doOnSuccess(result -> log.logEndingProcess(NT_RECEIVE_PEC))
-                .doOnError(throwable -> log.logEndingProcess(NT_RECEIVE_PEC, false, throwable.getMessage())))
-                .subscribe();
+        processStatusChange(NT_RECEIVE_PEC, transactionProcessConfigurationProperties.pec(), notificationTrackerSqsName.statoPecName(),
+                            notificationTrackerSqsName.statoPecErratoName(), notificationTrackerQueueDto, acknowledgment);
     }
 
     @SqsListener(value = "${sqs.queue.notification-tracker.stato-pec-errato-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
+    public void receivePecObjectFromErrorQueue(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment,
+                                               @Headers Map<String, Object> headers) {
+        receiveOnce(notificationTrackerSqsName.statoPecErratoName(), headers, acknowledgment,
+                    trackedAcknowledgment -> receivePecObjectFromErrorQueue(notificationTrackerQueueDto, trackedAcknowledgment));
+    }
+
     public void receivePecObjectFromErrorQueue(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment) {
-        String concatRequestId = concatRequestId(notificationTrackerQueueDto.getXPagopaExtchCxId(), notificationTrackerQueueDto.getRequestIdx());
-        MDC.clear();
-        MDC.put(MDC_CORR_ID_KEY, concatRequestId);
-        log.logStartingProcess(NT_RECEIVE_PEC_ERROR);
-        logIncomingMessage(notificationTrackerSqsName.statoPecErratoName(), notificationTrackerQueueDto);
-        MDCUtils.addMDCToContextAndExecute(notificationTrackerService.handleMessageFromErrorQueue(notificationTrackerQueueDto, notificationTrackerSqsName.statoPecName(), acknowledgment)
-                .doOnSuccess(result -> log.logEndingProcess(NT_RECEIVE_PEC_ERROR))
-                .doOnError(throwable -> log.logEndingProcess(NT_RECEIVE_PEC_ERROR, false, throwable.getMessage())))
-                .subscribe();
+        processFromErrorQueue(NT_RECEIVE_PEC_ERROR, notificationTrackerSqsName.statoPecErratoName(), notificationTrackerSqsName.statoPecName(),
+                              notificationTrackerQueueDto, acknowledgment);
     }
 
     @SqsListener(value = "${sqs.queue.notification-tracker.stato-cartaceo-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
+    public void receiveCartaceoObjectMessage(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment,
+                                             @Headers Map<String, Object> headers) {
+        receiveOnce(notificationTrackerSqsName.statoCartaceoName(), headers, acknowledgment,
+                    trackedAcknowledgment -> receiveCartaceoObjectMessage(notificationTrackerQueueDto, trackedAcknowledgment));
+    }
+
     public void receiveCartaceoObjectMessage(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment) {
-        String concatRequestId = concatRequestId(notificationTrackerQueueDto.getXPagopaExtchCxId(), notificationTrackerQueueDto.getRequestIdx());
-        MDC.clear();
-        MDC.put(MDC_CORR_ID_KEY, concatRequestId);
-        log.logStartingProcess(NT_RECEIVE_CARTACEO);
-        logIncomingMessage(notificationTrackerSqsName.statoCartaceoName(), notificationTrackerQueueDto);
-        MDCUtils.addMDCToContextAndExecute(notificationTrackerService.handleRequestStatusChange(notificationTrackerQueueDto,
-                                                             transactionProcessConfigurationProperties.paper(),
-                                                             notificationTrackerSqsName.statoCartaceoName(),
-                                                             notificationTrackerSqsName.statoCartaceoErratoName(),
-                                                             acknowledgment)
-                .doOnSuccess(result -> log.logEndingProcess(NT_RECEIVE_CARTACEO))
-                .doOnError(throwable -> log.logEndingProcess(NT_RECEIVE_CARTACEO, false, throwable.getMessage())))
-                .subscribe();
+        processStatusChange(NT_RECEIVE_CARTACEO, transactionProcessConfigurationProperties.paper(), notificationTrackerSqsName.statoCartaceoName(),
+                            notificationTrackerSqsName.statoCartaceoErratoName(), notificationTrackerQueueDto, acknowledgment);
     }
 
     @SqsListener(value = "${sqs.queue.notification-tracker.stato-cartaceo-errato-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
+    public void receiveCartaceoObjectFromErrorQueue(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment,
+                                                    @Headers Map<String, Object> headers) {
+        receiveOnce(notificationTrackerSqsName.statoCartaceoErratoName(), headers, acknowledgment,
+                    trackedAcknowledgment -> receiveCartaceoObjectFromErrorQueue(notificationTrackerQueueDto, trackedAcknowledgment));
+    }
+
     public void receiveCartaceoObjectFromErrorQueue(final NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment) {
-        String concatRequestId = concatRequestId(notificationTrackerQueueDto.getXPagopaExtchCxId(), notificationTrackerQueueDto.getRequestIdx());
+        processFromErrorQueue(NT_RECEIVE_CARTACEO_ERROR, notificationTrackerSqsName.statoCartaceoErratoName(),
+                              notificationTrackerSqsName.statoCartaceoName(), notificationTrackerQueueDto, acknowledgment);
+    }
+
+    // A redelivery of an already completed status change is acknowledged again without being processed
+    private void receiveOnce(String queueName, Map<String, Object> headers, Acknowledgment acknowledgment, Consumer<Acknowledgment> receiver) {
+        var messageId = header(headers, MESSAGE_ID_HEADER);
+        sqsConsumerMetrics.received(queueName, header(headers, SENT_TIMESTAMP), header(headers, APPROXIMATE_RECEIVE_COUNT));
+        var timedAcknowledgment = sqsConsumerMetrics.timeAcknowledgment(queueName, acknowledgment);
+        if (sqsMessageDeduplicator.isCompleted(queueName, messageId, null)) {
+            timedAcknowledgment.acknowledge();
+            return;
+        }
+        receiver.accept(sqsMessageDeduplicator.trackCompletion(queueName, messageId, null, timedAcknowledgment));
+    }
+
+    private static String header(Map<String, Object> headers, String name) {
+        return Objects.toString(headers.get(name), null);
+    }
+
+    private void processStatusChange(String processName, String processId, String queueName, String errorQueueName,
+                                     NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment) {
+        process(processName, queueName, notificationTrackerQueueDto,
+                () -> notificationTrackerService.handleRequestStatusChange(notificationTrackerQueueDto, processId, queueName, errorQueueName, acknowledgment));
+    }
+
+    private void processFromErrorQueue(String processName, String errorQueueName, String queueName,
+                                       NotificationTrackerQueueDto notificationTrackerQueueDto, Acknowledgment acknowledgment) {
+        process(processName, errorQueueName, notificationTrackerQueueDto,
+                () -> notificationTrackerService.handleMessageFromErrorQueue(notificationTrackerQueueDto, queueName, acknowledgment));
+    }
+
+    private void process(String processName, String queueName, NotificationTrackerQueueDto notificationTrackerQueueDto,
+                         Supplier<Mono<Void>> processing) {
         MDC.clear();
-        MDC.put(MDC_CORR_ID_KEY, concatRequestId);
-        log.logStartingProcess(NT_RECEIVE_CARTACEO_ERROR);
-        logIncomingMessage(notificationTrackerSqsName.statoCartaceoErratoName(), notificationTrackerQueueDto);
-        MDCUtils.addMDCToContextAndExecute(notificationTrackerService.handleMessageFromErrorQueue(notificationTrackerQueueDto, notificationTrackerSqsName.statoCartaceoName(), acknowledgment)
-                .doOnSuccess(result -> log.logEndingProcess(NT_RECEIVE_CARTACEO_ERROR))
-                .doOnError(throwable -> log.logEndingProcess(NT_RECEIVE_CARTACEO_ERROR, false, throwable.getMessage())))
+        MDC.put(MDC_CORR_ID_KEY, concatRequestId(notificationTrackerQueueDto.getXPagopaExtchCxId(), notificationTrackerQueueDto.getRequestIdx()));
+        log.logStartingProcess(processName);
+        logIncomingMessage(queueName, notificationTrackerQueueDto);
+        MDCUtils.addMDCToContextAndExecute(sqsConsumerMetrics.timeProcessing(queueName, processing.get())
+                                                             .doOnSuccess(result -> log.logEndingProcess(processName))
+                                                             .doOnError(throwable -> log.logEndingProcess(processName, false, throwable.getMessage())))
                 .subscribe();
     }
-
 }
@@ -1,10 +1,9 @@
 package it.pagopa.pn.ec.pec.service.impl;
 
 import io.awspring.cloud.messaging.listener.Acknowledgment;
-import io.awspring.cloud.messaging.listener.SqsMessageDeletionPolicy;
-import io.awspring.cloud.messaging.listener.annotation.SqsListener;
 import it.pagopa.pn.commons.utils.MDCUtils;
 import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchDrainProperties;
 import it.pagopa.pn.ec.commons.exception.aruba.ArubaCallMaxRetriesExceededException;
 import it.pagopa.pn.ec.commons.exception.aruba.ArubaSendException;
 import it.pagopa.pn.ec.commons.exception.email.ComposeMimeMessageException;
@@ -15,7 +14,7 @@ import it.pagopa.pn.ec.commons.model.pojo.email.EmailAttachment;
 import it.pagopa.pn.ec.commons.model.pojo.email.EmailField;
 import it.pagopa.pn.ec.commons.model.pojo.request.PresaInCaricoInfo;
 import it.pagopa.pn.ec.commons.model.pojo.request.StepError;
-import it.pagopa.pn.ec.commons.policy.Policy;
+import it.pagopa.pn.ec.commons.policy.RetryPolicyRegistry;
 import it.pagopa.pn.ec.commons.rest.call.aruba.ArubaCall;
 import it.pagopa.pn.ec.commons.rest.call.download.DownloadCall;
 import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
@@ -24,6 +23,10 @@ import it.pagopa.pn.ec.commons.service.PresaInCaricoService;
 import it.pagopa.pn.ec.commons.service.QueueOperationsService;
 import it.pagopa.pn.ec.commons.service.SqsService;
 import it.pagopa.pn.ec.commons.service.impl.AttachmentServiceImpl;
+import it.pagopa.pn.ec.commons.service.retry.RetryEngine;
+import it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
+import it.pagopa.pn.ec.commons.service.sqs.SqsVisibilityExtender;
 import it.pagopa.pn.ec.commons.utils.EmailUtils;
 import it.pagopa.pn.ec.pec.configurationproperties.PecSqsQueueName;
 import it.pagopa.pn.ec.pec.configurationproperties.PnPecConfigurationProperties;
@@ -37,6 +40,8 @@ import lombok.CustomLog;
 import org.apache.commons.io.output.CountingOutputStream;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
@@ -55,7 +60,6 @@ import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.Semaphore;
 import java.util.stream.Stream;
 
 import static it.pagopa.pn.ec.commons.constant.Status.*;
@@ -83,13 +87,22 @@ public class PecService extends PresaInCaricoService implements QueueOperationsS
     private final ArubaSecretValue arubaSecretValue;
     private final NotificationTrackerSqsName notificationTrackerSqsName;
     private final PecSqsQueueName pecSqsQueueName;
-    private final Semaphore semaphore;
+    private final SqsReactiveConsumer sqsReactiveConsumer;
+    private final SqsVisibilityExtender sqsVisibilityExtender;
+    private final SqsConsumerMetrics sqsConsumerMetrics;
+    private final SqsBatchDrainProperties sqsBatchDrainProperties;
+    private final RetryEngine retryEngine;
+    private final RetryPolicyRegistry retryPolicyRegistry;
+    private final Integer maxThreadPoolSize;
     private final PnPecConfigurationProperties pnPecProps;
     private String idSaved;
 
     protected PecService(AuthService authService, ArubaCall arubaCall, GestoreRepositoryCall gestoreRepositoryCall, SqsService sqsService
             , AttachmentServiceImpl attachmentService, DownloadCall downloadCall, ArubaSecretValue arubaSecretValue,
-                         NotificationTrackerSqsName notificationTrackerSqsName, PecSqsQueueName pecSqsQueueName, @Value("${lavorazione-pec.max-thread-pool-size}") Integer maxThreadPoolSize, PnPecConfigurationProperties pnPecProps) {
+                         NotificationTrackerSqsName notificationTrackerSqsName, PecSqsQueueName pecSqsQueueName, SqsReactiveConsumer sqsReactiveConsumer,
+                         SqsVisibilityExtender sqsVisibilityExtender, SqsConsumerMetrics sqsConsumerMetrics, SqsBatchDrainProperties sqsBatchDrainProperties, RetryEngine retryEngine,
+                         RetryPolicyRegistry retryPolicyRegistry,
+                         @Value("${lavorazione-pec.max-thread-pool-size}") Integer maxThreadPoolSize, PnPecConfigurationProperties pnPecProps) {
         super(authService);
         this.arubaCall = arubaCall;
         this.sqsService = sqsService;
@@ -99,7 +112,13 @@ public class PecService extends PresaInCaricoService implements QueueOperationsS
         this.arubaSecretValue = arubaSecretValue;
         this.notificationTrackerSqsName = notificationTrackerSqsName;
         this.pecSqsQueueName = pecSqsQueueName;
-        this.semaphore = new Semaphore(maxThreadPoolSize);
+        this.sqsReactiveConsumer = sqsReactiveConsumer;
+        this.sqsVisibilityExtender = sqsVisibilityExtender;
+        this.sqsConsumerMetrics = sqsConsumerMetrics;
+        this.sqsBatchDrainProperties = sqsBatchDrainProperties;
+        this.retryEngine = retryEngine;
+        this.retryPolicyRegistry = retryPolicyRegistry;
+        this.maxThreadPoolSize = maxThreadPoolSize;
         this.pnPecProps = pnPecProps;
     }
 
@@ -183,21 +202,53 @@ public class PecService extends PresaInCaricoService implements QueueOperationsS
         .doOnSuccess(result -> log.info(SUCCESSFUL_OPERATION_LABEL, INSERT_REQUEST_FROM_PEC, result));
     }
 
-    @SqsListener(value = "${sqs.queue.pec.interactive-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
-    public void lavorazioneRichiestaInteractive(final PecPresaInCaricoInfo pecPresaInCaricoInfo, final Acknowledgment acknowledgment) {
+    @EventListener(ApplicationReadyEvent.class)
+    public void startInteractiveConsumer() {
+        sqsReactiveConsumer.consume(pecSqsQueueName.interactiveName(),
+                                    PecPresaInCaricoInfo.class,
+                                    this::lavorazioneRichiestaInteractive,
+                                    maxThreadPoolSize);
+    }
+
+    public Mono<SendMessageResponse> lavorazioneRichiestaInteractive(final PecPresaInCaricoInfo pecPresaInCaricoInfo,
+                                                                     final Acknowledgment acknowledgment) {
         MDC.clear();
         logIncomingMessage(pecSqsQueueName.interactiveName(), pecPresaInCaricoInfo);
-        lavorazioneRichiesta(pecPresaInCaricoInfo).doOnNext(result -> acknowledgment.acknowledge()).subscribe();
+        return lavorazioneRichiesta(pecPresaInCaricoInfo).doOnNext(result -> acknowledgment.acknowledge());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startBatchConsumer() {
+        var batchDrain = sqsBatchDrainProperties.channel(SqsBatchDrainProperties.PEC);
+        if (batchDrain.isContinuous()) {
+            sqsReactiveConsumer.consume(pecSqsQueueName.batchName(),
+                                        PecPresaInCaricoInfo.class,
+                                        this::lavorazioneRichiestaBatchMessage,
+                                        maxThreadPoolSize,
+                                        batchDrain.messagesPerSecond());
+        }
+    }
+
+    public Mono<SendMessageResponse> lavorazioneRichiestaBatchMessage(final PecPresaInCaricoInfo pecPresaInCaricoInfo, final Acknowledgment acknowledgment) {
+        MDC.clear();
+        logIncomingMessage(pecSqsQueueName.batchName(), pecPresaInCaricoInfo);
+        return lavorazioneRichiesta(pecPresaInCaricoInfo).doOnNext(result -> acknowledgment.acknowledge());
     }
 
     @Scheduled(cron = "${PnEcCronLavorazioneBatchPec ?:0 */5 * * * *}")
     public void lavorazioneRichiestaBatch() {
         MDC.clear();
+//      The continuous consumer replaces the cron drain
+        if (sqsBatchDrainProperties.channel(SqsBatchDrainProperties.PEC).isContinuous()) {
+            return;
+        }
         sqsService.getMessages(pecSqsQueueName.batchName(), PecPresaInCaricoInfo.class)
                 .doOnNext(pecPresaInCaricoInfoSqsMessageWrapper -> logIncomingMessage(pecSqsQueueName.batchName(),
                         pecPresaInCaricoInfoSqsMessageWrapper.getMessageContent()))
                 .flatMap(pecPresaInCaricoInfoSqsMessageWrapper -> Mono.zip(Mono.just(pecPresaInCaricoInfoSqsMessageWrapper.getMessage()),
-                        lavorazioneRichiesta(pecPresaInCaricoInfoSqsMessageWrapper.getMessageContent())))
+                        sqsVisibilityExtender.extendWhileProcessing(pecSqsQueueName.batchName(),
+                                pecPresaInCaricoInfoSqsMessageWrapper.getMessage(),
+                                sqsConsumerMetrics.timeProcessing(pecSqsQueueName.batchName(), lavorazioneRichiesta(pecPresaInCaricoInfoSqsMessageWrapper.getMessageContent())))), maxThreadPoolSize)
                 .flatMap(pecPresaInCaricoInfoSqsMessageWrapper -> sqsService.deleteMessageFromQueue(pecPresaInCaricoInfoSqsMessageWrapper.getT1(),
                         pecSqsQueueName.batchName()))
                 .transform(pullFromFluxUntilIsEmpty())
@@ -214,12 +265,6 @@ public class PecService extends PresaInCaricoService implements QueueOperationsS
         MDC.put(MDC_CORR_ID_KEY, concatRequestId(xPagopaExtchCxId, requestIdx));
         log.logStartingProcess(LAVORAZIONE_RICHIESTA_PEC);
 
-        try {
-            semaphore.acquire();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
 //      Get attachment presigned url Flux
         return MDCUtils.addMDCToContextAndExecute(getAttachments(xPagopaExtchCxId, digitalNotificationRequest)
 
@@ -268,8 +313,7 @@ public class PecService extends PresaInCaricoService implements QueueOperationsS
 
                         .then(sendNotificationOnErrorQueue(pecPresaInCaricoInfo)))
                 .doOnSuccess(result -> log.logEndingProcess(LAVORAZIONE_RICHIESTA_PEC))
-                .doOnError(throwable -> log.logEndingProcess(LAVORAZIONE_RICHIESTA_PEC, false, throwable.getMessage()))
-                .doFinally(signalType -> semaphore.release()));
+                .doOnError(throwable -> log.logEndingProcess(LAVORAZIONE_RICHIESTA_PEC, false, throwable.getMessage())));
     }
 
 
@@ -360,9 +404,18 @@ public class PecService extends PresaInCaricoService implements QueueOperationsS
                 .system(getDomainFromAddress(arubaSecretValue.getPecUsername()));
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    public void startRetryConsumer() {
+        retryEngine.consume(pecSqsQueueName.errorName(), RetryPolicyRegistry.PEC, PecPresaInCaricoInfo.class, this::gestioneRetryPec);
+    }
+
     @Scheduled(cron = "${PnEcCronGestioneRetryPec ?:0 */5 * * * *}")
     void gestioneRetryPecScheduler() {
         MDC.clear();
+//      The retry engine replaces the cron
+        if (retryEngine.isEnabled()) {
+            return;
+        }
         idSaved = null;
         sqsService.getOneMessage(pecSqsQueueName.errorName(), PecPresaInCaricoInfo.class)
                 .doOnNext(pecPresaInCaricoInfoSqsMessageWrapper -> logIncomingMessage(pecSqsQueueName.errorName(),
@@ -376,15 +429,20 @@ public class PecService extends PresaInCaricoService implements QueueOperationsS
                 .subscribe();
     }
 
-    private Mono<RequestDto> filterRequestPec(final PecPresaInCaricoInfo pecPresaInCaricoInfo) {
+    private Mono<RequestDto> filterRequestPec(final PecPresaInCaricoInfo pecPresaInCaricoInfo, Message message) {
 
-        Policy retryPolicies = new Policy();
         var requestIdx = pecPresaInCaricoInfo.getRequestIdx();
         var clientId=pecPresaInCaricoInfo.getXPagopaExtchCxId();
         log.debug(INVOKING_OPERATION_LABEL_WITH_ARGS, FILTER_REQUEST_PEC, pecPresaInCaricoInfo);
 
         var xPagopaExtchCxId = pecPresaInCaricoInfo.getXPagopaExtchCxId();
         String toDelete = "toDelete";
+
+        if (retryEngine.isStatelessBookkeeping()) {
+            return retryEngine.attemptRetry(RetryPolicyRegistry.PEC, xPagopaExtchCxId, requestIdx, message)
+                              .switchIfEmpty(Mono.error(new StatusToDeleteException(requestIdx)));
+        }
+
         return gestoreRepositoryCall.getRichiesta(xPagopaExtchCxId, requestIdx)
 //              check status toDelete
                 .filter(requestDto -> !Objects.equals(requestDto.getStatusRequest(), toDelete))
@@ -397,7 +455,7 @@ public class PecService extends PresaInCaricoService implements QueueOperationsS
                     if (requestDto.getRequestMetadata().getRetry() == null) {
                         log.debug(RETRY_ATTEMPT, FILTER_REQUEST_PEC, 0);
                         RetryDto retryDto = new RetryDto();
-                        retryDto.setRetryPolicy(retryPolicies.getPolicy().get("PEC"));
+                        retryDto.setRetryPolicy(retryPolicyRegistry.getRetryPolicy(RetryPolicyRegistry.PEC, xPagopaExtchCxId));
                         retryDto.setRetryStep(BigDecimal.ZERO);
                         retryDto.setLastRetryTimestamp(OffsetDateTime.now());
                         requestDto.getRequestMetadata().setRetry(retryDto);
@@ -441,7 +499,7 @@ public class PecService extends PresaInCaricoService implements QueueOperationsS
 
     private Mono<DeleteMessageResponse> checkTentativiEccessiviPec(String requestIdx, RequestDto requestDto,
                                                                    final PecPresaInCaricoInfo pecPresaInCaricoInfo, Message message) {
-        if (idSaved == null) {
+        if (idSaved == null && !retryEngine.isEnabled()) {
             idSaved = requestIdx;
         }
         var retry = requestDto.getRequestMetadata().getRetry();
@@ -464,7 +522,7 @@ public class PecService extends PresaInCaricoService implements QueueOperationsS
         MDC.put(MDC_CORR_ID_KEY, concatRequestId(xPagopaExtchCxId, requestIdx));
         log.logStartingProcess(GESTIONE_RETRY_PEC);
 
-        return MDCUtils.addMDCToContextAndExecute(filterRequestPec(pecPresaInCaricoInfo).flatMap(requestDto -> {
+        return MDCUtils.addMDCToContextAndExecute(filterRequestPec(pecPresaInCaricoInfo, message).flatMap(requestDto -> {
 //            check step error per evitare null pointer
                     if (pecPresaInCaricoInfo.getStepError() == null) {
                         var stepError = new StepError();
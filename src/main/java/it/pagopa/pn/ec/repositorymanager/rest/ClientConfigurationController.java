@@ -1,5 +1,6 @@
 package it.pagopa.pn.ec.repositorymanager.rest;
 
+import it.pagopa.pn.ec.commons.service.AuthService;
 import it.pagopa.pn.ec.commons.utils.RestUtils;
 import it.pagopa.pn.ec.repositorymanager.model.entity.ClientConfigurationInternal;
 import it.pagopa.pn.ec.repositorymanager.service.ClientConfigurationService;
@@ -25,9 +26,13 @@ public class ClientConfigurationController implements ConfigurationsApi, Configu
 
     private final RestUtils restUtils;
 
-    public ClientConfigurationController(ClientConfigurationService clientConfigurationService, RestUtils restUtils) {
+    private final AuthService authService;
+
+    public ClientConfigurationController(ClientConfigurationService clientConfigurationService, RestUtils restUtils,
+                                         AuthService authService) {
         this.clientConfigurationService = clientConfigurationService;
         this.restUtils = restUtils;
+        this.authService = authService;
     }
 
     @Override
@@ -58,6 +63,8 @@ public class ClientConfigurationController implements ConfigurationsApi, Configu
         return clientConfigurationDto
                 .map(clientDtoToInsert -> restUtils.startCreateRequest(clientDtoToInsert, ClientConfigurationInternal.class))
                 .flatMap(clientConfigurationService::insertClient)
+                // A client not found until now may have been cached as unknown
+                .doOnNext(insertedClient -> authService.evictClientConfiguration(insertedClient.getCxId()))
                 .map(insertedClient -> restUtils.endCreateOrUpdateRequest(insertedClient,
                         ClientConfigurationInternalDto.class))
                 .doOnSuccess(result -> log.logEndingProcess(INSERT_CLIENT))
@@ -75,6 +82,7 @@ public class ClientConfigurationController implements ConfigurationsApi, Configu
                         ClientConfigurationInternal.class))
                 .flatMap(clientToUpdate -> clientConfigurationService.updateClient(xPagopaExtchCxId,
                         clientToUpdate))
+                .doOnNext(updatedClient -> authService.evictClientConfiguration(xPagopaExtchCxId))
                 .map(updatedClient -> restUtils.endCreateOrUpdateRequest(updatedClient,
                         ClientConfigurationInternalDto.class))
                 .doOnSuccess(result -> log.logEndingProcess(UPDATE_CLIENT))
@@ -85,6 +93,7 @@ public class ClientConfigurationController implements ConfigurationsApi, Configu
     public Mono<ResponseEntity<Void>> deleteClient(String xPagopaExtchCxId, ServerWebExchange exchange) {
         log.logStartingProcess(DELETE_CLIENT);
         return clientConfigurationService.deleteClient(xPagopaExtchCxId)
+                .doOnNext(deletedClient -> authService.evictClientConfiguration(xPagopaExtchCxId))
                 .map(retrievedClient -> restUtils.endDeleteRequest(retrievedClient, ClientConfigurationDto.class))
                 .doOnSuccess(result -> log.logEndingProcess(DELETE_CLIENT))
                 .doOnError(throwable -> log.logEndingProcess(DELETE_CLIENT, false, throwable.getMessage()))
@@ -1,10 +1,9 @@
 package it.pagopa.pn.ec.scaricamentoesitipec.service;
 
 import io.awspring.cloud.messaging.listener.Acknowledgment;
-import io.awspring.cloud.messaging.listener.SqsMessageDeletionPolicy;
-import io.awspring.cloud.messaging.listener.annotation.SqsListener;
 import it.pagopa.pn.commons.utils.MDCUtils;
 import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
 import it.pagopa.pn.ec.rest.v1.dto.EventsDto;
 import it.pagopa.pn.ec.scaricamentoesitipec.configurationproperties.CancellazioneRicevutePecProperties;
 import it.pagopa.pn.ec.scaricamentoesitipec.model.pojo.CancellazioneRicevutePecDto;
@@ -13,12 +12,12 @@ import it.pagopa.pn.library.pec.service.PnPecService;
 import lombok.CustomLog;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.concurrent.Semaphore;
-
 import static it.pagopa.pn.ec.commons.utils.LogUtils.*;
 import static it.pagopa.pn.ec.commons.utils.RequestUtils.concatRequestId;
 
@@ -28,37 +27,44 @@ public class CancellazioneRicevutePecService {
 
     private final PnPecService pnPecService;
     private final GestoreRepositoryCall gestoreRepositoryCall;
-    private final Semaphore semaphore;
+    private final CancellazioneRicevutePecProperties cancellazioneRicevutePecProperties;
+    private final SqsReactiveConsumer sqsReactiveConsumer;
+    private final Integer maxThreadPoolSize;
 
-    public CancellazioneRicevutePecService(PnPecService pnPecService, GestoreRepositoryCall gestoreRepositoryCall, @Value("${cancellazione-ricevute-pec.max-thread-pool-size}") Integer maxThreadPoolSize) {
+    public CancellazioneRicevutePecService(PnPecService pnPecService, GestoreRepositoryCall gestoreRepositoryCall,
+                                           CancellazioneRicevutePecProperties cancellazioneRicevutePecProperties,
+                                           SqsReactiveConsumer sqsReactiveConsumer,
+                                           @Value("${cancellazione-ricevute-pec.max-thread-pool-size}") Integer maxThreadPoolSize) {
         this.pnPecService = pnPecService;
         this.gestoreRepositoryCall = gestoreRepositoryCall;
+        this.cancellazioneRicevutePecProperties = cancellazioneRicevutePecProperties;
+        this.sqsReactiveConsumer = sqsReactiveConsumer;
         log.debug("{} max thread pool size : {} ", CANCELLAZIONE_RICEVUTE_PEC, maxThreadPoolSize);
-        this.semaphore = new Semaphore(maxThreadPoolSize);
+        this.maxThreadPoolSize = maxThreadPoolSize;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void startInteractiveConsumer() {
+        sqsReactiveConsumer.consume(cancellazioneRicevutePecProperties.sqsQueueName(),
+                                    CancellazioneRicevutePecDto.class,
+                                    this::cancellazioneRicevutePecInteractive,
+                                    maxThreadPoolSize);
     }
 
-    @SqsListener(value = "${cancellazione-ricevute-pec.sqs-queue-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
-    public void cancellazioneRicevutePecInteractive(final CancellazioneRicevutePecDto cancellazioneRicevutePecDto, Acknowledgment acknowledgment) {
+    public Mono<Void> cancellazioneRicevutePecInteractive(final CancellazioneRicevutePecDto cancellazioneRicevutePecDto, Acknowledgment acknowledgment) {
         var requestId = cancellazioneRicevutePecDto.getSingleStatusUpdate().getDigitalLegal().getRequestId();
         var clientId = cancellazioneRicevutePecDto.getSingleStatusUpdate().getClientId();
         MDC.clear();
         MDC.put(MDC_CORR_ID_KEY, concatRequestId(clientId, requestId));
         log.logStartingProcess(CANCELLAZIONE_RICEVUTE_PEC_INTERACTIVE);
-        MDCUtils.addMDCToContextAndExecute(cancellazioneRicevutePec(cancellazioneRicevutePecDto, requestId, acknowledgment)
+        return MDCUtils.addMDCToContextAndExecute(cancellazioneRicevutePec(cancellazioneRicevutePecDto, requestId, acknowledgment)
                 .doOnSuccess(result -> log.logEndingProcess(CANCELLAZIONE_RICEVUTE_PEC_INTERACTIVE))
-                .doOnError(throwable -> log.logEndingProcess(CANCELLAZIONE_RICEVUTE_PEC_INTERACTIVE, false, throwable.getMessage())))
-                .subscribe();
+                .doOnError(throwable -> log.logEndingProcess(CANCELLAZIONE_RICEVUTE_PEC_INTERACTIVE, false, throwable.getMessage())));
     }
 
     public Mono<Void> cancellazioneRicevutePec(final CancellazioneRicevutePecDto cancellazioneRicevutePecDto, String requestId, Acknowledgment acknowledgment) {
         log.debug(INVOKING_OPERATION_LABEL_WITH_ARGS, CANCELLAZIONE_RICEVUTE_PEC, cancellazioneRicevutePecDto);
 
-        try {
-            semaphore.acquire();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
         return Mono.just(cancellazioneRicevutePecDto.getSingleStatusUpdate())
                 .zipWhen(singleStatusUpdate -> gestoreRepositoryCall.getRichiesta(singleStatusUpdate.getClientId(), singleStatusUpdate.getDigitalLegal().getRequestId()))
                 .flatMap(tuple -> {
@@ -77,8 +83,7 @@ public class CancellazioneRicevutePecService {
                 .map(digitalProgressStatusDto -> digitalProgressStatusDto.getGeneratedMessage().getId())
                 .flatMap(pnPecService::deleteMessage)
                 .doOnError(throwable -> log.fatal(CANCELLAZIONE_RICEVUTE_PEC, throwable, throwable.getMessage()))
-                .doOnSuccess(result -> acknowledgment.acknowledge())
-                .doFinally(signalType -> semaphore.release());
+                .doOnSuccess(result -> acknowledgment.acknowledge());
     }
 
 }
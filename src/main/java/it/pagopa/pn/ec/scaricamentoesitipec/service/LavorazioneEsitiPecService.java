@@ -1,8 +1,6 @@
 package it.pagopa.pn.ec.scaricamentoesitipec.service;
 
 import io.awspring.cloud.messaging.listener.Acknowledgment;
-import io.awspring.cloud.messaging.listener.SqsMessageDeletionPolicy;
-import io.awspring.cloud.messaging.listener.annotation.SqsListener;
 import it.pagopa.pn.commons.utils.MDCUtils;
 import it.pagopa.pn.ec.commons.configurationproperties.TransactionProcessConfigurationProperties;
 import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
@@ -16,6 +14,7 @@ import it.pagopa.pn.ec.commons.service.S3Service;
 import it.pagopa.pn.library.pec.service.DaticertService;
 import it.pagopa.pn.ec.commons.service.SqsService;
 import it.pagopa.pn.ec.commons.service.StatusPullService;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
 import it.pagopa.pn.ec.pec.model.pojo.ArubaSecretValue;
 import it.pagopa.pn.ec.rest.v1.dto.DigitalProgressStatusDto;
 import it.pagopa.pn.ec.rest.v1.dto.FileCreationRequest;
@@ -29,6 +28,8 @@ import it.pagopa.pn.library.pec.model.pojo.Destinatari;
 import lombok.CustomLog;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Mono;
@@ -38,7 +39,6 @@ import java.net.URI;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static it.pagopa.pn.ec.commons.constant.DocumentType.PN_EXTERNAL_LEGAL_FACTS;
@@ -70,10 +70,11 @@ public class LavorazioneEsitiPecService {
     private final TransactionProcessConfigurationProperties transactionProcessConfigurationProperties;
     private final S3Service s3Service;
     private final String storageSqsMessagesStagingBucket;
-    private final Semaphore semaphore;
+    private final SqsReactiveConsumer sqsReactiveConsumer;
+    private final Integer maxThreadPoolSize;
     private static final String SAFESTORAGE_PREFIX = "safestorage://";
 
-    public LavorazioneEsitiPecService(SqsService sqsService, DaticertService daticertService, StatusPullService statusPullService, CloudWatchPecMetrics cloudWatchPecMetrics, NotificationTrackerSqsName notificationTrackerSqsName, ArubaSecretValue arubaSecretValue, FileCall fileCall, WebClient uploadWebClient, ScaricamentoEsitiPecProperties scaricamentoEsitiPecProperties, GestoreRepositoryCall gestoreRepositoryCall, CallMacchinaStati callMacchinaStati, TransactionProcessConfigurationProperties transactionProcessConfigurationProperties, S3Service s3Service, @Value("${lavorazione-esiti-pec.max-thread-pool-size}") Integer maxThreadPoolSize, @Value("${pn.ec.storage.sqs.messages.staging.bucket}") String storageSqsMessagesStagingBucket) {
+    public LavorazioneEsitiPecService(SqsService sqsService, DaticertService daticertService, StatusPullService statusPullService, CloudWatchPecMetrics cloudWatchPecMetrics, NotificationTrackerSqsName notificationTrackerSqsName, ArubaSecretValue arubaSecretValue, FileCall fileCall, WebClient uploadWebClient, ScaricamentoEsitiPecProperties scaricamentoEsitiPecProperties, GestoreRepositoryCall gestoreRepositoryCall, CallMacchinaStati callMacchinaStati, TransactionProcessConfigurationProperties transactionProcessConfigurationProperties, S3Service s3Service, SqsReactiveConsumer sqsReactiveConsumer, @Value("${lavorazione-esiti-pec.max-thread-pool-size}") Integer maxThreadPoolSize, @Value("${pn.ec.storage.sqs.messages.staging.bucket}") String storageSqsMessagesStagingBucket) {
         this.sqsService = sqsService;
         this.daticertService = daticertService;
         this.statusPullService = statusPullService;
@@ -88,13 +89,21 @@ public class LavorazioneEsitiPecService {
         this.transactionProcessConfigurationProperties = transactionProcessConfigurationProperties;
         this.s3Service = s3Service;
         this.storageSqsMessagesStagingBucket = storageSqsMessagesStagingBucket;
-        this.semaphore = new Semaphore(maxThreadPoolSize);
+        this.sqsReactiveConsumer = sqsReactiveConsumer;
+        this.maxThreadPoolSize = maxThreadPoolSize;
     }
 
-    @SqsListener(value = "${scaricamento-esiti-pec.sqs-queue-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
-    public void lavorazioneEsitiPecInteractive(final RicezioneEsitiPecDto ricezioneEsitiPecDto, Acknowledgment acknowledgment) {
+    @EventListener(ApplicationReadyEvent.class)
+    public void startInteractiveConsumer() {
+        sqsReactiveConsumer.consume(scaricamentoEsitiPecProperties.sqsQueueName(),
+                                    RicezioneEsitiPecDto.class,
+                                    this::lavorazioneEsitiPecInteractive,
+                                    maxThreadPoolSize);
+    }
+
+    public Mono<Void> lavorazioneEsitiPecInteractive(final RicezioneEsitiPecDto ricezioneEsitiPecDto, Acknowledgment acknowledgment) {
         logIncomingMessage(scaricamentoEsitiPecProperties.sqsQueueName(), ricezioneEsitiPecDto);
-        lavorazioneEsitiPec(ricezioneEsitiPecDto, acknowledgment).subscribe();
+        return lavorazioneEsitiPec(ricezioneEsitiPecDto, acknowledgment);
     }
 
     Mono<Void> lavorazioneEsitiPec(final RicezioneEsitiPecDto payload, Acknowledgment acknowledgment) {
@@ -119,12 +128,6 @@ public class LavorazioneEsitiPecService {
 
                             log.logStartingProcess(LAVORAZIONE_ESITI_PEC);
 
-                            try {
-                                semaphore.acquire();
-                            } catch (InterruptedException e) {
-                                Thread.currentThread().interrupt();
-                            }
-
                             AtomicReference<String> requestIdx = new AtomicReference<>();
 
                             return statusPullService.pecPullService(presaInCaricoInfo.getRequestIdx(), presaInCaricoInfo.getXPagopaExtchCxId())
@@ -219,8 +222,7 @@ public class LavorazioneEsitiPecService {
                     acknowledgment.acknowledge();
                 })
                 .doOnError(throwable -> log.logEndingProcess(LAVORAZIONE_ESITI_PEC, false, throwable.getMessage()))
-                .then()
-                .doFinally(signalType -> semaphore.release()));
+                .then());
     }
 
 
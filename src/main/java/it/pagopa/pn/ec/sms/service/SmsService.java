@@ -1,19 +1,22 @@
 package it.pagopa.pn.ec.sms.service;
 
 import io.awspring.cloud.messaging.listener.Acknowledgment;
-import io.awspring.cloud.messaging.listener.SqsMessageDeletionPolicy;
-import io.awspring.cloud.messaging.listener.annotation.SqsListener;
 import it.pagopa.pn.commons.utils.MDCUtils;
 import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchDrainProperties;
 import it.pagopa.pn.ec.commons.exception.sns.SnsSendException;
 import it.pagopa.pn.ec.commons.exception.sqs.SqsClientException;
 import it.pagopa.pn.ec.commons.exception.ss.attachment.StatusToDeleteException;
 import it.pagopa.pn.ec.commons.model.pojo.MonoResultWrapper;
 import it.pagopa.pn.ec.commons.model.pojo.request.PresaInCaricoInfo;
 import it.pagopa.pn.ec.commons.model.pojo.request.StepError;
-import it.pagopa.pn.ec.commons.policy.Policy;
+import it.pagopa.pn.ec.commons.policy.RetryPolicyRegistry;
 import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
 import it.pagopa.pn.ec.commons.service.*;
+import it.pagopa.pn.ec.commons.service.retry.RetryEngine;
+import it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
+import it.pagopa.pn.ec.commons.service.sqs.SqsVisibilityExtender;
 import it.pagopa.pn.ec.rest.v1.dto.*;
 import it.pagopa.pn.ec.sms.configurationproperties.SmsSqsQueueName;
 import it.pagopa.pn.ec.sms.model.pojo.SmsPresaInCaricoInfo;
@@ -21,6 +24,8 @@ import lombok.CustomLog;
 import lombok.CustomLog;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
@@ -34,7 +39,6 @@ import java.math.BigDecimal;
 import java.time.Duration;
 import java.time.OffsetDateTime;
 import java.util.Objects;
-import java.util.concurrent.Semaphore;
 
 import static it.pagopa.pn.ec.commons.constant.Status.*;
 import static it.pagopa.pn.ec.commons.model.dto.NotificationTrackerQueueDto.createNotificationTrackerQueueDtoDigital;
@@ -57,19 +61,34 @@ public class SmsService extends PresaInCaricoService implements QueueOperationsS
     private final GestoreRepositoryCall gestoreRepositoryCall;
     private final SmsSqsQueueName smsSqsQueueName;
     private final NotificationTrackerSqsName notificationTrackerSqsName;
-    private final Semaphore semaphore;
+    private final SqsReactiveConsumer sqsReactiveConsumer;
+    private final SqsVisibilityExtender sqsVisibilityExtender;
+    private final SqsConsumerMetrics sqsConsumerMetrics;
+    private final SqsBatchDrainProperties sqsBatchDrainProperties;
+    private final RetryEngine retryEngine;
+    private final RetryPolicyRegistry retryPolicyRegistry;
+    private final Integer maxThreadPoolSize;
     private String idSaved;
 
     protected SmsService(AuthService authService, SqsService sqsService, SnsService snsService,
                          GestoreRepositoryCall gestoreRepositoryCall, NotificationTrackerSqsName notificationTrackerSqsName,
-                         SmsSqsQueueName smsSqsQueueName, @Value("${lavorazione-sms.max-thread-pool-size}") Integer maxThreadPoolSize) {
+                         SmsSqsQueueName smsSqsQueueName, SqsReactiveConsumer sqsReactiveConsumer,
+                         SqsVisibilityExtender sqsVisibilityExtender, SqsConsumerMetrics sqsConsumerMetrics, SqsBatchDrainProperties sqsBatchDrainProperties, RetryEngine retryEngine,
+                         RetryPolicyRegistry retryPolicyRegistry,
+                         @Value("${lavorazione-sms.max-thread-pool-size}") Integer maxThreadPoolSize) {
         super(authService);
         this.sqsService = sqsService;
         this.snsService = snsService;
         this.gestoreRepositoryCall = gestoreRepositoryCall;
         this.notificationTrackerSqsName = notificationTrackerSqsName;
         this.smsSqsQueueName = smsSqsQueueName;
-        this.semaphore=new Semaphore(maxThreadPoolSize);
+        this.sqsReactiveConsumer = sqsReactiveConsumer;
+        this.sqsVisibilityExtender = sqsVisibilityExtender;
+        this.sqsConsumerMetrics = sqsConsumerMetrics;
+        this.sqsBatchDrainProperties = sqsBatchDrainProperties;
+        this.retryEngine = retryEngine;
+        this.retryPolicyRegistry = retryPolicyRegistry;
+        this.maxThreadPoolSize = maxThreadPoolSize;
     }
 
     private final Retry PRESA_IN_CARICO_RETRY_STRATEGY = Retry.backoff(3, Duration.ofMillis(500))
@@ -152,21 +171,53 @@ public class SmsService extends PresaInCaricoService implements QueueOperationsS
         .doOnSuccess(result -> log.info(SUCCESSFUL_OPERATION_LABEL, INSERT_REQUEST_FROM_SMS, result));
     }
 
-    @SqsListener(value = "${sqs.queue.sms.interactive-name}", deletionPolicy = SqsMessageDeletionPolicy.NEVER)
-    void lavorazioneRichiestaInteractive(final SmsPresaInCaricoInfo smsPresaInCaricoInfo, final Acknowledgment acknowledgment) {
+    @EventListener(ApplicationReadyEvent.class)
+    void startInteractiveConsumer() {
+        sqsReactiveConsumer.consume(smsSqsQueueName.interactiveName(),
+                                    SmsPresaInCaricoInfo.class,
+                                    this::lavorazioneRichiestaInteractive,
+                                    maxThreadPoolSize);
+    }
+
+    Mono<SendMessageResponse> lavorazioneRichiestaInteractive(final SmsPresaInCaricoInfo smsPresaInCaricoInfo, final Acknowledgment acknowledgment) {
         MDC.clear();
         logIncomingMessage(smsSqsQueueName.interactiveName(), smsPresaInCaricoInfo);
-        lavorazioneRichiesta(smsPresaInCaricoInfo).doOnNext(result -> acknowledgment.acknowledge()).subscribe();
+        return lavorazioneRichiesta(smsPresaInCaricoInfo).doOnNext(result -> acknowledgment.acknowledge());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    void startBatchConsumer() {
+        var batchDrain = sqsBatchDrainProperties.channel(SqsBatchDrainProperties.SMS);
+        if (batchDrain.isContinuous()) {
+            sqsReactiveConsumer.consume(smsSqsQueueName.batchName(),
+                                        SmsPresaInCaricoInfo.class,
+                                        this::lavorazioneRichiestaBatchMessage,
+                                        maxThreadPoolSize,
+                                        batchDrain.messagesPerSecond());
+        }
+    }
+
+    Mono<SendMessageResponse> lavorazioneRichiestaBatchMessage(final SmsPresaInCaricoInfo smsPresaInCaricoInfo, final Acknowledgment acknowledgment) {
+        MDC.clear();
+        logIncomingMessage(smsSqsQueueName.batchName(), smsPresaInCaricoInfo);
+        return lavorazioneRichiesta(smsPresaInCaricoInfo).doOnNext(result -> acknowledgment.acknowledge());
     }
 
     @Scheduled(cron = "${PnEcCronLavorazioneBatchSms ?:0 */5 * * * *}")
     void lavorazioneRichiestaBatch() {
         MDC.clear();
+//      The continuous consumer replaces the cron drain
+        if (sqsBatchDrainProperties.channel(SqsBatchDrainProperties.SMS).isContinuous()) {
+            return;
+        }
         sqsService.getMessages(smsSqsQueueName.batchName(), SmsPresaInCaricoInfo.class)
                   .doOnNext(smsPresaInCaricoInfoSqsMessageWrapper -> logIncomingMessage(smsSqsQueueName.batchName(),
                                                                                         smsPresaInCaricoInfoSqsMessageWrapper.getMessageContent()))
                   .flatMap(smsPresaInCaricoInfoSqsMessageWrapper -> Mono.zip(Mono.just(smsPresaInCaricoInfoSqsMessageWrapper.getMessage()),
-                                                                             lavorazioneRichiesta(smsPresaInCaricoInfoSqsMessageWrapper.getMessageContent())))
+                                                                             sqsVisibilityExtender.extendWhileProcessing(smsSqsQueueName.batchName(),
+                                                                                                                         smsPresaInCaricoInfoSqsMessageWrapper.getMessage(),
+                                                                                                                         sqsConsumerMetrics.timeProcessing(smsSqsQueueName.batchName(), lavorazioneRichiesta(smsPresaInCaricoInfoSqsMessageWrapper.getMessageContent())))),
+                           maxThreadPoolSize)
                   .flatMap(smsPresaInCaricoInfoSqsMessageWrapper -> sqsService.deleteMessageFromQueue(smsPresaInCaricoInfoSqsMessageWrapper.getT1(),
                                                                                                       smsSqsQueueName.batchName()))
                   .transform(pullFromFluxUntilIsEmpty())
@@ -183,12 +234,6 @@ public class SmsService extends PresaInCaricoService implements QueueOperationsS
         MDC.put(MDC_CORR_ID_KEY, concatRequestId(smsPresaInCaricoInfo.getXPagopaExtchCxId(), smsPresaInCaricoInfo.getRequestIdx()));
         log.logStartingProcess(LAVORAZIONE_RICHIESTA_SMS);
 
-        try {
-            semaphore.acquire();
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-
 //      Try to send SMS
         return MDCUtils.addMDCToContextAndExecute(snsService.send(smsPresaInCaricoInfo.getDigitalCourtesySmsRequest().getReceiverDigitalAddress(),
                                smsPresaInCaricoInfo.getDigitalCourtesySmsRequest().getMessageText())
@@ -224,17 +269,25 @@ public class SmsService extends PresaInCaricoService implements QueueOperationsS
 //                               Publish to ERRORI SMS queue
                 .then(sendNotificationOnErrorQueue(smsPresaInCaricoInfo)))
                 .doOnError(throwable -> log.logEndingProcess(LAVORAZIONE_RICHIESTA_SMS, false, throwable.getMessage()))
-                .doOnSuccess(result -> log.logEndingProcess(LAVORAZIONE_RICHIESTA_SMS))
-                .doFinally(signalType -> semaphore.release()));
+                .doOnSuccess(result -> log.logEndingProcess(LAVORAZIONE_RICHIESTA_SMS)));
     }
 
     private GeneratedMessageDto createGeneratedMessageDto(PublishResponse publishResponse) {
         return new GeneratedMessageDto().id(publishResponse.messageId()).system("toBeDefined");
     }
 
+    @EventListener(ApplicationReadyEvent.class)
+    void startRetryConsumer() {
+        retryEngine.consume(smsSqsQueueName.errorName(), RetryPolicyRegistry.SMS, SmsPresaInCaricoInfo.class, this::gestioneRetrySms);
+    }
+
     @Scheduled(cron = "${PnEcCronGestioneRetrySms ?:0 */5 * * * *}")
     public void gestioneRetrySmsScheduler() {
         MDC.clear();
+//      The retry engine replaces the cron
+        if (retryEngine.isEnabled()) {
+            return;
+        }
         idSaved = null;
         sqsService.getOneMessage(smsSqsQueueName.errorName(), SmsPresaInCaricoInfo.class)
                   .doOnNext(smsPresaInCaricoInfoSqsMessageWrapper -> logIncomingMessage(smsSqsQueueName.errorName(),
@@ -249,15 +302,19 @@ public class SmsService extends PresaInCaricoService implements QueueOperationsS
                   .subscribe();
     }
 
-    private Mono<RequestDto> filterRequestSms(final SmsPresaInCaricoInfo smsPresaInCaricoInfo) {
+    private Mono<RequestDto> filterRequestSms(final SmsPresaInCaricoInfo smsPresaInCaricoInfo, Message message) {
         log.debug(INVOKING_OPERATION_LABEL_WITH_ARGS, FILTER_REQUEST_SMS, smsPresaInCaricoInfo);
-        Policy retryPolicies = new Policy();
 
         String toDelete = "toDelete";
 
         var requestId = smsPresaInCaricoInfo.getRequestIdx();
         var clientId = smsPresaInCaricoInfo.getXPagopaExtchCxId();
 
+        if (retryEngine.isStatelessBookkeeping()) {
+            return retryEngine.attemptRetry(RetryPolicyRegistry.SMS, clientId, requestId, message)
+                              .switchIfEmpty(Mono.error(new StatusToDeleteException(requestId)));
+        }
+
         return gestoreRepositoryCall.getRichiesta(clientId, requestId)
 //              check status toDelete
                                     .filter(requestDto -> !Objects.equals(requestDto.getStatusRequest(), toDelete))
@@ -270,7 +327,7 @@ public class SmsService extends PresaInCaricoService implements QueueOperationsS
                                         if (requestDto.getRequestMetadata().getRetry() == null) {
                                             log.debug(RETRY_ATTEMPT, FILTER_REQUEST_SMS, 0);
                                             RetryDto retryDto = new RetryDto();
-                                            retryDto.setRetryPolicy(retryPolicies.getPolicy().get("SMS"));
+                                            retryDto.setRetryPolicy(retryPolicyRegistry.getRetryPolicy(RetryPolicyRegistry.SMS, clientId));
                                             retryDto.setRetryStep(BigDecimal.ZERO);
                                             retryDto.setLastRetryTimestamp(OffsetDateTime.now());
                                             requestDto.getRequestMetadata().setRetry(retryDto);
@@ -315,7 +372,7 @@ public class SmsService extends PresaInCaricoService implements QueueOperationsS
 
     private Mono<DeleteMessageResponse> checkTentativiEccessiviSms(String requestId, RequestDto requestDto,
                                                                    final SmsPresaInCaricoInfo smsPresaInCaricoInfo, Message message) {
-        if (idSaved == null) {
+        if (idSaved == null && !retryEngine.isEnabled()) {
             idSaved = requestId;
         }
         var retry = requestDto.getRequestMetadata().getRetry();
@@ -335,7 +392,7 @@ public class SmsService extends PresaInCaricoService implements QueueOperationsS
         MDC.put(MDC_CORR_ID_KEY, concatRequestId(smsPresaInCaricoInfo.getXPagopaExtchCxId(), requestId));
         log.logStartingProcess(GESTIONE_RETRY_SMS);
 
-        return MDCUtils.addMDCToContextAndExecute(filterRequestSms(smsPresaInCaricoInfo)
+        return MDCUtils.addMDCToContextAndExecute(filterRequestSms(smsPresaInCaricoInfo, message)
 //              Tentativo invio sms
 .flatMap(requestDto -> {
 //              check step error per evitare null pointer
@@ -6,10 +6,19 @@ import it.pagopa.pn.ec.cartaceo.mapper.CartaceoMapper;
 import it.pagopa.pn.ec.cartaceo.model.pojo.CartaceoPresaInCaricoInfo;
 import it.pagopa.pn.ec.cartaceo.testutils.PaperEngageRequestFactory;
 import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchDrainProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchDrainProperties.ChannelDrain;
+import it.pagopa.pn.ec.commons.policy.RetryPolicyRegistry;
 import it.pagopa.pn.ec.commons.rest.call.RestCallException;
 import it.pagopa.pn.ec.commons.rest.call.consolidatore.papermessage.PaperMessageCall;
 import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
+import it.pagopa.pn.ec.commons.service.AuthService;
 import it.pagopa.pn.ec.commons.service.SqsService;
+import it.pagopa.pn.ec.commons.service.impl.AttachmentServiceImpl;
+import it.pagopa.pn.ec.commons.service.retry.RetryEngine;
+import it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
+import it.pagopa.pn.ec.commons.service.sqs.SqsVisibilityExtender;
 import it.pagopa.pn.ec.rest.v1.dto.OperationResultCodeResponse;
 import it.pagopa.pn.ec.rest.v1.dto.PaperProgressStatusDto;
 import it.pagopa.pn.ec.rest.v1.dto.RequestDto;
@@ -24,6 +33,8 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
 
+import java.util.Map;
+
 import static it.pagopa.pn.ec.commons.constant.Status.*;
 import static it.pagopa.pn.ec.consolidatore.utils.PaperResult.*;
 import static it.pagopa.pn.ec.testutils.constant.EcCommonRestApiConstant.DEFAULT_ID_CLIENT_HEADER_VALUE;
@@ -32,6 +43,7 @@ import static org.mockito.AdditionalMatchers.not;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -196,4 +208,21 @@ class CartaceoServiceTest {
         assertTrue(testImplemented);
     }
 
-}
\ No newline at end of file
+    @Test
+    void continuousBatchDrainReplacesTheCron() {
+        var continuousConsumer = mock(SqsReactiveConsumer.class);
+        var cronSqsService = mock(SqsService.class);
+        var sqsBatchDrainProperties = new SqsBatchDrainProperties(Map.of(SqsBatchDrainProperties.CARTACEO, new ChannelDrain(true, 7.0)));
+        var continuousCartaceoService = new CartaceoService(mock(AuthService.class), cronSqsService, mock(GestoreRepositoryCall.class),
+                                                            mock(AttachmentServiceImpl.class), notificationTrackerSqsName, cartaceoSqsQueueName,
+                                                            mock(PaperMessageCall.class), mock(CartaceoMapper.class), continuousConsumer,
+                                                            mock(SqsVisibilityExtender.class), mock(SqsConsumerMetrics.class), sqsBatchDrainProperties,
+                                                            mock(RetryEngine.class), mock(RetryPolicyRegistry.class), 10);
+
+        continuousCartaceoService.startBatchConsumer();
+        continuousCartaceoService.lavorazioneRichiestaBatch();
+
+        verify(continuousConsumer).consume(eq(cartaceoSqsQueueName.batchName()), eq(CartaceoPresaInCaricoInfo.class), any(), anyInt(), eq(7.0));
+        verify(cronSqsService, never()).getMessages(any(), any());
+    }
+}
@@ -0,0 +1,58 @@
+package it.pagopa.pn.ec.commons.actuator;
+
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsRedriveResult;
+import it.pagopa.pn.ec.commons.service.sqs.SqsRedriveService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SqsRedriveEndpointTest {
+
+    private static final String SOURCE_QUEUE_NAME = "queue-DLQ.fifo";
+    private static final String TARGET_QUEUE_NAME = "queue.fifo";
+
+    private SqsRedriveService sqsRedriveService;
+    private SqsRedriveEndpoint sqsRedriveEndpoint;
+
+    @BeforeEach
+    void setUp() {
+        sqsRedriveService = mock(SqsRedriveService.class);
+        when(sqsRedriveService.isRedrivable(SOURCE_QUEUE_NAME)).thenReturn(true);
+        when(sqsRedriveService.isRedrivable(TARGET_QUEUE_NAME)).thenReturn(true);
+        sqsRedriveEndpoint = new SqsRedriveEndpoint(sqsRedriveService);
+    }
+
+    @Test
+    void redriveIsDelegatedToTheService() {
+        var result = new SqsRedriveResult(SOURCE_QUEUE_NAME, TARGET_QUEUE_NAME, 1, 1, 0, 0);
+        when(sqsRedriveService.redrive(SOURCE_QUEUE_NAME, TARGET_QUEUE_NAME, 10, 5.0, "CLIENT_ID", "REQUEST")).thenReturn(Mono.just(result));
+
+        StepVerifier.create(sqsRedriveEndpoint.redrive(SOURCE_QUEUE_NAME, TARGET_QUEUE_NAME, 10, 5.0, "CLIENT_ID", "REQUEST"))
+                    .expectNext(result)
+                    .verifyComplete();
+    }
+
+    @Test
+    void queuesNotConfiguredForRedriveAreRefused() {
+        assertThrows(InvalidEndpointRequestException.class,
+                     () -> sqsRedriveEndpoint.redrive("other-queue.fifo", TARGET_QUEUE_NAME, null, null, null, null));
+        assertThrows(InvalidEndpointRequestException.class,
+                     () -> sqsRedriveEndpoint.redrive(SOURCE_QUEUE_NAME, "other-queue.fifo", null, null, null, null));
+
+        verify(sqsRedriveService, never()).redrive(anyString(), anyString(), any(), any(), any(), any());
+    }
+
+    @Test
+    void sourceAndTargetQueuesMustDiffer() {
+        assertThrows(InvalidEndpointRequestException.class,
+                     () -> sqsRedriveEndpoint.redrive(SOURCE_QUEUE_NAME, SOURCE_QUEUE_NAME, null, null, null, null));
+
+        verify(sqsRedriveService, never()).redrive(anyString(), anyString(), any(), any(), any(), any());
+    }
+}
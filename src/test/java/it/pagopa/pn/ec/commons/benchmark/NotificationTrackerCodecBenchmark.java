@@ -0,0 +1,80 @@
+package it.pagopa.pn.ec.commons.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import it.pagopa.pn.ec.commons.model.dto.NotificationTrackerQueueDto;
+import it.pagopa.pn.ec.rest.v1.dto.DigitalProgressStatusDto;
+import it.pagopa.pn.ec.rest.v1.dto.GeneratedMessageDto;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares JSON and Smile for the messages of the notification tracker queues, serializing and parsing them with mappers
+ * configured as the one of the application. The size of the two encodings is printed on setup. Run it with the gc
+ * profiler to compare allocations:
+ * {@code java -cp <test classpath> it.pagopa.pn.ec.commons.benchmark.NotificationTrackerCodecBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NotificationTrackerCodecBenchmark {
+
+    private final ObjectMapper jsonMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper smileMapper = Jackson2ObjectMapperBuilder.json().factory(new SmileFactory()).build();
+    private NotificationTrackerQueueDto payload;
+    private byte[] jsonPayload;
+    private byte[] smilePayload;
+
+    @Setup
+    public void setUp() throws IOException {
+        var generatedMessageDto = new GeneratedMessageDto().id("<opec123.20230101120000.12345.678.1.59@pec.aruba.it>")
+                                                           .system("pec.aruba.it")
+                                                           .location("safestorage://PN_EXTERNAL_LEGAL_FACTS-abc123.eml");
+        var digitalProgressStatusDto = new DigitalProgressStatusDto().status("sent")
+                                                                     .eventTimestamp(OffsetDateTime.now())
+                                                                     .generatedMessage(generatedMessageDto);
+        payload = NotificationTrackerQueueDto.builder()
+                                             .requestIdx("PN-REQUEST-20230101-0000000001")
+                                             .xPagopaExtchCxId("pn-cons-000")
+                                             .nextStatus("sent")
+                                             .digitalProgressStatusDto(digitalProgressStatusDto)
+                                             .build();
+        jsonPayload = jsonMapper.writeValueAsBytes(payload);
+        smilePayload = smileMapper.writeValueAsBytes(payload);
+        System.out.printf("JSON payload: %d bytes, Smile payload: %d bytes%n", jsonPayload.length, smilePayload.length);
+    }
+
+    @Benchmark
+    public byte[] serializeJson() throws IOException {
+        return jsonMapper.writeValueAsBytes(payload);
+    }
+
+    @Benchmark
+    public byte[] serializeSmile() throws IOException {
+        return smileMapper.writeValueAsBytes(payload);
+    }
+
+    @Benchmark
+    public NotificationTrackerQueueDto deserializeJson() throws IOException {
+        return jsonMapper.readValue(jsonPayload, NotificationTrackerQueueDto.class);
+    }
+
+    @Benchmark
+    public NotificationTrackerQueueDto deserializeSmile() throws IOException {
+        return smileMapper.readValue(smilePayload, NotificationTrackerQueueDto.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(NotificationTrackerCodecBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+    }
+}
@@ -0,0 +1,77 @@
+package it.pagopa.pn.ec.commons.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.pagopa.pn.ec.commons.service.sqs.SqsPayloadSerializer;
+import it.pagopa.pn.ec.scaricamentoesitipec.model.pojo.RicezioneEsitiPecDto;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the preparation of a message body of the PEC receipts queue as done before the serialize-once path, i.e.
+ * serialization to a string, size measurement through a CountingOutputStream and a second serialization for the S3
+ * offload, with the pooled buffer of {@link SqsPayloadSerializer}. Run it with the gc profiler to compare allocations:
+ * {@code java -cp <test classpath> it.pagopa.pn.ec.commons.benchmark.SqsPayloadSizeBenchmark}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqsPayloadSizeBenchmark {
+
+    private static final int MAX_MESSAGE_SIZE = 200000;
+
+    @Param({"4096", "131072", "262144"})
+    private int messageBytes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SqsPayloadSerializer sqsPayloadSerializer = new SqsPayloadSerializer(objectMapper);
+    private RicezioneEsitiPecDto payload;
+
+    @Setup
+    public void setUp() {
+        var message = new byte[messageBytes];
+        ThreadLocalRandom.current().nextBytes(message);
+        payload = RicezioneEsitiPecDto.builder().messageID("<message-id@pec.it>").message(message).receiversDomain("pec.it").build();
+    }
+
+    @Benchmark
+    public void countingOutputStream(Blackhole blackhole) throws IOException {
+        var messageBody = objectMapper.writeValueAsString(payload);
+        var counterOutputStream = new CountingOutputStream(new ByteArrayOutputStream());
+        Writer writer = new OutputStreamWriter(counterOutputStream, StandardCharsets.UTF_8);
+        writer.write(messageBody);
+        writer.close();
+        if (counterOutputStream.getCount() > MAX_MESSAGE_SIZE) {
+            blackhole.consume(objectMapper.writeValueAsBytes(payload));
+        } else {
+            blackhole.consume(messageBody);
+        }
+    }
+
+    @Benchmark
+    public void pooledBuffer(Blackhole blackhole) throws IOException {
+        blackhole.consume(sqsPayloadSerializer.serialize(payload,
+                                                         (buffer, length) -> length > MAX_MESSAGE_SIZE
+                                                                             ? Arrays.copyOf(buffer, length)
+                                                                             : new String(buffer, 0, length, StandardCharsets.UTF_8)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(SqsPayloadSizeBenchmark.class.getSimpleName()).addProfiler("gc").build()).run();
+    }
+}
@@ -0,0 +1,93 @@
+package it.pagopa.pn.ec.commons.configuration.aws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsPayloadCodecProperties;
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsMessageContent;
+import it.pagopa.pn.ec.commons.service.sqs.SqsPayloadCodec;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.MimeType;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqsPayloadMessageConverterTest {
+
+    private static final String GZIP_QUEUE_NAME = "gzip-queue";
+    private static final String SMILE_QUEUE_NAME = "smile-queue";
+    private static final Map<String, Object> PAYLOAD = Map.of("requestIdx", "idx",
+                                                              "xPagopaExtchCxId", "cxId",
+                                                              "message", "Ricevuta di avvenuta consegna ".repeat(100));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SqsPayloadCodec sqsPayloadCodec = new SqsPayloadCodec(new SqsPayloadCodecProperties(List.of(GZIP_QUEUE_NAME),
+                                                                                                      List.of(),
+                                                                                                      List.of(SMILE_QUEUE_NAME),
+                                                                                                      64,
+                                                                                                      3),
+                                                                        objectMapper,
+                                                                        Jackson2ObjectMapperBuilder.json());
+    private final SqsPayloadMessageConverter sqsPayloadMessageConverter = new SqsPayloadMessageConverter(sqsPayloadCodec,
+                                                                                                         jsonMessageConverter());
+
+    @Test
+    void compressedPayloadIsDecoded() throws Exception {
+        var payload = objectMapper.writeValueAsBytes(PAYLOAD);
+        var messageContent = sqsPayloadCodec.encode(GZIP_QUEUE_NAME, payload, payload.length);
+
+        assertEquals(SqsPayloadCodec.GZIP, messageContent.messageAttributes().get(SqsPayloadCodec.CONTENT_ENCODING).stringValue());
+        assertEquals(PAYLOAD, sqsPayloadMessageConverter.fromMessage(listenerMessage(messageContent), Map.class));
+    }
+
+    @Test
+    void uncompressedPayloadIsDecoded() throws Exception {
+        var payload = sqsPayloadCodec.objectMapper(SMILE_QUEUE_NAME).writeValueAsBytes(PAYLOAD);
+        var messageContent = sqsPayloadCodec.encode(SMILE_QUEUE_NAME, payload, payload.length);
+
+        assertEquals(SqsPayloadCodec.IDENTITY, messageContent.messageAttributes().get(SqsPayloadCodec.CONTENT_ENCODING).stringValue());
+        assertEquals(PAYLOAD, sqsPayloadMessageConverter.fromMessage(listenerMessage(messageContent), Map.class));
+    }
+
+    @Test
+    void legacyPlainJsonPayloadIsConvertedByTheJsonConverter() throws Exception {
+        var payload = objectMapper.writeValueAsBytes(PAYLOAD);
+        var messageContent = sqsPayloadCodec.encode("other-queue", payload, payload.length);
+
+        assertTrue(messageContent.messageAttributes().isEmpty());
+        var message = listenerMessage(messageContent);
+        assertFalse(message.getHeaders().containsKey(SqsPayloadCodec.ENCODED_PAYLOAD));
+        assertEquals(PAYLOAD, sqsPayloadMessageConverter.fromMessage(message, Map.class));
+    }
+
+    private static MappingJackson2MessageConverter jsonMessageConverter() {
+        var jsonMessageConverter = new MappingJackson2MessageConverter();
+        jsonMessageConverter.setStrictContentTypeMatch(false);
+        return jsonMessageConverter;
+    }
+
+    /**
+     * Builds the message as the listener container does: the binary attributes become ByteBuffer headers, the
+     * contentType attribute a MimeType header and the other string attributes String headers.
+     */
+    private static Message<String> listenerMessage(final SqsMessageContent messageContent) {
+        var messageBuilder = MessageBuilder.withPayload(messageContent.messageBody());
+        messageContent.messageAttributes().forEach((name, value) -> {
+            if (value.binaryValue() != null) {
+                messageBuilder.setHeader(name, value.binaryValue().asByteBuffer());
+            } else if (MessageHeaders.CONTENT_TYPE.equals(name)) {
+                messageBuilder.setHeader(name, MimeType.valueOf(value.stringValue()));
+            } else {
+                messageBuilder.setHeader(name, value.stringValue());
+            }
+        });
+        return messageBuilder.build();
+    }
+}
@@ -0,0 +1,70 @@
+package it.pagopa.pn.ec.commons.configuration.http;
+
+import it.pagopa.pn.ec.commons.configurationproperties.http.HttpClientProfilesProperties.HttpClientProfile;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.client.http.HttpClientTransportOverHTTP;
+import org.eclipse.jetty.http2.client.http.HttpClientTransportOverHTTP2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JettyHttpClientConfTest {
+
+    private static final String URL = "http://localhost:8080";
+
+    private final JettyHttpClientConf jettyHttpClientConf = new JettyHttpClientConf();
+
+    @AfterEach
+    void tearDown() {
+        jettyHttpClientConf.stopProfileHttpClients();
+    }
+
+    @Test
+    void profileTunesThePoolAndTheTimeouts() {
+        var httpClient = jettyHttpClientConf.newJettyHttpClient(new HttpClientProfile(32, 30_000L, 2_000L, 10_000L, 1024, false), false);
+
+        assertEquals(32, httpClient.getMaxConnectionsPerDestination());
+        assertEquals(30_000L, httpClient.getIdleTimeout());
+        assertEquals(2_000L, httpClient.getConnectTimeout());
+        assertEquals(10_000L, httpClient.newRequest(URL).getIdleTimeout());
+        assertEquals(HttpClientTransportOverHTTP.class, httpClient.getTransport().getClass());
+        assertFalse(httpClient.getSslContextFactory().isTrustAll());
+    }
+
+    @Test
+    void missingSettingsKeepTheJettyDefaults() {
+        var defaultHttpClient = new HttpClient();
+
+        var httpClient = jettyHttpClientConf.newJettyHttpClient(new HttpClientProfile(null, null, null, null, null, null), false);
+
+        assertEquals(defaultHttpClient.getMaxConnectionsPerDestination(), httpClient.getMaxConnectionsPerDestination());
+        assertEquals(defaultHttpClient.getIdleTimeout(), httpClient.getIdleTimeout());
+        assertEquals(defaultHttpClient.getConnectTimeout(), httpClient.getConnectTimeout());
+        assertEquals(defaultHttpClient.newRequest(URL).getIdleTimeout(), httpClient.newRequest(URL).getIdleTimeout());
+    }
+
+    @Test
+    void http2ProfileUsesTheHttp2Transport() {
+        var httpClient = jettyHttpClientConf.newJettyHttpClient(new HttpClientProfile(32, null, null, null, null, true), false);
+
+        assertEquals(HttpClientTransportOverHTTP2.class, httpClient.getTransport().getClass());
+    }
+
+    @Test
+    void trustAllProfileTrustsEveryCertificate() {
+        var httpClient = jettyHttpClientConf.newJettyHttpClient(new HttpClientProfile(32, null, null, null, null, false), true);
+
+        assertTrue(httpClient.getSslContextFactory().isTrustAll());
+    }
+
+    @Test
+    void everyProfileGetsAClientOfItsOwn() {
+        var profile = new HttpClientProfile(32, null, null, null, null, false);
+
+        assertNotSame(jettyHttpClientConf.newJettyHttpClient(profile, false), jettyHttpClientConf.newJettyHttpClient(profile, false));
+    }
+}
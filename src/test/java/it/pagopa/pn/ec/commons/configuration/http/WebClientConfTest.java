@@ -0,0 +1,112 @@
+package it.pagopa.pn.ec.commons.configuration.http;
+
+import com.sun.net.httpserver.HttpServer;
+import it.pagopa.pn.ec.commons.configurationproperties.http.HttpClientProfilesProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.http.HttpClientProfilesProperties.HttpClientProfile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.*;
+
+class WebClientConfTest {
+
+    private static final String BODY = "x".repeat(64);
+
+    private HttpServer httpServer;
+    private String baseUrl;
+    private JettyHttpClientConf jettyHttpClientConf;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        httpServer = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        httpServer.createContext("/", exchange -> {
+            byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (var responseBody = exchange.getResponseBody()) {
+                responseBody.write(body);
+            }
+        });
+        httpServer.start();
+        baseUrl = "http://localhost:" + httpServer.getAddress().getPort();
+        var conf = new JettyHttpClientConf();
+        ReflectionTestUtils.setField(conf, "corrIdHeaderName", "x-pagopa-pn-cx-id");
+        jettyHttpClientConf = spy(conf);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jettyHttpClientConf.stopProfileHttpClients();
+        httpServer.stop(0);
+    }
+
+    @Test
+    void everyWebClientGetsTheClientOfItsProfile() {
+        var downloadProfile = profile(512, 64);
+        var uploadProfile = profile(256, 64);
+        var webClientConf = new WebClientConf(jettyHttpClientConf,
+                                              new HttpClientProfilesProperties(Map.of("download", downloadProfile, "upload", uploadProfile)));
+
+        webClientConf.downloadWebClient();
+        webClientConf.uploadWebClient();
+
+        verify(jettyHttpClientConf).newJettyHttpClient(downloadProfile, false);
+        verify(jettyHttpClientConf).newJettyHttpClient(uploadProfile, false);
+        verify(jettyHttpClientConf, never()).getJettyHttpClient();
+        var profileHttpClients = (List<?>) ReflectionTestUtils.getField(jettyHttpClientConf, "profileHttpClients");
+        assertEquals(2, profileHttpClients.stream().distinct().count());
+    }
+
+    @Test
+    void responsesWithinTheCodecLimitOfTheProfileAreDecoded() {
+        var downloadWebClient = new WebClientConf(jettyHttpClientConf,
+                                                  new HttpClientProfilesProperties(Map.of("download", profile(8, 128)))).downloadWebClient();
+
+        StepVerifier.create(downloadWebClient.get().uri(baseUrl).retrieve().bodyToMono(String.class)).expectNext(BODY).verifyComplete();
+    }
+
+    @Test
+    void responsesOverTheCodecLimitOfTheProfileAreRejected() {
+        var downloadWebClient = new WebClientConf(jettyHttpClientConf,
+                                                  new HttpClientProfilesProperties(Map.of("download", profile(8, 16)))).downloadWebClient();
+
+        StepVerifier.create(downloadWebClient.get().uri(baseUrl).retrieve().bodyToMono(String.class))
+                    .verifyError(DataBufferLimitException.class);
+    }
+
+    @Test
+    void webClientWithoutAProfileUsesTheSharedClient() {
+        var webClientConf = new WebClientConf(jettyHttpClientConf, new HttpClientProfilesProperties(Map.of()));
+
+        webClientConf.uploadWebClient();
+
+        verify(jettyHttpClientConf).getJettyHttpClient();
+        verify(jettyHttpClientConf, never()).newJettyHttpClient(any(), anyBoolean());
+    }
+
+    @Test
+    void missingProfilesUseTheSharedClient() {
+        var webClientConf = new WebClientConf(jettyHttpClientConf, new HttpClientProfilesProperties(null));
+
+        webClientConf.downloadWebClient();
+
+        verify(jettyHttpClientConf).getJettyHttpClient();
+        verify(jettyHttpClientConf, never()).newJettyHttpClient(any(), anyBoolean());
+    }
+
+    private static HttpClientProfile profile(final int maxConnectionsPerDestination, final int maxInMemorySizeBytes) {
+        return new HttpClientProfile(maxConnectionsPerDestination, 60_000L, 5_000L, 30_000L, maxInMemorySizeBytes, false);
+    }
+}
@@ -0,0 +1,111 @@
+package it.pagopa.pn.ec.commons.policy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.pagopa.pn.ec.commons.configurationproperties.retry.RetryPolicyProperties;
+import it.pagopa.pn.ec.commons.exception.PolicyFileNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import software.amazon.awssdk.services.ssm.SsmClient;
+import software.amazon.awssdk.services.ssm.model.GetParameterResponse;
+import software.amazon.awssdk.services.ssm.model.Parameter;
+import software.amazon.awssdk.services.ssm.model.ParameterNotFoundException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RetryPolicyRegistryTest {
+
+    private static final Instant LAST_ATTEMPT = Instant.parse("2023-01-01T10:00:00Z");
+
+    private static RetryPolicyRegistry registry(String location) {
+        return new RetryPolicyRegistry(new DefaultResourceLoader(),
+                                       mock(SsmClient.class),
+                                       new ObjectMapper(),
+                                       new RetryPolicyProperties(location, "", 0L));
+    }
+
+    @Test
+    void channelPoliciesAreLoadedFromTheClasspath() {
+        var retryPolicyRegistry = registry("classpath:commons/retryPolicy.json");
+
+        assertEquals(List.of(BigDecimal.valueOf(5), BigDecimal.valueOf(10), BigDecimal.valueOf(20), BigDecimal.valueOf(40)),
+                     retryPolicyRegistry.getRetryPolicy(RetryPolicyRegistry.PEC, "CLIENT_ID"));
+        assertArrayEquals(new Duration[]{Duration.ofMinutes(5), Duration.ofMinutes(10), Duration.ofMinutes(20), Duration.ofMinutes(40)},
+                          retryPolicyRegistry.getDelays(RetryPolicyRegistry.SMS, null));
+        assertEquals(LAST_ATTEMPT.plus(Duration.ofMinutes(20)), retryPolicyRegistry.nextAttemptAt(RetryPolicyRegistry.EMAIL, 2, LAST_ATTEMPT));
+        assertEquals(LAST_ATTEMPT, retryPolicyRegistry.nextAttemptAt(RetryPolicyRegistry.PAPER, 4, LAST_ATTEMPT));
+        assertThrows(IllegalArgumentException.class, () -> retryPolicyRegistry.nextAttemptAt("FAX", 0, LAST_ATTEMPT));
+    }
+
+    @Test
+    void clientPoliciesOverrideTheChannelOnes(@TempDir Path tempDir) throws IOException {
+        var policies = tempDir.resolve("retryPolicy.json");
+        Files.writeString(policies, """
+                {
+                  "SMS": [5, 10],
+                  "clients": {
+                    "CLIENT_ID": { "SMS": [1, 2, 3] }
+                  }
+                }
+                """);
+        var retryPolicyRegistry = registry(policies.toUri().toString());
+
+        assertEquals(LAST_ATTEMPT.plus(Duration.ofMinutes(2)),
+                     retryPolicyRegistry.nextAttemptAt(RetryPolicyRegistry.SMS, "CLIENT_ID", 1, LAST_ATTEMPT));
+        assertEquals(LAST_ATTEMPT.plus(Duration.ofMinutes(10)),
+                     retryPolicyRegistry.nextAttemptAt(RetryPolicyRegistry.SMS, "OTHER_CLIENT_ID", 1, LAST_ATTEMPT));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void policiesAreLoadedFromTheSsmParameter() {
+        var ssmClient = mock(SsmClient.class);
+        var parameter = Parameter.builder().value("{ \"SMS\": [3] }").build();
+        when(ssmClient.getParameter(any(Consumer.class))).thenReturn(GetParameterResponse.builder().parameter(parameter).build());
+
+        var retryPolicyRegistry = new RetryPolicyRegistry(new DefaultResourceLoader(),
+                                                          ssmClient,
+                                                          new ObjectMapper(),
+                                                          new RetryPolicyProperties("classpath:commons/retryPolicy.json", "policies", 0L));
+
+        assertEquals(LAST_ATTEMPT.plus(Duration.ofMinutes(3)), retryPolicyRegistry.nextAttemptAt(RetryPolicyRegistry.SMS, 0, LAST_ATTEMPT));
+        assertThrows(IllegalArgumentException.class, () -> retryPolicyRegistry.nextAttemptAt(RetryPolicyRegistry.PEC, 0, LAST_ATTEMPT));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unreadableSsmParameterIsReportedAsTheSource() {
+        var ssmClient = mock(SsmClient.class);
+        when(ssmClient.getParameter(any(Consumer.class))).thenThrow(ParameterNotFoundException.builder().message("not found").build());
+        var retryPolicyProperties = new RetryPolicyProperties("classpath:commons/retryPolicy.json", "policies", 0L);
+        var resourceLoader = new DefaultResourceLoader();
+        var objectMapper = new ObjectMapper();
+
+        var exception = assertThrows(PolicyFileNotFoundException.class,
+                                     () -> new RetryPolicyRegistry(resourceLoader, ssmClient, objectMapper, retryPolicyProperties));
+
+        assertTrue(exception.getMessage().contains("ssm:policies"), exception.getMessage());
+    }
+
+    @Test
+    void missingResourceIsReportedAsTheSource() {
+        var exception = assertThrows(PolicyFileNotFoundException.class, () -> registry("classpath:missing.json"));
+
+        assertTrue(exception.getMessage().contains("classpath:missing.json"), exception.getMessage());
+    }
+}
@@ -0,0 +1,69 @@
+package it.pagopa.pn.ec.commons.rest.call.consolidatore.papermessage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.concurrency.AdaptiveConcurrencyProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.concurrency.AdaptiveConcurrencyProperties.LimiterProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.endpoint.internal.consolidatore.PaperMessagesEndpointProperties;
+import it.pagopa.pn.ec.commons.rest.call.RestCallException;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PaperMessageCallImplTest {
+
+    private static final String REQUEST_ID = "requestId";
+
+    private AdaptiveConcurrencyLimiters adaptiveConcurrencyLimiters;
+
+    @BeforeEach
+    void setUp() {
+        adaptiveConcurrencyLimiters = new AdaptiveConcurrencyLimiters(new AdaptiveConcurrencyProperties(Map.of(AdaptiveConcurrencyLimiters.CONSOLIDATORE,
+                                                                                                               new LimiterProperties(8,
+                                                                                                                                     1,
+                                                                                                                                     10,
+                                                                                                                                     60_000L,
+                                                                                                                                     0.5))),
+                                                                      new SimpleMeterRegistry());
+    }
+
+    @Test
+    void unknownRequestKeepsTheLimit() {
+        StepVerifier.create(paperMessageCall(HttpStatus.NOT_FOUND).getProgress(REQUEST_ID))
+                    .expectError(RestCallException.ResourceNotFoundException.class)
+                    .verify();
+
+        assertEquals(8, adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.CONSOLIDATORE).getLimit());
+    }
+
+    @Test
+    void failingConsolidatoreLowersTheLimit() {
+        StepVerifier.create(paperMessageCall(HttpStatus.BAD_GATEWAY).getProgress(REQUEST_ID))
+                    .expectError(WebClientResponseException.class)
+                    .verify();
+
+        assertEquals(4, adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.CONSOLIDATORE).getLimit());
+    }
+
+    private PaperMessageCallImpl paperMessageCall(final HttpStatus responseStatus) {
+        var consolidatoreWebClient = WebClient.builder()
+                                              .baseUrl("http://localhost")
+                                              .exchangeFunction(request -> Mono.just(ClientResponse.create(responseStatus).build()))
+                                              .build();
+        return new PaperMessageCallImpl(consolidatoreWebClient,
+                                        new PaperMessagesEndpointProperties("/piattaforma-notifiche-ingress/v1/paper-deliveries-engagements",
+                                                                            "/piattaforma-notifiche-ingress/v1/paper-replicas-engagements",
+                                                                            "/piattaforma-notifiche-ingress/v1/paper-deliveries-progresses/{requestId}",
+                                                                            "/piattaforma-notifiche-ingress/v1/paper-replicas-progresses/{requestId}"),
+                                        adaptiveConcurrencyLimiters);
+    }
+}
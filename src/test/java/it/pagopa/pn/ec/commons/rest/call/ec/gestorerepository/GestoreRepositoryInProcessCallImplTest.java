@@ -0,0 +1,106 @@
+package it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository;
+
+import it.pagopa.pn.ec.commons.exception.RepositoryManagerException;
+import it.pagopa.pn.ec.commons.rest.call.RestCallException;
+import it.pagopa.pn.ec.commons.utils.RestUtils;
+import it.pagopa.pn.ec.pec.exception.MessageIdException;
+import it.pagopa.pn.ec.repositorymanager.model.pojo.Request;
+import it.pagopa.pn.ec.repositorymanager.service.ClientConfigurationService;
+import it.pagopa.pn.ec.repositorymanager.service.RequestService;
+import it.pagopa.pn.ec.rest.v1.dto.PatchDto;
+import it.pagopa.pn.ec.rest.v1.dto.RequestDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class GestoreRepositoryInProcessCallImplTest {
+
+    private static final String CLIENT_ID = "CLIENT_ID";
+    private static final String REQUEST_IDX = "REQUEST_IDX";
+
+    private RequestService requestService;
+    private GestoreRepositoryInProcessCallImpl gestoreRepositoryCall;
+
+    @BeforeEach
+    void setUp() {
+        requestService = mock(RequestService.class);
+        gestoreRepositoryCall = new GestoreRepositoryInProcessCallImpl(requestService,
+                                                                       mock(ClientConfigurationService.class),
+                                                                       new RestUtils(Jackson2ObjectMapperBuilder.json().build()));
+    }
+
+    @Test
+    void getRichiestaConvertsTheRequest() {
+        when(requestService.getRequest(CLIENT_ID, REQUEST_IDX)).thenReturn(Mono.just(Request.builder()
+                                                                                            .requestId(REQUEST_IDX)
+                                                                                            .xPagopaExtchCxId(CLIENT_ID)
+                                                                                            .build()));
+
+        StepVerifier.create(gestoreRepositoryCall.getRichiesta(CLIENT_ID, REQUEST_IDX))
+                    .assertNext(requestDto -> assertEquals(REQUEST_IDX, requestDto.getRequestIdx()))
+                    .verifyComplete();
+    }
+
+    @Test
+    void getRichiestaNotFound() {
+        when(requestService.getRequest(CLIENT_ID, REQUEST_IDX)).thenReturn(Mono.error(new RepositoryManagerException.RequestNotFoundException(
+                REQUEST_IDX)));
+
+        StepVerifier.create(gestoreRepositoryCall.getRichiesta(CLIENT_ID, REQUEST_IDX))
+                    .expectError(RestCallException.ResourceNotFoundException.class)
+                    .verify();
+    }
+
+    @Test
+    void insertRichiestaAlreadyPresent() {
+        when(requestService.insertRequest(any())).thenReturn(Mono.error(new RepositoryManagerException.IdRequestAlreadyPresent(REQUEST_IDX)));
+
+        StepVerifier.create(gestoreRepositoryCall.insertRichiesta(new RequestDto().requestIdx(REQUEST_IDX)))
+                    .expectError(RestCallException.ResourceAlreadyExistsException.class)
+                    .verify();
+    }
+
+    @Test
+    void insertRichiestaWithSameHashIsEmpty() {
+        when(requestService.insertRequest(any())).thenReturn(Mono.error(new RepositoryManagerException.RequestWithSameHash(REQUEST_IDX,
+                                                                                                                           "hash")));
+
+        StepVerifier.create(gestoreRepositoryCall.insertRichiesta(new RequestDto().requestIdx(REQUEST_IDX))).verifyComplete();
+    }
+
+    @Test
+    void patchRichiestaUnhandledStatus() {
+        when(requestService.patchRequest(any(), any(), any())).thenReturn(Mono.error(new IllegalStateException("boom")));
+
+        StepVerifier.create(gestoreRepositoryCall.patchRichiesta(CLIENT_ID, REQUEST_IDX, new PatchDto()))
+                    .expectErrorSatisfies(throwable -> assertEquals(500,
+                                                                    ((WebClientResponseException) throwable).getRawStatusCode()))
+                    .verify();
+    }
+
+    @Test
+    void getRequestByMessageIdBadMessageId() {
+        when(requestService.getRequestByMessageId("messageId")).thenReturn(Mono.error(new MessageIdException.DecodeMessageIdException()));
+
+        StepVerifier.create(gestoreRepositoryCall.getRequestByMessageId("messageId"))
+                    .expectError(GestoreRepositoryCallImpl.BadMessageIdProvidedException.class)
+                    .verify();
+    }
+
+    @Test
+    void setMessageIdInRequestMetadataInternalServerError() {
+        when(requestService.setMessageIdInRequestMetadata(CLIENT_ID, REQUEST_IDX)).thenReturn(Mono.error(new MessageIdException.EncodeMessageIdException()));
+
+        StepVerifier.create(gestoreRepositoryCall.setMessageIdInRequestMetadata(CLIENT_ID, REQUEST_IDX))
+                    .expectError(GestoreRepositoryCallImpl.ISEForMessageIdCreationException.class)
+                    .verify();
+    }
+}
@@ -0,0 +1,104 @@
+package it.pagopa.pn.ec.commons.rest.call.machinestate;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.StateMachineCacheProperties;
+import it.pagopa.pn.ec.commons.exception.InvalidNextStatusException;
+import it.pagopa.pn.ec.commons.exception.StatusNotFoundException;
+import it.pagopa.pn.ec.commons.model.dto.MacchinaStatiDecodeResponseDto;
+import it.pagopa.pn.ec.commons.model.dto.MacchinaStatiValidateStatoResponseDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class CallMacchinaStatiCacheTest {
+
+    private static final String CLIENT_ID = "CLIENT_ID";
+    private static final String PROCESS_ID = "PEC";
+
+    private CallMacchinaStatiImpl callMacchinaStatiImpl;
+    private SimpleMeterRegistry meterRegistry;
+    private CallMacchinaStatiCache callMacchinaStatiCache;
+
+    @BeforeEach
+    void setUp() {
+        callMacchinaStatiImpl = mock(CallMacchinaStatiImpl.class);
+        meterRegistry = new SimpleMeterRegistry();
+        callMacchinaStatiCache = new CallMacchinaStatiCache(callMacchinaStatiImpl,
+                                                            new StateMachineCacheProperties(true, 100L, 60L),
+                                                            meterRegistry);
+    }
+
+    @Test
+    void statusValidationIsMemoized() {
+        when(callMacchinaStatiImpl.statusValidation(CLIENT_ID, PROCESS_ID, "booked", "sent")).thenReturn(Mono.just(
+                MacchinaStatiValidateStatoResponseDto.builder().allowed(true).build()));
+
+        StepVerifier.create(callMacchinaStatiCache.statusValidation(CLIENT_ID, PROCESS_ID, "booked", "sent")).expectNextCount(1).verifyComplete();
+        StepVerifier.create(callMacchinaStatiCache.statusValidation(CLIENT_ID, PROCESS_ID, "booked", "sent")).expectNextCount(1).verifyComplete();
+
+        verify(callMacchinaStatiImpl, times(1)).statusValidation(CLIENT_ID, PROCESS_ID, "booked", "sent");
+        assertEquals(1, lookups("validation", "hit"));
+        assertEquals(1, lookups("validation", "miss"));
+    }
+
+    @Test
+    void refusedTransitionIsMemoized() {
+        when(callMacchinaStatiImpl.statusValidation(CLIENT_ID, PROCESS_ID, "sent", "booked")).thenReturn(Mono.error(new InvalidNextStatusException(
+                "sent",
+                "booked",
+                CLIENT_ID,
+                PROCESS_ID)));
+
+        StepVerifier.create(callMacchinaStatiCache.statusValidation(CLIENT_ID, PROCESS_ID, "sent", "booked"))
+                    .expectError(InvalidNextStatusException.class)
+                    .verify();
+        StepVerifier.create(callMacchinaStatiCache.statusValidation(CLIENT_ID, PROCESS_ID, "sent", "booked"))
+                    .expectError(InvalidNextStatusException.class)
+                    .verify();
+
+        verify(callMacchinaStatiImpl, times(1)).statusValidation(CLIENT_ID, PROCESS_ID, "sent", "booked");
+    }
+
+    @Test
+    void concurrentDecodesShareTheCall() {
+        Sinks.One<MacchinaStatiDecodeResponseDto> response = Sinks.one();
+        when(callMacchinaStatiImpl.statusDecode(CLIENT_ID, PROCESS_ID, "sent")).thenReturn(response.asMono());
+
+        var first = callMacchinaStatiCache.statusDecode(CLIENT_ID, PROCESS_ID, "sent").toFuture();
+        var second = callMacchinaStatiCache.statusDecode(CLIENT_ID, PROCESS_ID, "sent").toFuture();
+        response.tryEmitValue(MacchinaStatiDecodeResponseDto.builder().logicStatus("sent").externalStatus("ACCEPTED").build());
+
+        StepVerifier.create(Mono.fromFuture(first)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(Mono.fromFuture(second)).expectNextCount(1).verifyComplete();
+        verify(callMacchinaStatiImpl, times(1)).statusDecode(CLIENT_ID, PROCESS_ID, "sent");
+    }
+
+    @Test
+    void failedDecodeIsNotMemoized() {
+        when(callMacchinaStatiImpl.statusDecode(CLIENT_ID, PROCESS_ID, "sent")).thenReturn(Mono.error(new IllegalStateException("timeout")))
+                                                                               .thenReturn(Mono.error(new StatusNotFoundException("sent")));
+
+        StepVerifier.create(callMacchinaStatiCache.statusDecode(CLIENT_ID, PROCESS_ID, "sent"))
+                    .expectError(IllegalStateException.class)
+                    .verify(Duration.ofSeconds(5));
+        StepVerifier.create(callMacchinaStatiCache.statusDecode(CLIENT_ID, PROCESS_ID, "sent"))
+                    .expectError(StatusNotFoundException.class)
+                    .verify(Duration.ofSeconds(5));
+        StepVerifier.create(callMacchinaStatiCache.statusDecode(CLIENT_ID, PROCESS_ID, "sent"))
+                    .expectError(StatusNotFoundException.class)
+                    .verify(Duration.ofSeconds(5));
+
+        verify(callMacchinaStatiImpl, times(2)).statusDecode(CLIENT_ID, PROCESS_ID, "sent");
+    }
+
+    private double lookups(final String operation, final String result) {
+        return meterRegistry.counter("state.machine.cache.lookups", "operation", operation, "result", result).count();
+    }
+}
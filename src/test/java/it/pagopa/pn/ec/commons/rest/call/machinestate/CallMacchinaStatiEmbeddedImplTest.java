@@ -0,0 +1,86 @@
+package it.pagopa.pn.ec.commons.rest.call.machinestate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.pagopa.pn.ec.commons.configurationproperties.StateMachineEmbeddedProperties;
+import it.pagopa.pn.ec.commons.exception.InvalidNextStatusException;
+import it.pagopa.pn.ec.commons.exception.StatusNotFoundException;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CallMacchinaStatiEmbeddedImplTest {
+
+    private static final String CLIENT_ID = "CLIENT_ID";
+
+    private static CallMacchinaStatiEmbeddedImpl callMacchinaStati;
+
+    @BeforeAll
+    static void loadStateMachines() {
+        callMacchinaStati = new CallMacchinaStatiEmbeddedImpl(new StateMachineEmbeddedProperties(true,
+                                                                                                 "classpath:statemachine/StateMachines.json"),
+                                                              new DefaultResourceLoader(),
+                                                              new ObjectMapper());
+    }
+
+    @Test
+    void allowedTransition() {
+        StepVerifier.create(callMacchinaStati.statusValidation(CLIENT_ID, "PEC", "booked", "sent"))
+                    .assertNext(response -> assertTrue(response.isAllowed()))
+                    .verifyComplete();
+    }
+
+    @Test
+    void transitionAllowedFromAnyStatus() {
+        StepVerifier.create(callMacchinaStati.statusValidation(CLIENT_ID, "EMAIL", "sent", "internalError"))
+                    .assertNext(response -> assertTrue(response.isAllowed()))
+                    .verifyComplete();
+    }
+
+    @Test
+    void refusedTransition() {
+        StepVerifier.create(callMacchinaStati.statusValidation(CLIENT_ID, "SMS", "sent", "booked"))
+                    .expectError(InvalidNextStatusException.class)
+                    .verify();
+    }
+
+    @Test
+    void decodeStatus() {
+        StepVerifier.create(callMacchinaStati.statusDecode(CLIENT_ID, "PEC", "accepted")).assertNext(response -> {
+            assertEquals("PROGRESS", response.getExternalStatus());
+            assertEquals("C001", response.getLogicStatus());
+        }).verifyComplete();
+    }
+
+    @Test
+    void decodeStatusWithoutExternalStatus() {
+        StepVerifier.create(callMacchinaStati.statusDecode(CLIENT_ID, "EMAIL", "unknown")).expectError(StatusNotFoundException.class).verify();
+    }
+
+    @Test
+    void decodeUnknownProcess() {
+        StepVerifier.create(callMacchinaStati.statusDecode(CLIENT_ID, "UNKNOWN", "sent")).expectError(StatusNotFoundException.class).verify();
+    }
+
+    @Test
+    void decodeUnknownStatusDoesNotFallBackToAnyStatus() {
+        StepVerifier.create(callMacchinaStati.statusDecode(CLIENT_ID, "PAPER", "UNKNOWN")).expectError(StatusNotFoundException.class).verify();
+    }
+
+    @Test
+    void missingStateMachinesFailTheStartup() {
+        var resourceLoader = new DefaultResourceLoader();
+        var objectMapper = new ObjectMapper();
+
+        assertThrows(IllegalStateException.class,
+                     () -> new CallMacchinaStatiEmbeddedImpl(new StateMachineEmbeddedProperties(true, "classpath:statemachine/Missing.json"),
+                                                             resourceLoader,
+                                                             objectMapper));
+        assertThrows(IllegalStateException.class,
+                     () -> new CallMacchinaStatiEmbeddedImpl(new StateMachineEmbeddedProperties(true, ""), resourceLoader, objectMapper));
+    }
+}
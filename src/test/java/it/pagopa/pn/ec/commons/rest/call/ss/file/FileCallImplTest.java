@@ -0,0 +1,75 @@
+package it.pagopa.pn.ec.commons.rest.call.ss.file;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.concurrency.AdaptiveConcurrencyProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.concurrency.AdaptiveConcurrencyProperties.LimiterProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.endpoint.internal.ss.FilesEndpointProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.endpoint.internal.ss.SafeStorageEndpointProperties;
+import it.pagopa.pn.ec.commons.exception.ss.attachment.AttachmentNotAvailableException;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileCallImplTest {
+
+    private static final String FILE_KEY = "fileKey";
+    private static final String CLIENT_ID = "CLIENT_ID";
+
+    private AdaptiveConcurrencyLimiters adaptiveConcurrencyLimiters;
+
+    @BeforeEach
+    void setUp() {
+        adaptiveConcurrencyLimiters = new AdaptiveConcurrencyLimiters(new AdaptiveConcurrencyProperties(Map.of(AdaptiveConcurrencyLimiters.SAFE_STORAGE,
+                                                                                                               new LimiterProperties(8,
+                                                                                                                                     1,
+                                                                                                                                     10,
+                                                                                                                                     60_000L,
+                                                                                                                                     0.5))),
+                                                                      new SimpleMeterRegistry());
+    }
+
+    @Test
+    void missingAttachmentKeepsTheLimit() {
+        StepVerifier.create(fileCall(HttpStatus.NOT_FOUND).getFile(FILE_KEY, CLIENT_ID, false))
+                    .expectError(AttachmentNotAvailableException.class)
+                    .verify();
+
+        assertEquals(8, adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.SAFE_STORAGE).getLimit());
+    }
+
+    @Test
+    void unavailableSafeStorageLowersTheLimit() {
+        StepVerifier.create(fileCall(HttpStatus.SERVICE_UNAVAILABLE).getFile(FILE_KEY, CLIENT_ID, false))
+                    .expectError(WebClientResponseException.class)
+                    .verify();
+
+        assertEquals(4, adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.SAFE_STORAGE).getLimit());
+    }
+
+    private FileCallImpl fileCall(final HttpStatus responseStatus) {
+        var ssWebClient = WebClient.builder()
+                                   .baseUrl("http://localhost")
+                                   .exchangeFunction(request -> Mono.just(ClientResponse.create(responseStatus).build()))
+                                   .build();
+        return new FileCallImpl(ssWebClient,
+                                new SafeStorageEndpointProperties("http://localhost",
+                                                                  "x-pagopa-safestorage-cx-id",
+                                                                  CLIENT_ID,
+                                                                  "x-api-key",
+                                                                  "apiKey",
+                                                                  "x-checksum-value",
+                                                                  "x-amzn-trace-id"),
+                                new FilesEndpointProperties("/safe-storage/v1/files/{fileKey}", "/safe-storage/v1/files"),
+                                adaptiveConcurrencyLimiters);
+    }
+}
@@ -0,0 +1,97 @@
+package it.pagopa.pn.ec.commons.service;
+
+import it.pagopa.pn.ec.commons.configurationproperties.ClientConfigurationCacheProperties;
+import it.pagopa.pn.ec.commons.exception.ClientNotFoundException;
+import it.pagopa.pn.ec.commons.exception.InvalidApiKeyException;
+import it.pagopa.pn.ec.commons.rest.call.RestCallException;
+import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
+import it.pagopa.pn.ec.commons.service.impl.AuthServiceImpl;
+import it.pagopa.pn.ec.rest.v1.dto.ClientConfigurationInternalDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import static org.mockito.Mockito.*;
+
+class AuthServiceImplTest {
+
+    private static final String CLIENT_ID = "CLIENT_ID";
+    private static final String API_KEY = "API_KEY";
+    private static final ClientConfigurationCacheProperties CACHE_ENABLED =
+            new ClientConfigurationCacheProperties(true, 100L, 600L, 300L, 30L);
+
+    private GestoreRepositoryCall gestoreRepositoryCall;
+
+    @BeforeEach
+    void setUp() {
+        gestoreRepositoryCall = mock(GestoreRepositoryCall.class);
+    }
+
+    @Test
+    void clientConfigurationIsLoadedOnce() {
+        when(gestoreRepositoryCall.getClientConfiguration(CLIENT_ID)).thenReturn(Mono.just(clientConfiguration()));
+        var authService = new AuthServiceImpl(gestoreRepositoryCall, CACHE_ENABLED);
+
+        StepVerifier.create(authService.clientAuth(CLIENT_ID)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(authService.validateApiKey(CLIENT_ID, API_KEY)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(authService.validateApiKey(CLIENT_ID, "WRONG")).expectError(InvalidApiKeyException.class).verify();
+
+        verify(gestoreRepositoryCall, times(1)).getClientConfiguration(CLIENT_ID);
+    }
+
+    @Test
+    void unknownClientIsCached() {
+        when(gestoreRepositoryCall.getClientConfiguration(CLIENT_ID)).thenReturn(Mono.error(new RestCallException.ResourceNotFoundException()));
+        var authService = new AuthServiceImpl(gestoreRepositoryCall, CACHE_ENABLED);
+
+        StepVerifier.create(authService.clientAuth(CLIENT_ID)).expectError(ClientNotFoundException.class).verify();
+        StepVerifier.create(authService.clientAuth(CLIENT_ID)).expectError(ClientNotFoundException.class).verify();
+
+        verify(gestoreRepositoryCall, times(1)).getClientConfiguration(CLIENT_ID);
+    }
+
+    @Test
+    void failedLoadIsNotCached() {
+        when(gestoreRepositoryCall.getClientConfiguration(CLIENT_ID)).thenReturn(Mono.error(WebClientResponseException.create(500,
+                                                                                                                              "Internal Server Error",
+                                                                                                                              null,
+                                                                                                                              null,
+                                                                                                                              null)))
+                                                                      .thenReturn(Mono.just(clientConfiguration()));
+        var authService = new AuthServiceImpl(gestoreRepositoryCall, CACHE_ENABLED);
+
+        StepVerifier.create(authService.clientAuth(CLIENT_ID)).expectError(WebClientResponseException.class).verify();
+        StepVerifier.create(authService.clientAuth(CLIENT_ID)).expectNextCount(1).verifyComplete();
+    }
+
+    @Test
+    void evictedClientConfigurationIsReloaded() {
+        when(gestoreRepositoryCall.getClientConfiguration(CLIENT_ID)).thenReturn(Mono.error(new RestCallException.ResourceNotFoundException()))
+                                                                      .thenReturn(Mono.just(clientConfiguration()));
+        var authService = new AuthServiceImpl(gestoreRepositoryCall, CACHE_ENABLED);
+
+        StepVerifier.create(authService.clientAuth(CLIENT_ID)).expectError(ClientNotFoundException.class).verify();
+        authService.evictClientConfiguration(CLIENT_ID);
+        StepVerifier.create(authService.clientAuth(CLIENT_ID)).expectNextCount(1).verifyComplete();
+    }
+
+    @Test
+    void disabledCacheLoadsEveryTime() {
+        when(gestoreRepositoryCall.getClientConfiguration(CLIENT_ID)).thenReturn(Mono.just(clientConfiguration()));
+        var authService = new AuthServiceImpl(gestoreRepositoryCall, new ClientConfigurationCacheProperties(false, null, null, null, null));
+
+        StepVerifier.create(authService.clientAuth(CLIENT_ID)).expectNextCount(1).verifyComplete();
+        StepVerifier.create(authService.clientAuth(CLIENT_ID)).expectNextCount(1).verifyComplete();
+
+        verify(gestoreRepositoryCall, times(2)).getClientConfiguration(CLIENT_ID);
+    }
+
+    private static ClientConfigurationInternalDto clientConfiguration() {
+        var clientConfiguration = new ClientConfigurationInternalDto();
+        clientConfiguration.setxPagopaExtchCxId(CLIENT_ID);
+        clientConfiguration.setApiKey(API_KEY);
+        return clientConfiguration;
+    }
+}
@@ -0,0 +1,83 @@
+package it.pagopa.pn.ec.commons.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.concurrency.AdaptiveConcurrencyProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.concurrency.AdaptiveConcurrencyProperties.LimiterProperties;
+import it.pagopa.pn.ec.commons.exception.ses.SesSendException;
+import it.pagopa.pn.ec.commons.model.pojo.email.EmailField;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiters;
+import it.pagopa.pn.ec.commons.service.impl.SesServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.ses.SesAsyncClient;
+import software.amazon.awssdk.services.ses.model.SendRawEmailRequest;
+import software.amazon.awssdk.services.ses.model.SesException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SesServiceImplTest {
+
+    private SesAsyncClient sesAsyncClient;
+    private AdaptiveConcurrencyLimiters adaptiveConcurrencyLimiters;
+    private SesServiceImpl sesService;
+
+    @BeforeEach
+    void setUp() {
+        sesAsyncClient = mock(SesAsyncClient.class);
+        adaptiveConcurrencyLimiters = new AdaptiveConcurrencyLimiters(new AdaptiveConcurrencyProperties(Map.of(AdaptiveConcurrencyLimiters.SES,
+                                                                                                               new LimiterProperties(8,
+                                                                                                                                     1,
+                                                                                                                                     10,
+                                                                                                                                     60_000L,
+                                                                                                                                     0.5))),
+                                                                      new SimpleMeterRegistry());
+        sesService = new SesServiceImpl(sesAsyncClient, adaptiveConcurrencyLimiters);
+    }
+
+    @Test
+    void rejectedMessageKeepsTheLimit() {
+        when(sesAsyncClient.sendRawEmail(any(SendRawEmailRequest.class))).thenReturn(CompletableFuture.failedFuture(sesException(400,
+                                                                                                                                 "MessageRejected")));
+
+        StepVerifier.create(sesService.send(emailField())).expectError(SesSendException.class).verify();
+
+        assertEquals(8, adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.SES).getLimit());
+    }
+
+    @Test
+    void throttlingLowersTheLimit() {
+        when(sesAsyncClient.sendRawEmail(any(SendRawEmailRequest.class))).thenReturn(CompletableFuture.failedFuture(sesException(400,
+                                                                                                                                 "Throttling")));
+
+        StepVerifier.create(sesService.send(emailField())).expectError(SesSendException.class).verify();
+
+        assertEquals(4, adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.SES).getLimit());
+    }
+
+    private static SesException sesException(final int statusCode, final String errorCode) {
+        return (SesException) SesException.builder()
+                                          .statusCode(statusCode)
+                                          .awsErrorDetails(AwsErrorDetails.builder().errorCode(errorCode).build())
+                                          .build();
+    }
+
+    private static EmailField emailField() {
+        return EmailField.builder()
+                         .from("from@pagopa.it")
+                         .to("to@pagopa.it")
+                         .subject("subject")
+                         .text("text")
+                         .contentType("text/plain")
+                         .emailAttachments(List.of())
+                         .build();
+    }
+}
@@ -0,0 +1,73 @@
+package it.pagopa.pn.ec.commons.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.concurrency.AdaptiveConcurrencyProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.concurrency.AdaptiveConcurrencyProperties.LimiterProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.sns.SnsTopicProperties;
+import it.pagopa.pn.ec.commons.exception.sns.SnsSendException;
+import it.pagopa.pn.ec.commons.service.concurrency.AdaptiveConcurrencyLimiters;
+import it.pagopa.pn.ec.commons.service.impl.SnsServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.sns.SnsAsyncClient;
+import software.amazon.awssdk.services.sns.model.PublishRequest;
+import software.amazon.awssdk.services.sns.model.SnsException;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SnsServiceImplTest {
+
+    private static final String PHONE_NUMBER = "+393330000000";
+
+    private SnsAsyncClient snsAsyncClient;
+    private AdaptiveConcurrencyLimiters adaptiveConcurrencyLimiters;
+    private SnsServiceImpl snsService;
+
+    @BeforeEach
+    void setUp() {
+        snsAsyncClient = mock(SnsAsyncClient.class);
+        adaptiveConcurrencyLimiters = new AdaptiveConcurrencyLimiters(new AdaptiveConcurrencyProperties(Map.of(AdaptiveConcurrencyLimiters.SNS,
+                                                                                                               new LimiterProperties(8,
+                                                                                                                                     1,
+                                                                                                                                     10,
+                                                                                                                                     60_000L,
+                                                                                                                                     0.5))),
+                                                                      new SimpleMeterRegistry());
+        snsService = new SnsServiceImpl(snsAsyncClient, new SnsTopicProperties("AWS.SNS.SMS.SenderID", "PagoPA", "String"), adaptiveConcurrencyLimiters);
+    }
+
+    @Test
+    void invalidParameterKeepsTheLimit() {
+        when(snsAsyncClient.publish(any(PublishRequest.class))).thenReturn(CompletableFuture.failedFuture(SnsException.builder()
+                                                                                                                      .statusCode(400)
+                                                                                                                      .awsErrorDetails(
+                                                                                                                              AwsErrorDetails.builder()
+                                                                                                                                             .errorCode(
+                                                                                                                                                     "InvalidParameter")
+                                                                                                                                             .build())
+                                                                                                                      .build()));
+
+        StepVerifier.create(snsService.send(PHONE_NUMBER, "message")).expectError(SnsSendException.class).verify();
+
+        assertEquals(8, adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.SNS).getLimit());
+    }
+
+    @Test
+    void clientErrorLowersTheLimit() {
+        when(snsAsyncClient.publish(any(PublishRequest.class))).thenReturn(CompletableFuture.failedFuture(SdkClientException.create(
+                "connection reset")));
+
+        StepVerifier.create(snsService.send(PHONE_NUMBER, "message")).expectError(SnsSendException.class).verify();
+
+        assertEquals(4, adaptiveConcurrencyLimiters.get(AdaptiveConcurrencyLimiters.SNS).getLimit());
+    }
+}
@@ -0,0 +1,122 @@
+package it.pagopa.pn.ec.commons.service.concurrency;
+
+import it.pagopa.pn.ec.commons.configurationproperties.concurrency.AdaptiveConcurrencyProperties.LimiterProperties;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static AdaptiveConcurrencyLimiter limiter(int initialLimit, int minLimit, int maxLimit) {
+        return new AdaptiveConcurrencyLimiter("test", new LimiterProperties(initialLimit, minLimit, maxLimit, 60_000L, 0.5));
+    }
+
+    @Test
+    void callsOverTheLimitWaitForAFreeSlot() {
+        var limiter = limiter(1, 1, 1);
+        Sinks.One<String> firstCall = Sinks.one();
+        var secondCallStarted = new AtomicBoolean();
+
+        var first = limiter.execute(firstCall.asMono()).subscribe();
+        var second = limiter.execute(Mono.fromCallable(() -> {
+            secondCallStarted.set(true);
+            return "second";
+        })).toFuture();
+
+        assertFalse(secondCallStarted.get());
+        assertEquals(1, limiter.getInFlight());
+
+        firstCall.tryEmitValue("first");
+
+        assertTrue(secondCallStarted.get());
+        assertEquals("second", second.join());
+        assertEquals(0, limiter.getInFlight());
+        first.dispose();
+    }
+
+    @Test
+    void successesOfASaturatedLimiterIncreaseTheLimitUpToTheMaximum() {
+        var limiter = limiter(2, 1, 3);
+
+        for (int i = 0; i < 10; i++) {
+            Sinks.One<String> calls = Sinks.one();
+            var results = new ArrayList<CompletableFuture<String>>();
+            for (int call = 0; call < limiter.getLimit(); call++) {
+                results.add(limiter.execute(calls.asMono()).toFuture());
+            }
+            assertEquals(limiter.getLimit(), limiter.getInFlight());
+            calls.tryEmitValue("done");
+            results.forEach(CompletableFuture::join);
+        }
+
+        assertEquals(3, limiter.getLimit());
+    }
+
+    @Test
+    void successesOfAnUnsaturatedLimiterKeepTheLimit() {
+        var limiter = limiter(2, 1, 10);
+
+        for (int i = 0; i < 20; i++) {
+            StepVerifier.create(limiter.execute(Mono.just(i))).expectNext(i).verifyComplete();
+        }
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void callsCancelledAfterTheirStartKeepTheLimit() {
+        var limiter = limiter(1, 1, 10);
+        Sinks.One<String> call = Sinks.one();
+
+        limiter.execute(call.asMono()).subscribe().dispose();
+
+        assertEquals(1, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void failuresDecreaseTheLimitDownToTheMinimum() {
+        var limiter = limiter(8, 2, 10);
+
+        StepVerifier.create(limiter.execute(Mono.error(new RuntimeException()))).verifyError(RuntimeException.class);
+        assertEquals(4, limiter.getLimit());
+
+        for (int i = 0; i < 5; i++) {
+            StepVerifier.create(limiter.execute(Mono.error(new RuntimeException()))).verifyError(RuntimeException.class);
+        }
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    void errorsNotMatchingTheDropPredicateKeepTheLimit() {
+        var limiter = limiter(8, 2, 10);
+
+        StepVerifier.create(limiter.execute(Mono.error(new IllegalArgumentException()), IllegalStateException.class::isInstance))
+                    .verifyError(IllegalArgumentException.class);
+
+        assertEquals(8, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void cancelledWaitingCallsDoNotLeakSlots() {
+        var limiter = limiter(1, 1, 1);
+        Sinks.One<String> firstCall = Sinks.one();
+
+        limiter.execute(firstCall.asMono()).subscribe();
+        limiter.execute(Mono.just("cancelled")).subscribe().dispose();
+        firstCall.tryEmitValue("first");
+
+        assertEquals(0, limiter.getInFlight());
+        StepVerifier.create(limiter.execute(Mono.just("third"))).expectNext("third").verifyComplete();
+    }
+}
@@ -0,0 +1,65 @@
+package it.pagopa.pn.ec.commons.service.concurrency;
+
+import it.pagopa.pn.ec.commons.exception.aruba.ArubaCallException;
+import it.pagopa.pn.ec.commons.rest.call.RestCallException;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimitersTest {
+
+    @Test
+    void downstreamOverloadIsAConnectionErrorATimeoutOrA5xx() {
+        assertTrue(AdaptiveConcurrencyLimiters.isDownstreamOverload(WebClientResponseException.create(503, "Service Unavailable", null, null, null)));
+        assertTrue(AdaptiveConcurrencyLimiters.isDownstreamOverload(new WebClientRequestException(new IOException("connection reset"),
+                                                                                                  HttpMethod.GET,
+                                                                                                  URI.create("http://localhost"),
+                                                                                                  HttpHeaders.EMPTY)));
+        assertTrue(AdaptiveConcurrencyLimiters.isDownstreamOverload(new TimeoutException()));
+
+        assertFalse(AdaptiveConcurrencyLimiters.isDownstreamOverload(WebClientResponseException.create(400, "Bad Request", null, null, null)));
+        assertFalse(AdaptiveConcurrencyLimiters.isDownstreamOverload(new RestCallException.ResourceNotFoundException()));
+    }
+
+    @Test
+    void awsServiceOverloadIsThrottlingA5xxOrAClientError() {
+        assertTrue(AdaptiveConcurrencyLimiters.isAwsServiceOverload(awsServiceException(400, "Throttling")));
+        assertTrue(AdaptiveConcurrencyLimiters.isAwsServiceOverload(awsServiceException(500, "InternalFailure")));
+        assertTrue(AdaptiveConcurrencyLimiters.isAwsServiceOverload(SdkClientException.create("connection reset")));
+        assertTrue(AdaptiveConcurrencyLimiters.isAwsServiceOverload(ApiCallTimeoutException.create(1000)));
+        assertTrue(AdaptiveConcurrencyLimiters.isAwsServiceOverload(new CompletionException(awsServiceException(400, "Throttling"))));
+
+        assertFalse(AdaptiveConcurrencyLimiters.isAwsServiceOverload(awsServiceException(400, "MessageRejected")));
+        assertFalse(AdaptiveConcurrencyLimiters.isAwsServiceOverload(new CompletionException(awsServiceException(400, "InvalidParameter"))));
+        assertFalse(AdaptiveConcurrencyLimiters.isAwsServiceOverload(new IllegalArgumentException()));
+    }
+
+    @Test
+    void arubaOverloadIsAnyErrorButTheErrorCodesOfAruba() {
+        assertTrue(AdaptiveConcurrencyLimiters.isArubaOverload(new ExecutionException(new IOException("connection reset"))));
+
+        assertFalse(AdaptiveConcurrencyLimiters.isArubaOverload(new ArubaCallException("errcode 99")));
+    }
+
+    private static AwsServiceException awsServiceException(final int statusCode, final String errorCode) {
+        return AwsServiceException.builder()
+                                  .statusCode(statusCode)
+                                  .awsErrorDetails(AwsErrorDetails.builder().errorCode(errorCode).build())
+                                  .build();
+    }
+}
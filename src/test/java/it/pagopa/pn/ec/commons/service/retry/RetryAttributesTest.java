@@ -0,0 +1,38 @@
+package it.pagopa.pn.ec.commons.service.retry;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RetryAttributesTest {
+
+    private static final Instant LAST_RETRY = Instant.parse("2023-01-01T10:00:00Z");
+    private static final Instant NEXT_RETRY = Instant.parse("2023-01-01T10:10:00Z");
+
+    @Test
+    void attributesSurviveTheRoundTrip() {
+        var retryAttributes = new RetryAttributes(2, LAST_RETRY, NEXT_RETRY);
+        var message = Message.builder().body("{}").messageAttributes(retryAttributes.toMessageAttributes()).build();
+
+        assertEquals(retryAttributes, RetryAttributes.fromMessage(message));
+    }
+
+    @Test
+    void messageWithoutAttributesIsAtTheFirstStep() {
+        var message = Message.builder()
+                             .body("{}")
+                             .attributesWithStrings(Map.of("SentTimestamp", String.valueOf(LAST_RETRY.toEpochMilli())))
+                             .build();
+
+        var retryAttributes = RetryAttributes.fromMessage(message);
+
+        assertEquals(0, retryAttributes.retryStep());
+        assertEquals(LAST_RETRY, retryAttributes.lastRetryTimestamp());
+        assertNull(retryAttributes.nextRetryTimestamp());
+    }
+}
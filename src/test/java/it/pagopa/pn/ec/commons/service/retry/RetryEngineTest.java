@@ -0,0 +1,350 @@
+package it.pagopa.pn.ec.commons.service.retry;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.retry.RetryEngineProperties;
+import it.pagopa.pn.ec.commons.model.pojo.request.PresaInCaricoInfo;
+import it.pagopa.pn.ec.commons.policy.RetryPolicyRegistry;
+import it.pagopa.pn.ec.commons.rest.call.RestCallException;
+import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
+import it.pagopa.pn.ec.commons.service.sqs.SqsMessageGroupIdStrategy;
+import it.pagopa.pn.ec.commons.service.sqs.SqsQueueUrlRegistry;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
+import it.pagopa.pn.ec.rest.v1.dto.RequestDto;
+import it.pagopa.pn.ec.rest.v1.dto.RequestMetadataDto;
+import it.pagopa.pn.ec.rest.v1.dto.RetryDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class RetryEngineTest {
+
+    private static final OffsetDateTime LAST_RETRY = OffsetDateTime.of(2023, 1, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+    private static final String QUEUE_NAME = "queue";
+    private static final String CHANNEL = RetryPolicyRegistry.SMS;
+    private static final PresaInCaricoInfo PRESA_IN_CARICO_INFO = PresaInCaricoInfo.builder()
+                                                                                    .xPagopaExtchCxId("cxId")
+                                                                                    .requestIdx("requestIdx")
+                                                                                    .build();
+
+    private final List<Integer> visibilityTimeouts = new CopyOnWriteArrayList<>();
+    private final List<SendMessageRequest> sentMessages = new CopyOnWriteArrayList<>();
+    private final AtomicInteger deletedMessages = new AtomicInteger();
+    private final AtomicInteger retryAttempts = new AtomicInteger();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SqsAsyncClient sqsAsyncClient;
+    private SqsReactiveConsumer sqsReactiveConsumer;
+    private GestoreRepositoryCall gestoreRepositoryCall;
+    private RetryPolicyRegistry retryPolicyRegistry;
+
+    private static RetryDto retryDto(int step) {
+        return retryDto(step, LAST_RETRY);
+    }
+
+    private static RetryDto retryDto(int step, OffsetDateTime lastRetry) {
+        var retryDto = new RetryDto();
+        retryDto.setLastRetryTimestamp(lastRetry);
+        retryDto.setRetryStep(BigDecimal.valueOf(step));
+        retryDto.setRetryPolicy(List.of(BigDecimal.valueOf(5), BigDecimal.valueOf(10), BigDecimal.valueOf(20), BigDecimal.valueOf(40)));
+        return retryDto;
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        sqsAsyncClient = mock(SqsAsyncClient.class);
+        sqsReactiveConsumer = mock(SqsReactiveConsumer.class);
+        gestoreRepositoryCall = mock(GestoreRepositoryCall.class);
+        retryPolicyRegistry = mock(RetryPolicyRegistry.class);
+        when(sqsAsyncClient.changeMessageVisibility(any(Consumer.class))).thenAnswer(invocation -> {
+            var builder = ChangeMessageVisibilityRequest.builder();
+            invocation.<Consumer<ChangeMessageVisibilityRequest.Builder>>getArgument(0).accept(builder);
+            visibilityTimeouts.add(builder.build().visibilityTimeout());
+            return CompletableFuture.completedFuture(ChangeMessageVisibilityResponse.builder().build());
+        });
+        when(sqsAsyncClient.sendMessage(any(Consumer.class))).thenAnswer(invocation -> {
+            var builder = SendMessageRequest.builder();
+            invocation.<Consumer<SendMessageRequest.Builder>>getArgument(0).accept(builder);
+            sentMessages.add(builder.build());
+            return CompletableFuture.completedFuture(SendMessageResponse.builder().build());
+        });
+        when(sqsAsyncClient.deleteMessage(any(Consumer.class))).thenAnswer(invocation -> {
+            deletedMessages.incrementAndGet();
+            return CompletableFuture.completedFuture(DeleteMessageResponse.builder().build());
+        });
+    }
+
+    @Test
+    void nextAttemptFollowsThePolicyStep() {
+        assertEquals(LAST_RETRY.toInstant().plus(5, ChronoUnit.MINUTES), RetryEngine.nextAttemptAt(retryDto(0)));
+        assertEquals(LAST_RETRY.toInstant().plus(40, ChronoUnit.MINUTES), RetryEngine.nextAttemptAt(retryDto(3)));
+    }
+
+    @Test
+    void exhaustedPolicyIsDueImmediately() {
+        assertEquals(LAST_RETRY.toInstant(), RetryEngine.nextAttemptAt(retryDto(4)));
+    }
+
+    @Test
+    void missingRetryIsDueImmediately() {
+        assertFalse(RetryEngine.nextAttemptAt(null).isAfter(Instant.now()));
+    }
+
+    @Test
+    void errorQueueIsConsumedWithinTheMaxInFlight() {
+        retryEngine(false).consume(QUEUE_NAME, CHANNEL, PresaInCaricoInfo.class, (presaInCaricoInfo, message) -> Mono.empty());
+
+        verify(sqsReactiveConsumer).consumeMessages(eq(QUEUE_NAME), eq(PresaInCaricoInfo.class), any(), eq(20));
+    }
+
+    @Test
+    void disabledEngineDoesNotConsume() {
+        new RetryEngine(sqsAsyncClient,
+                        sqsQueueUrlRegistry(),
+                        sqsReactiveConsumer,
+                        mock(SqsMessageGroupIdStrategy.class),
+                        gestoreRepositoryCall,
+                        retryPolicyRegistry,
+                        new RetryEngineProperties(false, 20, 3600, 10, false),
+                        meterRegistry).consume(QUEUE_NAME, CHANNEL, PresaInCaricoInfo.class, (presaInCaricoInfo, message) -> Mono.empty());
+
+        verifyNoInteractions(sqsReactiveConsumer);
+    }
+
+    @Test
+    void dueMessageIsRetried() {
+        stubRetry(retryDto(0, OffsetDateTime.now().minusMinutes(10)));
+
+        StepVerifier.create(handle(retryEngine(false), message(1), Mono.just("deleted"))).verifyComplete();
+
+        assertEquals(1, retryAttempts.get());
+        assertTrue(visibilityTimeouts.isEmpty());
+        assertEquals(1, outcome("retried"));
+    }
+
+    @Test
+    void messageNotDueYetIsParkedUntilItsNextAttempt() {
+        stubRetry(retryDto(0, OffsetDateTime.now()));
+
+        StepVerifier.create(handle(retryEngine(false), message(1), Mono.just("deleted"))).verifyComplete();
+
+        assertEquals(0, retryAttempts.get());
+        assertEquals(1, visibilityTimeouts.size());
+        assertTrue(visibilityTimeouts.get(0) > 290 && visibilityTimeouts.get(0) <= 300, "timeout : " + visibilityTimeouts.get(0));
+        assertEquals(1, outcome("parked"));
+    }
+
+    @Test
+    void failedAttemptIsParkedUntilTheNextStep() {
+        var dueRetry = requestDto(retryDto(0, OffsetDateTime.now().minusMinutes(10)));
+        var failedRetry = requestDto(retryDto(1, OffsetDateTime.now()));
+        when(gestoreRepositoryCall.getRichiesta(anyString(), anyString())).thenReturn(Mono.just(dueRetry), Mono.just(failedRetry));
+
+        StepVerifier.create(handle(retryEngine(false), message(1), Mono.empty())).verifyComplete();
+
+        assertEquals(1, retryAttempts.get());
+        assertEquals(1, visibilityTimeouts.size());
+        assertTrue(visibilityTimeouts.get(0) > 590 && visibilityTimeouts.get(0) <= 600, "timeout : " + visibilityTimeouts.get(0));
+    }
+
+    @Test
+    void retryHandlerErrorIsParkedUntilTheNextStep() {
+        var dueRetry = requestDto(retryDto(0, OffsetDateTime.now().minusMinutes(10)));
+        var failedRetry = requestDto(retryDto(1, OffsetDateTime.now()));
+        when(gestoreRepositoryCall.getRichiesta(anyString(), anyString())).thenReturn(Mono.just(dueRetry), Mono.just(failedRetry));
+
+        StepVerifier.create(handle(retryEngine(false), message(1), Mono.error(new IllegalStateException("unreachable")))).verifyComplete();
+
+        assertEquals(1, retryAttempts.get());
+        assertEquals(1, visibilityTimeouts.size());
+        assertTrue(visibilityTimeouts.get(0) > 590 && visibilityTimeouts.get(0) <= 600, "timeout : " + visibilityTimeouts.get(0));
+        assertEquals(1, outcome("parked"));
+    }
+
+    @Test
+    void parkIsCappedToTheMaxParkSeconds() {
+        stubRetry(retryDto(3, OffsetDateTime.now()));
+
+        StepVerifier.create(handle(retryEngine(false), message(1), Mono.just("deleted"))).verifyComplete();
+
+        assertEquals(List.of(3600), visibilityTimeouts);
+    }
+
+    @Test
+    void messageCloseToTheMaxReceiveCountIsRequeuedInsteadOfParked() {
+        stubRetry(retryDto(0, OffsetDateTime.now()));
+
+        StepVerifier.create(handle(retryEngine(false), message(9), Mono.just("deleted"))).verifyComplete();
+
+        assertTrue(visibilityTimeouts.isEmpty());
+        assertEquals(1, sentMessages.size());
+        assertEquals("body", sentMessages.get(0).messageBody());
+        assertEquals("messageId", sentMessages.get(0).messageDeduplicationId());
+        assertEquals(1, deletedMessages.get());
+        assertEquals(1, outcome("requeued"));
+    }
+
+    @Test
+    void unreadableRetryDataLeavesTheMessageInvisible() {
+        when(gestoreRepositoryCall.getRichiesta(anyString(), anyString())).thenReturn(Mono.error(new RestCallException("unreachable")));
+
+        StepVerifier.create(handle(retryEngine(false), message(1), Mono.just("deleted"))).verifyComplete();
+
+        assertEquals(0, retryAttempts.get());
+        verifyNoInteractions(sqsAsyncClient);
+        assertEquals(1, outcome("lookup.failed"));
+    }
+
+    @Test
+    void missingRequestIsLeftToTheRetryHandler() {
+        when(gestoreRepositoryCall.getRichiesta(anyString(), anyString())).thenReturn(Mono.error(new RestCallException
+                .ResourceNotFoundException()));
+
+        StepVerifier.create(handle(retryEngine(false), message(1), Mono.just("deleted"))).verifyComplete();
+
+        assertEquals(1, retryAttempts.get());
+        assertEquals(0, outcome("lookup.failed"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void parkFailureIsCounted() {
+        stubRetry(retryDto(0, OffsetDateTime.now()));
+        when(sqsAsyncClient.changeMessageVisibility(any(Consumer.class))).thenReturn(CompletableFuture.failedFuture(new IllegalStateException(
+                "unreachable")));
+
+        StepVerifier.create(handle(retryEngine(false), message(1), Mono.just("deleted"))).verifyComplete();
+
+        assertEquals(1, outcome("park.failed"));
+    }
+
+    @Test
+    void statelessFailedAttemptIsRequeuedAtTheNextStepAndDeleted() {
+        var nextAttempt = Instant.now().plus(10, ChronoUnit.MINUTES);
+        when(retryPolicyRegistry.nextAttemptAt(eq(CHANNEL), eq("cxId"), eq(1), any(Instant.class))).thenReturn(nextAttempt);
+        var retryAttributes = new RetryAttributes(0, Instant.now().minus(10, ChronoUnit.MINUTES), Instant.now());
+        var message = message(1).toBuilder().messageAttributes(retryAttributes.toMessageAttributes()).build();
+
+        StepVerifier.create(handle(retryEngine(true), message, Mono.empty())).verifyComplete();
+
+        assertEquals(1, retryAttempts.get());
+        assertEquals(1, sentMessages.size());
+        var requeuedMessage = Message.builder().messageAttributes(sentMessages.get(0).messageAttributes()).build();
+        var requeuedAttributes = RetryAttributes.fromMessage(requeuedMessage);
+        assertEquals(1, requeuedAttributes.retryStep());
+        assertEquals(nextAttempt.toEpochMilli(), requeuedAttributes.nextRetryTimestamp().toEpochMilli());
+        assertEquals(1, deletedMessages.get());
+        verifyNoInteractions(gestoreRepositoryCall);
+    }
+
+    @Test
+    void statelessAttemptSetsTheNextStepOnTheRequestWithoutUpdatingIt() {
+        var policy = List.of(BigDecimal.valueOf(5), BigDecimal.valueOf(10));
+        when(retryPolicyRegistry.getRetryPolicy(CHANNEL, "cxId")).thenReturn(policy);
+        stubRetry(null);
+        var retryAttributes = new RetryAttributes(1, Instant.now().minus(10, ChronoUnit.MINUTES), Instant.now());
+        var message = message(1).toBuilder().messageAttributes(retryAttributes.toMessageAttributes()).build();
+
+        StepVerifier.create(retryEngine(true).attemptRetry(CHANNEL, "cxId", "requestIdx", message))
+                    .assertNext(requestDto -> {
+                        var retryDto = requestDto.getRequestMetadata().getRetry();
+                        assertEquals(BigDecimal.valueOf(2), retryDto.getRetryStep());
+                        assertEquals(policy, retryDto.getRetryPolicy());
+                        assertNotNull(retryDto.getLastRetryTimestamp());
+                    })
+                    .verifyComplete();
+
+        verify(gestoreRepositoryCall, never()).patchRichiestaRetry(anyString(), anyString(), any());
+    }
+
+    @Test
+    void statelessAttemptOnARequestToDeleteIsEmpty() {
+        var requestDto = requestDto(null);
+        requestDto.setStatusRequest("toDelete");
+        when(gestoreRepositoryCall.getRichiesta(anyString(), anyString())).thenReturn(Mono.just(requestDto));
+
+        StepVerifier.create(retryEngine(true).attemptRetry(CHANNEL, "cxId", "requestIdx", message(1))).verifyComplete();
+
+        verifyNoInteractions(retryPolicyRegistry);
+    }
+
+    private RetryEngine retryEngine(final boolean statelessBookkeeping) {
+        var sqsMessageGroupIdStrategy = mock(SqsMessageGroupIdStrategy.class);
+        when(sqsMessageGroupIdStrategy.messageGroupId(anyString(), any())).thenReturn("group");
+        return new RetryEngine(sqsAsyncClient,
+                               sqsQueueUrlRegistry(),
+                               sqsReactiveConsumer,
+                               sqsMessageGroupIdStrategy,
+                               gestoreRepositoryCall,
+                               retryPolicyRegistry,
+                               new RetryEngineProperties(true, 20, 3600, 10, statelessBookkeeping),
+                               meterRegistry);
+    }
+
+    /**
+     * Consumes the error queue and hands the message to the message handler registered on the reactive consumer.
+     */
+    @SuppressWarnings("unchecked")
+    private Mono<?> handle(final RetryEngine retryEngine, final Message message, final Mono<?> retryOutcome) {
+        retryEngine.consume(QUEUE_NAME, CHANNEL, PresaInCaricoInfo.class, (presaInCaricoInfo, retriedMessage) -> {
+            retryAttempts.incrementAndGet();
+            return retryOutcome;
+        });
+        ArgumentCaptor<BiFunction<PresaInCaricoInfo, Message, Mono<?>>> messageHandler = ArgumentCaptor.forClass(BiFunction.class);
+        verify(sqsReactiveConsumer).consumeMessages(eq(QUEUE_NAME), eq(PresaInCaricoInfo.class), messageHandler.capture(), anyInt());
+        return messageHandler.getValue().apply(PRESA_IN_CARICO_INFO, message);
+    }
+
+    private void stubRetry(final RetryDto retryDto) {
+        when(gestoreRepositoryCall.getRichiesta(anyString(), anyString())).thenReturn(Mono.just(requestDto(retryDto)));
+    }
+
+    private static RequestDto requestDto(final RetryDto retryDto) {
+        var requestMetadataDto = new RequestMetadataDto();
+        requestMetadataDto.setRetry(retryDto);
+        var requestDto = new RequestDto();
+        requestDto.setRequestMetadata(requestMetadataDto);
+        return requestDto;
+    }
+
+    private static Message message(final int approximateReceiveCount) {
+        return Message.builder()
+                      .messageId("messageId")
+                      .receiptHandle("receiptHandle")
+                      .body("body")
+                      .attributesWithStrings(Map.of("ApproximateReceiveCount", String.valueOf(approximateReceiveCount)))
+                      .build();
+    }
+
+    private double outcome(final String outcome) {
+        return meterRegistry.counter("retry.engine.messages", "queue", QUEUE_NAME, "outcome", outcome).count();
+    }
+
+    private static SqsQueueUrlRegistry sqsQueueUrlRegistry() {
+        var sqsQueueUrlRegistry = mock(SqsQueueUrlRegistry.class);
+        when(sqsQueueUrlRegistry.withQueueUrl(anyString(), any())).thenAnswer(invocation -> invocation.<Function<String, Mono<?>>>getArgument(1)
+                                                                                                   .apply("url"));
+        return sqsQueueUrlRegistry;
+    }
+}
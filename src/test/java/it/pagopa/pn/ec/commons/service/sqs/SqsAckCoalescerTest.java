@@ -0,0 +1,128 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsAckCoalescerProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SqsAckCoalescerTest {
+
+    private static final String QUEUE_NAME = "queue";
+
+    private final Set<String> singleDeletes = ConcurrentHashMap.newKeySet();
+    private SqsAsyncClient sqsAsyncClient;
+    private SqsAckCoalescer sqsAckCoalescer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        sqsAsyncClient = mock(SqsAsyncClient.class);
+        var sqsQueueUrlRegistry = mock(SqsQueueUrlRegistry.class);
+        when(sqsQueueUrlRegistry.withQueueUrl(anyString(), any())).thenAnswer(invocation -> invocation.<Function<String, Mono<?>>>getArgument(1)
+                                                                                                   .apply("url"));
+        when(sqsAsyncClient.deleteMessage(any(Consumer.class))).thenAnswer(invocation -> {
+            var builder = DeleteMessageRequest.builder();
+            invocation.<Consumer<DeleteMessageRequest.Builder>>getArgument(0).accept(builder);
+            var receiptHandle = builder.build().receiptHandle();
+            singleDeletes.add(receiptHandle);
+            return receiptHandle.startsWith("expired") ? CompletableFuture.failedFuture(ReceiptHandleIsInvalidException.builder()
+                                                                                                                      .message(receiptHandle)
+                                                                                                                      .build())
+                                                       : CompletableFuture.completedFuture(DeleteMessageResponse.builder().build());
+        });
+        sqsAckCoalescer = new SqsAckCoalescer(sqsAsyncClient, sqsQueueUrlRegistry, new SqsAckCoalescerProperties(true, 200L, 3, 4));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void messagesAreDeletedWithASingleBatch() throws Exception {
+        stubDeleteMessageBatch(request -> DeleteMessageBatchResponse.builder()
+                                                                    .successful(request.entries()
+                                                                                       .stream()
+                                                                                       .map(entry -> DeleteMessageBatchResultEntry.builder()
+                                                                                                                                  .id(entry.id())
+                                                                                                                                  .build())
+                                                                                       .toList())
+                                                                    .build());
+
+        var results = List.of(acknowledge("first"), acknowledge("second"), acknowledge("third"));
+
+        for (var result : results) {
+            assertNotNull(result.get(5, TimeUnit.SECONDS));
+        }
+        verify(sqsAsyncClient, times(1)).deleteMessageBatch(any(Consumer.class));
+        verify(sqsAsyncClient, never()).deleteMessage(any(Consumer.class));
+    }
+
+    @Test
+    void entriesWithoutSuccessAreDeletedOneByOne() throws Exception {
+        stubDeleteMessageBatch(request -> DeleteMessageBatchResponse.builder()
+                                                                    .successful(DeleteMessageBatchResultEntry.builder()
+                                                                                                             .id(request.entries().get(0).id())
+                                                                                                             .build())
+                                                                    .failed(BatchResultErrorEntry.builder()
+                                                                                                 .id(request.entries().get(1).id())
+                                                                                                 .code("ReceiptHandleIsInvalid")
+                                                                                                 .senderFault(true)
+                                                                                                 .build())
+                                                                    .build());
+
+        var successful = acknowledge("successful");
+        var failed = acknowledge("expired-failed");
+        var missing = acknowledge("missing");
+
+        assertNotNull(successful.get(5, TimeUnit.SECONDS));
+        var executionException = assertThrows(ExecutionException.class, () -> failed.get(5, TimeUnit.SECONDS));
+        assertTrue(executionException.getCause() instanceof ReceiptHandleIsInvalidException);
+        assertNotNull(missing.get(5, TimeUnit.SECONDS));
+        assertEquals(Set.of("expired-failed", "missing"), singleDeletes);
+    }
+
+    @Test
+    void failedBatchFallsBackToSingleDeletes() throws Exception {
+        stubDeleteMessageBatch(request -> {
+            throw SdkClientException.create("unreachable");
+        });
+
+        var first = acknowledge("first");
+        var second = acknowledge("second");
+
+        assertNotNull(first.get(5, TimeUnit.SECONDS));
+        assertNotNull(second.get(5, TimeUnit.SECONDS));
+        assertEquals(Set.of("first", "second"), singleDeletes);
+    }
+
+    private CompletableFuture<DeleteMessageResponse> acknowledge(final String receiptHandle) {
+        return sqsAckCoalescer.acknowledge(QUEUE_NAME, receiptHandle).toFuture();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubDeleteMessageBatch(final Function<DeleteMessageBatchRequest, DeleteMessageBatchResponse> responder) {
+        when(sqsAsyncClient.deleteMessageBatch(any(Consumer.class))).thenAnswer(invocation -> {
+            var builder = DeleteMessageBatchRequest.builder();
+            invocation.<Consumer<DeleteMessageBatchRequest.Builder>>getArgument(0).accept(builder);
+            try {
+                return CompletableFuture.completedFuture(responder.apply(builder.build()));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+}
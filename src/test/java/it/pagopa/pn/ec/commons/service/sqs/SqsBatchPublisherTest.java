@@ -0,0 +1,152 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchPublisherProperties;
+import it.pagopa.pn.ec.commons.exception.sqs.SqsBatchEntryFailedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.*;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SqsBatchPublisherTest {
+
+    private static final String QUEUE_NAME = "queue";
+
+    private final List<SendMessageBatchRequest> sentBatches = new CopyOnWriteArrayList<>();
+    private SqsAsyncClient sqsAsyncClient;
+    private SqsQueueUrlRegistry sqsQueueUrlRegistry;
+
+    @BeforeEach
+    void setUp() {
+        sqsAsyncClient = mock(SqsAsyncClient.class);
+        sqsQueueUrlRegistry = mock(SqsQueueUrlRegistry.class);
+        when(sqsQueueUrlRegistry.withQueueUrl(anyString(), any())).thenAnswer(invocation -> invocation.<Function<String, Mono<?>>>getArgument(1)
+                                                                                                   .apply("url"));
+    }
+
+    @Test
+    void everyCallerGetsTheResultOfItsOwnEntry() throws Exception {
+        stubSendMessageBatch(request -> SendMessageBatchResponse.builder()
+                                                                .successful(SendMessageBatchResultEntry.builder()
+                                                                                                       .id(request.entries().get(0).id())
+                                                                                                       .messageId("message-0")
+                                                                                                       .build())
+                                                                .failed(BatchResultErrorEntry.builder()
+                                                                                             .id(request.entries().get(1).id())
+                                                                                             .code("InvalidMessageContents")
+                                                                                             .message("invalid")
+                                                                                             .senderFault(true)
+                                                                                             .build())
+                                                                .build());
+        var sqsBatchPublisher = sqsBatchPublisher(10, 262_144);
+
+        var successful = sqsBatchPublisher.publish(QUEUE_NAME, "successful", null, null).toFuture();
+        var failed = sqsBatchPublisher.publish(QUEUE_NAME, "failed", null, null).toFuture();
+        var missing = sqsBatchPublisher.publish(QUEUE_NAME, "missing", null, null).toFuture();
+
+        assertEquals("message-0", successful.get(5, TimeUnit.SECONDS).messageId());
+        assertEquals("InvalidMessageContents", entryError(failed).getCode());
+        assertEquals("MissingResult", entryError(missing).getCode());
+        assertEquals(1, sentBatches.size());
+        assertEquals(3, sentBatches.get(0).entries().size());
+    }
+
+    @Test
+    void batchIsSplitByTheMaximumSizeInBytes() throws Exception {
+        stubSendMessageBatch(SqsBatchPublisherTest::allSuccessful);
+        var sqsBatchPublisher = sqsBatchPublisher(3, 10);
+
+        var first = sqsBatchPublisher.publish(QUEUE_NAME, "aaaa", null, null).toFuture();
+        var second = sqsBatchPublisher.publish(QUEUE_NAME, "bbbb", null, null).toFuture();
+        var third = sqsBatchPublisher.publish(QUEUE_NAME, "cccc", null, null).toFuture();
+
+        for (var result : List.of(first, second, third)) {
+            assertNotNull(result.get(5, TimeUnit.SECONDS).messageId());
+        }
+        assertEquals(List.of(2, 1),
+                     sentBatches.stream()
+                                .map(request -> request.entries().size())
+                                .sorted((size, otherSize) -> otherSize - size)
+                                .toList());
+        assertTrue(sentBatches.stream()
+                              .allMatch(request -> request.entries().stream().mapToInt(entry -> entry.messageBody().length()).sum() <= 10));
+    }
+
+    @Test
+    void failedRequestIsReportedToEveryCaller() {
+        var requestError = SdkClientException.create("unreachable");
+        stubSendMessageBatch(request -> {
+            throw requestError;
+        });
+        var sqsBatchPublisher = sqsBatchPublisher(2, 262_144);
+
+        var first = sqsBatchPublisher.publish(QUEUE_NAME, "first", null, null).toFuture();
+        var second = sqsBatchPublisher.publish(QUEUE_NAME, "second", null, null).toFuture();
+
+        for (var result : List.of(first, second)) {
+            var executionException = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertSame(requestError, executionException.getCause());
+        }
+    }
+
+    @Test
+    void onlyTheConfiguredQueuesAreBatched() {
+        var sqsBatchPublisher = sqsBatchPublisher(10, 262_144);
+
+        assertTrue(sqsBatchPublisher.isBatched(QUEUE_NAME));
+        assertFalse(sqsBatchPublisher.isBatched("other-queue"));
+    }
+
+    private SqsBatchPublisher sqsBatchPublisher(final int maxBatchEntries, final int maxBatchBytes) {
+        return new SqsBatchPublisher(sqsAsyncClient,
+                                     sqsQueueUrlRegistry,
+                                     new SqsBatchPublisherProperties(true, List.of(QUEUE_NAME), 200L, maxBatchEntries, maxBatchBytes, 4));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubSendMessageBatch(final Function<SendMessageBatchRequest, SendMessageBatchResponse> responder) {
+        when(sqsAsyncClient.sendMessageBatch(any(Consumer.class))).thenAnswer(invocation -> {
+            var builder = SendMessageBatchRequest.builder();
+            invocation.<Consumer<SendMessageBatchRequest.Builder>>getArgument(0).accept(builder);
+            var request = builder.build();
+            sentBatches.add(request);
+            try {
+                return CompletableFuture.completedFuture(responder.apply(request));
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        });
+    }
+
+    private static SendMessageBatchResponse allSuccessful(final SendMessageBatchRequest request) {
+        return SendMessageBatchResponse.builder()
+                                       .successful(request.entries()
+                                                          .stream()
+                                                          .map(entry -> SendMessageBatchResultEntry.builder()
+                                                                                                   .id(entry.id())
+                                                                                                   .messageId("message-" + entry.id())
+                                                                                                   .build())
+                                                          .toList())
+                                       .build();
+    }
+
+    private static SqsBatchEntryFailedException entryError(final CompletableFuture<SendMessageResponse> result) {
+        var executionException = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertTrue(executionException.getCause() instanceof SqsBatchEntryFailedException);
+        return (SqsBatchEntryFailedException) executionException.getCause();
+    }
+}
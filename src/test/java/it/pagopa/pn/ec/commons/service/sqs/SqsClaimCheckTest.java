@@ -0,0 +1,118 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsClaimCheckProperties;
+import it.pagopa.pn.ec.commons.model.pojo.s3.S3Pointer;
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsMessageContent;
+import it.pagopa.pn.ec.commons.service.S3Service;
+import it.pagopa.pn.ec.commons.utils.JsonUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.s3.model.DeleteObjectsResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageAttributeValue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SqsClaimCheckTest {
+
+    private static final String QUEUE_NAME = "queue";
+    private static final String BUCKET_NAME = "bucket";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final S3Service s3Service = mock(S3Service.class);
+    private final SqsClaimCheck sqsClaimCheck = new SqsClaimCheck(s3Service,
+                                                                  objectMapper,
+                                                                  new JsonUtils(objectMapper),
+                                                                  mock(SqsPayloadCodec.class),
+                                                                  new SqsClaimCheckProperties(List.of(QUEUE_NAME), BUCKET_NAME, 16, 10, 50L));
+
+    @BeforeEach
+    void startReleaser() {
+        sqsClaimCheck.startReleaser();
+    }
+
+    @AfterEach
+    void stopReleaser() {
+        sqsClaimCheck.stopReleaser();
+    }
+
+    @Test
+    void onlyTheConfiguredQueuesAreEnabled() {
+        assertTrue(sqsClaimCheck.isEnabled(QUEUE_NAME));
+        assertFalse(sqsClaimCheck.isEnabled("other-queue"));
+    }
+
+    @Test
+    void smallPayloadsAreSentInline() {
+        var payload = "{\"a\":\"b\"}".getBytes(StandardCharsets.UTF_8);
+        var buffer = Arrays.copyOf(payload, 64);
+
+        StepVerifier.create(sqsClaimCheck.checkIn(QUEUE_NAME, buffer, payload.length))
+                    .expectNext(new SqsMessageContent("{\"a\":\"b\"}", Map.of()))
+                    .verifyComplete();
+        verifyNoInteractions(s3Service);
+    }
+
+    @Test
+    void largePayloadsAreStoredOnceAndReplacedByAPointer() throws Exception {
+        var payload = "{\"pointerFileKey\":\"a payload larger than the limit\"}".getBytes(StandardCharsets.UTF_8);
+        var buffer = Arrays.copyOf(payload, 256);
+        when(s3Service.putObject(anyString(), eq(BUCKET_NAME), eq(payload))).thenAnswer(invocation -> Mono.just(invocation.getArgument(0)));
+
+        var messageContent = sqsClaimCheck.checkIn(QUEUE_NAME, buffer, payload.length).block();
+
+        var key = messageContent.messageAttributes().get(SqsClaimCheck.CLAIM_CHECK_KEY).stringValue();
+        assertTrue(key.startsWith(QUEUE_NAME + "/"));
+        assertEquals(key, objectMapper.readValue(messageContent.messageBody(), S3Pointer.class).getPointerFileKey());
+        verify(s3Service, times(1)).putObject(key, BUCKET_NAME, payload);
+    }
+
+    @Test
+    void checkOutReadsThePayloadFromTheBucketOnlyForPointers() {
+        var pointer = new S3Pointer("stored");
+        when(s3Service.getObjectStreamAndConvert("key", BUCKET_NAME, S3Pointer.class)).thenReturn(Mono.just(pointer));
+
+        StepVerifier.create(sqsClaimCheck.checkOut(Message.builder().body("{\"pointerFileKey\":\"inline\"}").build(), S3Pointer.class))
+                    .expectNext(new S3Pointer("inline"))
+                    .verifyComplete();
+        StepVerifier.create(sqsClaimCheck.checkOut(claimCheckedMessage("key"), S3Pointer.class)).expectNext(pointer).verifyComplete();
+        verify(s3Service, times(1)).getObjectStreamAndConvert(any(), any(), any());
+    }
+
+    @Test
+    void releasedPayloadsAreDeletedInBatches() {
+        when(s3Service.deleteObjects(any(), eq(BUCKET_NAME))).thenReturn(Mono.just(DeleteObjectsResponse.builder().build()));
+
+        sqsClaimCheck.release(Message.builder().body("inline").build());
+        for (int i = 0; i < 12; i++) {
+            sqsClaimCheck.release(claimCheckedMessage("key-" + i));
+        }
+
+        verify(s3Service, timeout(1000).times(2)).deleteObjects(any(), eq(BUCKET_NAME));
+        verify(s3Service, times(1)).deleteObjects(argThat(keys -> keys.size() == 10), eq(BUCKET_NAME));
+        verify(s3Service, times(1)).deleteObjects(argThat(keys -> keys.size() == 2), eq(BUCKET_NAME));
+    }
+
+    private static Message claimCheckedMessage(final String key) {
+        return Message.builder()
+                      .body("{\"pointerFileKey\":\"" + key + "\"}")
+                      .messageAttributes(Map.of(SqsClaimCheck.CLAIM_CHECK_KEY,
+                                                MessageAttributeValue.builder().dataType("String").stringValue(key).build()))
+                      .build();
+    }
+}
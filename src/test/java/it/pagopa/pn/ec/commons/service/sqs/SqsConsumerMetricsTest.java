@@ -0,0 +1,90 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqsConsumerMetricsTest {
+
+    private static final String QUEUE_NAME = "queue";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SqsConsumerMetrics sqsConsumerMetrics = new SqsConsumerMetrics(meterRegistry);
+
+    @Test
+    void dwellTimeAndRedeliveriesAreRecordedFromTheAttributes() {
+        var sentTimestamp = String.valueOf(System.currentTimeMillis() - 5000);
+
+        sqsConsumerMetrics.received(QUEUE_NAME, message(sentTimestamp, "1"));
+        sqsConsumerMetrics.received(QUEUE_NAME, message(sentTimestamp, "3"));
+
+        var dwellTime = meterRegistry.get("sqs.consumer.dwell.time").tag("queue", QUEUE_NAME).timer();
+        assertEquals(2, dwellTime.count());
+        assertTrue(dwellTime.max(TimeUnit.MILLISECONDS) >= 5000);
+        assertEquals(4, meterRegistry.get("sqs.consumer.receive.count").tag("queue", QUEUE_NAME).summary().totalAmount());
+        assertEquals(1, meterRegistry.get("sqs.consumer.redeliveries").tag("queue", QUEUE_NAME).counter().count());
+    }
+
+    @Test
+    void metersAreRegisteredOncePerQueueAndOutcome() {
+        var sentTimestamp = String.valueOf(System.currentTimeMillis());
+
+        for (int i = 0; i < 3; i++) {
+            sqsConsumerMetrics.received(QUEUE_NAME, message(sentTimestamp, "2"));
+            StepVerifier.create(sqsConsumerMetrics.timeProcessing(QUEUE_NAME, Mono.just("done"))).expectNext("done").verifyComplete();
+        }
+        sqsConsumerMetrics.received("other-queue", message(sentTimestamp, "2"));
+
+        assertEquals(2, meterRegistry.find("sqs.consumer.dwell.time").timers().size());
+        assertEquals(1, meterRegistry.find("sqs.consumer.processing.time").timers().size());
+        assertEquals(3, meterRegistry.get("sqs.consumer.redeliveries").tag("queue", QUEUE_NAME).counter().count());
+        assertEquals(3, meterRegistry.get("sqs.consumer.processing.time").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    void missingAttributesAreNotRecorded() {
+        sqsConsumerMetrics.received(QUEUE_NAME, null, null);
+
+        assertTrue(meterRegistry.getMeters().isEmpty());
+    }
+
+    @Test
+    void processingIsTimedByOutcome() {
+        StepVerifier.create(sqsConsumerMetrics.timeProcessing(QUEUE_NAME, Mono.just("done"))).expectNext("done").verifyComplete();
+        StepVerifier.create(sqsConsumerMetrics.timeProcessing(QUEUE_NAME, Mono.error(new IllegalStateException()))).verifyError();
+
+        assertEquals(1, meterRegistry.get("sqs.consumer.processing.time").tag("outcome", "success").timer().count());
+        assertEquals(1, meterRegistry.get("sqs.consumer.processing.time").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    void acknowledgmentsAreTimedOnCompletion() {
+        var deletion = new CompletableFuture<Void>();
+        var acknowledgment = sqsConsumerMetrics.timeAcknowledgment(QUEUE_NAME, () -> deletion);
+
+        acknowledgment.acknowledge();
+        assertTrue(meterRegistry.find("sqs.consumer.ack.latency").timers().isEmpty());
+        deletion.complete(null);
+
+        assertEquals(1, meterRegistry.get("sqs.consumer.ack.latency").tag("queue", QUEUE_NAME).tag("outcome", "success").timer().count());
+    }
+
+    private static Message message(final String sentTimestamp, final String approximateReceiveCount) {
+        return Message.builder()
+                      .attributes(Map.of(MessageSystemAttributeName.SENT_TIMESTAMP,
+                                         sentTimestamp,
+                                         MessageSystemAttributeName.APPROXIMATE_RECEIVE_COUNT,
+                                         approximateReceiveCount))
+                      .build();
+    }
+}
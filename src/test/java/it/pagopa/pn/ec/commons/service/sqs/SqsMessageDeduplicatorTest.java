@@ -0,0 +1,62 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsMessageDeduplicatorProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqsMessageDeduplicatorTest {
+
+    private static final String QUEUE_NAME = "queue";
+    private static final String CONTENT_HASH_QUEUE_NAME = "content-hash-queue";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SqsMessageDeduplicator sqsMessageDeduplicator =
+            new SqsMessageDeduplicator(new SqsMessageDeduplicatorProperties(true, 100L, 60L, List.of(CONTENT_HASH_QUEUE_NAME)),
+                                       meterRegistry);
+
+    @Test
+    void completedMessagesAreRecognizedByMessageId() {
+        assertFalse(sqsMessageDeduplicator.isCompleted(QUEUE_NAME, "id-1", "body"));
+
+        sqsMessageDeduplicator.markCompleted(QUEUE_NAME, "id-1", "body");
+
+        assertTrue(sqsMessageDeduplicator.isCompleted(QUEUE_NAME, "id-1", "body"));
+        assertFalse(sqsMessageDeduplicator.isCompleted(QUEUE_NAME, "id-2", "body"));
+        assertFalse(sqsMessageDeduplicator.isCompleted("other-queue", "id-1", "body"));
+        assertEquals(1, meterRegistry.get("sqs.deduplicator.lookups").tag("queue", QUEUE_NAME).tag("result", "hit").counter().count());
+        assertEquals(2, meterRegistry.get("sqs.deduplicator.lookups").tag("queue", QUEUE_NAME).tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void contentHashIsUsedOnlyForTheConfiguredQueues() {
+        sqsMessageDeduplicator.markCompleted(QUEUE_NAME, "id-1", "body");
+        sqsMessageDeduplicator.markCompleted(CONTENT_HASH_QUEUE_NAME, "id-1", "body");
+
+        assertFalse(sqsMessageDeduplicator.isCompleted(QUEUE_NAME, "id-2", "body"));
+        assertTrue(sqsMessageDeduplicator.isCompleted(CONTENT_HASH_QUEUE_NAME, "id-2", "body"));
+    }
+
+    @Test
+    void acknowledgmentMarksTheMessageAsCompleted() {
+        var acknowledgment = sqsMessageDeduplicator.trackCompletion(QUEUE_NAME, "id-1", null, () -> null);
+
+        acknowledgment.acknowledge();
+
+        assertTrue(sqsMessageDeduplicator.isCompleted(QUEUE_NAME, "id-1", null));
+    }
+
+    @Test
+    void disabledDeduplicatorNeverSkipsMessages() {
+        var disabled = new SqsMessageDeduplicator(new SqsMessageDeduplicatorProperties(false, 100L, 60L, List.of()), meterRegistry);
+
+        disabled.markCompleted(QUEUE_NAME, "id-1", "body");
+
+        assertFalse(disabled.isCompleted(QUEUE_NAME, "id-1", "body"));
+    }
+}
@@ -0,0 +1,66 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsMessageGroupProperties;
+import it.pagopa.pn.ec.commons.model.dto.NotificationTrackerQueueDto;
+import it.pagopa.pn.ec.commons.model.pojo.request.PresaInCaricoInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqsMessageGroupIdStrategyTest {
+
+    private static final String CLIENT_ID = "CLIENT_ID";
+    private static final String ERROR_QUEUE_NAME = "error-queue";
+
+    private static PresaInCaricoInfo presaInCaricoInfo(String requestIdx) {
+        return PresaInCaricoInfo.builder().xPagopaExtchCxId(CLIENT_ID).requestIdx(requestIdx).build();
+    }
+
+    @Test
+    void messagesOfTheSameRequestShareTheGroup() {
+        var strategy = new SqsMessageGroupIdStrategy(new SqsMessageGroupProperties(true, 0, List.of(ERROR_QUEUE_NAME)));
+        var notificationTrackerQueueDto = NotificationTrackerQueueDto.builder().xPagopaExtchCxId(CLIENT_ID).requestIdx("REQUEST_1").build();
+
+        assertEquals("CLIENT_ID~REQUEST_1", strategy.messageGroupId(presaInCaricoInfo("REQUEST_1")));
+        assertEquals("CLIENT_ID~REQUEST_1", strategy.messageGroupId(notificationTrackerQueueDto));
+        assertNotEquals(strategy.messageGroupId(presaInCaricoInfo("REQUEST_1")), strategy.messageGroupId(presaInCaricoInfo("REQUEST_2")));
+    }
+
+    @Test
+    void requestsAreHashedIntoShards() {
+        var strategy = new SqsMessageGroupIdStrategy(new SqsMessageGroupProperties(true, 4, List.of(ERROR_QUEUE_NAME)));
+
+        for (int i = 0; i < 100; i++) {
+            var messageGroupId = strategy.messageGroupId(presaInCaricoInfo("REQUEST_" + i));
+            assertTrue(messageGroupId.matches("shard-[0-3]"));
+            assertEquals(messageGroupId, strategy.messageGroupId(presaInCaricoInfo("REQUEST_" + i)));
+        }
+    }
+
+    @Test
+    void unshardedQueuesKeepTheRequestGroups() {
+        var strategy = new SqsMessageGroupIdStrategy(new SqsMessageGroupProperties(true, 4, List.of(ERROR_QUEUE_NAME)));
+
+        assertEquals("CLIENT_ID~REQUEST_1", strategy.messageGroupId(ERROR_QUEUE_NAME, presaInCaricoInfo("REQUEST_1")));
+        assertTrue(strategy.messageGroupId("queue", presaInCaricoInfo("REQUEST_1")).matches("shard-[0-3]"));
+    }
+
+    @Test
+    void payloadsWithoutRequestGetARandomGroup() {
+        var strategy = new SqsMessageGroupIdStrategy(new SqsMessageGroupProperties(true, 0, List.of(ERROR_QUEUE_NAME)));
+
+        assertEquals(64, strategy.messageGroupId("payload").length());
+        assertNotEquals(strategy.messageGroupId(presaInCaricoInfo(null)), strategy.messageGroupId(presaInCaricoInfo(null)));
+    }
+
+    @Test
+    void tooLongRequestKeysAreHashed() {
+        var strategy = new SqsMessageGroupIdStrategy(new SqsMessageGroupProperties(true, 0, List.of(ERROR_QUEUE_NAME)));
+
+        assertEquals(64, strategy.messageGroupId(presaInCaricoInfo("R".repeat(200))).length());
+    }
+}
@@ -0,0 +1,80 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsPayloadCodecProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqsPayloadCodecTest {
+
+    private static final String GZIP_QUEUE_NAME = "gzip-queue";
+    private static final String ZSTD_QUEUE_NAME = "zstd-queue";
+    private static final String SMILE_QUEUE_NAME = "smile-queue";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SqsPayloadCodec sqsPayloadCodec = new SqsPayloadCodec(new SqsPayloadCodecProperties(List.of(GZIP_QUEUE_NAME),
+                                                                                                      List.of(ZSTD_QUEUE_NAME),
+                                                                                                      List.of(SMILE_QUEUE_NAME),
+                                                                                                      64,
+                                                                                                      3),
+                                                                        objectMapper,
+                                                                        Jackson2ObjectMapperBuilder.json());
+
+    @ParameterizedTest
+    @ValueSource(strings = {GZIP_QUEUE_NAME, ZSTD_QUEUE_NAME})
+    void compressiblePayloadsAreEncodedAndDecoded(String queueName) throws IOException {
+        var payload = ("{\"message\":\"" + "Ricevuta di avvenuta consegna ".repeat(100) + "\"}").getBytes(StandardCharsets.UTF_8);
+
+        var messageContent = sqsPayloadCodec.encode(queueName, payload, payload.length);
+
+        assertTrue(messageContent.sizeInBytes() < payload.length);
+        var message = Message.builder().body(messageContent.messageBody()).messageAttributes(messageContent.messageAttributes()).build();
+        assertTrue(SqsPayloadCodec.isEncoded(message));
+        assertEquals(objectMapper.readTree(payload), sqsPayloadCodec.decode(message, JsonNode.class));
+    }
+
+    @Test
+    void smilePayloadsAreAlwaysEncoded() throws IOException {
+        var payload = Map.of("requestIdx", "idx", "nextStatus", "sent");
+        var smilePayload = sqsPayloadCodec.objectMapper(SMILE_QUEUE_NAME).writeValueAsBytes(payload);
+
+        var messageContent = sqsPayloadCodec.encode(SMILE_QUEUE_NAME, smilePayload, smilePayload.length);
+
+        var message = Message.builder().body(messageContent.messageBody()).messageAttributes(messageContent.messageAttributes()).build();
+        assertTrue(SqsPayloadCodec.isEncoded(message));
+        assertEquals(SqsPayloadCodec.SMILE, message.messageAttributes().get(SqsPayloadCodec.CONTENT_TYPE).stringValue());
+        assertEquals(SqsPayloadCodec.IDENTITY, message.messageAttributes().get(SqsPayloadCodec.CONTENT_ENCODING).stringValue());
+        assertEquals(payload, sqsPayloadCodec.decode(message, Map.class));
+    }
+
+    @Test
+    void smallPayloadsAndOtherQueuesAreSentAsTheyAre() {
+        var small = "{\"requestIdx\":\"idx\"}".getBytes(StandardCharsets.UTF_8);
+        var large = ("{\"message\":\"" + "a".repeat(1000) + "\"}").getBytes(StandardCharsets.UTF_8);
+
+        assertEquals("{\"requestIdx\":\"idx\"}", sqsPayloadCodec.encode(GZIP_QUEUE_NAME, small, small.length).messageBody());
+        assertEquals(Map.of(), sqsPayloadCodec.encode("other-queue", large, large.length).messageAttributes());
+        assertFalse(sqsPayloadCodec.isEnabled("other-queue"));
+        assertSame(objectMapper, sqsPayloadCodec.objectMapper("other-queue"));
+    }
+
+    @Test
+    void incompressiblePayloadsAreSentAsTheyAre() {
+        var payload = new byte[1024];
+        ThreadLocalRandom.current().nextBytes(payload);
+
+        assertEquals(Map.of(), sqsPayloadCodec.encode(ZSTD_QUEUE_NAME, payload, payload.length).messageAttributes());
+    }
+}
@@ -0,0 +1,57 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SqsPayloadSerializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SqsPayloadSerializer sqsPayloadSerializer = new SqsPayloadSerializer(objectMapper);
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "ascii", "àèìòù", "€ 100", "emoji 😀", "unpaired \uD83D surrogate"})
+    void utf8LengthMatchesTheEncodedLength(String value) {
+        assertEquals(value.getBytes(StandardCharsets.UTF_8).length, SqsPayloadSerializer.utf8Length(value));
+    }
+
+    @Test
+    void serializedPayloadMatchesJackson() throws IOException {
+        var payload = Map.of("requestIdx", "àèìòù");
+
+        var serialized = sqsPayloadSerializer.serialize(payload, (buffer, length) -> new String(buffer, 0, length, StandardCharsets.UTF_8));
+
+        assertEquals(objectMapper.writeValueAsString(payload), serialized);
+    }
+
+    @Test
+    void bufferIsReusedByTheSameThread() throws IOException {
+        var firstBuffer = sqsPayloadSerializer.serialize(Map.of("a", "first"), (buffer, length) -> buffer);
+        var secondBuffer = sqsPayloadSerializer.serialize(Map.of("b", "second"), (buffer, length) -> buffer);
+
+        assertSame(firstBuffer, secondBuffer);
+    }
+
+    @Test
+    void nestedSerializationsDontShareTheBuffer() throws IOException {
+        var serialized = sqsPayloadSerializer.serialize(Map.of("outer", "payload"), (outerBuffer, outerLength) -> {
+            try {
+                var inner = sqsPayloadSerializer.serialize(Map.of("inner", "payload"),
+                                                           (buffer, length) -> new String(buffer, 0, length, StandardCharsets.UTF_8));
+                return new String(outerBuffer, 0, outerLength, StandardCharsets.UTF_8) + inner;
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals("{\"outer\":\"payload\"}{\"inner\":\"payload\"}", serialized);
+    }
+}
@@ -0,0 +1,92 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsQueueBacklogProperties;
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsQueueBacklog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueAttributesResponse;
+import software.amazon.awssdk.services.sqs.model.QueueAttributeName;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SqsQueueBacklogMonitorTest {
+
+    private static final String QUEUE_NAME = "queue";
+
+    private final SqsAsyncClient sqsAsyncClient = mock(SqsAsyncClient.class);
+    private final SqsQueueUrlRegistry sqsQueueUrlRegistry = mock(SqsQueueUrlRegistry.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SqsQueueBacklogMonitor sqsQueueBacklogMonitor;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        when(sqsQueueUrlRegistry.getConfiguredQueueNames()).thenReturn(Set.of(QUEUE_NAME));
+        when(sqsQueueUrlRegistry.withQueueUrl(anyString(), any())).thenAnswer(invocation -> invocation.<Function<String, Mono<?>>>getArgument(1)
+                                                                                                   .apply("url"));
+        when(sqsAsyncClient.getQueueAttributes(any(Consumer.class))).thenReturn(CompletableFuture.completedFuture(
+                GetQueueAttributesResponse.builder()
+                                          .attributes(Map.of(QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES,
+                                                             "12",
+                                                             QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_NOT_VISIBLE,
+                                                             "3",
+                                                             QueueAttributeName.APPROXIMATE_NUMBER_OF_MESSAGES_DELAYED,
+                                                             "1"))
+                                          .build()));
+        sqsQueueBacklogMonitor = new SqsQueueBacklogMonitor(sqsAsyncClient,
+                                                            sqsQueueUrlRegistry,
+                                                            new SqsQueueBacklogProperties(30000L, 5),
+                                                            meterRegistry);
+    }
+
+    @Test
+    void gaugesAreNaNUntilTheFirstRefresh() {
+        assertTrue(Double.isNaN(meterRegistry.get("sqs.queue.backlog").tag("queue", QUEUE_NAME).tag("state", "visible").gauge().value()));
+
+        sqsQueueBacklogMonitor.refresh().block();
+
+        assertEquals(12, meterRegistry.get("sqs.queue.backlog").tag("queue", QUEUE_NAME).tag("state", "visible").gauge().value());
+        assertEquals(3, meterRegistry.get("sqs.queue.backlog").tag("queue", QUEUE_NAME).tag("state", "in.flight").gauge().value());
+        assertEquals(1, meterRegistry.get("sqs.queue.backlog").tag("queue", QUEUE_NAME).tag("state", "delayed").gauge().value());
+    }
+
+    @Test
+    void backlogIsReadOnceAndThenServedFromTheCache() {
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(sqsQueueBacklogMonitor.getBacklog(QUEUE_NAME))
+                        .expectNextMatches(backlog -> backlog.visible() == 12 && backlog.inFlight() == 3 && backlog.delayed() == 1)
+                        .verifyComplete();
+        }
+        StepVerifier.create(sqsQueueBacklogMonitor.getBacklog("other-queue")).verifyComplete();
+
+        verify(sqsAsyncClient, times(1)).getQueueAttributes(any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedReadsKeepThePreviousBacklog() {
+        sqsQueueBacklogMonitor.refresh().block();
+        when(sqsAsyncClient.getQueueAttributes(any(Consumer.class))).thenReturn(CompletableFuture.failedFuture(new IllegalStateException()));
+
+        sqsQueueBacklogMonitor.refresh().block();
+
+        StepVerifier.create(sqsQueueBacklogMonitor.getBacklogs().map(backlogs -> backlogs.stream().map(SqsQueueBacklog::visible).toList()))
+                    .expectNext(List.of(12L))
+                    .verifyComplete();
+    }
+}
@@ -0,0 +1,144 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ec.cartaceo.configurationproperties.CartaceoSqsQueueName;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
+import it.pagopa.pn.ec.email.configurationproperties.EmailSqsQueueName;
+import it.pagopa.pn.ec.pec.configurationproperties.PecSqsQueueName;
+import it.pagopa.pn.ec.scaricamentoesitipec.configurationproperties.CancellazioneRicevutePecProperties;
+import it.pagopa.pn.ec.scaricamentoesitipec.configurationproperties.ScaricamentoEsitiPecProperties;
+import it.pagopa.pn.ec.sms.configurationproperties.SmsSqsQueueName;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlRequest;
+import software.amazon.awssdk.services.sqs.model.GetQueueUrlResponse;
+import software.amazon.awssdk.services.sqs.model.QueueDoesNotExistException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SqsQueueUrlRegistryTest {
+
+    private static final String EMAIL_INTERACTIVE_QUEUE = "email-interactive";
+    private static final String UNKNOWN_QUEUE = "unknown";
+
+    private SqsAsyncClient sqsAsyncClient;
+    private SqsQueueUrlRegistry sqsQueueUrlRegistry;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        sqsAsyncClient = mock(SqsAsyncClient.class);
+        when(sqsAsyncClient.getQueueUrl(any(Consumer.class))).thenAnswer(invocation -> queueUrlResponse(invocation.getArgument(0)));
+        sqsQueueUrlRegistry = new SqsQueueUrlRegistry(sqsAsyncClient,
+                                                      new NotificationTrackerSqsName("stato-sms",
+                                                                                     null,
+                                                                                     null,
+                                                                                     null,
+                                                                                     null,
+                                                                                     null,
+                                                                                     null,
+                                                                                     null,
+                                                                                     null,
+                                                                                     null,
+                                                                                     null,
+                                                                                     null,
+                                                                                     null,
+                                                                                     null),
+                                                      new EmailSqsQueueName(null, EMAIL_INTERACTIVE_QUEUE, null),
+                                                      new PecSqsQueueName(null, null, null),
+                                                      new SmsSqsQueueName(null, null, null),
+                                                      new CartaceoSqsQueueName(null, null),
+                                                      new ScaricamentoEsitiPecProperties(null, null, null, null),
+                                                      new CancellazioneRicevutePecProperties(null),
+                                                      new SimpleMeterRegistry());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void configuredQueuesAreResolvedAtStartup() {
+        assertEquals(2, sqsQueueUrlRegistry.getConfiguredQueueNames().size());
+
+        sqsQueueUrlRegistry.resolveConfiguredQueues();
+
+        StepVerifier.create(sqsQueueUrlRegistry.getQueueUrl(EMAIL_INTERACTIVE_QUEUE)).expectNext(url(EMAIL_INTERACTIVE_QUEUE)).verifyComplete();
+        StepVerifier.create(sqsQueueUrlRegistry.getQueueUrl("stato-sms")).expectNext(url("stato-sms")).verifyComplete();
+        verify(sqsAsyncClient, times(2)).getQueueUrl(any(Consumer.class));
+        assertEquals(2, sqsQueueUrlRegistry.getHitCount());
+        assertEquals(0, sqsQueueUrlRegistry.getMissCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unknownQueueIsResolvedLazilyOnce() {
+        StepVerifier.create(sqsQueueUrlRegistry.getQueueUrl(UNKNOWN_QUEUE)).expectNext(url(UNKNOWN_QUEUE)).verifyComplete();
+        StepVerifier.create(sqsQueueUrlRegistry.getQueueUrl(UNKNOWN_QUEUE)).expectNext(url(UNKNOWN_QUEUE)).verifyComplete();
+
+        verify(sqsAsyncClient, times(1)).getQueueUrl(any(Consumer.class));
+        assertEquals(1, sqsQueueUrlRegistry.getHitCount());
+        assertEquals(1, sqsQueueUrlRegistry.getMissCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void failedLookupIsNotCachedAndIsRetried() {
+        // Stubbed with doReturn, because the answer of setUp can't handle the null request of the matcher
+        doReturn(CompletableFuture.failedFuture(new IllegalStateException("timeout"))).doAnswer(invocation -> queueUrlResponse(invocation.getArgument(
+                0))).when(sqsAsyncClient).getQueueUrl(any(Consumer.class));
+
+        sqsQueueUrlRegistry.resolveConfiguredQueues();
+        StepVerifier.create(sqsQueueUrlRegistry.getQueueUrl(EMAIL_INTERACTIVE_QUEUE).then(sqsQueueUrlRegistry.getQueueUrl("stato-sms")))
+                    .expectNextCount(1)
+                    .verifyComplete();
+
+        verify(sqsAsyncClient, times(3)).getQueueUrl(any(Consumer.class));
+        assertEquals(1, sqsQueueUrlRegistry.getHitCount());
+        assertEquals(1, sqsQueueUrlRegistry.getMissCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void staleUrlIsResolvedAgainAndTheOperationRetried() {
+        var attempts = new AtomicInteger();
+
+        StepVerifier.create(sqsQueueUrlRegistry.withQueueUrl(UNKNOWN_QUEUE, queueUrl -> attempts.getAndIncrement() == 0 ? Mono.error(
+                            QueueDoesNotExistException.builder().build()) : Mono.just(queueUrl)))
+                    .expectNext(url(UNKNOWN_QUEUE))
+                    .verifyComplete();
+
+        assertEquals(2, attempts.get());
+        verify(sqsAsyncClient, times(2)).getQueueUrl(any(Consumer.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void missingQueueIsReportedAfterOneRetry() {
+        doReturn(CompletableFuture.failedFuture(QueueDoesNotExistException.builder().build())).when(sqsAsyncClient)
+                                                                                              .getQueueUrl(any(Consumer.class));
+
+        StepVerifier.create(sqsQueueUrlRegistry.withQueueUrl(UNKNOWN_QUEUE, Mono::just))
+                    .expectErrorMatches(QueueDoesNotExistException.class::isInstance)
+                    .verify();
+
+        verify(sqsAsyncClient, times(2)).getQueueUrl(any(Consumer.class));
+        assertEquals(2, sqsQueueUrlRegistry.getMissCount());
+    }
+
+    private static CompletableFuture<GetQueueUrlResponse> queueUrlResponse(final Consumer<GetQueueUrlRequest.Builder> requestConsumer) {
+        var builder = GetQueueUrlRequest.builder();
+        requestConsumer.accept(builder);
+        return CompletableFuture.completedFuture(GetQueueUrlResponse.builder().queueUrl(url(builder.build().queueName())).build());
+    }
+
+    private static String url(final String queueName) {
+        return "https://sqs.eu-south-1.amazonaws.com/000000000000/" + queueName;
+    }
+}
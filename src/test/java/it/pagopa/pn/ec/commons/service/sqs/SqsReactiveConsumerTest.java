@@ -0,0 +1,183 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsReactiveConsumerProperties;
+import it.pagopa.pn.ec.commons.service.SqsService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SqsReactiveConsumerTest {
+
+    private static final String QUEUE_NAME = "queue";
+
+    private final AtomicInteger receives = new AtomicInteger();
+    private SqsReceiveEngine sqsReceiveEngine;
+    private SqsService sqsService;
+    private SqsReactiveConsumer sqsReactiveConsumer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        sqsReceiveEngine = mock(SqsReceiveEngine.class);
+        sqsService = mock(SqsService.class);
+        var sqsVisibilityExtender = mock(SqsVisibilityExtender.class);
+        var sqsMessageDeduplicator = mock(SqsMessageDeduplicator.class);
+        var sqsClaimCheck = mock(SqsClaimCheck.class);
+        when(sqsVisibilityExtender.extendWhileProcessing(anyString(), any(), any())).thenAnswer(invocation -> invocation.getArgument(2));
+        when(sqsClaimCheck.checkOut(any(), eq(String.class))).thenAnswer(invocation -> Mono.just(invocation.<Message>getArgument(0).body()));
+        when(sqsService.deleteMessageFromQueue(any(), anyString())).thenReturn(Mono.just(DeleteMessageResponse.builder().build()));
+        sqsReactiveConsumer = new SqsReactiveConsumer(sqsReceiveEngine,
+                                                      sqsVisibilityExtender,
+                                                      sqsMessageDeduplicator,
+                                                      sqsService,
+                                                      sqsClaimCheck,
+                                                      new SqsConsumerMetrics(new SimpleMeterRegistry()),
+                                                      new SqsReactiveConsumerProperties(100L, 300L));
+    }
+
+    @AfterEach
+    void tearDown() {
+        sqsReactiveConsumer.stopConsumers();
+    }
+
+    @Test
+    void messagesInFlightAreBounded() {
+        stubReceive(Flux.fromIterable(messages(10)));
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+        Sinks.Empty<Void> processing = Sinks.empty();
+
+        sqsReactiveConsumer.consume(QUEUE_NAME, String.class, (messageContent, acknowledgment) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return processing.asMono().doFinally(signalType -> inFlight.decrementAndGet());
+        }, 3);
+
+        verify(sqsReceiveEngine, timeout(1000)).receive(QUEUE_NAME, Integer.MAX_VALUE);
+        sleep(200);
+        assertEquals(3, inFlight.get());
+        processing.tryEmitEmpty();
+        sleep(200);
+        assertEquals(3, maxInFlight.get());
+    }
+
+    @Test
+    void acknowledgedMessagesAreDeleted() {
+        stubReceive(Flux.fromIterable(messages(2)));
+
+        sqsReactiveConsumer.consume(QUEUE_NAME,
+                                    String.class,
+                                    (messageContent, acknowledgment) -> Mono.fromRunnable(acknowledgment::acknowledge),
+                                    10);
+
+        verify(sqsService, timeout(1000).times(2)).deleteMessageFromQueue(any(), eq(QUEUE_NAME));
+    }
+
+    @Test
+    void messagesPerSecondPacesTheMessagesStarted() {
+        stubReceive(Flux.fromIterable(messages(3)));
+        List<Long> startTimes = new CopyOnWriteArrayList<>();
+
+        sqsReactiveConsumer.consume(QUEUE_NAME, String.class, (messageContent, acknowledgment) -> {
+            startTimes.add(System.nanoTime());
+            return Mono.empty();
+        }, 10, 10.0);
+
+        verify(sqsReceiveEngine, timeout(1000).atLeast(2)).receive(QUEUE_NAME, Integer.MAX_VALUE);
+        assertEquals(3, startTimes.size());
+        long elapsedMillis = (startTimes.get(2) - startTimes.get(0)) / 1_000_000;
+        assertTrue(elapsedMillis >= 180, "elapsed : " + elapsedMillis);
+    }
+
+    @Test
+    void messagesNotAcknowledgedAreNotDeleted() {
+        stubReceive(Flux.fromIterable(messages(2)));
+        List<String> handled = new CopyOnWriteArrayList<>();
+
+        sqsReactiveConsumer.consume(QUEUE_NAME, String.class, (messageContent, acknowledgment) -> {
+            handled.add(messageContent);
+            return messageContent.equals("body-0") ? Mono.empty() : Mono.error(new IllegalStateException("not processed"));
+        }, 10);
+
+        verify(sqsReceiveEngine, timeout(1000).atLeast(2)).receive(QUEUE_NAME, Integer.MAX_VALUE);
+        assertEquals(List.of("body-0", "body-1"), handled);
+        verify(sqsService, never()).deleteMessageFromQueue(any(), anyString());
+    }
+
+    @Test
+    void emptyQueueIsPolledAgainAfterTheIdleBackoff() {
+        stubReceive(Flux.empty());
+
+        sqsReactiveConsumer.consume(QUEUE_NAME, String.class, (messageContent, acknowledgment) -> Mono.empty(), 10);
+
+        sleep(450);
+        assertTrue(receives.get() >= 2 && receives.get() <= 6, "receives : " + receives.get());
+    }
+
+    @Test
+    void receiveErrorIsRetriedAfterTheErrorBackoff() {
+        var receiveError = Flux.<Message>error(new IllegalStateException("unreachable"));
+        stubReceive(receiveError, receiveError);
+
+        sqsReactiveConsumer.consume(QUEUE_NAME, String.class, (messageContent, acknowledgment) -> Mono.empty(), 10);
+
+        sleep(650);
+        // Every failed drain waits the error backoff and then the idle one, 400 ms in all
+        assertTrue(receives.get() >= 1 && receives.get() <= 2, "receives : " + receives.get());
+    }
+
+    @Test
+    void stoppedConsumersDoNotPollAnymore() {
+        stubReceive(Flux.empty());
+        sqsReactiveConsumer.consume(QUEUE_NAME, String.class, (messageContent, acknowledgment) -> Mono.empty(), 10);
+        verify(sqsReceiveEngine, timeout(1000)).receive(QUEUE_NAME, Integer.MAX_VALUE);
+
+        sqsReactiveConsumer.stopConsumers();
+        int receivesWhenStopped = receives.get();
+        sleep(300);
+
+        assertEquals(receivesWhenStopped, receives.get());
+    }
+
+    /**
+     * The first drain returns the given messages, the following ones find the queue empty.
+     */
+    private void stubReceive(final Flux<Message> firstDrain) {
+        stubReceive(firstDrain, Flux.empty());
+    }
+
+    private void stubReceive(final Flux<Message> firstDrain, final Flux<Message> followingDrains) {
+        when(sqsReceiveEngine.receive(QUEUE_NAME, Integer.MAX_VALUE)).thenAnswer(invocation -> receives.getAndIncrement() == 0
+                                                                                               ? firstDrain
+                                                                                               : followingDrains);
+    }
+
+    private static List<Message> messages(final int count) {
+        return IntStream.range(0, count)
+                        .mapToObj(i -> Message.builder().messageId(String.valueOf(i)).body("body-" + i).receiptHandle("handle-" + i).build())
+                        .toList();
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsReceiveEngineProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageRequest;
+import software.amazon.awssdk.services.sqs.model.ReceiveMessageResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SqsReceiveEngineTest {
+
+    private static final String QUEUE_NAME = "queue";
+
+    private final AtomicInteger receiveCalls = new AtomicInteger();
+    private final AtomicInteger requestedMessages = new AtomicInteger();
+    private SqsAsyncClient sqsAsyncClient;
+    private SqsQueueUrlRegistry sqsQueueUrlRegistry;
+
+    @BeforeEach
+    void setUp() {
+        sqsAsyncClient = mock(SqsAsyncClient.class);
+        sqsQueueUrlRegistry = mock(SqsQueueUrlRegistry.class);
+        when(sqsQueueUrlRegistry.withQueueUrl(anyString(), any())).thenAnswer(invocation -> invocation.<Function<String, Mono<?>>>getArgument(1)
+                                                                                                   .apply("url"));
+    }
+
+    @Test
+    void pollerStopsOnAnEmptyReceive() {
+        stubReceiveMessage(maxNumberOfMessages -> receiveCalls.get() == 1 ? 3 : 0);
+
+        StepVerifier.create(sqsReceiveEngine(1, 40).receive(QUEUE_NAME, 100)).expectNextCount(3).verifyComplete();
+
+        assertEquals(2, receiveCalls.get());
+    }
+
+    @Test
+    void parallelPollersNeverReceiveMoreThanTheLimit() {
+        stubReceiveMessage(maxNumberOfMessages -> maxNumberOfMessages);
+
+        StepVerifier.create(sqsReceiveEngine(4, 40).receive(QUEUE_NAME, 25)).expectNextCount(25).verifyComplete();
+
+        assertEquals(25, requestedMessages.get());
+    }
+
+    @Test
+    void messagesNotReceivedAreLeftToTheOtherPollers() {
+        stubReceiveMessage(maxNumberOfMessages -> receiveCalls.get() <= 2 ? 4 : maxNumberOfMessages);
+
+        StepVerifier.create(sqsReceiveEngine(2, 40).receive(QUEUE_NAME, 25)).expectNextCount(25).verifyComplete();
+    }
+
+    @Test
+    void pollersDoNotRunAheadOfTheDemand() {
+        stubReceiveMessage(maxNumberOfMessages -> maxNumberOfMessages);
+
+        StepVerifier.create(sqsReceiveEngine(1, 10).receive(QUEUE_NAME, Integer.MAX_VALUE), 1)
+                    .expectNextCount(1)
+                    .thenAwait(Duration.ofMillis(200))
+                    .then(() -> assertTrue(receiveCalls.get() <= 2, "receives : " + receiveCalls.get()))
+                    .thenCancel()
+                    .verify();
+    }
+
+    @Test
+    void pacedReceiveAsksForOneSecondOfMessagesAtATime() {
+        stubReceiveMessage(maxNumberOfMessages -> maxNumberOfMessages);
+
+        StepVerifier.withVirtualTime(() -> sqsReceiveEngine(4, 40).receive(QUEUE_NAME, 6, 2.0))
+                    .expectSubscription()
+                    .expectNextCount(2)
+                    .expectNoEvent(Duration.ofMillis(999))
+                    .thenAwait(Duration.ofMillis(1))
+                    .expectNextCount(2)
+                    .expectNoEvent(Duration.ofMillis(999))
+                    .thenAwait(Duration.ofMillis(1))
+                    .expectNextCount(2)
+                    .verifyComplete();
+
+        assertEquals(3, receiveCalls.get());
+        assertEquals(6, requestedMessages.get());
+    }
+
+    @Test
+    void receiveOneAsksForASingleMessage() {
+        stubReceiveMessage(maxNumberOfMessages -> maxNumberOfMessages);
+
+        StepVerifier.create(sqsReceiveEngine(4, 40).receiveOne(QUEUE_NAME)).expectNextCount(1).verifyComplete();
+
+        assertEquals(1, requestedMessages.get());
+    }
+
+    private SqsReceiveEngine sqsReceiveEngine(final int pollersPerQueue, final int bufferSize) {
+        return new SqsReceiveEngine(sqsAsyncClient,
+                                    sqsQueueUrlRegistry,
+                                    new SqsReceiveEngineProperties(10, 0, pollersPerQueue, bufferSize),
+                                    mock(SqsConsumerMetrics.class));
+    }
+
+    /**
+     * The responder gets the number of messages asked for and returns the number of messages received.
+     */
+    @SuppressWarnings("unchecked")
+    private void stubReceiveMessage(final IntFunction<Integer> responder) {
+        when(sqsAsyncClient.receiveMessage(any(Consumer.class))).thenAnswer(invocation -> {
+            var builder = ReceiveMessageRequest.builder();
+            invocation.<Consumer<ReceiveMessageRequest.Builder>>getArgument(0).accept(builder);
+            int maxNumberOfMessages = builder.build().maxNumberOfMessages();
+            receiveCalls.incrementAndGet();
+            requestedMessages.addAndGet(maxNumberOfMessages);
+            List<Message> messages = IntStream.range(0, responder.apply(maxNumberOfMessages))
+                                              .mapToObj(i -> Message.builder().messageId(String.valueOf(i)).build())
+                                              .toList();
+            return CompletableFuture.completedFuture(ReceiveMessageResponse.builder().messages(messages).build());
+        });
+    }
+}
@@ -0,0 +1,168 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsRedriveProperties;
+import it.pagopa.pn.ec.commons.model.pojo.request.PresaInCaricoInfo;
+import it.pagopa.pn.ec.commons.model.pojo.sqs.SqsRedriveResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.services.sqs.model.DeleteMessageResponse;
+import software.amazon.awssdk.services.sqs.model.Message;
+import software.amazon.awssdk.services.sqs.model.MessageSystemAttributeName;
+import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SqsRedriveServiceTest {
+
+    private static final String SOURCE_QUEUE_NAME = "queue-DLQ.fifo";
+    private static final String TARGET_QUEUE_NAME = "queue.fifo";
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private SqsReceiveEngine sqsReceiveEngine;
+    private SqsBatchPublisher sqsBatchPublisher;
+    private SqsAckCoalescer sqsAckCoalescer;
+    private SqsClaimCheck sqsClaimCheck;
+    private SqsMessageGroupIdStrategy sqsMessageGroupIdStrategy;
+    private SqsRedriveService sqsRedriveService;
+
+    @BeforeEach
+    void setUp() {
+        sqsReceiveEngine = mock(SqsReceiveEngine.class);
+        sqsBatchPublisher = mock(SqsBatchPublisher.class);
+        sqsAckCoalescer = mock(SqsAckCoalescer.class);
+        sqsClaimCheck = mock(SqsClaimCheck.class);
+        sqsMessageGroupIdStrategy = mock(SqsMessageGroupIdStrategy.class);
+        when(sqsBatchPublisher.publish(anyString(), anyString(), anyString(), isNull(), anyMap()))
+                .thenReturn(Mono.just(SendMessageResponse.builder().build()));
+        when(sqsAckCoalescer.acknowledge(anyString(), anyString())).thenReturn(Mono.just(DeleteMessageResponse.builder().build()));
+        sqsRedriveService = new SqsRedriveService(sqsReceiveEngine,
+                                                  sqsBatchPublisher,
+                                                  sqsAckCoalescer,
+                                                  sqsMessageGroupIdStrategy,
+                                                  sqsClaimCheck,
+                                                  new SqsRedriveProperties(List.of(SOURCE_QUEUE_NAME, TARGET_QUEUE_NAME), 100, 0.0, 10));
+    }
+
+    @Test
+    void onlyTheConfiguredQueuesAreRedrivable() {
+        assertTrue(sqsRedriveService.isRedrivable(SOURCE_QUEUE_NAME));
+        assertFalse(sqsRedriveService.isRedrivable("other-queue.fifo"));
+    }
+
+    @Test
+    void messagesAreMovedToTheTargetQueueInTheirGroup() {
+        stubReceive(message("1", "{}"), message("2", "{}"));
+
+        StepVerifier.create(redrive(null, null))
+                    .expectNext(new SqsRedriveResult(SOURCE_QUEUE_NAME, TARGET_QUEUE_NAME, 2, 2, 0, 0))
+                    .verifyComplete();
+
+        verify(sqsBatchPublisher).publish(TARGET_QUEUE_NAME, "{}", "group-1", null, Map.of());
+        verify(sqsAckCoalescer).acknowledge(SOURCE_QUEUE_NAME, "handle-1");
+        verify(sqsAckCoalescer).acknowledge(SOURCE_QUEUE_NAME, "handle-2");
+        verifyNoInteractions(sqsClaimCheck);
+    }
+
+    @Test
+    void filtersMatchThePayloadCheckedOutOfEncodedAndStoredMessages() {
+        stubReceive(message("1", "encoded"), message("2", "pointer"), message("3", "unreadable"));
+        stubCheckOut("1", "{\"xPagopaExtchCxId\": \"CLIENT_ID\", \"requestIdx\": \"REQUEST_1\"}");
+        stubCheckOut("2", "{\"xpagopaExtchCxId\": \"CLIENT_ID\", \"requestIdx\": \"OTHER_REQUEST\"}");
+        when(sqsClaimCheck.checkOut(argThat(message -> message != null && "3".equals(message.messageId())), eq(JsonNode.class)))
+                .thenReturn(Mono.error(new IllegalStateException("unreadable")));
+
+        StepVerifier.create(redrive("CLIENT_ID", "REQUEST"))
+                    .expectNext(new SqsRedriveResult(SOURCE_QUEUE_NAME, TARGET_QUEUE_NAME, 3, 1, 2, 0))
+                    .verifyComplete();
+
+        // The message is moved as it is, encoded
+        verify(sqsBatchPublisher).publish(TARGET_QUEUE_NAME, "encoded", "group-1", null, Map.of());
+        verify(sqsAckCoalescer).acknowledge(SOURCE_QUEUE_NAME, "handle-1");
+        verifyNoMoreInteractions(sqsAckCoalescer);
+    }
+
+    @Test
+    void clientFilterAloneMatchesEveryRequestOfTheClient() {
+        stubReceive(message("1", "first"), message("2", "second"));
+        stubCheckOut("1", "{\"xPagopaExtchCxId\": \"CLIENT_ID\", \"requestIdx\": \"REQUEST_1\"}");
+        stubCheckOut("2", "{\"xPagopaExtchCxId\": \"OTHER_CLIENT_ID\", \"requestIdx\": \"REQUEST_2\"}");
+
+        StepVerifier.create(redrive("CLIENT_ID", null))
+                    .expectNext(new SqsRedriveResult(SOURCE_QUEUE_NAME, TARGET_QUEUE_NAME, 2, 1, 1, 0))
+                    .verifyComplete();
+    }
+
+    @Test
+    void messagesNotPublishedAreLeftInTheSourceQueue() {
+        stubReceive(message("1", "{}"));
+        when(sqsBatchPublisher.publish(anyString(), anyString(), anyString(), isNull(), anyMap()))
+                .thenReturn(Mono.error(new IllegalStateException("unreachable")));
+
+        StepVerifier.create(redrive(null, null))
+                    .expectNext(new SqsRedriveResult(SOURCE_QUEUE_NAME, TARGET_QUEUE_NAME, 1, 0, 0, 1))
+                    .verifyComplete();
+
+        verifyNoInteractions(sqsAckCoalescer);
+    }
+
+    @Test
+    void messagesAreReceivedAtTheRequestedRate() {
+        when(sqsReceiveEngine.receive(SOURCE_QUEUE_NAME, 10, 5.0)).thenReturn(Flux.just(message("1", "{}")));
+
+        StepVerifier.create(sqsRedriveService.redrive(SOURCE_QUEUE_NAME, TARGET_QUEUE_NAME, 10, 5.0, null, null))
+                    .expectNext(new SqsRedriveResult(SOURCE_QUEUE_NAME, TARGET_QUEUE_NAME, 1, 1, 0, 0))
+                    .verifyComplete();
+
+        verify(sqsReceiveEngine).receive(SOURCE_QUEUE_NAME, 10, 5.0);
+    }
+
+    @Test
+    void messageWithoutGroupIsMovedInTheGroupOfItsRequest() {
+        stubReceive(message("1", "encoded").toBuilder().attributes(Map.of()).build());
+        stubCheckOut("1", "{\"xPagopaExtchCxId\": \"CLIENT_ID\", \"requestIdx\": \"REQUEST_1\"}");
+        when(sqsMessageGroupIdStrategy.messageGroupId(eq(TARGET_QUEUE_NAME),
+                                                      argThat(payload -> payload instanceof PresaInCaricoInfo presaInCaricoInfo
+                                                                         && "CLIENT_ID".equals(presaInCaricoInfo.getXPagopaExtchCxId())
+                                                                         && "REQUEST_1".equals(presaInCaricoInfo.getRequestIdx()))))
+                .thenReturn("CLIENT_ID~REQUEST_1");
+
+        StepVerifier.create(redrive(null, null))
+                    .expectNext(new SqsRedriveResult(SOURCE_QUEUE_NAME, TARGET_QUEUE_NAME, 1, 1, 0, 0))
+                    .verifyComplete();
+
+        verify(sqsBatchPublisher).publish(TARGET_QUEUE_NAME, "encoded", "CLIENT_ID~REQUEST_1", null, Map.of());
+    }
+
+    private Mono<SqsRedriveResult> redrive(final String xPagopaExtchCxId, final String requestIdxPrefix) {
+        return sqsRedriveService.redrive(SOURCE_QUEUE_NAME, TARGET_QUEUE_NAME, 10, 0.0, xPagopaExtchCxId, requestIdxPrefix);
+    }
+
+    private void stubReceive(final Message... messages) {
+        when(sqsReceiveEngine.receive(SOURCE_QUEUE_NAME, 10, 0.0)).thenReturn(Flux.just(messages));
+    }
+
+    private void stubCheckOut(final String messageId, final String payload) {
+        when(sqsClaimCheck.checkOut(argThat(message -> message != null && messageId.equals(message.messageId())), eq(JsonNode.class)))
+                .thenAnswer(invocation -> Mono.just(OBJECT_MAPPER.readTree(payload)));
+    }
+
+    private static Message message(final String messageId, final String body) {
+        return Message.builder()
+                      .messageId(messageId)
+                      .receiptHandle("handle-" + messageId)
+                      .body(body)
+                      .attributes(Map.of(MessageSystemAttributeName.MESSAGE_GROUP_ID, "group-" + messageId))
+                      .build();
+    }
+}
@@ -0,0 +1,188 @@
+package it.pagopa.pn.ec.commons.service.sqs;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsVisibilityExtenderProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.scheduler.VirtualTimeScheduler;
+import software.amazon.awssdk.services.sqs.SqsAsyncClient;
+import software.amazon.awssdk.services.sqs.model.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SqsVisibilityExtenderTest {
+
+    private static final String QUEUE_NAME = "queue";
+    private static final Message MESSAGE = Message.builder().messageId("messageId").receiptHandle("receiptHandle").build();
+
+    private final List<Integer> visibilityTimeouts = new CopyOnWriteArrayList<>();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private SqsAsyncClient sqsAsyncClient;
+    private SqsQueueUrlRegistry sqsQueueUrlRegistry;
+    private VirtualTimeScheduler virtualTimeScheduler;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        virtualTimeScheduler = VirtualTimeScheduler.getOrSet();
+        sqsAsyncClient = mock(SqsAsyncClient.class);
+        sqsQueueUrlRegistry = mock(SqsQueueUrlRegistry.class);
+        when(sqsQueueUrlRegistry.withQueueUrl(anyString(), any())).thenAnswer(invocation -> invocation.<Function<String, Mono<?>>>getArgument(1)
+                                                                                                   .apply("url"));
+        when(sqsAsyncClient.changeMessageVisibility(any(Consumer.class))).thenAnswer(invocation -> {
+            var builder = ChangeMessageVisibilityRequest.builder();
+            invocation.<Consumer<ChangeMessageVisibilityRequest.Builder>>getArgument(0).accept(builder);
+            visibilityTimeouts.add(builder.build().visibilityTimeout());
+            return CompletableFuture.completedFuture(ChangeMessageVisibilityResponse.builder().build());
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        VirtualTimeScheduler.reset();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void heartbeatNeverShortensTheVisibilityTimeoutOfTheQueue() {
+        stubQueueVisibilityTimeout("600");
+        Sinks.Empty<Void> processing = Sinks.empty();
+
+        sqsVisibilityExtender(60).extendWhileProcessing(QUEUE_NAME, MESSAGE, processing.asMono()).subscribe();
+        virtualTimeScheduler.advanceTimeBy(Duration.ofSeconds(45));
+
+        assertEquals(List.of(600, 600), visibilityTimeouts);
+        verify(sqsAsyncClient, times(1)).getQueueAttributes(any(Consumer.class));
+        processing.tryEmitEmpty();
+    }
+
+    @Test
+    void configuredTimeoutIsUsedWhenLongerThanTheOneOfTheQueue() {
+        stubQueueVisibilityTimeout("30");
+        Sinks.Empty<Void> processing = Sinks.empty();
+
+        sqsVisibilityExtender(60).extendWhileProcessing(QUEUE_NAME, MESSAGE, processing.asMono()).subscribe();
+        virtualTimeScheduler.advanceTimeBy(Duration.ofSeconds(25));
+
+        assertEquals(List.of(60), visibilityTimeouts);
+        processing.tryEmitEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void visibilityIsLeftUnchangedWhenTheTimeoutOfTheQueueIsUnknown() {
+        when(sqsAsyncClient.getQueueAttributes(any(Consumer.class))).thenReturn(CompletableFuture.failedFuture(new IllegalStateException(
+                "unreachable")));
+        Sinks.Empty<Void> processing = Sinks.empty();
+
+        sqsVisibilityExtender(60).extendWhileProcessing(QUEUE_NAME, MESSAGE, processing.asMono()).subscribe();
+        virtualTimeScheduler.advanceTimeBy(Duration.ofSeconds(45));
+
+        assertTrue(visibilityTimeouts.isEmpty());
+        assertEquals(2, meterRegistry.counter("sqs.visibility.extensions", "result", "failure").count());
+        processing.tryEmitEmpty();
+    }
+
+    @Test
+    void heartbeatStopsOnComplete() {
+        stubQueueVisibilityTimeout("600");
+        Sinks.Empty<Void> processing = Sinks.empty();
+
+        sqsVisibilityExtender(60).extendWhileProcessing(QUEUE_NAME, MESSAGE, processing.asMono()).subscribe();
+        virtualTimeScheduler.advanceTimeBy(Duration.ofSeconds(25));
+        processing.tryEmitEmpty();
+        virtualTimeScheduler.advanceTimeBy(Duration.ofSeconds(60));
+
+        assertEquals(1, visibilityTimeouts.size());
+        assertEquals(0, messagesInFlight());
+    }
+
+    @Test
+    void heartbeatStopsOnError() {
+        stubQueueVisibilityTimeout("600");
+        Sinks.Empty<Void> processing = Sinks.empty();
+
+        sqsVisibilityExtender(60).extendWhileProcessing(QUEUE_NAME, MESSAGE, processing.asMono()).subscribe(null, throwable -> {});
+        virtualTimeScheduler.advanceTimeBy(Duration.ofSeconds(25));
+        processing.tryEmitError(new IllegalStateException("not processed"));
+        virtualTimeScheduler.advanceTimeBy(Duration.ofSeconds(60));
+
+        assertEquals(1, visibilityTimeouts.size());
+        assertEquals(0, messagesInFlight());
+    }
+
+    @Test
+    void heartbeatStopsOnCancel() {
+        stubQueueVisibilityTimeout("600");
+        Sinks.Empty<Void> processing = Sinks.empty();
+
+        var subscription = sqsVisibilityExtender(60).extendWhileProcessing(QUEUE_NAME, MESSAGE, processing.asMono()).subscribe();
+        virtualTimeScheduler.advanceTimeBy(Duration.ofSeconds(25));
+        subscription.dispose();
+        virtualTimeScheduler.advanceTimeBy(Duration.ofSeconds(60));
+
+        assertEquals(1, visibilityTimeouts.size());
+        assertEquals(0, messagesInFlight());
+    }
+
+    @Test
+    void heartbeatStopsAfterTheMaximumExtension() {
+        stubQueueVisibilityTimeout("600");
+        Sinks.Empty<Void> processing = Sinks.empty();
+
+        sqsVisibilityExtender(60, 50L).extendWhileProcessing(QUEUE_NAME, MESSAGE, processing.asMono()).subscribe();
+        virtualTimeScheduler.advanceTimeBy(Duration.ofSeconds(300));
+
+        assertEquals(List.of(600, 600), visibilityTimeouts);
+        assertEquals(1, messagesInFlight());
+        processing.tryEmitEmpty();
+        assertEquals(0, messagesInFlight());
+    }
+
+    @Test
+    void disabledExtenderLeavesTheVisibilityAlone() {
+        var processing = Mono.delay(Duration.ofSeconds(60)).then();
+        var sqsVisibilityExtender = new SqsVisibilityExtender(sqsAsyncClient,
+                                                              sqsQueueUrlRegistry,
+                                                              new SqsVisibilityExtenderProperties(false, 20L, 60, 3600L),
+                                                              meterRegistry);
+
+        assertSame(processing, sqsVisibilityExtender.extendWhileProcessing(QUEUE_NAME, MESSAGE, processing));
+        verifyNoInteractions(sqsAsyncClient);
+    }
+
+    private SqsVisibilityExtender sqsVisibilityExtender(final int visibilityTimeoutSeconds) {
+        return sqsVisibilityExtender(visibilityTimeoutSeconds, 3600L);
+    }
+
+    private SqsVisibilityExtender sqsVisibilityExtender(final int visibilityTimeoutSeconds, final long maxExtensionSeconds) {
+        return new SqsVisibilityExtender(sqsAsyncClient,
+                                         sqsQueueUrlRegistry,
+                                         new SqsVisibilityExtenderProperties(true, 20L, visibilityTimeoutSeconds, maxExtensionSeconds),
+                                         meterRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubQueueVisibilityTimeout(final String visibilityTimeout) {
+        when(sqsAsyncClient.getQueueAttributes(any(Consumer.class))).thenReturn(CompletableFuture.completedFuture(
+                GetQueueAttributesResponse.builder().attributes(Map.of(QueueAttributeName.VISIBILITY_TIMEOUT, visibilityTimeout)).build()));
+    }
+
+    private double messagesInFlight() {
+        return meterRegistry.get("sqs.visibility.messages.in.flight").gauge().value();
+    }
+}
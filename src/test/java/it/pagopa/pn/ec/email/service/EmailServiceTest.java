@@ -2,16 +2,27 @@ package it.pagopa.pn.ec.email.service;
 
 import io.awspring.cloud.messaging.listener.Acknowledgment;
 import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchDrainProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchDrainProperties.ChannelDrain;
 import it.pagopa.pn.ec.commons.exception.ses.SesSendException;
 import it.pagopa.pn.ec.commons.exception.sqs.SqsClientException;
 import it.pagopa.pn.ec.commons.exception.ss.attachment.AttachmentNotAvailableException;
 import it.pagopa.pn.ec.commons.model.dto.NotificationTrackerQueueDto;
 import it.pagopa.pn.ec.commons.model.pojo.email.EmailField;
+import it.pagopa.pn.ec.commons.policy.RetryPolicyRegistry;
 import it.pagopa.pn.ec.commons.rest.call.download.DownloadCall;
+import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
 import it.pagopa.pn.ec.commons.rest.call.ss.file.FileCall;
+import it.pagopa.pn.ec.commons.service.AuthService;
 import it.pagopa.pn.ec.commons.service.SesService;
+import it.pagopa.pn.ec.commons.service.SqsService;
 import it.pagopa.pn.ec.commons.service.impl.AttachmentServiceImpl;
 import it.pagopa.pn.ec.commons.service.impl.SqsServiceImpl;
+import it.pagopa.pn.ec.commons.service.retry.RetryEngine;
+import it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
+import it.pagopa.pn.ec.commons.service.sqs.SqsVisibilityExtender;
+import it.pagopa.pn.ec.email.configurationproperties.EmailDefault;
 import it.pagopa.pn.ec.email.configurationproperties.EmailSqsQueueName;
 import it.pagopa.pn.ec.email.model.pojo.EmailPresaInCaricoInfo;
 import it.pagopa.pn.ec.rest.v1.dto.DigitalProgressStatusDto;
@@ -31,6 +42,7 @@ import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
 import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.time.OffsetDateTime;
+import java.util.Map;
 
 import static it.pagopa.pn.ec.commons.constant.Status.RETRY;
 import static it.pagopa.pn.ec.commons.constant.Status.SENT;
@@ -39,6 +51,8 @@ import static it.pagopa.pn.ec.testutils.constant.EcCommonRestApiConstant.DEFAULT
 import static it.pagopa.pn.ec.testutils.constant.EcCommonRestApiConstant.DEFAULT_REQUEST_IDX;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @SpringBootTestWebEnv
@@ -50,6 +64,9 @@ class EmailServiceTest {
     @Autowired
     private EmailSqsQueueName emailSqsQueueName;
 
+    @Autowired
+    private SqsReactiveConsumer sqsReactiveConsumer;
+
     @Autowired
     private NotificationTrackerSqsName notificationTrackerSqsName;
 
@@ -257,4 +274,28 @@ class EmailServiceTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    void continuousBatchDrainReplacesTheCron() {
+        var continuousConsumer = mock(SqsReactiveConsumer.class);
+        var cronSqsService = mock(SqsService.class);
+        var sqsBatchDrainProperties = new SqsBatchDrainProperties(Map.of(SqsBatchDrainProperties.EMAIL, new ChannelDrain(true, 7.0)));
+        var continuousEmailService = new EmailService(mock(AuthService.class), mock(GestoreRepositoryCall.class), cronSqsService, mock(SesService.class),
+                                                      mock(AttachmentServiceImpl.class), notificationTrackerSqsName, emailSqsQueueName,
+                                                      mock(DownloadCall.class), new EmailDefault("sender"), continuousConsumer,
+                                                      mock(SqsVisibilityExtender.class), mock(SqsConsumerMetrics.class), sqsBatchDrainProperties,
+                                                      mock(RetryEngine.class), mock(RetryPolicyRegistry.class), 10);
+
+        continuousEmailService.startBatchConsumer();
+        continuousEmailService.lavorazioneRichiestaBatch();
+
+        verify(continuousConsumer).consume(eq(emailSqsQueueName.batchName()), eq(EmailPresaInCaricoInfo.class), any(), anyInt(), eq(7.0));
+        verify(cronSqsService, never()).getMessages(any(), any());
+    }
+
+    @Test
+    void interactiveQueueIsConsumedOnStartup() {
+        emailService.startInteractiveConsumer();
+
+        verify(sqsReactiveConsumer).consume(eq(emailSqsQueueName.interactiveName()), eq(EmailPresaInCaricoInfo.class), any(), anyInt());
+    }
+}
@@ -0,0 +1,104 @@
+package it.pagopa.pn.ec.notificationtracker.service;
+
+import io.awspring.cloud.messaging.listener.Acknowledgment;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import it.pagopa.pn.ec.commons.configurationproperties.TransactionProcessConfigurationProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsMessageDeduplicatorProperties;
+import it.pagopa.pn.ec.commons.model.dto.NotificationTrackerQueueDto;
+import it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics;
+import it.pagopa.pn.ec.commons.service.sqs.SqsMessageDeduplicator;
+import it.pagopa.pn.ec.notificationtracker.service.impl.NotificationTrackerMessageReceiver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class NotificationTrackerMessageReceiverDeduplicationTest {
+
+    private static final String STATO_SMS = "stato-sms";
+    private static final String STATO_SMS_ERRATO = "stato-sms-errato";
+
+    private final NotificationTrackerService notificationTrackerService = mock(NotificationTrackerService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SqsMessageDeduplicator sqsMessageDeduplicator =
+            new SqsMessageDeduplicator(new SqsMessageDeduplicatorProperties(true, 100L, 60L, List.of()), meterRegistry);
+    private final NotificationTrackerMessageReceiver notificationTrackerMessageReceiver =
+            new NotificationTrackerMessageReceiver(notificationTrackerService,
+                                                   new NotificationTrackerSqsName(STATO_SMS, STATO_SMS_ERRATO, "stato-sms-dlq",
+                                                                                  "stato-email", "stato-email-errato", "stato-email-dlq",
+                                                                                  "stato-pec", "stato-pec-errato", "stato-pec-dlq",
+                                                                                  "stato-cartaceo", "stato-cartaceo-errato",
+                                                                                  "stato-cartaceo-dlq", 0, 0L),
+                                                   new TransactionProcessConfigurationProperties(null, "SMS", null, "EMAIL", null, "PEC",
+                                                                                                 null, "PAPER", null),
+                                                   sqsMessageDeduplicator,
+                                                   new SqsConsumerMetrics(meterRegistry));
+    private final NotificationTrackerQueueDto notificationTrackerQueueDto =
+            NotificationTrackerQueueDto.builder().xPagopaExtchCxId("cxId").requestIdx("requestIdx").build();
+
+    @BeforeEach
+    void acknowledgeOnProcessing() {
+        when(notificationTrackerService.handleRequestStatusChange(any(), anyString(), anyString(), anyString(), any()))
+                .thenAnswer(invocation -> Mono.fromRunnable(() -> invocation.<Acknowledgment>getArgument(4).acknowledge()));
+        when(notificationTrackerService.handleMessageFromErrorQueue(any(), anyString(), any()))
+                .thenAnswer(invocation -> Mono.fromRunnable(() -> invocation.<Acknowledgment>getArgument(2).acknowledge()));
+    }
+
+    @Test
+    void acknowledgedMessageIsMarkedAsCompleted() {
+        var acknowledgment = mock(Acknowledgment.class);
+
+        notificationTrackerMessageReceiver.receiveSMSObjectMessage(notificationTrackerQueueDto, acknowledgment, headers("id-1"));
+
+        verify(notificationTrackerService).handleRequestStatusChange(eq(notificationTrackerQueueDto), eq("SMS"), eq(STATO_SMS),
+                                                                     eq(STATO_SMS_ERRATO), any());
+        verify(acknowledgment).acknowledge();
+        assertTrue(sqsMessageDeduplicator.isCompleted(STATO_SMS, "id-1", null));
+    }
+
+    @Test
+    void redeliveredMessageIsAcknowledgedWithoutBeingProcessed() {
+        sqsMessageDeduplicator.markCompleted(STATO_SMS, "id-1", null);
+        var acknowledgment = mock(Acknowledgment.class);
+
+        notificationTrackerMessageReceiver.receiveSMSObjectMessage(notificationTrackerQueueDto, acknowledgment, headers("id-1"));
+
+        verify(acknowledgment).acknowledge();
+        verifyNoInteractions(notificationTrackerService);
+    }
+
+    @Test
+    void redeliveredErrorQueueMessageIsAcknowledgedWithoutBeingProcessed() {
+        var acknowledgment = mock(Acknowledgment.class);
+
+        notificationTrackerMessageReceiver.receiveSMSObjectFromErrorQueue(notificationTrackerQueueDto, acknowledgment, headers("id-1"));
+        notificationTrackerMessageReceiver.receiveSMSObjectFromErrorQueue(notificationTrackerQueueDto, acknowledgment, headers("id-1"));
+
+        verify(notificationTrackerService, times(1)).handleMessageFromErrorQueue(eq(notificationTrackerQueueDto), eq(STATO_SMS), any());
+        verify(acknowledgment, times(2)).acknowledge();
+    }
+
+    @Test
+    void sameMessageIdOnAnotherQueueIsProcessed() {
+        sqsMessageDeduplicator.markCompleted(STATO_SMS_ERRATO, "id-1", null);
+
+        notificationTrackerMessageReceiver.receiveSMSObjectMessage(notificationTrackerQueueDto, mock(Acknowledgment.class), headers("id-1"));
+
+        verify(notificationTrackerService).handleRequestStatusChange(eq(notificationTrackerQueueDto), eq("SMS"), eq(STATO_SMS),
+                                                                     eq(STATO_SMS_ERRATO), any());
+    }
+
+    private static Map<String, Object> headers(String messageId) {
+        return Map.of("MessageId", messageId, SqsConsumerMetrics.SENT_TIMESTAMP, String.valueOf(System.currentTimeMillis()),
+                      SqsConsumerMetrics.APPROXIMATE_RECEIVE_COUNT, "1");
+    }
+}
@@ -2,18 +2,28 @@ package it.pagopa.pn.ec.pec.service.impl;
 
 import io.awspring.cloud.messaging.listener.Acknowledgment;
 import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchDrainProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchDrainProperties.ChannelDrain;
+import it.pagopa.pn.ec.commons.policy.RetryPolicyRegistry;
+import it.pagopa.pn.ec.commons.rest.call.aruba.ArubaCall;
 import it.pagopa.pn.ec.commons.rest.call.aruba.ArubaCallImpl;
 import it.pagopa.pn.ec.commons.rest.call.download.DownloadCall;
 import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
 import it.pagopa.pn.ec.commons.rest.call.ss.file.FileCall;
 import it.pagopa.pn.ec.commons.service.AuthService;
+import it.pagopa.pn.ec.commons.service.SqsService;
 import it.pagopa.pn.ec.commons.service.impl.AttachmentServiceImpl;
 import it.pagopa.pn.ec.commons.service.impl.SqsServiceImpl;
+import it.pagopa.pn.ec.commons.service.retry.RetryEngine;
+import it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
+import it.pagopa.pn.ec.commons.service.sqs.SqsVisibilityExtender;
 import it.pagopa.pn.ec.pec.configurationproperties.PecSqsQueueName;
 import it.pagopa.pn.ec.pec.configurationproperties.PnPecConfigurationProperties;
 import it.pagopa.pn.ec.pec.model.pojo.PecPresaInCaricoInfo;
 import it.pagopa.pn.ec.rest.v1.dto.*;
 import it.pagopa.pn.ec.testutils.annotation.SpringBootTestWebEnv;
+import it.pagopa.pn.library.pec.model.pojo.ArubaSecretValue;
 import it.pec.bridgews.SendMail;
 import it.pec.bridgews.SendMailResponse;
 import org.junit.jupiter.api.AfterEach;
@@ -39,6 +49,7 @@ import java.math.BigDecimal;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import static it.pagopa.pn.ec.commons.constant.Status.*;
 import static it.pagopa.pn.ec.commons.utils.EmailUtils.*;
@@ -49,6 +60,7 @@ import static it.pagopa.pn.ec.testutils.constant.EcCommonRestApiConstant.DEFAULT
 import static it.pagopa.pn.ec.testutils.constant.EcCommonRestApiConstant.DEFAULT_REQUEST_IDX;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -60,6 +72,8 @@ class PecServiceTest {
     private NotificationTrackerSqsName notificationTrackerSqsName;
     @Autowired
     private PecSqsQueueName pecSqsQueueName;
+    @Autowired
+    private SqsReactiveConsumer sqsReactiveConsumer;
     @MockBean
     private FileCall uriBuilderCall;
     @MockBean
@@ -356,4 +370,28 @@ class PecServiceTest {
         when(attachmentService.getAllegatiPresignedUrlOrMetadata(anyList(), any(), eq(false))).thenReturn(Flux.fromIterable(fileDownloadResponseList));
     }
 
-}
\ No newline at end of file
+    @Test
+    void continuousBatchDrainReplacesTheCron() {
+        var continuousConsumer = mock(SqsReactiveConsumer.class);
+        var cronSqsService = mock(SqsService.class);
+        var sqsBatchDrainProperties = new SqsBatchDrainProperties(Map.of(SqsBatchDrainProperties.PEC, new ChannelDrain(true, 7.0)));
+        var continuousPecService = new PecService(mock(AuthService.class), mock(ArubaCall.class), mock(GestoreRepositoryCall.class), cronSqsService,
+                                                  mock(AttachmentServiceImpl.class), mock(DownloadCall.class), mock(ArubaSecretValue.class),
+                                                  notificationTrackerSqsName, pecSqsQueueName, continuousConsumer, mock(SqsVisibilityExtender.class),
+                                                  mock(SqsConsumerMetrics.class), sqsBatchDrainProperties, mock(RetryEngine.class),
+                                                  mock(RetryPolicyRegistry.class), 10, pnPecConfigurationProperties);
+
+        continuousPecService.startBatchConsumer();
+        continuousPecService.lavorazioneRichiestaBatch();
+
+        verify(continuousConsumer).consume(eq(pecSqsQueueName.batchName()), eq(PecPresaInCaricoInfo.class), any(), anyInt(), eq(7.0));
+        verify(cronSqsService, never()).getMessages(any(), any());
+    }
+
+    @Test
+    void interactiveQueueIsConsumedOnStartup() {
+        pecService.startInteractiveConsumer();
+
+        verify(sqsReactiveConsumer).consume(eq(pecSqsQueueName.interactiveName()), eq(PecPresaInCaricoInfo.class), any(), anyInt());
+    }
+}
@@ -3,7 +3,9 @@ package it.pagopa.pn.ec.scaricamentoesitipec.service;
 import io.awspring.cloud.messaging.listener.Acknowledgment;
 import it.pagopa.pn.ec.commons.rest.call.RestCallException;
 import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
 import it.pagopa.pn.ec.rest.v1.dto.*;
+import it.pagopa.pn.ec.scaricamentoesitipec.configurationproperties.CancellazioneRicevutePecProperties;
 import it.pagopa.pn.ec.scaricamentoesitipec.model.pojo.CancellazioneRicevutePecDto;
 import it.pagopa.pn.ec.testutils.annotation.SpringBootTestWebEnv;
 import it.pagopa.pn.library.pec.exception.pecservice.DeleteMessageException;
@@ -17,6 +19,8 @@ import reactor.test.StepVerifier;
 
 import java.util.List;
 
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @SpringBootTestWebEnv
@@ -30,6 +34,10 @@ public class CancellazioneRicevutePecServiceTest {
     GestoreRepositoryCall gestoreRepositoryCall;
     @MockBean
     PnPecService pnPecService;
+    @Autowired
+    CancellazioneRicevutePecProperties cancellazioneRicevutePecProperties;
+    @Autowired
+    SqsReactiveConsumer sqsReactiveConsumer;
 
     private final String CLIENT_ID = "CLIENT_ID";
     private final String REQUEST_ID = "REQUEST_ID";
@@ -110,6 +118,16 @@ public class CancellazioneRicevutePecServiceTest {
         StepVerifier.create(testMono).verifyComplete();
     }
 
+    @Test
+    void queueIsConsumedOnStartup() {
+        cancellazioneRicevutePecService.startInteractiveConsumer();
+
+        verify(sqsReactiveConsumer).consume(eq(cancellazioneRicevutePecProperties.sqsQueueName()),
+                                            eq(CancellazioneRicevutePecDto.class),
+                                            any(),
+                                            anyInt());
+    }
+
     private CancellazioneRicevutePecDto buildCancellazioneRicevutePecDto() {
         LegalMessageSentDetails legalMessageSentDetails = new LegalMessageSentDetails();
         legalMessageSentDetails.setEventCode(LegalMessageSentDetails.EventCodeEnum.C000);
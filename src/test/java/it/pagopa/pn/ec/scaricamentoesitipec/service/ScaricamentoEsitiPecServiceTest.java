@@ -11,9 +11,11 @@ import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryC
 import it.pagopa.pn.ec.commons.service.AuthService;
 import it.pagopa.pn.ec.commons.service.S3Service;
 import it.pagopa.pn.ec.commons.service.SqsService;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
 import it.pagopa.pn.ec.commons.utils.EmailUtils;
 import it.pagopa.pn.ec.pec.model.pojo.ArubaSecretValue;
 import it.pagopa.pn.ec.rest.v1.dto.*;
+import it.pagopa.pn.ec.scaricamentoesitipec.configurationproperties.ScaricamentoEsitiPecProperties;
 import it.pagopa.pn.ec.scaricamentoesitipec.model.pojo.RicezioneEsitiPecDto;
 import it.pagopa.pn.ec.scaricamentoesitipec.utils.CloudWatchPecMetrics;
 import it.pagopa.pn.ec.testutils.annotation.SpringBootTestWebEnv;
@@ -49,6 +51,7 @@ import static it.pagopa.pn.ec.rest.v1.dto.DigitalNotificationRequest.MessageCont
 import static it.pagopa.pn.ec.scaricamentoesitipec.constant.PostacertTypes.*;
 import static it.pagopa.pn.ec.scaricamentoesitipec.utils.PecUtils.generateDaticertAccettazione;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -60,6 +63,10 @@ public class ScaricamentoEsitiPecServiceTest {
     private NotificationTrackerSqsName notificationTrackerSqsName;
     @Autowired
     private ArubaSecretValue arubaSecretValue;
+    @Autowired
+    private ScaricamentoEsitiPecProperties scaricamentoEsitiPecProperties;
+    @Autowired
+    private SqsReactiveConsumer sqsReactiveConsumer;
     @MockBean
     private Acknowledgment acknowledgment;
     @MockBean
@@ -166,6 +173,13 @@ public class ScaricamentoEsitiPecServiceTest {
         StepVerifier.create(testMono).expectError().verify();
     }
 
+    @Test
+    void queueIsConsumedOnStartup() {
+        lavorazioneEsitiPecService.startInteractiveConsumer();
+
+        verify(sqsReactiveConsumer).consume(eq(scaricamentoEsitiPecProperties.sqsQueueName()), eq(RicezioneEsitiPecDto.class), any(), anyInt());
+    }
+
     private RequestDto pecRequest() {
         var requestPersonal = new RequestPersonalDto().digitalRequestPersonal(new DigitalRequestPersonalDto());
         var requestMetadata = new RequestMetadataDto().digitalRequestMetadata(new DigitalRequestMetadataDto().channel(DigitalRequestMetadataDto.ChannelEnum.PEC));
@@ -3,11 +3,21 @@ package it.pagopa.pn.ec.sms.service;
 
 import io.awspring.cloud.messaging.listener.Acknowledgment;
 import it.pagopa.pn.ec.commons.configurationproperties.sqs.NotificationTrackerSqsName;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchDrainProperties;
+import it.pagopa.pn.ec.commons.configurationproperties.sqs.SqsBatchDrainProperties.ChannelDrain;
 import it.pagopa.pn.ec.commons.exception.sns.SnsSendException;
 import it.pagopa.pn.ec.commons.exception.sqs.SqsClientException;
 import it.pagopa.pn.ec.commons.model.dto.NotificationTrackerQueueDto;
+import it.pagopa.pn.ec.commons.policy.RetryPolicyRegistry;
+import it.pagopa.pn.ec.commons.rest.call.ec.gestorerepository.GestoreRepositoryCall;
+import it.pagopa.pn.ec.commons.service.AuthService;
 import it.pagopa.pn.ec.commons.service.SnsService;
+import it.pagopa.pn.ec.commons.service.SqsService;
 import it.pagopa.pn.ec.commons.service.impl.SqsServiceImpl;
+import it.pagopa.pn.ec.commons.service.retry.RetryEngine;
+import it.pagopa.pn.ec.commons.service.sqs.SqsConsumerMetrics;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
+import it.pagopa.pn.ec.commons.service.sqs.SqsVisibilityExtender;
 import it.pagopa.pn.ec.rest.v1.dto.DigitalProgressStatusDto;
 import it.pagopa.pn.ec.sms.configurationproperties.SmsSqsQueueName;
 import it.pagopa.pn.ec.sms.model.pojo.SmsPresaInCaricoInfo;
@@ -20,6 +30,8 @@ import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 import software.amazon.awssdk.services.sqs.model.SendMessageResponse;
 
+import java.util.Map;
+
 import static it.pagopa.pn.ec.commons.constant.Status.RETRY;
 import static it.pagopa.pn.ec.commons.constant.Status.SENT;
 import static it.pagopa.pn.ec.sms.testutils.DigitalCourtesySmsRequestFactory.createSmsRequest;
@@ -37,6 +49,9 @@ class SmsServiceTest {
     @Autowired
     private SmsSqsQueueName smsSqsQueueName;
 
+    @Autowired
+    private SqsReactiveConsumer sqsReactiveConsumer;
+
     @Autowired
     private NotificationTrackerSqsName notificationTrackerSqsName;
 
@@ -130,4 +145,27 @@ class SmsServiceTest {
         verify(smsService, times(1)).sendNotificationOnErrorQueue(eq(SMS_PRESA_IN_CARICO_INFO));
     }
 
-}
\ No newline at end of file
+    @Test
+    void continuousBatchDrainReplacesTheCron() {
+        var continuousConsumer = mock(SqsReactiveConsumer.class);
+        var cronSqsService = mock(SqsService.class);
+        var sqsBatchDrainProperties = new SqsBatchDrainProperties(Map.of(SqsBatchDrainProperties.SMS, new ChannelDrain(true, 7.0)));
+        var continuousSmsService = new SmsService(mock(AuthService.class), cronSqsService, mock(SnsService.class), mock(GestoreRepositoryCall.class),
+                                                  notificationTrackerSqsName, smsSqsQueueName, continuousConsumer, mock(SqsVisibilityExtender.class),
+                                                  mock(SqsConsumerMetrics.class), sqsBatchDrainProperties, mock(RetryEngine.class),
+                                                  mock(RetryPolicyRegistry.class), 10);
+
+        continuousSmsService.startBatchConsumer();
+        continuousSmsService.lavorazioneRichiestaBatch();
+
+        verify(continuousConsumer).consume(eq(smsSqsQueueName.batchName()), eq(SmsPresaInCaricoInfo.class), any(), anyInt(), eq(7.0));
+        verify(cronSqsService, never()).getMessages(any(), any());
+    }
+
+    @Test
+    void interactiveQueueIsConsumedOnStartup() {
+        smsService.startInteractiveConsumer();
+
+        verify(sqsReactiveConsumer).consume(eq(smsSqsQueueName.interactiveName()), eq(SmsPresaInCaricoInfo.class), any(), anyInt());
+    }
+}
@@ -1,6 +1,7 @@
 package it.pagopa.pn.ec.testutils.configuration;
 
 import io.awspring.cloud.messaging.listener.SimpleMessageListenerContainer;
+import it.pagopa.pn.ec.commons.service.sqs.SqsReactiveConsumer;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
@@ -12,4 +13,7 @@ public class MockMessageListenerConfiguration {
 
     @MockBean
     private SimpleMessageListenerContainer messageListenerContainer;
+
+    @MockBean
+    private SqsReactiveConsumer sqsReactiveConsumer;
 }